@@ -0,0 +1,143 @@
+package edu.ramapo.tweisse.konojava;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that Player.FindBestMove() makes exactly the same decisions as the original Vector based
+ * AI, and measures how much faster it is on the same calls.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlayerDecisionTest {
+
+    /** The number of random positions compared by the differential test. */
+    private static final int NUM_POSITIONS = 1000000;
+
+    /** The number of positions the benchmark cycles through, and how many calls it times. */
+    private static final int BENCH_POSITIONS = 1000;
+    private static final int BENCH_CALLS = 200000;
+
+    /** The board sizes that random positions are generated for. */
+    private static final int BOARD_SIZES[] = {5, 7, 9};
+
+    /** The cell values a random board is filled with. */
+    private static final byte CELLS[] = {Board.EMPTY, Board.WHITE, Board.WHITE_CAPTURE, Board.BLACK, Board.BLACK_CAPTURE};
+
+    /**
+     * Feeds a java.util.Random to the AI, so that it sees the same numbers as the legacy AI.
+     */
+    private static final class JavaRandomSource implements RandomSource {
+        private final Random m_rand;
+
+        JavaRandomSource(Random rand){
+            m_rand = rand;
+        }
+
+        @Override
+        public int NextInt(int bound){
+            return m_rand.nextInt(bound);
+        }
+
+        @Override
+        public long NextLong(){
+            return m_rand.nextLong();
+        }
+
+        @Override
+        public RandomSource Split(){
+            return new JavaRandomSource(new Random(m_rand.nextLong()));
+        }
+    }
+
+    @Test
+    public void findBestMove_matchesLegacy() throws Exception {
+        Random positions = new Random(26);
+        for (int i = 0; i < NUM_POSITIONS; i++){
+            Board board = RandomBoard(positions);
+            for (PlayerColor color : new PlayerColor[]{PlayerColor.WHITE, PlayerColor.BLACK}){
+                long seed = positions.nextLong();
+                Move expected = new LegacyPlayerAI(color).FindBestMove(board, new Random(seed));
+                int packed = new Player(color, 0).FindBestMove(board, new JavaRandomSource(new Random(seed)));
+                Move actual = Move.FromPacked(packed, board.GetSize());
+
+                String where = "position " + i + ", " + color;
+                assertEquals(where, expected.GetAction(), actual.GetAction());
+                assertEquals(where, expected.GetReason(), actual.GetReason());
+                assertEquals(where, expected.toString(), actual.toString());
+            }
+        }
+    }
+
+    @Test
+    public void findBestMove_benchmark() throws Exception {
+        Random positions = new Random(27);
+        Board boards[] = new Board[BENCH_POSITIONS];
+        for (int i = 0; i < boards.length; i++){
+            boards[i] = RandomBoard(positions);
+        }
+
+        LegacyPlayerAI legacy = new LegacyPlayerAI(PlayerColor.WHITE);
+        Player player = new Player(PlayerColor.WHITE, 0);
+        // Each side gets its own copy of the same numbers, so both should choose the same moves.
+        Random legacyRand = new Random(28);
+        RandomSource source = new JavaRandomSource(new Random(28));
+
+        // Warm up both implementations before timing them.
+        for (int i = 0; i < BENCH_CALLS / 10; i++){
+            legacy.FindBestMove(boards[i % boards.length], legacyRand);
+            player.FindBestMove(boards[i % boards.length], source);
+        }
+
+        Move legacyMoves[] = new Move[BENCH_CALLS];
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCH_CALLS; i++){
+            legacyMoves[i] = legacy.FindBestMove(boards[i % boards.length], legacyRand);
+        }
+        long legacyNanos = System.nanoTime() - start;
+
+        int playerMoves[] = new int[BENCH_CALLS];
+        start = System.nanoTime();
+        for (int i = 0; i < BENCH_CALLS; i++){
+            playerMoves[i] = player.FindBestMove(boards[i % boards.length], source);
+        }
+        long playerNanos = System.nanoTime() - start;
+
+        Log.i("PlayerDecisionTest", String.format("FindBestMove: legacy %.2f us/call, current %.2f us/call, %.1fx speedup",
+                legacyNanos / 1000.0 / BENCH_CALLS, playerNanos / 1000.0 / BENCH_CALLS, (double)legacyNanos / playerNanos));
+
+        // The timings only mean something if both made the same decisions.
+        for (int i = 0; i < BENCH_CALLS; i++){
+            Move actual = Move.FromPacked(playerMoves[i], boards[i % boards.length].GetSize());
+            assertEquals("Call " + i, legacyMoves[i].toString(), actual.toString());
+        }
+    }
+
+    /**
+     * Builds a board of random size with random occupants, including capture capable pieces.
+     * @param rand The Random object used to generate the position.
+     * @return A Board object holding the random position.
+     */
+    private static Board RandomBoard(Random rand){
+        int size = BOARD_SIZES[rand.nextInt(BOARD_SIZES.length)];
+        // Vary how crowded the board is so that sparse endgames and crowded openings are both covered.
+        int emptyChance = rand.nextInt(100);
+
+        byte cells[] = new byte[size * size];
+        for (int i = 0; i < size * size; i++){
+            if (rand.nextInt(100) < emptyChance){
+                cells[i] = CELLS[0];
+            }
+            else {
+                cells[i] = CELLS[1 + rand.nextInt(CELLS.length - 1)];
+            }
+        }
+        return new Board(size, cells);
+    }
+}
@@ -0,0 +1,162 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Fills a GameArchive with games between the random and heuristic engines and times lookups of
+ * positions taken from those games, on the desktop. The archive is closed and opened again before
+ * the lookups, so they read what was written to the files. A position from the first game is
+ * counted again by replaying every game, to check the counts the archive returns.
+ *
+ *   ArchiveBenchmark --dir DIR [--games N] [--lookups N] [--seed N]
+ */
+public class ArchiveBenchmark {
+
+    /** The board sizes played on. */
+    private static final int SIZES[] = {5, 7, 9};
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private ArchiveBenchmark(){
+    }
+
+    /**
+     * Plays a game between the random and heuristic engines, with random colors.
+     * @param number The number of the game.
+     * @param random The RandomSource to draw the game's seed from.
+     * @return The GameResult, holding the moves.
+     */
+    private static GameResult PlayGame(int number, RandomSource random){
+        int size = SIZES[number % SIZES.length];
+        int first = random.NextInt(2) + 1;
+        return HeadlessGame.PlayGame(number, HeadlessGame.ENGINE_RANDOM, HeadlessGame.ENGINE_HEURISTIC, size, first,
+                new SplitRandom(random.NextLong()), HeadlessGame.DEFAULT_MAX_PLIES);
+    }
+
+    /**
+     * Replays a game to a given ply.
+     * @param game The ArchivedGame.
+     * @param ply The number of moves to play.
+     * @return The Board after the moves.
+     */
+    private static Board Replay(GameArchive.ArchivedGame game, int ply){
+        Board board = game.GetStart();
+        int moves[] = game.GetMoves();
+        for (int i = 0; i < ply; i++){
+            board.Apply(moves[i]);
+        }
+        return board;
+    }
+
+    /**
+     * Builds the archive, checks it, and times the lookups.
+     * @param args The options described above.
+     * @exception IOException If the archive can't be written or read.
+     */
+    public static void main(String args[]) throws IOException {
+        CommandLine line = new CommandLine(args, "--dir", "--games", "--lookups", "--seed");
+        File dir = line.GetFile("--dir");
+        int games = line.GetInt("--games", 20000);
+        int lookups = line.GetInt("--lookups", 100000);
+        long seed = line.GetLong("--seed", 1);
+        if (dir == null){
+            throw new IllegalArgumentException("An archive directory must be given with --dir.");
+        }
+        dir.mkdirs();
+
+        // Fill the archive, timing only the adds.
+        SplitRandom random = new SplitRandom(seed);
+        GameArchive archive = new GameArchive(dir);
+        long first = archive.GetPositionCount() == 0 ? 0 : -1;
+        long refs[] = new long[games];
+        long addNanos = 0;
+        for (int i = 0; i < games; i++){
+            GameResult result = PlayGame(i, random);
+            long start = System.nanoTime();
+            refs[i] = archive.Add(result);
+            addNanos += System.nanoTime() - start;
+        }
+        long positions = archive.GetPositionCount();
+        archive.Close();
+        System.out.println(String.format("Added %d games, %d positions: %.2fus per game, %.0f positions/s.",
+                games, positions, addNanos / 1000.0 / games, positions * 1e9 / addNanos));
+
+        // Check a position by replaying every game, when the archive started out empty.
+        long openStart = System.nanoTime();
+        archive = new GameArchive(dir);
+        System.out.println(String.format("Opened in %.1fms: %d positions under %d keys.",
+                (System.nanoTime() - openStart) / 1e6, archive.GetPositionCount(), archive.GetIndexedKeys()));
+        if (first == 0){
+            // A position a few moves into the first game, which other games should reach too.
+            GameArchive.ArchivedGame probeGame = archive.Read(refs[0]);
+            int probePly = Math.min(2, probeGame.GetMoves().length);
+            Board probe = Replay(probeGame, probePly);
+            PlayerColor toMove = probePly % 2 == 0 ? probeGame.GetFirstColor() : PlayerColor.Opponent(probeGame.GetFirstColor());
+            long expected = 0;
+            long whiteWins = 0;
+            for (int i = 0; i < games; i++){
+                GameArchive.ArchivedGame game = archive.Read(refs[i]);
+                Board board = game.GetStart();
+                PlayerColor color = game.GetFirstColor();
+                int moves[] = game.GetMoves();
+                for (int ply = 0; ply <= moves.length; ply++){
+                    if (color == toMove && board.GetHash() == probe.GetHash()){
+                        expected++;
+                        whiteWins += game.GetWinner() == PlayerColor.WHITE ? 1 : 0;
+                    }
+                    if (ply == moves.length || !PackedMove.IsPlay(moves[ply])){
+                        break;
+                    }
+                    board.Apply(moves[ply]);
+                    color = PlayerColor.Opponent(color);
+                }
+            }
+            GameArchive.PositionStats stats = archive.Lookup(probe, toMove);
+            if (stats.GetGames() != expected || stats.GetWins(PlayerColor.WHITE) != whiteWins){
+                throw new IllegalStateException("Archive counted " + stats.GetGames() + " and " + stats.GetWins(PlayerColor.WHITE)
+                        + " white wins, replaying counted " + expected + " and " + whiteWins + ".");
+            }
+            System.out.println(String.format("Checked a position reached %d times, %d won by white.", expected, whiteWins));
+        }
+
+        // Take the lookups from random plies of random games, so most are found.
+        Board boards[] = new Board[Math.min(lookups, 10000)];
+        PlayerColor colors[] = new PlayerColor[boards.length];
+        for (int i = 0; i < boards.length; i++){
+            GameArchive.ArchivedGame game = archive.Read(refs[random.NextInt(games)]);
+            int moves = game.GetMoves().length;
+            int ply = random.NextInt(moves + 1);
+            if (ply == moves && moves > 0 && !PackedMove.IsPlay(game.GetMoves()[moves - 1])){
+                ply--;
+            }
+            boards[i] = Replay(game, ply);
+            colors[i] = ply % 2 == 0 ? game.GetFirstColor() : PlayerColor.Opponent(game.GetFirstColor());
+        }
+
+        long found = 0;
+        long nextMoves = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++){
+            GameArchive.PositionStats stats = archive.Lookup(boards[i % boards.length], colors[i % boards.length]);
+            found += stats.GetGames() > 0 ? 1 : 0;
+            nextMoves += stats.GetMoveCount();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(String.format("%d lookups: %.2fus each, %d found, %.1f next moves on average.",
+                lookups, nanos / 1000.0 / lookups, found, (double)nextMoves / lookups));
+
+        long gameRefs[] = new long[100];
+        int plies[] = new int[100];
+        start = System.nanoTime();
+        long listed = 0;
+        for (int i = 0; i < boards.length; i++){
+            listed += archive.FindGames(boards[i], colors[i], gameRefs, plies);
+        }
+        nanos = System.nanoTime() - start;
+        System.out.println(String.format("%d game lists of up to %d: %.2fus each, %.1f games on average.",
+                boards.length, gameRefs.length, nanos / 1000.0 / boards.length, (double)listed / boards.length));
+        archive.Close();
+    }
+}
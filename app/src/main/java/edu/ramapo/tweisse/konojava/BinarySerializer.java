@@ -0,0 +1,432 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and loads tournaments in a compact binary format, holding the same information as the text
+ * format written by Serializer. The text format stays the one for sharing and reading by hand; the
+ * binary one is small and quick enough to save after every move.
+ *
+ * Every number is big endian. A version 1 file is laid out as follows:
+ *   0 - 3   The magic bytes KONO.
+ *   4       The format version.
+ *   5 - 8   The round number.
+ *   9       Flags. Bit 0 is set if player 1 is a computer, bit 1 if player 2 is. Bit 2 is set if
+ *           player 1 is black, bit 3 if player 2 is. Bit 4 is set if player 2 moves next.
+ *   10 - 13 Player 1's tournament score.
+ *   14 - 17 Player 2's tournament score.
+ *   18      The size of the board.
+ *   19 -    The board, 3 bits per cell in row order, using the cell values of Board. The first cell
+ *           is in the top bits of the first byte, and the last byte is padded with zeros.
+ *   Last 4  The CRC32 of every byte before it.
+ *
+ * Version 2 adds the game's move history, when it has one, between the board and the checksum:
+ *           The board the history starts from, packed like the board above.
+ *   1       The player that made the first move of the history.
+ *   4       The number of moves in the history.
+ *   4       The number of those moves played to reach the board above.
+ *   2 each  The moves. A move of a piece is its cell shifted left 2, plus its MoveDirection
+ *           ordinal. A quit is 0xFFFF.
+ * A game without a history is still written as version 1.
+ */
+public class BinarySerializer {
+
+    /** The file extension used for binary saves. */
+    public static final String EXTENSION = ".kono";
+
+    /** The bytes every binary save starts with, and how many there are. */
+    private static final byte MAGIC[] = {'K', 'O', 'N', 'O'};
+    public static final int MAGIC_LENGTH = 4;
+
+    /** The newest version written by this class. Games without a history are written as version 1. */
+    public static final int VERSION = 2;
+
+    /** The offsets of each field. */
+    private static final int VERSION_OFFSET = 4;
+    private static final int ROUND_OFFSET = 5;
+    private static final int FLAGS_OFFSET = 9;
+    private static final int P1_SCORE_OFFSET = 10;
+    private static final int P2_SCORE_OFFSET = 14;
+    private static final int SIZE_OFFSET = 18;
+    private static final int BOARD_OFFSET = 19;
+
+    /** The bits of the flags byte. */
+    private static final int P1_COMPUTER = 1;
+    private static final int P2_COMPUTER = 1 << 1;
+    private static final int P1_BLACK = 1 << 2;
+    private static final int P2_BLACK = 1 << 3;
+    private static final int P2_NEXT = 1 << 4;
+
+    /** The length of the history's fixed fields, and of each move, and the value of a quit. */
+    private static final int HISTORY_HEADER = 9;
+    private static final int MOVE_LENGTH = 2;
+    private static final int QUIT = 0xFFFF;
+
+    /** The bits used by each cell. */
+    private static final int BITS_PER_CELL = 3;
+
+    /** The length of the checksum at the end of the data. */
+    private static final int CHECKSUM_LENGTH = 4;
+
+    /** The largest save read. Reads stop here, so a huge file can't use up memory. */
+    private static final int MAX_LENGTH = 1 << 20;
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private BinarySerializer(){
+    }
+
+    /**
+     * Gets the length of a save of a given board size.
+     * @param boardSize The size of the board.
+     * @return The number of bytes Encode() writes for the board size.
+     */
+    public static int EncodedLength(int boardSize){
+        return BOARD_OFFSET + BoardLength(boardSize) + CHECKSUM_LENGTH;
+    }
+
+    /**
+     * Gets the length of a save holding a history.
+     * @param boardSize The size of the board.
+     * @param moves The number of moves in the history.
+     * @return The number of bytes Encode() writes for the board size and history.
+     */
+    public static int EncodedLength(int boardSize, int moves){
+        return EncodedLength(boardSize) + BoardLength(boardSize) + HISTORY_HEADER + moves * MOVE_LENGTH;
+    }
+
+    /**
+     * Encodes a tournament.
+     * @param tourn The Tournament object we want to save.
+     * @return A byte array holding the save.
+     */
+    public static byte[] Encode(Tournament tourn){
+        Game game = tourn.GetGame();
+        Board board = game.GetBoard();
+        int size = board.GetSize();
+        int moves = game.GetMoveCount();
+        byte data[] = new byte[moves == 0 ? EncodedLength(size) : EncodedLength(size, moves)];
+
+        System.arraycopy(MAGIC, 0, data, 0, MAGIC_LENGTH);
+        data[VERSION_OFFSET] = (byte)(moves == 0 ? 1 : VERSION);
+        PutInt(data, ROUND_OFFSET, tourn.GetRoundNum());
+        int flags = 0;
+        if (tourn.GetPlayerType(1) == PlayerType.COMPUTER){
+            flags |= P1_COMPUTER;
+        }
+        if (tourn.GetPlayerType(2) == PlayerType.COMPUTER){
+            flags |= P2_COMPUTER;
+        }
+        if (game.GetPlayer(1).GetColor() == PlayerColor.BLACK){
+            flags |= P1_BLACK;
+        }
+        if (game.GetPlayer(2).GetColor() == PlayerColor.BLACK){
+            flags |= P2_BLACK;
+        }
+        if (game.GetNextPlayer() == 2){
+            flags |= P2_NEXT;
+        }
+        data[FLAGS_OFFSET] = (byte)flags;
+        PutInt(data, P1_SCORE_OFFSET, tourn.GetPlayerScore(1));
+        PutInt(data, P2_SCORE_OFFSET, tourn.GetPlayerScore(2));
+        data[SIZE_OFFSET] = (byte)size;
+
+        PackBoard(board, data, BOARD_OFFSET);
+
+        if (moves > 0){
+            int offset = BOARD_OFFSET + BoardLength(size);
+            PackBoard(game.GetHistoryStart(), data, offset);
+            offset += BoardLength(size);
+            data[offset] = (byte)game.GetFirstPlayer();
+            PutInt(data, offset + 1, moves);
+            PutInt(data, offset + 5, game.GetPly());
+            offset += HISTORY_HEADER;
+            for (int i = 0; i < moves; i++, offset += MOVE_LENGTH){
+                int move = game.GetMove(i);
+                int value = PackedMove.IsPlay(move) ? (PackedMove.GetFrom(move) << 2) | PackedMove.GetDirectionIndex(move) : QUIT;
+                data[offset] = (byte)(value >>> 8);
+                data[offset + 1] = (byte)value;
+            }
+        }
+
+        int checked = data.length - CHECKSUM_LENGTH;
+        PutInt(data, checked, Checksum(data, 0, checked));
+        return data;
+    }
+
+    /**
+     * Decodes a tournament.
+     * @param data The bytes holding the save.
+     * @param offset The index of the first byte of the save.
+     * @param length The number of bytes of the save.
+     * @return A Tournament object if the data holds a valid save. Null if not.
+     */
+    public static Tournament Decode(byte data[], int offset, int length){
+        if (length < BOARD_OFFSET + CHECKSUM_LENGTH || !IsBinary(data, offset, length)){
+            return null;
+        }
+        int version = data[offset + VERSION_OFFSET];
+        if (version != 1 && version != VERSION){
+            return null;
+        }
+        int size = data[offset + SIZE_OFFSET];
+        if (size <= 0){
+            return null;
+        }
+        int moves = 0;
+        if (length != EncodedLength(size)){
+            // Anything longer must be a history.
+            if (version == 1 || length < EncodedLength(size, 0)){
+                return null;
+            }
+            moves = GetInt(data, offset + BOARD_OFFSET + BoardLength(size) * 2 + 1);
+            if (moves <= 0 || moves > (length - EncodedLength(size, 0)) / MOVE_LENGTH
+                    || length != EncodedLength(size, moves)){
+                return null;
+            }
+        }
+        int checked = length - CHECKSUM_LENGTH;
+        if (GetInt(data, offset + checked) != Checksum(data, offset, checked)){
+            return null;
+        }
+
+        int round = GetInt(data, offset + ROUND_OFFSET);
+        int flags = data[offset + FLAGS_OFFSET];
+        int p1Score = GetInt(data, offset + P1_SCORE_OFFSET);
+        int p2Score = GetInt(data, offset + P2_SCORE_OFFSET);
+
+        Board board = UnpackBoard(data, offset + BOARD_OFFSET, size);
+        if (board == null){
+            return null;
+        }
+        int nextPlayer = (flags & P2_NEXT) != 0 ? 2 : 1;
+        Game game = null;
+        if (moves > 0){
+            game = DecodeHistory(data, offset + BOARD_OFFSET + BoardLength(size), size, moves, flags, board, nextPlayer);
+        }
+        if (game == null){
+            game = new Game(NewPlayer(flags, 1, p1Score), NewPlayer(flags, 2, p2Score), nextPlayer, board);
+        }
+        return new Tournament(game.GetPlayer(1).GetType(), p1Score, game.GetPlayer(2).GetType(), p2Score, game,
+                round, nextPlayer);
+    }
+
+    /**
+     * Rebuilds a game from its history, by playing every move from the board the history starts
+     * from and stepping back to the saved position.
+     * @param data The bytes holding the save.
+     * @param offset The index of the first byte of the history.
+     * @param size The size of the board.
+     * @param moves The number of moves in the history.
+     * @param flags The flags byte of the save.
+     * @param board The Board of the saved position, to check the history against.
+     * @param nextPlayer The player to move in the saved position.
+     * @return The Game at the saved position, or null if the history doesn't lead to it.
+     */
+    private static Game DecodeHistory(byte data[], int offset, int size, int moves, int flags, Board board, int nextPlayer){
+        Board start = UnpackBoard(data, offset, size);
+        offset += BoardLength(size);
+        int firstPlayer = data[offset];
+        int ply = GetInt(data, offset + 5);
+        offset += HISTORY_HEADER;
+        if (start == null || (firstPlayer != 1 && firstPlayer != 2) || ply < 0 || ply > moves){
+            return null;
+        }
+
+        Game game = new Game(NewPlayer(flags, 1, 0), NewPlayer(flags, 2, 0), firstPlayer, start);
+        for (int i = 0; i < moves; i++, offset += MOVE_LENGTH){
+            int value = ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+            int move = value == QUIT ? PackedMove.QUIT : PackedMove.Play(value >>> 2, value & 3);
+            if (value != QUIT && (value >>> 2) >= size * size){
+                return null;
+            }
+            MoveError err = game.Play(move);
+            if (err != null && (err != MoveError.QUIT || i != moves - 1)){
+                return null;
+            }
+        }
+        game.Seek(ply);
+
+        // The history has to end up where the save says the game is.
+        if (game.GetNextPlayer() != nextPlayer){
+            return null;
+        }
+        for (int cell = 0; cell < size * size; cell++){
+            if (game.GetBoard().GetCell(cell) != board.GetCell(cell)){
+                return null;
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Writes a tournament to a stream.
+     * @param tourn The Tournament object we want to save.
+     * @param out The OutputStream we want to write to. It is flushed, but not closed.
+     * @return A boolean value. True if the data was written, false if the stream reported an error.
+     */
+    public static boolean Write(Tournament tourn, OutputStream out){
+        try {
+            out.write(Encode(tourn));
+            out.flush();
+            return true;
+        }
+        catch (IOException e){
+            return false;
+        }
+    }
+
+    /**
+     * Reads a tournament from a stream, until the end of the stream.
+     * @param in The InputStream holding the save.
+     * @return A Tournament object if the stream held a valid save. Null if not.
+     */
+    public static Tournament Read(InputStream in){
+        ByteArrayOutputStream data = new ByteArrayOutputStream(EncodedLength(9));
+        byte buffer[] = new byte[512];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1){
+                data.write(buffer, 0, read);
+                if (data.size() > MAX_LENGTH){
+                    return null;
+                }
+            }
+        }
+        catch (IOException e){
+            return null;
+        }
+        byte bytes[] = data.toByteArray();
+        return Decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Checks if data starts like a binary save, so that it can be told apart from a text save.
+     * @param data The bytes to check.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes available.
+     * @return A boolean value. True if the data starts with the magic bytes.
+     */
+    public static boolean IsBinary(byte data[], int offset, int length){
+        if (length < MAGIC_LENGTH){
+            return false;
+        }
+        for (int i = 0; i < MAGIC_LENGTH; i++){
+            if (data[offset + i] != MAGIC[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a player read from a save.
+     * @param flags The flags byte of the save.
+     * @param player The number of the player. 1 or 2.
+     * @param score The player's tournament score.
+     * @return The Player.
+     */
+    private static Player NewPlayer(int flags, int player, int score){
+        boolean computer = (flags & (player == 1 ? P1_COMPUTER : P2_COMPUTER)) != 0;
+        boolean black = (flags & (player == 1 ? P1_BLACK : P2_BLACK)) != 0;
+        PlayerColor color = black ? PlayerColor.BLACK : PlayerColor.WHITE;
+        if (computer){
+            return new Computer(color, score);
+        }
+        return new Human(color, score);
+    }
+
+    /**
+     * Gets the length of a packed board.
+     * @param boardSize The size of the board.
+     * @return The number of bytes PackBoard() writes.
+     */
+    private static int BoardLength(int boardSize){
+        return (boardSize * boardSize * BITS_PER_CELL + 7) / 8;
+    }
+
+    /**
+     * Packs the cells of a board, 3 bits each, filling each byte from the top bit down.
+     * @param board The Board to pack.
+     * @param data The array to write to. The bytes written to must be zero.
+     * @param offset The index of the first byte to write.
+     */
+    private static void PackBoard(Board board, byte data[], int offset){
+        int bit = offset * 8;
+        for (int cell = 0; cell < board.GetSize() * board.GetSize(); cell++){
+            int value = board.GetCell(cell);
+            for (int b = BITS_PER_CELL - 1; b >= 0; b--, bit++){
+                if ((value & (1 << b)) != 0){
+                    data[bit >> 3] |= 0x80 >>> (bit & 7);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpacks a board written by PackBoard().
+     * @param data The array to read from.
+     * @param offset The index of the first byte to read.
+     * @param size The size of the board.
+     * @return The Board, or null if the size or a cell is invalid.
+     */
+    private static Board UnpackBoard(byte data[], int offset, int size){
+        byte cells[] = new byte[size * size];
+        int bit = offset * 8;
+        for (int cell = 0; cell < cells.length; cell++){
+            int value = 0;
+            for (int b = 0; b < BITS_PER_CELL; b++, bit++){
+                value = (value << 1) | ((data[bit >> 3] >>> (7 - (bit & 7))) & 1);
+            }
+            cells[cell] = (byte)value;
+        }
+        try {
+            return new Board(size, cells);
+        }
+        catch (IllegalArgumentException e){
+            return null;
+        }
+    }
+
+    /**
+     * Computes the checksum of part of an array.
+     * @param data The bytes.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     * @return The CRC32 of the bytes, as an int.
+     */
+    private static int Checksum(byte data[], int offset, int length){
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int)crc.getValue();
+    }
+
+    /**
+     * Writes a big endian int into an array.
+     * @param data The array.
+     * @param offset The index of the first byte to write.
+     * @param value The int to write.
+     */
+    private static void PutInt(byte data[], int offset, int value){
+        data[offset] = (byte)(value >>> 24);
+        data[offset + 1] = (byte)(value >>> 16);
+        data[offset + 2] = (byte)(value >>> 8);
+        data[offset + 3] = (byte)value;
+    }
+
+    /**
+     * Reads a big endian int from an array.
+     * @param data The array.
+     * @param offset The index of the first byte to read.
+     * @return The int.
+     */
+    private static int GetInt(byte data[], int offset){
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+}
@@ -1,44 +1,195 @@
 package edu.ramapo.tweisse.konojava;
 
 import android.graphics.Point;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Vector;
 
 /**
  * Represents a Kono game board. Holds each players pieces on a board.
+ *
+ * Boards can be any odd size from MIN_SIZE to MAX_SIZE. Besides the value of each cell, a board
+ * keeps a bitset of the cells each color occupies, so that move generation, scoring and checking
+ * for a winner only visit the pieces on the board, not every cell.
  */
 public class Board implements Serializable {
+
+    /** The smallest and largest board sizes. Every odd size in between is valid. */
+    public static final int MIN_SIZE = 5;
+    public static final int MAX_SIZE = 25;
+
+    /** The values stored for each cell of a board. Owners use the same codes, without capture. */
+    static final byte EMPTY = 0;
+    static final byte WHITE = 1;
+    static final byte WHITE_CAPTURE = 2;
+    static final byte BLACK = 3;
+    static final byte BLACK_CAPTURE = 4;
+
+    /** The color of each cell value, indexed by the value. */
+    private static final PlayerColor CELL_COLOR[] = {null, PlayerColor.WHITE, PlayerColor.WHITE, PlayerColor.BLACK, PlayerColor.BLACK};
+
+    /** The capture ability of each cell value, indexed by the value. */
+    private static final boolean CELL_CAPTURE[] = {false, false, true, false, true};
+
+    /** The owner of the home locations a piece gains the ability to capture in, indexed by the value. */
+    private static final byte CAPTURE_HOME[] = {-1, BLACK, BLACK, WHITE, WHITE};
+
+    /** Masks that keep a bit in the white and black bitsets, indexed by the value. */
+    private static final long WHITE_BITS[] = {0, -1L, -1L, 0, 0};
+    private static final long BLACK_BITS[] = {0, 0, 0, -1L, -1L};
+
+    /** Random keys for Zobrist hashing, indexed by cell * 5 + cell value. Empty cells have no key. */
+    private static final long ZOBRIST[] = new long[(PackedMove.MAX_CELL + 1) * 5];
+
+    static {
+        // A fixed seed, so that hashes are the same in every process and can be stored.
+        SplitRandom keys = new SplitRandom(0x4B6F6E6F4A617661L);
+        for (int i = 0; i < ZOBRIST.length; i++){
+            ZOBRIST[i] = i % 5 == EMPTY ? 0 : keys.NextLong();
+        }
+    }
+
     /**
-     * Structure to hold information about each cell of the game board.
+     * The parts of a board that only depend on its size. One Layout is shared by every board of
+     * the same size, so nothing in here may ever be changed after it is built.
      */
-    private final class Cell implements Serializable {
-        /** The owner of the cell. A home location. */
-        PlayerColor owner = null;
+    private static final class Layout {
+        /** The size of an edge of the board. */
+        final int size;
+
+        /** The owner of each cell, in the same order as the board cells. A home location. */
+        final byte owner[];
+
+        /** The point value associated with each cell. */
+        final int pointValue[];
+
+        /** The occupants of each cell when a game starts. */
+        final byte start[];
+
+        /** The number of pieces each player starts with. */
+        final int pieces;
+
+        /** The number of longs in each bitset of cells. */
+        final int words;
+
+        /** The cell diagonally next to each cell, indexed by cell * 4 + direction. -1 if off the board. */
+        final int neighbours[];
+
+        /** The home locations of each player, as bitsets of cells. */
+        final long whiteHome[];
+        final long blackHome[];
+
+        /**
+         * Builds the layout tables for a board of the given size.
+         * @param boardSize The size of the board. Any odd size from MIN_SIZE to MAX_SIZE.
+         */
+        Layout(int boardSize){
+            size = boardSize;
+            owner = new byte[size * size];
+            pointValue = new int[size * size];
+            pieces = size + 2;
+            words = (size * size + 63) / 64;
+            neighbours = new int[size * size * 4];
+            whiteHome = new long[words];
+            blackHome = new long[words];
+
+            // Loop through each row to assign cell values.
+            for (int row = 0; row < size; row++){
+                // Default values. We'll use these unless the right conditions are met below.
+                byte cellColor = EMPTY;
+                boolean onEdge = false;
+
+                // If we are on the first 2 rows, the color will be set to white.
+                if (row <= 1){
+                    cellColor = WHITE;
+                    // Indicate if we are on the top edge of the board.
+                    onEdge = row == 0;
+                }
+                // If we are on the last 2 rows, the color will be set to black.
+                else if (row >= size - 2){
+                    cellColor = BLACK;
+                    // Indicate if we are on the bottom edge of the board.
+                    onEdge = row == size - 1;
+                }
+                // Loop through each column in the current row to assign each cell correctly.
+                for (int col = 0; col < size; col++){
+                    if (onEdge || col == 0 || col == size - 1){
+                        int cell = row * size + col;
+                        owner[cell] = cellColor;
+
+                        // Assign the correct point value to each location. Cells on the sides
+                        // between the two home areas are not worth anything.
+                        if (cellColor == EMPTY){
+                            pointValue[cell] = 0;
+                        }
+                        else if (!onEdge || col == 1 || col == size - 2){
+                            pointValue[cell] = 1;
+                        }
+                        else if (col == 0 || col == size - 1){
+                            pointValue[cell] = 3;
+                        }
+                        else {
+                            pointValue[cell] = ((Math.min(col, size - 1 - col) + 1) * 2) - 1;
+                        }
+                    }
+                }
+            }
+            // Every home location starts out occupied by its owner.
+            start = owner.clone();
+
+            for (int cell = 0; cell < size * size; cell++){
+                if (owner[cell] == WHITE){
+                    whiteHome[cell >>> 6] |= 1L << (cell & 63);
+                }
+                else if (owner[cell] == BLACK){
+                    blackHome[cell >>> 6] |= 1L << (cell & 63);
+                }
+                for (int dir = 0; dir < 4; dir++){
+                    int row = cell / size + PackedMove.RowOffset(dir);
+                    int col = cell % size + PackedMove.ColOffset(dir);
+                    boolean onBoard = row >= 0 && row < size && col >= 0 && col < size;
+                    neighbours[cell * 4 + dir] = onBoard ? row * size + col : -1;
+                }
+            }
+        }
+    }
 
-        /** The occupant currently at this cell. */
-        Piece occupant = new Piece();
+    /** The shared layouts for each valid board size, indexed by size. */
+    private static final Layout LAYOUTS[] = new Layout[MAX_SIZE + 1];
 
-        /** The point value associated with this cell. */
-        int pointValue = 0;
+    static {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2){
+            LAYOUTS[size] = new Layout(size);
+        }
     }
 
-    /** Stores the grid of Cells making up this board. */
-    private Cell[][] m_boardArray;
+    /** Stores the occupant of each cell of this board, row by row. One of the cell values above. */
+    private byte m_cells[];
 
     /** Holds the size of an edge of the board. */
     private int m_boardSize;
 
+    /** The shared layout for this board's size. Looked up again after de-serialization. */
+    private transient Layout m_layout;
+
+    /** The cells occupied by each color, as bitsets. Kept in step with m_cells, and rebuilt after de-serialization. */
+    private transient long m_white[];
+    private transient long m_black[];
+
     /**
      * Default constructor. Creates a board of 0 size.
      */
     public Board(){
         m_boardSize = 0;
-        m_boardArray = null;
+        m_cells = null;
+        m_layout = null;
+        m_white = null;
+        m_black = null;
     }
 
     /**
      * Construct a board of given size.
-     * @param size The size of the board. 5, 7, or 9.
+     * @param size The size of the board. Any odd size from MIN_SIZE to MAX_SIZE.
      */
     public Board(int size) {
         // Handle board setup in another function since we use it elsewhere.
@@ -46,62 +197,32 @@ public class Board implements Serializable {
     }
 
     /**
-     * Construct a board from serialized data.
-     * @param data A Vector of Strings containing the board occupant colors. Can be obtained from
-     *             the Serializer class functions.
+     * Construct a copy of another board.
+     * @param other The Board object that we want to copy.
      */
-    public Board(Vector<String> data){
-        int numCells = data.size();
-        int boardSize = (int)Math.sqrt(numCells);
-        if (numCells == 25 || numCells == 49 || numCells == 81){
-            InitializeBoard(boardSize);
-        }
-        else {
+    public Board(Board other){
+        InitializeBoard(other.m_boardSize);
+        CopyFrom(other);
+    }
+
+    /**
+     * Construct a board from cell values, as returned by GetCell().
+     * @param size The size of the board. Any odd size from MIN_SIZE to MAX_SIZE.
+     * @param cells The value of each cell, row by row. Copied, so it can be reused.
+     * @exception IllegalArgumentException If the size or a cell value is invalid.
+     */
+    Board(int size, byte cells[]){
+        InitializeBoard(size);
+        if (cells.length != m_cells.length){
             throw new IllegalArgumentException("Invalid data. Cell count invalid.");
         }
-
-        // Iterate through every cell in the array. Map that cell to its corresponding row, col position.
-        // Update the occupant at that cell.
-        Point curLoc;
-        PlayerColor curColor;
-        boolean canCapture;
-
-        for (int i = 0; i < numCells; i++){
-            curLoc = BoardView.NumberToPoint(i, boardSize);
-
-            // Set this cell's color based on the data.
-            switch(data.elementAt(i).charAt(0)){
-                case 'O':
-                    curColor = null;
-                    break;
-                case 'W':
-                    curColor = PlayerColor.WHITE;
-                    break;
-                case 'B':
-                    curColor = PlayerColor.BLACK;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Bad data. Cell color does not exist.");
-            }
-
-            // Set this cell's ability to capture based on the data. A double character represents
-            // capture ability in the serialized file.
-            switch(data.elementAt(i).length()){
-            case 1:
-                canCapture = false;
-                break;
-            case 2:
-                canCapture = true;
-                break;
-            default:
-                throw new IllegalArgumentException("Bad data. Cells can be represented by at most 2 characters.");
-            }
-            // Reassign the occupant based on the attributes we just pulled from the data.
-            SetOccupant(curLoc, new Piece(curColor));
-            if (canCapture && curColor != null){
-                GetOccupant(curLoc).AllowCapture();
+        for (int i = 0; i < cells.length; i++){
+            if (cells[i] < EMPTY || cells[i] > BLACK_CAPTURE){
+                throw new IllegalArgumentException("Bad data. Cell value does not exist.");
             }
+            m_cells[i] = cells[i];
         }
+        RebuildBitsets();
     }
 
     /**
@@ -112,13 +233,35 @@ public class Board implements Serializable {
         return m_boardSize;
     }
 
+    /**
+     * Checks if a board can be made in a given size.
+     * @param size The size of an edge of the board.
+     * @return A boolean value. True if the size is odd and from MIN_SIZE to MAX_SIZE.
+     */
+    public static boolean IsValidSize(int size){
+        return size >= MIN_SIZE && size <= MAX_SIZE && size % 2 == 1;
+    }
+
+    /**
+     * Copies the occupants of another board of the same size onto this board.
+     * @param other The Board object that we want to copy.
+     */
+    public void CopyFrom(Board other){
+        if (other.m_boardSize != m_boardSize){
+            throw new IllegalArgumentException("Board sizes do not match.");
+        }
+        System.arraycopy(other.m_cells, 0, m_cells, 0, m_cells.length);
+        System.arraycopy(other.m_white, 0, m_white, 0, m_white.length);
+        System.arraycopy(other.m_black, 0, m_black, 0, m_black.length);
+    }
+
     /**
      * Gets the color of the occupant at the given location on the board.
      * @param loc The Point that we want to get the color for.
      * @return A PlayerColor matching the occupant at the given point.
      */
     public PlayerColor GetOccupantColor(Point loc){
-        return GetCell(loc).occupant.GetColor();
+        return CELL_COLOR[m_cells[CellIndex(loc)]];
     }
 
     /**
@@ -127,7 +270,7 @@ public class Board implements Serializable {
      * @return A PlayerColor matching the owner of the given point.
      */
     public PlayerColor GetOwner(Point loc){
-        return GetCell(loc).owner;
+        return CELL_COLOR[m_layout.owner[CellIndex(loc)]];
     }
 
     /**
@@ -136,16 +279,86 @@ public class Board implements Serializable {
      * @return An int holding the number of points the given cell is worth.
      */
     public int GetValue(Point loc){
-        return GetCell(loc).pointValue;
+        return m_layout.pointValue[CellIndex(loc)];
     }
 
     /**
-     * Gets the Piece object at a given location on this board.
+     * Gets a Piece object describing the occupant at a given location on this board. The Piece is
+     * a copy, changing it does not change the board.
      * @param loc The Point that we want to get the occupant Piece for.
-     * @return The Piece object at a given Point on the board.
+     * @return A Piece object matching the occupant at a given Point on the board.
      */
     public Piece GetOccupant(Point loc) {
-        return GetCell(loc).occupant;
+        byte cell = m_cells[CellIndex(loc)];
+        Piece occupant = new Piece(CELL_COLOR[cell]);
+        if (CELL_CAPTURE[cell]){
+            occupant.AllowCapture();
+        }
+        return occupant;
+    }
+
+    /**
+     * Gets the value stored at the given cell index. Cells are numbered row by row from zero,
+     * matching CellToPoint().
+     * @param cell The zero indexed cell number on the board.
+     * @return One of EMPTY, WHITE, WHITE_CAPTURE, BLACK or BLACK_CAPTURE.
+     */
+    public byte GetCell(int cell){
+        return m_cells[cell];
+    }
+
+    /**
+     * Gets the color of the occupant at the given cell index.
+     * @param cell The zero indexed cell number on the board.
+     * @return A PlayerColor matching the occupant at the given cell. Null if the cell is empty.
+     */
+    public PlayerColor GetOccupantColor(int cell){
+        return CELL_COLOR[m_cells[cell]];
+    }
+
+    /**
+     * Gets the ability of the occupant at the given cell index to capture.
+     * @param cell The zero indexed cell number on the board.
+     * @return A boolean value. True if the occupant at the cell can capture, false if not.
+     */
+    public boolean CanCapture(int cell){
+        return CELL_CAPTURE[m_cells[cell]];
+    }
+
+    /**
+     * Gets the owner of the given cell index.
+     * @param cell The zero indexed cell number on the board.
+     * @return A PlayerColor matching the owner of the given cell. Null if nobody owns the cell.
+     */
+    public PlayerColor GetOwner(int cell){
+        return CELL_COLOR[m_layout.owner[cell]];
+    }
+
+    /**
+     * Gets the point value of the given cell index.
+     * @param cell The zero indexed cell number on the board.
+     * @return An int holding the number of points the given cell is worth.
+     */
+    public int GetValue(int cell){
+        return m_layout.pointValue[cell];
+    }
+
+    /**
+     * Gets the color of a cell value.
+     * @param cell One of the cell values stored by a board.
+     * @return The PlayerColor of the value. Null for EMPTY.
+     */
+    static PlayerColor ColorOf(byte cell){
+        return CELL_COLOR[cell];
+    }
+
+    /**
+     * Gets the capture ability of a cell value.
+     * @param cell One of the cell values stored by a board.
+     * @return A boolean value. True if the value describes a piece that can capture.
+     */
+    static boolean CanCapture(byte cell){
+        return CELL_CAPTURE[cell];
     }
 
     /**
@@ -154,25 +367,24 @@ public class Board implements Serializable {
      * @return An int holding the number of points the given player has based on where they are on the board.
      */
     public int GetPoints(PlayerColor color){
+        long own[] = color == PlayerColor.WHITE ? m_white : m_black;
+        long opponents[] = color == PlayerColor.WHITE ? m_black : m_white;
+        long opponentHome[] = color == PlayerColor.WHITE ? m_layout.blackHome : m_layout.whiteHome;
 
         int numOpponents = 0;
         int pts = 0;
 
-        for (int i = 0; i < m_boardSize * m_boardSize; i++){
-
-            Cell curCell = GetCell(BoardView.NumberToPoint(i, m_boardSize));
-            if (curCell.occupant.GetColor() == color){
-                if (curCell.owner == PlayerColor.Opponent(color)){
-                    pts += curCell.pointValue;
-                }
-            }
-            else if (curCell.occupant.GetColor() == PlayerColor.Opponent(color)){
-                numOpponents += 1;
+        // Only the player's pieces in the opponent's home locations are worth points.
+        for (int w = 0; w < own.length; w++){
+            long scoring = own[w] & opponentHome[w];
+            while (scoring != 0){
+                pts += m_layout.pointValue[w * 64 + Long.numberOfTrailingZeros(scoring)];
+                scoring &= scoring - 1;
             }
+            numOpponents += Long.bitCount(opponents[w]);
         }
         // Add the necessary points to reflect capturing opponents.
-        int numPieces = m_boardSize + 2;
-        pts += 5 * (numPieces - numOpponents);
+        pts += 5 * (m_layout.pieces - numOpponents);
 
         return pts;
     }
@@ -197,6 +409,18 @@ public class Board implements Serializable {
      * PlayerColor.BOTH if the game is a tie.
      */
     public PlayerColor GetWinner(){
+        long start = Latency.Start();
+        PlayerColor winner = FindWinner();
+        Latency.Record(Latency.GET_WINNER, m_boardSize, start);
+        return winner;
+    }
+
+    /**
+     * Works out the winner for GetWinner(), which times it.
+     * @return A PlayerColor matching the color of the winner on this board. Null if there is no winner.
+     * PlayerColor.BOTH if the game is a tie.
+     */
+    private PlayerColor FindWinner(){
 
         // If one players pieces are completely gone, the other wins.
         if (CountPieces(PlayerColor.WHITE ) == 0){
@@ -210,20 +434,13 @@ public class Board implements Serializable {
         boolean whiteWin = true;
         boolean blackWin = true;
 
-        // Check every cell in the array. If any piece is not in the opponent's home location, they
-        // have no yet won the game.
-        for (int row = 0; row < m_boardSize; row++){
-            for (int col = 0; col < m_boardSize; col ++){
-                PlayerColor thisOccupant = m_boardArray[row][col].occupant.GetColor();
-                PlayerColor thisOwner = m_boardArray[row][col].owner;
-
-                // If the occupant is not in the opponent's home location that color has not won.
-                if (thisOccupant == PlayerColor.WHITE && thisOwner != PlayerColor.BLACK){
-                    whiteWin = false;
-                }
-                else if (thisOccupant == PlayerColor.BLACK && thisOwner != PlayerColor.WHITE){
-                    blackWin = false;
-                }
+        // If any piece is not in the opponent's home location, that color has not yet won the game.
+        for (int w = 0; w < m_white.length; w++){
+            if ((m_white[w] & ~m_layout.blackHome[w]) != 0){
+                whiteWin = false;
+            }
+            if ((m_black[w] & ~m_layout.whiteHome[w]) != 0){
+                blackWin = false;
             }
         }
         // Return the winner based on how many points each player has.
@@ -245,161 +462,271 @@ public class Board implements Serializable {
     }
 
     /**
-     * Executes a move on this board described by the Move object passed to it.
-     * @param move The Move object describing the move that we would like to execute.
+     * Executes a packed move on this board.
+     * @param move The packed move, as described by PackedMove, that we would like to execute.
      * @param playerColor The PlayerColor matching that of the player who will execute the move.
      * @return A MoveResult object describing the outcome of the move, including any error that occurred.
      */
-    public MoveResult MakeMove(Move move, PlayerColor playerColor){
-        if (move == null){
+    public MoveResult MakeMove(int move, PlayerColor playerColor){
+        Action action = PackedMove.GetAction(move);
+        if (action == null){
             throw new IllegalArgumentException("Null move.");
         }
 
         // If the player wants to quit.
-        if (move.GetAction() == Action.QUIT){
+        if (action == Action.QUIT){
             return new MoveResult(-5, MoveError.QUIT);
         }
 
-        Point movePos = move.GetLocation();
-
-        // Get the Cell at the location that we want to move.
-        Cell moveCell = GetCell(movePos);
+        // Get the cell at the location that we want to move.
+        int moveCell = PackedMove.GetFrom(move);
+        if (moveCell >= m_cells.length){
+            throw new IllegalArgumentException("Bad Point.");
+        }
+        PlayerColor moveColor = CELL_COLOR[m_cells[moveCell]];
 
         // Make sure this location has a piece in it.
-        if (moveCell.occupant.GetColor() == null) {
+        if (moveColor == null) {
             return new MoveResult(0, MoveError.EMPTY);
         }
         // Make sure the piece is the player's own.
-        if (moveCell.occupant.GetColor() != playerColor){
+        if (moveColor != playerColor){
             return new MoveResult(0, MoveError.INVALID_COLOR);
         }
-        // Make sure the location we are trying to move is on the board.
-        if (!IsValidLocation(movePos)){
-            throw new IllegalArgumentException("Invalid row or column.");
-        }
-        // Figure out where the user would like to move to.
-        int targetRow;
-        int targetCol;
-        switch(move.GetDirection()){
-            case NW:
-                targetRow = movePos.x - 1;
-                targetCol = movePos.y - 1;
-                break;
-            case NE:
-                targetRow = movePos.x - 1;
-                targetCol = movePos.y + 1;
-                break;
-            case SE:
-                targetRow = movePos.x + 1;
-                targetCol = movePos.y + 1;
-                break;
-            case SW:
-                targetRow = movePos.x + 1;
-                targetCol = movePos.y - 1;
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid Move object.");
-        }
-        Point targetPos = new Point(targetRow, targetCol);
 
         // Validate that the position the user wants to move to is on the board.
-        if (!IsValidLocation(targetPos)){
+        int targetCell = PackedMove.GetDestination(move, m_boardSize);
+        if (targetCell == -1){
             return new MoveResult(0, MoveError.INVALID_DIRECTION);
         }
+        PlayerColor targetColor = CELL_COLOR[m_cells[targetCell]];
+
         // Make sure the target is not occupied by one of the player's own pieces.
-        Cell targetCell = GetCell(targetPos);
-        if (targetCell.occupant.GetColor() == playerColor){
+        if (targetColor == playerColor){
             return new MoveResult(0, MoveError.OCCUPIED);
         }
         // Also make sure that if occupied by an opponent, the player can capture.
-        else if (targetCell.occupant.GetColor() != null && !moveCell.occupant.CanCapture()){
+        else if (targetColor != null && !CELL_CAPTURE[m_cells[moveCell]]){
             return new MoveResult(0, MoveError.NO_CAPTURE);
         }
         // If we have made it this far, we are allowed to execute the move.
         // First, calculate the points to be added to the player's score after this move.
+        PlayerColor opponent = PlayerColor.Opponent(playerColor);
+        PlayerColor targetOwner = CELL_COLOR[m_layout.owner[targetCell]];
         int points = 0; // Will track how many points this move yields.
-        if ((targetCell.owner == PlayerColor.Opponent(playerColor)) || (moveCell.owner == PlayerColor.Opponent(playerColor))){
-            points += (targetCell.pointValue - moveCell.pointValue);
+        if (targetOwner == opponent || CELL_COLOR[m_layout.owner[moveCell]] == opponent){
+            points += (m_layout.pointValue[targetCell] - m_layout.pointValue[moveCell]);
         }
         // Add 5 points for capturing.
-        if (!targetCell.occupant.IsEmpty() && targetCell.occupant.GetColor() != playerColor){
+        if (targetColor != null){
             points += 5;
         }
-        // Allow the piece to capture if we reach the opponent's home location.
-        if (targetCell.owner == PlayerColor.Opponent(playerColor)){
-            moveCell.occupant.AllowCapture();
+        // Perform the move, allowing the piece to capture if we reach the opponent's home location.
+        byte piece = m_cells[moveCell];
+        if (targetOwner == opponent && !CELL_CAPTURE[piece]){
+            piece += 1;
         }
-        // Perform the move.
-        targetCell.occupant = moveCell.occupant;
-        moveCell.occupant = new Piece();
+        Place(targetCell, piece);
+        Place(moveCell, EMPTY);
 
         // Return a successful MoveResult object.
-        return new MoveResult(points, null);
+        return new MoveResult(points, null, moveCell, targetCell);
+    }
+
+    /**
+     * Plays a move without checking it, so that a search can undo it again. The move must be one
+     * returned by GenerateMoves() for the current position.
+     * @param move The packed move to play.
+     * @return A token describing the cells the move changed, to pass to Undo().
+     */
+    public int Apply(int move){
+        int moveCell = PackedMove.GetFrom(move);
+        int targetCell = PackedMove.GetDestination(move, m_boardSize);
+        byte piece = m_cells[moveCell];
+        byte captured = m_cells[targetCell];
+
+        // Allow the piece to capture if it reaches the opponent's home location.
+        byte moved = piece;
+        if (m_layout.owner[targetCell] == CAPTURE_HOME[piece] && !CELL_CAPTURE[piece]){
+            moved += 1;
+        }
+        Place(targetCell, moved);
+        Place(moveCell, EMPTY);
+        return moveCell | (targetCell << 10) | (piece << 20) | (captured << 23);
+    }
+
+    /**
+     * Works out the token Undo() needs to take back a move, before the move is played by Apply()
+     * or MakeMove(). The move must be legal for the current position.
+     * @param move The packed move about to be played.
+     * @return The token Apply() would return for the move.
+     */
+    int UndoToken(int move){
+        int moveCell = PackedMove.GetFrom(move);
+        int targetCell = PackedMove.GetDestination(move, m_boardSize);
+        return moveCell | (targetCell << 10) | (m_cells[moveCell] << 20) | (m_cells[targetCell] << 23);
+    }
+
+    /**
+     * Takes back a move played with Apply(), or with MakeMove() after UndoToken(). Moves must be
+     * undone in the reverse order they were played.
+     * @param undo The token returned by Apply() or UndoToken().
+     */
+    public void Undo(int undo){
+        Place(undo & 0x3FF, (byte)((undo >>> 20) & 0x7));
+        Place((undo >>> 10) & 0x3FF, (byte)((undo >>> 23) & 0x7));
+    }
+
+    /**
+     * Works out how a move played with Apply() changed the Zobrist hash of the board. Must be called
+     * straight after Apply(), before the board changes again.
+     * @param undo The token returned by Apply().
+     * @return The value to exclusive-or into the hash. Doing it again takes the move back out.
+     */
+    public long HashChange(int undo){
+        int moveCell = undo & 0x3FF;
+        int targetCell = (undo >>> 10) & 0x3FF;
+        return ZOBRIST[moveCell * 5 + ((undo >>> 20) & 0x7)]
+                ^ ZOBRIST[targetCell * 5 + ((undo >>> 23) & 0x7)]
+                ^ ZOBRIST[targetCell * 5 + m_cells[targetCell]];
+    }
+
+    /**
+     * Calculates the Zobrist hash of the occupants of this board. Boards with the same occupants
+     * always have the same hash, in every process.
+     * @return A long holding the hash.
+     */
+    public long GetHash(){
+        long hash = 0;
+        // Empty cells have no key, so only the pieces need to be visited.
+        for (int w = 0; w < m_white.length; w++){
+            long pieces = m_white[w] | m_black[w];
+            while (pieces != 0){
+                int cell = w * 64 + Long.numberOfTrailingZeros(pieces);
+                hash ^= ZOBRIST[cell * 5 + m_cells[cell]];
+                pieces &= pieces - 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Generates every legal move for a player on this board, in board order.
+     * @param playerColor The PlayerColor of the player we are generating moves for.
+     * @param moves The array to fill with packed moves. Must hold at least 4 moves per piece.
+     * @return The number of moves written to the array.
+     */
+    public int GenerateMoves(PlayerColor playerColor, int moves[]){
+        long own[] = playerColor == PlayerColor.WHITE ? m_white : m_black;
+        int neighbours[] = m_layout.neighbours;
+        int count = 0;
+        // Taking the lowest bit first visits the pieces in board order.
+        for (int w = 0; w < own.length; w++){
+            long pieces = own[w];
+            while (pieces != 0){
+                int cell = w * 64 + Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                byte piece = m_cells[cell];
+                for (int dir = 0; dir < 4; dir++){
+                    int target = neighbours[cell * 4 + dir];
+                    if (target == -1){
+                        continue;
+                    }
+                    // Empty cells can always be moved to, opponents only by pieces that can capture.
+                    PlayerColor targetColor = CELL_COLOR[m_cells[target]];
+                    if (targetColor == null){
+                        moves[count++] = PackedMove.Play(cell, dir);
+                    }
+                    else if (targetColor != playerColor && CELL_CAPTURE[piece]){
+                        moves[count++] = PackedMove.Play(cell, dir, true, null, -1);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists the cells a player's pieces are on, in board order.
+     * @param color The PlayerColor of the pieces to list.
+     * @param cells The array to fill with zero indexed cell numbers. Must hold every cell the color could be on.
+     * @return The number of cells written to the array.
+     */
+    int GetPieces(PlayerColor color, int cells[]){
+        long own[] = color == PlayerColor.WHITE ? m_white : m_black;
+        int count = 0;
+        for (int w = 0; w < own.length; w++){
+            long pieces = own[w];
+            while (pieces != 0){
+                cells[count++] = w * 64 + Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of pieces each player starts with on this board.
+     * @return An int holding the number of pieces.
+     */
+    int GetStartingPieces(){
+        return m_layout.pieces;
     }
 
     /**
      * Initializes the board array to default conditions.
-     * @param boardSize The size of the board that we want to create. Must be 5, 7, or 9.
+     * @param boardSize The size of the board that we want to create. Must be odd, from MIN_SIZE to MAX_SIZE.
      * @exception IllegalArgumentException If the board size is not valid.
      */
     private void InitializeBoard(int boardSize){
 
         // First, validate the size of the board.
-        if (boardSize != 5 && boardSize != 7 && boardSize != 9){
+        if (!IsValidSize(boardSize)){
             throw new IllegalArgumentException("Invalid board size.");
         }
         m_boardSize = boardSize;
+        m_layout = LAYOUTS[boardSize];
 
-        // Initialize the board array to the proper size.
-        m_boardArray = new Cell[m_boardSize][m_boardSize];
-
-        // Loop through each row to assign cell values.
-        for (int row = 0; row < m_boardSize; row++){
-            // Default values. We'll use these unless the right conditions are met below.
-            PlayerColor cellColor = null;
-            boolean onEdge = false;
-
-            // If we are on the first 2 rows, the color will be set to white.
-            if (row <= 1){
-                cellColor = PlayerColor.WHITE;
-                if (row == 0){
-                    // Indicate that we are on the top edge of the board.
-                    onEdge = true;
-                }
-            }
-            // If we are on the last 2 rows, the color will be set to black.
-            else if (row >= m_boardSize - 2){
-                cellColor = PlayerColor.BLACK;
-                if (row == m_boardSize - 1){
-                    // Indicate that we are on the bottom edge of the board.
-                    onEdge = true;
-                }
-            }
-            // Loop through each column in the current row to assign each cell correctly.
-            for (int col = 0; col < m_boardSize; col++){
-                m_boardArray[row][col] = new Cell(); // Initialize the cell at each location.
-                if (onEdge || col == 0 || col == boardSize - 1){
+        // Start with every home location occupied by its owner.
+        m_cells = m_layout.start.clone();
+        m_white = m_layout.whiteHome.clone();
+        m_black = m_layout.blackHome.clone();
+    }
 
-                    m_boardArray[row][col].occupant = new Piece(cellColor);
-                    m_boardArray[row][col].owner = cellColor;
+    /**
+     * Sets the value of a cell, keeping the bitsets in step.
+     * @param cell The zero indexed cell number on the board.
+     * @param value One of the cell values.
+     */
+    private void Place(int cell, byte value){
+        int w = cell >>> 6;
+        long bit = 1L << (cell & 63);
+        m_white[w] = (m_white[w] & ~bit) | (bit & WHITE_BITS[value]);
+        m_black[w] = (m_black[w] & ~bit) | (bit & BLACK_BITS[value]);
+        m_cells[cell] = value;
+    }
 
-                    // Assign the correct point value to each location.
-                    if (!onEdge || col == 1 || col == m_boardSize - 2){
-                        m_boardArray[row][col].pointValue = 1;
-                    }
-                    else if (col == 0 || col == m_boardSize -1 ){
-                        m_boardArray[row][col].pointValue = 3;
-                    }
-                    else {
-                        m_boardArray[row][col].pointValue = ((Math.min(col, m_boardSize - 1 - col) + 1) * 2) - 1;
-                    }
-                }
-            }
+    /**
+     * Works out the bitsets from the value of every cell.
+     */
+    private void RebuildBitsets(){
+        m_white = new long[m_layout.words];
+        m_black = new long[m_layout.words];
+        for (int cell = 0; cell < m_cells.length; cell++){
+            m_white[cell >>> 6] |= (1L << (cell & 63)) & WHITE_BITS[m_cells[cell]];
+            m_black[cell >>> 6] |= (1L << (cell & 63)) & BLACK_BITS[m_cells[cell]];
         }
-        // Remove bad values from middle of the board.
-        for (int row = 2; row < boardSize - 2; row++){
-            m_boardArray[row][0].pointValue = 0;
-            m_boardArray[row][boardSize - 1].pointValue = 0;
+    }
+
+    /**
+     * Restores the shared layout after a board has been de-serialized.
+     * @param in The stream the board is being read from.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (m_cells != null){
+            m_layout = LAYOUTS[m_boardSize];
+            RebuildBitsets();
         }
     }
 
@@ -409,26 +736,24 @@ public class Board implements Serializable {
      * @return An int holding the number of pieces of the given color.
      */
     private int CountPieces(PlayerColor color){
+        long own[] = color == PlayerColor.WHITE ? m_white : m_black;
         int count = 0;
 
-        for (int i = 0; i < m_boardSize; i++){
-            for (int j = 0; j < m_boardSize; j++){
-                if (m_boardArray[i][j].occupant.GetColor() == color){
-                    count += 1;
-                }
-            }
+        for (int w = 0; w < own.length; w++){
+            count += Long.bitCount(own[w]);
         }
         return count;
     }
 
     /**
-     * Gets the Cell structure at a given point on the board. Null if off the board.
-     * @param loc The Point that we want to get the Cell at.
-     * @return The Cell structure located at the given point.
+     * Gets the cell index of a given point on the board.
+     * @param loc The Point that we want to get the cell index of.
+     * @return The zero indexed cell number of the given point.
+     * @exception IllegalArgumentException If the point is off the board.
      */
-    private Cell GetCell(Point loc){
+    private int CellIndex(Point loc){
         if (IsValidLocation(loc)){
-            return m_boardArray[loc.x - 1][loc.y - 1];
+            return PointToCell(loc, m_boardSize);
         }
         else {
             throw new IllegalArgumentException("Bad Point.");
@@ -436,15 +761,25 @@ public class Board implements Serializable {
     }
 
     /**
-     * Assign an occupant to a given cell.
-     * @param loc The Point at which we want to assign a new occupant to.
-     * @param occupant The occupant that we want to assign to the location on the board.
+     * Converts a zero indexed cell number to a point on the board.
+     * @param cell The cell number, counted row by row from zero.
+     * @param boardSize The size of the board.
+     * @return A Point holding the one indexed row and column of the cell.
      */
-    private void SetOccupant(Point loc, Piece occupant){
-        GetCell(loc).occupant = occupant;
+    public static Point CellToPoint(int cell, int boardSize){
+        return new Point(cell / boardSize + 1, cell % boardSize + 1);
+    }
+
+    /**
+     * Converts a point on the board to a zero indexed cell number. The point isn't checked.
+     * @param loc The Point holding a one indexed row and column.
+     * @param boardSize The size of the board.
+     * @return The cell number, counted row by row from zero.
+     */
+    public static int PointToCell(Point loc, int boardSize){
+        return (loc.x - 1) * boardSize + loc.y - 1;
     }
 
     public static void main(String args[]){
     }
 }
-
@@ -1,134 +1,398 @@
 package edu.ramapo.tweisse.konojava;
 
-import android.app.Activity;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.PorterDuff;
-import android.util.DisplayMetrics;
-import android.view.ViewGroup;
-import android.widget.Button;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
 
 /**
- * Displays a Board object as a grid of buttons on a specific activity.
+ * Displays a Board object as a single view that draws every cell itself, instead of one Button per
+ * cell. Pieces are drawn as circles, pieces that can capture get a dot in the middle, and empty
+ * home cells show their point value. Only the cells that changed since the last update are redrawn,
+ * and taps are turned into cell numbers for an OnCellClickListener.
  */
-public class BoardView {
+public class BoardView extends View {
 
-    /** Holds the activity that we want the board to be displayed on. */
-    private Activity m_activity;
+    /**
+     * Receives taps on the board.
+     */
+    public interface OnCellClickListener {
+        /**
+         * Called when a cell is tapped.
+         * @param cell The zero indexed cell that was tapped.
+         */
+        void OnCellClick(int cell);
+    }
+
+    /** Marks a cell in m_drawn that has never been drawn, so that it always counts as changed. */
+    private static final int UNDRAWN = -1;
+
+    /** The fraction of a cell taken up by a piece, and by the dot on a piece that can capture. */
+    private static final float PIECE_SCALE = 0.4f;
+    private static final float CAPTURE_SCALE = 0.12f;
+
+    /** The width of the lines between cells, as a fraction of a cell. */
+    private static final float LINE_SCALE = 0.03f;
+
+    /** The board being displayed. Null until UpdateBoard() is called. */
+    private Board m_board;
+
+    /** The size of the displayed board. */
+    private int m_boardSize;
+
+    /** What each cell looked like the last time it was drawn, as DrawnState() values. */
+    private int m_drawn[] = new int[0];
+
+    /** The selected cell, or -1 if no cell is selected. */
+    private int m_selectedCell = -1;
+
+    /** The width and height of one cell in pixels. */
+    private float m_cellSize;
+
+    /** Told about taps on the board. May be null. */
+    private OnCellClickListener m_listener;
+
+    /** The colors used to draw the board. */
+    private int m_boardColor = 0xFFd8d8d8;
+    private int m_selectedColor = 0xFFc1ffc6;
+    private int m_whiteColor = 0xFFffffff;
+    private int m_blackColor = 0xFF000000;
+    private int m_valueColor = 0xFFaaaaaa;
+
+    /** Reused for all drawing, so that drawing never allocates. */
+    private Paint m_paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private Rect m_dirty = new Rect();
+    private Rect m_clip = new Rect();
+
+    /** The point values as text, indexed by value, so that drawing never builds strings. */
+    private String m_valueText[] = new String[0];
+
+    /** Frame statistics, for comparing drawing times between versions. */
+    private long m_drawCount;
+    private long m_drawNanos;
+    private long m_maxDrawNanos;
+
+    /**
+     * Creates a BoardView from code.
+     * @param context The Context the view is running in.
+     */
+    public BoardView(Context context){
+        super(context);
+    }
+
+    /**
+     * Creates a BoardView from a layout file.
+     * @param context The Context the view is running in.
+     * @param attrs The attributes set in the layout file.
+     */
+    public BoardView(Context context, AttributeSet attrs){
+        super(context, attrs);
+    }
+
+    /**
+     * Sets the colors used to draw the board.
+     * @param boardColor The color used for the blank spaces on the board.
+     * @param selectedColor The color used for the selected cell.
+     * @param whiteColor The color used for white pieces on the board.
+     * @param blackColor The color used for black pieces on the board.
+     * @param valueColor The color used for displaying the point value on home cells.
+     */
+    public void SetColors(int boardColor, int selectedColor, int whiteColor, int blackColor, int valueColor){
+        m_boardColor = boardColor;
+        m_selectedColor = selectedColor;
+        m_whiteColor = whiteColor;
+        m_blackColor = blackColor;
+        m_valueColor = valueColor;
+        ForgetDrawn();
+        invalidate();
+    }
+
+    /**
+     * Sets the listener told about taps on the board.
+     * @param listener The OnCellClickListener to tell, or null to ignore taps.
+     */
+    public void SetOnCellClickListener(OnCellClickListener listener){
+        m_listener = listener;
+    }
+
+    /**
+     * Shows the state of a Board object, redrawing only the cells that changed. The board is read
+     * again when drawing, so it has to be passed again after every change.
+     * @param board The Board object we want to display on screen.
+     */
+    public void UpdateBoard(Board board){
+        long start = Latency.Start();
+        m_board = board;
+        int boardSize = board.GetSize();
+        if (boardSize != m_boardSize){
+            // A new size changes every cell.
+            m_boardSize = boardSize;
+            m_cellSize = 0;
+            m_drawn = new int[boardSize * boardSize];
+            m_valueText = new String[boardSize + 2];
+            for (int i = 0; i < m_valueText.length; i++){
+                m_valueText[i] = Integer.toString(i);
+            }
+            ForgetDrawn();
+            requestLayout();
+            invalidate();
+            Latency.Record(Latency.UPDATE_BOARD, boardSize, start);
+            return;
+        }
+        for (int cell = 0; cell < m_drawn.length; cell++){
+            if (m_drawn[cell] != DrawnState(cell)){
+                InvalidateCell(cell);
+            }
+        }
+        Latency.Record(Latency.UPDATE_BOARD, boardSize, start);
+    }
+
+    /**
+     * Shows a change to the board that only touched the given cells, such as the cells a
+     * MoveResult reports. Cheaper than UpdateBoard(), since no other cell is looked at.
+     * @param board The Board object we want to display on screen.
+     * @param cells The zero indexed cells that may have changed.
+     * @param numCells The number of cells to use from the array.
+     */
+    public void UpdateCells(Board board, int cells[], int numCells){
+        if (board != m_board || board.GetSize() != m_boardSize){
+            // A different board may differ anywhere. UpdateBoard() times itself.
+            UpdateBoard(board);
+            return;
+        }
+        long start = Latency.Start();
+        for (int i = 0; i < numCells; i++){
+            if (m_drawn[cells[i]] != DrawnState(cells[i])){
+                InvalidateCell(cells[i]);
+            }
+        }
+        Latency.Record(Latency.UPDATE_BOARD, m_boardSize, start);
+    }
 
     /**
-     * Default constructor. Creates a BoardView linked to no activity.
+     * Highlights a cell, such as the piece a player has picked to move.
+     * @param cell The zero indexed cell to highlight, or -1 to highlight nothing.
      */
-    BoardView(){
-        this(null);
+    public void SetSelectedCell(int cell){
+        if (cell == m_selectedCell){
+            return;
+        }
+        if (m_selectedCell != -1){
+            InvalidateCell(m_selectedCell);
+        }
+        m_selectedCell = cell;
+        if (cell != -1){
+            InvalidateCell(cell);
+        }
     }
 
     /**
-     * Creates a BoardView object linked to a specific activity.
-     * @param activity The activity that we want the board to be displayed on.
+     * Gets the highlighted cell.
+     * @return The zero indexed highlighted cell, or -1 if nothing is highlighted.
      */
-    BoardView(Activity activity){
-        m_activity = activity;
+    public int GetSelectedCell(){
+        return m_selectedCell;
     }
 
     /**
-     * Creates the UI elements necessary to render a board, given a container id and a board size.
-     * @param containerId The ID of the GridLayout which we want to contain the board buttons.
-     * @param boardSize The size of the board that we are trying to create.
+     * Describes the drawing times since the view was created.
+     * @return A String holding the number of frames, and the average and slowest frame in microseconds.
      */
-    public void CreateBoard(int containerId, int boardSize){
-        // Set the row count and column count on screen to match the size of our board.
-        android.support.v7.widget.GridLayout boardView = m_activity.findViewById(containerId);
+    public String GetDrawStats(){
+        long average = m_drawCount == 0 ? 0 : m_drawNanos / m_drawCount;
+        return m_drawCount + " frames, average " + average / 1000 + "us, slowest " + m_maxDrawNanos / 1000 + "us";
+    }
 
-        if (boardView != null) {
-            // Get the screen width to size the board.
-            DisplayMetrics displayMetrics = new DisplayMetrics();
-            m_activity.getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
-            int screenWidth = displayMetrics.widthPixels;
+    /**
+     * Keeps the view square, as large as the space it is given allows.
+     * @param widthMeasureSpec The width requirements from the parent.
+     * @param heightMeasureSpec The height requirements from the parent.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec){
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int size;
+        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED){
+            size = width;
+        }
+        else {
+            size = Math.min(width, height);
+        }
+        setMeasuredDimension(size, size);
+    }
 
-            // Set the width of the board to match the screen.
-            ViewGroup.LayoutParams boardParams = boardView.getLayoutParams();
-            boardParams.width = screenWidth;
-            boardParams.height = boardParams.width;
-            boardView.setLayoutParams(boardParams);
+    /**
+     * Works out the size of a cell whenever the view is resized.
+     * @param w The new width.
+     * @param h The new height.
+     * @param oldw The old width.
+     * @param oldh The old height.
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh){
+        super.onSizeChanged(w, h, oldw, oldh);
+        m_cellSize = m_boardSize == 0 ? 0 : (float)Math.min(w, h) / m_boardSize;
+        ForgetDrawn();
+    }
 
-            // Set the correct number of rows and columns for this board.
-            boardView.setRowCount(boardSize);
-            boardView.setColumnCount(boardSize);
+    /**
+     * Draws the cells that fall inside the area being redrawn.
+     * @param canvas The Canvas to draw on.
+     */
+    @Override
+    protected void onDraw(Canvas canvas){
+        if (m_board == null || m_boardSize == 0){
+            return;
+        }
+        long start = System.nanoTime();
+        if (m_cellSize == 0){
+            m_cellSize = (float)Math.min(getWidth(), getHeight()) / m_boardSize;
+        }
 
-            // Fill the grid view with buttons.
-            for (int i = 0; i < boardSize * boardSize; i++){
-                Button button = new Button(m_activity.getApplicationContext());
-                button.setId(i);
-                button.setOnClickListener((android.view.View.OnClickListener)m_activity);
-                boardView.addView(button);
+        // Only visit the cells inside the clip, which is just the changed cells after UpdateBoard().
+        if (!canvas.getClipBounds(m_clip)){
+            return;
+        }
+        int firstRow = Math.max(0, (int)(m_clip.top / m_cellSize));
+        int lastRow = Math.min(m_boardSize - 1, (int)(m_clip.bottom / m_cellSize));
+        int firstCol = Math.max(0, (int)(m_clip.left / m_cellSize));
+        int lastCol = Math.min(m_boardSize - 1, (int)(m_clip.right / m_cellSize));
+        for (int row = firstRow; row <= lastRow; row++){
+            for (int col = firstCol; col <= lastCol; col++){
+                DrawCell(canvas, row * m_boardSize + col);
             }
-            for (int i = 0; i < boardSize * boardSize; i++){
-                Button button = m_activity.findViewById(i);
-                if (button != null){
-                    button.getBackground().setColorFilter(0x00000000, PorterDuff.Mode.MULTIPLY);
-                    ViewGroup.LayoutParams params = button.getLayoutParams();
-                    params.height = screenWidth / boardSize;
-                    params.width = screenWidth / boardSize;
-                    button.setLayoutParams(params);
-                }
+        }
+
+        long nanos = System.nanoTime() - start;
+        m_drawCount++;
+        m_drawNanos += nanos;
+        m_maxDrawNanos = Math.max(m_maxDrawNanos, nanos);
+    }
+
+    /**
+     * Turns a tap into a cell number for the OnCellClickListener.
+     * @param event The MotionEvent describing the touch.
+     * @return A boolean value. True, since the view handles every touch on it.
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event){
+        if (!isEnabled()){
+            return false;
+        }
+        if (event.getAction() == MotionEvent.ACTION_UP){
+            int cell = CellAt(event.getX(), event.getY());
+            if (cell != -1 && m_listener != null){
+                m_listener.OnCellClick(cell);
             }
+            performClick();
         }
+        return true;
     }
 
     /**
-     * Updates the Colors of the board buttons to reflect the state of the given Board object.
-     * @param board The Board object we want to display on screen.
-     * @param BOARD_COLOR The color user for the blank spaces on the board.
-     * @param WHITE_COLOR The color used for white pieces on the board.
-     * @param BLACK_COLOR The color used for black pieces on the board.
-     * @param SCORE_COLOR The color used for displaying the point value on home pieces.
+     * Finds the cell under a point on the view.
+     * @param x The x coordinate, in pixels from the left of the view.
+     * @param y The y coordinate, in pixels from the top of the view.
+     * @return The zero indexed cell under the point, or -1 if the point is off the board.
      */
-    public void UpdateBoard(Board board, int BOARD_COLOR, int WHITE_COLOR, int BLACK_COLOR, int SCORE_COLOR){
-        // Loop through every position on the board.
-        int boardSize = board.GetSize();
-        for (int i = 0; i < boardSize * boardSize; i++){
-            Button curBtn = (m_activity.findViewById(i));
-            if (curBtn != null){
-                // Change the button colors to reflect the occupant at each location.
-                Piece curPiece = board.GetOccupant(NumberToPoint(i, boardSize));
-                if (curPiece.GetColor() == null){
-                    int value = board.GetValue(NumberToPoint(i, boardSize));
-                    if (value > 0){
-                        curBtn.setText(Integer.toString(value));
-                    }
-                    else {
-                        curBtn.setText("");
-                    }
-                    curBtn.setTextColor(SCORE_COLOR);
-                    curBtn.getBackground().setColorFilter(BOARD_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
-                else if (curPiece.GetColor() == PlayerColor.WHITE && !curPiece.CanCapture()){
-                    curBtn.setText("");
-                    curBtn.setTextColor(BLACK_COLOR);
-                    curBtn.getBackground().setColorFilter(WHITE_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
-                else if (curPiece.GetColor() == PlayerColor.WHITE && curPiece.CanCapture()){
-                    curBtn.setText("\u25CF");
-                    curBtn.setTextColor(BLACK_COLOR);
-                    curBtn.getBackground().setColorFilter(WHITE_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
-                else if (curPiece.GetColor() == PlayerColor.BLACK && !curPiece.CanCapture()){
-                    curBtn.setText("");
-                    curBtn.setTextColor(WHITE_COLOR);
-                    curBtn.getBackground().setColorFilter(BLACK_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
-                else if (curPiece.GetColor() == PlayerColor.BLACK && curPiece.CanCapture()){
-                    curBtn.setText("\u25CF");
-                    curBtn.setTextColor(WHITE_COLOR);
-                    curBtn.getBackground().setColorFilter(BLACK_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
-                else {
-                    curBtn.setText("");
-                    curBtn.setTextColor(BLACK_COLOR);
-                    curBtn.getBackground().setColorFilter(BOARD_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
+    public int CellAt(float x, float y){
+        if (m_cellSize == 0 || x < 0 || y < 0){
+            return -1;
+        }
+        int row = (int)(y / m_cellSize);
+        int col = (int)(x / m_cellSize);
+        if (row >= m_boardSize || col >= m_boardSize){
+            return -1;
+        }
+        return row * m_boardSize + col;
+    }
+
+    /**
+     * Draws a single cell, and remembers what it looked like.
+     * @param canvas The Canvas to draw on.
+     * @param cell The zero indexed cell to draw.
+     */
+    private void DrawCell(Canvas canvas, int cell){
+        float left = (cell % m_boardSize) * m_cellSize;
+        float top = (cell / m_boardSize) * m_cellSize;
+        float centerX = left + m_cellSize / 2;
+        float centerY = top + m_cellSize / 2;
+        float line = Math.max(1, m_cellSize * LINE_SCALE);
+
+        // The cell background, with a gap around it that shows as the grid lines.
+        m_paint.setStyle(Paint.Style.FILL);
+        m_paint.setColor(m_whiteColor);
+        canvas.drawRect(left, top, left + m_cellSize, top + m_cellSize, m_paint);
+        m_paint.setColor(cell == m_selectedCell ? m_selectedColor : m_boardColor);
+        canvas.drawRect(left + line, top + line, left + m_cellSize - line, top + m_cellSize - line, m_paint);
+
+        PlayerColor color = m_board.GetOccupantColor(cell);
+        if (color == null){
+            // An empty cell shows its point value, if it has one.
+            int value = m_board.GetValue(cell);
+            if (value > 0){
+                m_paint.setColor(m_valueColor);
+                m_paint.setTextAlign(Paint.Align.CENTER);
+                m_paint.setTextSize(m_cellSize * PIECE_SCALE);
+                canvas.drawText(m_valueText[value], centerX, centerY - (m_paint.ascent() + m_paint.descent()) / 2, m_paint);
+            }
+        }
+        else {
+            // The piece, with an outline so that white pieces stand out from the board.
+            int fill = color == PlayerColor.WHITE ? m_whiteColor : m_blackColor;
+            int mark = color == PlayerColor.WHITE ? m_blackColor : m_whiteColor;
+            m_paint.setColor(fill);
+            canvas.drawCircle(centerX, centerY, m_cellSize * PIECE_SCALE, m_paint);
+            m_paint.setStyle(Paint.Style.STROKE);
+            m_paint.setStrokeWidth(line);
+            m_paint.setColor(m_blackColor);
+            canvas.drawCircle(centerX, centerY, m_cellSize * PIECE_SCALE, m_paint);
+            m_paint.setStyle(Paint.Style.FILL);
+            if (m_board.CanCapture(cell)){
+                m_paint.setColor(mark);
+                canvas.drawCircle(centerX, centerY, m_cellSize * CAPTURE_SCALE, m_paint);
             }
         }
+        m_drawn[cell] = DrawnState(cell);
+    }
+
+    /**
+     * Sums up everything that decides how a cell looks.
+     * @param cell The zero indexed cell.
+     * @return An int that changes whenever the cell's appearance does.
+     */
+    private int DrawnState(int cell){
+        int state = m_board.GetCell(cell) | (m_board.GetValue(cell) << 3);
+        if (cell == m_selectedCell){
+            state |= 1 << 30;
+        }
+        return state;
+    }
+
+    /**
+     * Marks a single cell to be redrawn.
+     * @param cell The zero indexed cell.
+     */
+    private void InvalidateCell(int cell){
+        int left = (int)((cell % m_boardSize) * m_cellSize);
+        int top = (int)((cell / m_boardSize) * m_cellSize);
+        int size = (int)Math.ceil(m_cellSize);
+        m_dirty.set(left, top, left + size + 1, top + size + 1);
+        invalidate(m_dirty);
+    }
+
+    /**
+     * Marks every cell as never drawn, so that the next UpdateBoard() counts them all as changed.
+     */
+    private void ForgetDrawn(){
+        for (int i = 0; i < m_drawn.length; i++){
+            m_drawn[i] = UNDRAWN;
+        }
     }
 
     /**
@@ -138,8 +402,6 @@ public class BoardView {
      * @return A Point representing a location on a board of given size.
      */
     public static Point NumberToPoint(int num, int boardSize){
-        int row = num / boardSize + 1; // Relies on integer division.
-        int col = num % boardSize + 1;
-        return new Point(row, col);
+        return Board.CellToPoint(num, boardSize);
     }
 }
@@ -0,0 +1,142 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the arguments of the command line tools, each given as a flag followed by its value, such
+ * as "--threads 4". Every flag a tool understands is named up front, so a misspelt flag or one left
+ * without a value is reported before anything runs, rather than being silently ignored.
+ */
+public class CommandLine {
+
+    /** The value given for each flag that was on the command line. */
+    private Map<String, String> m_values = new HashMap<String, String>();
+
+    /**
+     * Reads the arguments.
+     * @param args The command line arguments.
+     * @param flags Every flag the tool understands, including its leading dashes.
+     * @exception IllegalArgumentException If an argument isn't one of the flags, or has no value.
+     */
+    public CommandLine(String args[], String... flags){
+        for (int i = 0; i < args.length; i++){
+            String arg = args[i];
+            if (!IsFlag(arg, flags)){
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            if (i + 1 >= args.length){
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            m_values.put(arg, args[++i]);
+        }
+    }
+
+    /**
+     * Finds if a flag was given.
+     * @param flag The flag.
+     * @return A boolean value. True if the flag was on the command line.
+     */
+    public boolean Has(String flag){
+        return m_values.containsKey(flag);
+    }
+
+    /**
+     * Gets the value of a flag.
+     * @param flag The flag.
+     * @param fallback The value to use if the flag wasn't given.
+     * @return A String holding the value.
+     */
+    public String GetString(String flag, String fallback){
+        String value = m_values.get(flag);
+        return value == null ? fallback : value;
+    }
+
+    /**
+     * Gets the value of a flag as a whole number.
+     * @param flag The flag.
+     * @param fallback The value to use if the flag wasn't given.
+     * @return An integer holding the value.
+     * @exception IllegalArgumentException If the value isn't a whole number.
+     */
+    public int GetInt(String flag, int fallback){
+        return Has(flag) ? Integer.parseInt(m_values.get(flag)) : fallback;
+    }
+
+    /**
+     * Gets the value of a flag as a long.
+     * @param flag The flag.
+     * @param fallback The value to use if the flag wasn't given.
+     * @return A long holding the value.
+     * @exception IllegalArgumentException If the value isn't a whole number.
+     */
+    public long GetLong(String flag, long fallback){
+        return Has(flag) ? Long.parseLong(m_values.get(flag)) : fallback;
+    }
+
+    /**
+     * Gets the value of a flag as a double.
+     * @param flag The flag.
+     * @param fallback The value to use if the flag wasn't given.
+     * @return A double holding the value.
+     * @exception IllegalArgumentException If the value isn't a number.
+     */
+    public double GetDouble(String flag, double fallback){
+        return Has(flag) ? Double.parseDouble(m_values.get(flag)) : fallback;
+    }
+
+    /**
+     * Gets the value of a flag as a list of whole numbers separated by commas, such as "5,7,9".
+     * @param flag The flag.
+     * @param fallback The values to use if the flag wasn't given.
+     * @return An array of integers holding the values.
+     * @exception IllegalArgumentException If a value isn't a whole number.
+     */
+    public int[] GetInts(String flag, int fallback[]){
+        if (!Has(flag)){
+            return fallback;
+        }
+        String parts[] = m_values.get(flag).split(",");
+        int values[] = new int[parts.length];
+        for (int i = 0; i < parts.length; i++){
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Gets the value of a flag as a file.
+     * @param flag The flag.
+     * @return A File holding the path given, or null if the flag wasn't given.
+     */
+    public File GetFile(String flag){
+        return Has(flag) ? new File(m_values.get(flag)) : null;
+    }
+
+    /**
+     * Gets the random source chosen by a seed flag.
+     * @param flag The flag holding the seed.
+     * @return A RandomSource seeded with the value of the flag, or with a random seed if the flag
+     * wasn't given.
+     * @exception IllegalArgumentException If the value isn't a whole number.
+     */
+    public RandomSource GetRandom(String flag){
+        return Has(flag) ? new SplitRandom(GetLong(flag, 0)) : new SplitRandom();
+    }
+
+    /**
+     * Finds if an argument is one of the flags.
+     * @param arg The argument.
+     * @param flags The flags.
+     * @return A boolean value. True if the argument is one of them.
+     */
+    private static boolean IsFlag(String arg, String flags[]){
+        for (String flag : flags){
+            if (flag.equals(arg)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -73,7 +73,7 @@ public class ContinueTournamentActivity extends AppCompatActivity {
         playerColorSpinner.setAdapter(adapter2);
 
         // Describe the result of the last game to the user.
-        m_lastTourn = (Tournament)getIntent().getSerializableExtra("tournament");
+        m_lastTourn = TournamentHandoff.Get(getIntent());
         if (m_lastTourn != null){
 
             String message;
@@ -170,7 +170,7 @@ public class ContinueTournamentActivity extends AppCompatActivity {
         // Switch to the PlayGame activity, and pass the new tournament we just created.
         Intent intent = new Intent(this, PlayGameActivity.class);
         intent.addFlags(intent.FLAG_ACTIVITY_NO_ANIMATION);
-        intent.putExtra("tournament", m_lastTourn);
+        TournamentHandoff.Put(intent, m_lastTourn);
         intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         startActivity(intent);
         finish();
@@ -0,0 +1,222 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+/**
+ * Provides dice rolls for a tournament, either from a RandomSource or from a scripted dice file.
+ * A dice file holds one pair of rolls per line; lines without exactly two values are skipped, and
+ * the rolls start over from the beginning once they run out. Each tournament should have its own
+ * provider. Providers made with Fork() share the rolls of a file without sharing a position, so a
+ * file only has to be read once for any number of concurrent tournaments.
+ */
+public class DiceProvider implements Serializable {
+
+    /** The name of the dice file looked for in external storage. */
+    public static final String DEFAULT_FILE = "diceRolls.txt";
+
+    /** The size of the buffer used to read dice files. */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /** The rolls read from a dice file. Null when rolling randomly. Never changed once read. */
+    private transient int m_rolls[];
+
+    /** The number of rolls held in m_rolls. */
+    private transient int m_numRolls;
+
+    /** The position of the next roll in m_rolls. */
+    private int m_rollPos;
+
+    /** The random numbers used when there are no scripted rolls. */
+    private RandomSource m_random;
+
+    /**
+     * Creates a provider that rolls the dice randomly.
+     * @param random The RandomSource used to roll the dice.
+     */
+    public DiceProvider(RandomSource random){
+        this(null, 0, random);
+    }
+
+    /**
+     * Creates a provider with the given scripted rolls.
+     * @param rolls The rolls to provide, or null to roll randomly.
+     * @param numRolls The number of rolls used from the array.
+     * @param random The RandomSource used when there are no scripted rolls.
+     */
+    private DiceProvider(int rolls[], int numRolls, RandomSource random){
+        m_rolls = rolls;
+        m_numRolls = numRolls;
+        m_rollPos = 0;
+        m_random = random;
+    }
+
+    /**
+     * Creates a provider that reads its rolls from a dice file. If the file does not exist, can't
+     * be read, holds a value that isn't a number or holds no rolls at all, the dice are rolled
+     * randomly instead.
+     * @param file The dice File to read.
+     * @param random The RandomSource used if the file can't be used.
+     * @return A DiceProvider for the file.
+     */
+    public static DiceProvider FromFile(File file, RandomSource random){
+        if (!file.exists()){
+            return new DiceProvider(random);
+        }
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            return FromStream(stream, random);
+        }
+        catch (IOException e){
+            return new DiceProvider(random);
+        }
+        finally {
+            if (stream != null){
+                try {
+                    stream.close();
+                }
+                catch (IOException e){
+                    // Nothing left to read, so nothing is lost.
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a provider that reads its rolls from a stream holding a dice file. The stream is read
+     * a block at a time and parsed without creating a String per value.
+     * @param stream The InputStream to read. It is not closed.
+     * @param random The RandomSource used if the stream holds no usable rolls.
+     * @return A DiceProvider for the stream.
+     * @exception IOException If the stream can't be read.
+     */
+    public static DiceProvider FromStream(InputStream stream, RandomSource random) throws IOException {
+        int rolls[] = new int[64];
+        int numRolls = 0;
+
+        // The values on the current line. Only the first two are kept, but all of them are counted.
+        int lineValues[] = new int[2];
+        int numValues = 0;
+        boolean lineValid = true;
+
+        // The value being read, and whether we are in the middle of one.
+        long value = 0;
+        boolean negative = false;
+        boolean inValue = false;
+        boolean hasDigits = false;
+        boolean valueValid = true;
+
+        byte buffer[] = new byte[READ_BUFFER_SIZE];
+        int read;
+        boolean done = false;
+        while (!done){
+            read = stream.read(buffer);
+            if (read == -1){
+                // Finish off the last line as if the file ended with a new line.
+                buffer[0] = '\n';
+                read = 1;
+                done = true;
+            }
+            for (int i = 0; i < read; i++){
+                byte c = buffer[i];
+                boolean endOfLine = c == '\n' || c == '\r';
+                if (c > ' '){
+                    // Part of a value. Accept an optional sign followed by digits, like Integer.parseInt().
+                    if (!inValue){
+                        inValue = true;
+                        value = 0;
+                        negative = false;
+                        hasDigits = false;
+                        valueValid = true;
+                        if (c == '-' || c == '+'){
+                            negative = c == '-';
+                            continue;
+                        }
+                    }
+                    if (c >= '0' && c <= '9'){
+                        value = value * 10 + (c - '0');
+                        hasDigits = true;
+                        if (value > (long)Integer.MAX_VALUE + 1){
+                            valueValid = false;
+                        }
+                    }
+                    else {
+                        valueValid = false;
+                    }
+                    continue;
+                }
+                // Whitespace ends a value.
+                if (inValue){
+                    inValue = false;
+                    long signed = negative ? -value : value;
+                    if (!hasDigits || !valueValid || signed > Integer.MAX_VALUE){
+                        lineValid = false;
+                    }
+                    else if (numValues < 2){
+                        lineValues[numValues] = (int)signed;
+                    }
+                    numValues += 1;
+                }
+                if (endOfLine){
+                    // Only lines with exactly 2 values hold rolls, and those must be numbers.
+                    if (numValues == 2){
+                        if (!lineValid){
+                            return new DiceProvider(random);
+                        }
+                        if (numRolls + 2 > rolls.length){
+                            int grown[] = new int[rolls.length * 2];
+                            System.arraycopy(rolls, 0, grown, 0, numRolls);
+                            rolls = grown;
+                        }
+                        rolls[numRolls++] = lineValues[0];
+                        rolls[numRolls++] = lineValues[1];
+                    }
+                    numValues = 0;
+                    lineValid = true;
+                }
+            }
+        }
+
+        if (numRolls == 0){
+            return new DiceProvider(random);
+        }
+        return new DiceProvider(rolls, numRolls, random);
+    }
+
+    /**
+     * Checks if this provider gives scripted rolls.
+     * @return A boolean value. True if the rolls come from a dice file, false if they are random.
+     */
+    public boolean IsScripted(){
+        return m_rolls != null;
+    }
+
+    /**
+     * Creates a provider for another tournament that gives the same rolls, starting from the first
+     * one. Scripted rolls are shared rather than copied.
+     * @param random The RandomSource the new provider uses if it rolls randomly.
+     * @return A new DiceProvider.
+     */
+    public DiceProvider Fork(RandomSource random){
+        return new DiceProvider(m_rolls, m_numRolls, random);
+    }
+
+    /**
+     * Provides a single dice roll.
+     * @return An integer holding the next dice roll. Between 1 and 6 unless a dice file says otherwise.
+     */
+    public int Roll(){
+        // Scripted rolls are not kept when a provider is de-serialized, so those roll randomly.
+        if (m_rolls == null){
+            return m_random.NextInt(6) + 1;
+        }
+        // Get the next roll and update which roll we are on.
+        int thisRoll = m_rolls[m_rollPos];
+        m_rollPos = m_rollPos < m_numRolls - 1 ? m_rollPos + 1 : 0;
+        return thisRoll;
+    }
+}
@@ -0,0 +1,506 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/**
+ * Drives a Search over a text protocol modelled on UCI, so that engines can be run and compared
+ * as separate processes by scripts and tournament managers. Commands are read one per line from
+ * standard input, and answers are written to standard output.
+ *
+ * Moves are written as the cell a piece moves from followed by the cell it moves to. Columns are
+ * letters starting at a, and rows are numbers starting at 1 on white's side, so a1b2 moves the
+ * top left piece one step down and to the right. A player with no moves plays quit.
+ *
+ *   uci                                        Answers with the engine's id, then uciok.
+ *   isready                                    Answers readyok.
+ *   ucinewgame                                 Forgets everything learned in the last game.
+ *   position startpos SIZE [white|black] [moves M...]
+ *                                              A new board, with white to move unless told otherwise.
+ *   position board SIZE CELLS white|black [moves M...]
+ *                                              A board with one digit per cell in row order. 0 is
+ *                                              empty, 1 white, 2 white that can capture, 3 black,
+ *                                              4 black that can capture.
+ *   position saved [moves M...]                Followed by a tournament in the same format as a saved
+ *                                              file, ending with a line holding only end.
+ *   go [depth N] [nodes N] [movetime MS] [infinite] [ponder]
+ *                                              Searches the position. Writes an info line after every
+ *                                              depth, and one with the totals and an info string with
+ *                                              the statistics of the search when it ends, then
+ *                                              bestmove M [ponder M]. With no limits, or
+ *                                              with infinite or ponder, bestmove waits for stop or
+ *                                              ponderhit.
+ *   stop                                       Ends the search, which then writes its bestmove.
+ *   ponderhit                                  The expected move was played, so a ponder search
+ *                                              continues with its normal limits.
+ *   d                                          Prints the board.
+ *   stats                                      Prints the statistics of the last search, and the
+ *                                              time and positions of each of its iterations.
+ *   quit                                       Ends the process.
+ */
+public class EngineProtocol {
+
+    /** The name the engine reports for itself. */
+    public static final String ENGINE_NAME = "KonoJava Search";
+
+    /** The line that ends a saved tournament in position saved. */
+    private static final String END_OF_SAVED = "end";
+
+    /** Reads commands. */
+    private BufferedReader m_in;
+
+    /** Writes answers. Only written to while holding its lock. */
+    private PrintStream m_out;
+
+    /** The search used for every go. */
+    private Search m_search = new Search();
+
+    /** The current position, and the player to move. */
+    private Board m_board = new Board(5);
+    private PlayerColor m_toMove = PlayerColor.WHITE;
+
+    /** The thread running the current search, or null if there isn't one. */
+    private Thread m_searchThread;
+
+    /** Guards the fields below, which decide when a search may write its bestmove. */
+    private final Object m_lock = new Object();
+
+    /** True while bestmove has to wait for stop or ponderhit. */
+    private boolean m_holdBestMove;
+
+    /** The move time to use once a ponder search gets a ponderhit, or 0 for no time limit. */
+    private long m_ponderMoveTime;
+
+    /**
+     * Creates a protocol handler.
+     * @param in The BufferedReader commands are read from.
+     * @param out The PrintStream answers are written to.
+     */
+    EngineProtocol(BufferedReader in, PrintStream out){
+        m_in = in;
+        m_out = out;
+    }
+
+    /**
+     * Answers commands until quit or the end of the input.
+     * @exception IOException If the input can't be read.
+     * @exception InterruptedException If interrupted while waiting for a search to end.
+     */
+    public void Run() throws IOException, InterruptedException {
+        String line;
+        while ((line = m_in.readLine()) != null){
+            String words[] = line.trim().split("\\s+");
+            String command = words[0];
+            if (command.equals("quit")){
+                break;
+            }
+            else if (command.equals("uci")){
+                Send("id name " + ENGINE_NAME);
+                Send("id author KonoJava");
+                Send("uciok");
+            }
+            else if (command.equals("isready")){
+                Send("readyok");
+            }
+            else if (command.equals("ucinewgame")){
+                EndSearch();
+                m_search.Clear();
+            }
+            else if (command.equals("position")){
+                EndSearch();
+                Position(words);
+            }
+            else if (command.equals("go")){
+                EndSearch();
+                Go(words);
+            }
+            else if (command.equals("stop")){
+                Release();
+                m_search.Stop();
+            }
+            else if (command.equals("ponderhit")){
+                PonderHit();
+            }
+            else if (command.equals("d")){
+                PrintBoard();
+            }
+            else if (command.equals("stats")){
+                PrintStats();
+            }
+            else if (command.length() > 0){
+                Send("info string unknown command " + command);
+            }
+        }
+        EndSearch();
+    }
+
+    /**
+     * Sets up a new position.
+     * @param words The words of the command.
+     * @exception IOException If a saved tournament can't be read.
+     */
+    private void Position(String words[]) throws IOException {
+        int next;
+        Board board;
+        PlayerColor toMove;
+        try {
+            if (words[1].equals("startpos")){
+                board = new Board(Integer.parseInt(words[2]));
+                toMove = PlayerColor.WHITE;
+                next = 3;
+                if (words.length > 3 && (words[3].equals("white") || words[3].equals("black"))){
+                    toMove = words[3].equals("white") ? PlayerColor.WHITE : PlayerColor.BLACK;
+                    next = 4;
+                }
+            }
+            else if (words[1].equals("board")){
+                board = ParseBoard(Integer.parseInt(words[2]), words[3]);
+                toMove = words[4].equals("black") ? PlayerColor.BLACK : PlayerColor.WHITE;
+                next = 5;
+            }
+            else if (words[1].equals("saved")){
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = m_in.readLine()) != null && !line.trim().equals(END_OF_SAVED)){
+                    data.append(line).append('\n');
+                }
+                Tournament tournament = Serializer.Read(new BufferedReader(new StringReader(data.toString())));
+                if (tournament == null){
+                    Send("info string could not read the saved tournament");
+                    return;
+                }
+                Game game = tournament.GetGame();
+                board = game.GetBoard();
+                toMove = game.GetPlayer(game.GetNextPlayer()).GetColor();
+                next = 2;
+            }
+            else {
+                Send("info string unknown position " + words[1]);
+                return;
+            }
+        }
+        catch (IllegalArgumentException e){
+            Send("info string bad position: " + e.getMessage());
+            return;
+        }
+        catch (ArrayIndexOutOfBoundsException e){
+            Send("info string incomplete position");
+            return;
+        }
+
+        // Play any moves that follow.
+        if (next < words.length && words[next].equals("moves")){
+            for (int i = next + 1; i < words.length; i++){
+                int move = ParseMove(words[i], board.GetSize());
+                if (move == PackedMove.NONE || !PackedMove.IsPlay(move) || board.MakeMove(move, toMove).GetError() != null){
+                    Send("info string illegal move " + words[i]);
+                    break;
+                }
+                toMove = PlayerColor.Opponent(toMove);
+            }
+        }
+        m_board = board;
+        m_toMove = toMove;
+    }
+
+    /**
+     * Starts a search of the current position on its own thread.
+     * @param words The words of the command.
+     */
+    private void Go(String words[]){
+        int depth = Search.MAX_PLY;
+        long nodes = 0;
+        long moveTime = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        try {
+            for (int i = 1; i < words.length; i++){
+                if (words[i].equals("depth")){
+                    depth = Integer.parseInt(words[++i]);
+                }
+                else if (words[i].equals("nodes")){
+                    nodes = Long.parseLong(words[++i]);
+                }
+                else if (words[i].equals("movetime")){
+                    moveTime = Long.parseLong(words[++i]);
+                }
+                else if (words[i].equals("infinite")){
+                    infinite = true;
+                }
+                else if (words[i].equals("ponder")){
+                    ponder = true;
+                }
+            }
+        }
+        catch (RuntimeException e){
+            Send("info string bad go command");
+            return;
+        }
+
+        // With no limits at all, search until told to stop.
+        if (depth == Search.MAX_PLY && nodes == 0 && moveTime == 0){
+            infinite = true;
+        }
+        synchronized (m_lock){
+            m_holdBestMove = infinite || ponder;
+            m_ponderMoveTime = ponder ? moveTime : 0;
+        }
+
+        final Board board = new Board(m_board);
+        final PlayerColor color = m_toMove;
+        final int searchDepth = depth;
+        final long searchNodes = nodes;
+        long searchTime = ponder ? 0 : moveTime;
+        // Cleared and set here rather than on the search thread, so that a stop or ponderhit read
+        // right after go counts, instead of being undone when the search starts.
+        m_search.ClearStop();
+        m_search.SetDeadline(searchTime > 0 ? System.nanoTime() + searchTime * 1000000L : Long.MAX_VALUE);
+        m_searchThread = new Thread(new Runnable() {
+            @Override
+            public void run(){
+                RunSearch(board, color, searchDepth, searchNodes);
+            }
+        }, "EngineSearch");
+        m_searchThread.start();
+    }
+
+    /**
+     * Runs a search, streaming info lines, and writes the bestmove once it is allowed to.
+     * @param board A copy of the position to search.
+     * @param color The PlayerColor to move.
+     * @param depth The deepest iteration to search.
+     * @param nodes The most positions to search, or 0 for no limit.
+     */
+    private void RunSearch(final Board board, PlayerColor color, int depth, long nodes){
+        final int size = board.GetSize();
+        int best = m_search.GoUntilDeadline(board, color, depth, nodes, new Search.Listener() {
+            @Override
+            public void OnInfo(int depth, int score, long nodes, long nanos, int pv[], int pvLength){
+                StringBuilder info = new StringBuilder();
+                long millis = nanos / 1000000;
+                info.append("info depth ").append(depth).append(" score cp ").append(score)
+                        .append(" nodes ").append(nodes).append(" nps ").append(nanos == 0 ? 0 : nodes * 1000000000L / nanos)
+                        .append(" time ").append(millis).append(" pv");
+                for (int i = 0; i < pvLength; i++){
+                    info.append(' ').append(FormatMove(pv[i], size));
+                }
+                Send(info.toString());
+            }
+        });
+
+        SearchStats stats = m_search.GetStats();
+        Send("info depth " + stats.GetDepth() + " seldepth " + stats.GetMaxPly() + " nodes " + stats.GetNodes()
+                + " nps " + stats.GetNodesPerSecond() + " time " + stats.GetNanos() / 1000000);
+        Send("info string stats " + stats.Summary());
+
+        // In infinite and ponder mode the answer has to wait until the GUI asks for it.
+        synchronized (m_lock){
+            while (m_holdBestMove){
+                try {
+                    m_lock.wait();
+                }
+                catch (InterruptedException e){
+                    break;
+                }
+            }
+        }
+        String answer = "bestmove " + FormatMove(best, size);
+        int ponderMove = m_search.GetPonderMove();
+        if (PackedMove.IsPlay(best) && ponderMove != PackedMove.NONE){
+            answer += " ponder " + FormatMove(ponderMove, size);
+        }
+        Send(answer);
+    }
+
+    /**
+     * Switches a ponder search to its normal limits.
+     */
+    private void PonderHit(){
+        synchronized (m_lock){
+            if (m_ponderMoveTime > 0){
+                m_search.SetDeadline(System.nanoTime() + m_ponderMoveTime * 1000000L);
+                m_ponderMoveTime = 0;
+            }
+            m_holdBestMove = false;
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * Lets a search that is waiting for stop write its bestmove.
+     */
+    private void Release(){
+        synchronized (m_lock){
+            m_holdBestMove = false;
+            m_lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the current search, if there is one, and waits for it to write its bestmove.
+     * @exception InterruptedException If interrupted while waiting.
+     */
+    private void EndSearch() throws InterruptedException {
+        if (m_searchThread != null){
+            Release();
+            m_search.Stop();
+            m_searchThread.join();
+            m_searchThread = null;
+        }
+    }
+
+    /**
+     * Prints the statistics of the last search as info strings.
+     */
+    private void PrintStats(){
+        SearchStats stats = m_search.GetStats();
+        Send("info string stats " + stats.Summary());
+        for (String line : stats.IterationSummary().split("\n")){
+            if (line.length() > 0){
+                Send("info string " + line);
+            }
+        }
+    }
+
+    /**
+     * Prints the current board, one row per line.
+     */
+    private void PrintBoard(){
+        int size = m_board.GetSize();
+        for (int row = 0; row < size; row++){
+            StringBuilder line = new StringBuilder();
+            for (int col = 0; col < size; col++){
+                line.append(" .wWbB".charAt(m_board.GetCell(row * size + col) + 1)).append(' ');
+            }
+            Send(line.toString());
+        }
+        Send((m_toMove == PlayerColor.WHITE ? "white" : "black") + " to move, hash " + Long.toHexString(m_board.GetHash()));
+    }
+
+    /**
+     * Writes a line of output.
+     * @param line The line to write, without a new line.
+     */
+    private void Send(String line){
+        synchronized (m_out){
+            m_out.println(line);
+            m_out.flush();
+        }
+    }
+
+    /**
+     * Builds a board from the compact one digit per cell form.
+     * @param size The size of the board.
+     * @param cells One digit per cell, in row order.
+     * @return The Board.
+     * @exception IllegalArgumentException If the cells don't describe a board of the given size.
+     */
+    static Board ParseBoard(int size, String cells){
+        if (cells.length() != size * size){
+            throw new IllegalArgumentException("Expected " + size * size + " cells.");
+        }
+        // The digits are the cell values used by Board.
+        byte data[] = new byte[cells.length()];
+        for (int i = 0; i < cells.length(); i++){
+            char cell = cells.charAt(i);
+            if (cell < '0' || cell > '4'){
+                throw new IllegalArgumentException("Bad cell " + cell);
+            }
+            data[i] = (byte)(cell - '0');
+        }
+        return new Board(size, data);
+    }
+
+    /**
+     * Writes a packed move in the protocol's form, like a1b2.
+     * @param move The packed move.
+     * @param size The size of the board the move is played on.
+     * @return A String holding the move, or quit if it isn't a move on the board.
+     */
+    static String FormatMove(int move, int size){
+        if (!PackedMove.IsPlay(move)){
+            return "quit";
+        }
+        int from = PackedMove.GetFrom(move);
+        int to = PackedMove.GetDestination(move, size);
+        return CellName(from, size) + CellName(to, size);
+    }
+
+    /**
+     * Reads a move in the protocol's form, like a1b2.
+     * @param text The move.
+     * @param size The size of the board the move is played on.
+     * @return The packed move, PackedMove.QUIT for quit, or PackedMove.NONE if it isn't a valid move.
+     */
+    static int ParseMove(String text, int size){
+        if (text.equals("quit")){
+            return PackedMove.QUIT;
+        }
+        // Split the text into the two cells, each a letter followed by digits.
+        int split = 1;
+        while (split < text.length() && Character.isDigit(text.charAt(split))){
+            split++;
+        }
+        int from = ParseCell(text.substring(0, split), size);
+        int to = ParseCell(text.substring(split), size);
+        if (from == -1 || to == -1){
+            return PackedMove.NONE;
+        }
+        int rowStep = to / size - from / size;
+        int colStep = to % size - from % size;
+        for (int dir = 0; dir < 4; dir++){
+            if (PackedMove.RowOffset(dir) == rowStep && PackedMove.ColOffset(dir) == colStep){
+                return PackedMove.Play(from, dir);
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * Names a cell, like a1.
+     * @param cell The zero indexed cell.
+     * @param size The size of the board.
+     * @return A String holding the column letter followed by the row number.
+     */
+    private static String CellName(int cell, int size){
+        return (char)('a' + cell % size) + Integer.toString(cell / size + 1);
+    }
+
+    /**
+     * Reads a cell name, like a1.
+     * @param name The cell name.
+     * @param size The size of the board.
+     * @return The zero indexed cell, or -1 if it isn't a cell on the board.
+     */
+    private static int ParseCell(String name, int size){
+        if (name.length() < 2){
+            return -1;
+        }
+        int col = name.charAt(0) - 'a';
+        int row;
+        try {
+            row = Integer.parseInt(name.substring(1)) - 1;
+        }
+        catch (NumberFormatException e){
+            return -1;
+        }
+        if (col < 0 || col >= size || row < 0 || row >= size){
+            return -1;
+        }
+        return row * size + col;
+    }
+
+    /**
+     * Runs the protocol over standard input and output.
+     * @param args Not used.
+     * @exception IOException If standard input can't be read.
+     * @exception InterruptedException If interrupted while waiting for a search to end.
+     */
+    public static void main(String args[]) throws IOException, InterruptedException {
+        EngineProtocol protocol = new EngineProtocol(new BufferedReader(new InputStreamReader(System.in, "UTF-8")), System.out);
+        protocol.Run();
+    }
+}
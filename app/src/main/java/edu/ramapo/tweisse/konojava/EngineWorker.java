@@ -0,0 +1,196 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds moves for a player on a background thread, so that the screen stays responsive while an
+ * engine is thinking. Progress and results are handed to an Executor, which on Android posts them
+ * to the main thread's Handler. Only one request runs at a time. Starting a new request or calling
+ * Cancel() stops the running one, and a cancelled request never reports anything.
+ */
+public class EngineWorker {
+
+    /**
+     * Receives the progress and result of a request. Called through the delivery Executor.
+     */
+    public interface Callback {
+        /**
+         * Called after every depth an engine completes. Engines that find their move in a single
+         * step never call this.
+         * @param depth The depth that was just completed.
+         * @param score The score of the best move, from the point of view of the player to move.
+         * @param bestMove The packed best move found so far.
+         */
+        void OnProgress(int depth, int score, int bestMove);
+
+        /**
+         * Called once the move has been found.
+         * @param move The packed move that was found.
+         */
+        void OnMoveFound(int move);
+    }
+
+    /** Runs the engine. A single thread, so that requests never overlap. */
+    private ExecutorService m_executor;
+
+    /** Runs the callbacks, on the thread that owns the screen. */
+    private Executor m_delivery;
+
+    /** Counts requests. A request only reports while it is still the latest one. */
+    private final AtomicInteger m_generation = new AtomicInteger();
+
+    /** The running request and its player, so that it can be stopped. Only used by the owner's thread. */
+    private Future<?> m_running;
+    private Player m_runningPlayer;
+
+    /**
+     * Creates a worker with its own engine thread.
+     * @param delivery The Executor that progress and results are handed to.
+     */
+    public EngineWorker(Executor delivery){
+        m_delivery = delivery;
+        m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "KonoEngine");
+                thread.setDaemon(true);
+                // Keep the engine from competing with the screen for the CPU.
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Starts finding a move, stopping any request that is still running. The board is copied, so
+     * the game can't be changed under the engine. The RandomSource is drawn from on the engine
+     * thread, so it should be one nothing else uses, such as one made with Split().
+     * @param player The Player to find a move for. A Human gets the same suggestion the AI would play.
+     * @param board The Board to find a move on.
+     * @param rand The RandomSource the player uses to break ties.
+     * @param callback The Callback told about the progress and result.
+     */
+    public void Request(final Player player, Board board, final RandomSource rand, final Callback callback){
+        Cancel();
+        final int generation = m_generation.incrementAndGet();
+        final Board copy = new Board(board);
+        final Search.Listener listener = new Search.Listener() {
+            @Override
+            public void OnInfo(final int depth, final int score, long nodes, long nanos, int pv[], int pvLength){
+                if (m_generation.get() != generation){
+                    return;
+                }
+                final int bestMove = pvLength > 0 ? pv[0] : PackedMove.NONE;
+                Deliver(generation, new Runnable() {
+                    @Override
+                    public void run(){
+                        callback.OnProgress(depth, score, bestMove);
+                    }
+                });
+            }
+        };
+
+        m_runningPlayer = player;
+        m_running = m_executor.submit(new Runnable() {
+            @Override
+            public void run(){
+                // Cleared before checking for a cancel, so that a StopThinking() sent after the check
+                // is still seen. The previous request has ended by now, since there is one engine thread.
+                player.ClearStop();
+                if (m_generation.get() != generation){
+                    return;
+                }
+                // The listener is only swapped on this thread, so a request that was cancelled but is
+                // still finishing never reports through the next request's listener.
+                player.SetProgressListener(listener);
+                long start = Latency.Start();
+                final int found;
+                try {
+                    found = player.FindBestMove(copy, rand);
+                }
+                finally {
+                    player.SetProgressListener(null);
+                }
+                Latency.Record(Latency.ENGINE, copy.GetSize(), start);
+                Deliver(generation, new Runnable() {
+                    @Override
+                    public void run(){
+                        m_running = null;
+                        m_runningPlayer = null;
+                        callback.OnMoveFound(found);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Checks if a request is running.
+     * @return A boolean value. True from Request() until the move is delivered or Cancel() is called.
+     */
+    public boolean IsBusy(){
+        return m_running != null;
+    }
+
+    /**
+     * Stops the running request, if there is one. Nothing more is reported for it.
+     */
+    public void Cancel(){
+        m_generation.incrementAndGet();
+        if (m_running != null){
+            m_runningPlayer.StopThinking();
+            m_running.cancel(false);
+            m_running = null;
+            m_runningPlayer = null;
+        }
+    }
+
+    /**
+     * Stops the running request, and runs something through the delivery Executor once the engine
+     * thread has let go of the player and RandomSource. Used before anything else touches the game.
+     * @param whenStopped The Runnable to run once the engine is idle.
+     */
+    public void Cancel(final Runnable whenStopped){
+        Cancel();
+        // The engine thread runs one task at a time, so this only starts once the request has ended.
+        m_executor.execute(new Runnable() {
+            @Override
+            public void run(){
+                m_delivery.execute(whenStopped);
+            }
+        });
+    }
+
+    /**
+     * Cancels the running request and ends the engine thread. The worker can't be used afterwards.
+     */
+    public void Shutdown(){
+        Cancel();
+        m_executor.shutdown();
+    }
+
+    /**
+     * Hands a report to the delivery Executor, dropping it if its request is no longer the latest.
+     * @param generation The request the report belongs to.
+     * @param report The Runnable making the report.
+     */
+    private void Deliver(final int generation, final Runnable report){
+        if (m_generation.get() != generation){
+            return;
+        }
+        m_delivery.execute(new Runnable() {
+            @Override
+            public void run(){
+                // Checked again, since the request may have been cancelled while this was queued.
+                if (m_generation.get() == generation){
+                    report.run();
+                }
+            }
+        });
+    }
+}
@@ -1,12 +1,22 @@
 package edu.ramapo.tweisse.konojava;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Holds information about a game of Kono. Players and a board are stored here.
+ *
+ * The game also keeps every move played, so that it can be reviewed. Alongside each move it keeps
+ * what is needed to take the move back, so a single step back or forward costs the same however
+ * long the game is, and a copy of the board every CHECKPOINT_INTERVAL moves, so that seeking to
+ * any move replays at most that many moves. Playing a move after stepping back drops the moves
+ * that came after it.
  */
 public class Game implements Serializable {
 
+    /** The number of moves between copies of the board kept in the history. */
+    public static final int CHECKPOINT_INTERVAL = 16;
+
     /** Holds the two player objects for this game. */
     private Player m_players[];
 
@@ -19,6 +29,28 @@ public class Game implements Serializable {
     /** Stores the winner in case someone quits the game. */
     private PlayerColor m_winner;
 
+    /** The random numbers used by the computer AI during this game. */
+    private RandomSource m_random;
+
+    /** The result of the last move played, so the display can tell which cells changed. */
+    private transient MoveResult m_lastResult;
+
+    /** The player that made the first move in the history. */
+    private int m_firstPlayer;
+
+    /** Every move in the history, with its Board.UndoToken() and the points it earned its player. */
+    private int m_moves[];
+    private int m_undoTokens[];
+    private int m_movePoints[];
+
+    /** The number of moves in the history, and the number of them that have been played. */
+    private int m_moveCount;
+    private int m_ply;
+
+    /** A copy of the board every CHECKPOINT_INTERVAL moves, and both players' points at the time. */
+    private Board m_checkpoints[];
+    private int m_checkpointPoints[];
+
     /**
      * Default constructor. Initializes a null Game.
      */
@@ -44,9 +76,11 @@ public class Game implements Serializable {
         }
         m_curPlayer = curPlayer - 1;
         m_winner = null;
+        m_random = new SplitRandom();
 
         m_players[0].m_points = m_gameboard.GetPoints(m_players[0].m_color);
         m_players[1].m_points = m_gameboard.GetPoints(m_players[1].m_color);
+        ClearHistory();
     }
 
     /**
@@ -69,6 +103,23 @@ public class Game implements Serializable {
         return m_gameboard;
     }
 
+    /**
+     * Gets the random numbers used by the computer AI during this game.
+     * @return The RandomSource for this game.
+     */
+    public RandomSource GetRandom(){
+        return m_random;
+    }
+
+    /**
+     * Replaces the random numbers used by the computer AI during this game. A seeded source makes
+     * the computer's choices repeatable.
+     * @param random The RandomSource this game should use.
+     */
+    public void SetRandom(RandomSource random){
+        m_random = random;
+    }
+
     /**
      * Gets the number of the player to make the next move in this game.
      * @return An int holding the next player to make a move.
@@ -94,25 +145,50 @@ public class Game implements Serializable {
         }
     }
 
+    /**
+     * Gets the winner decided by a player quitting, which the board can't show.
+     * @return The PlayerColor of the player who didn't quit, or null if nobody has quit.
+     */
+    PlayerColor GetQuitWinner(){
+        return m_winner;
+    }
+
+    /**
+     * Sets the winner decided by a player quitting, when restoring a game.
+     * @param winner The PlayerColor of the player who didn't quit, or null if nobody has quit.
+     */
+    void SetQuitWinner(PlayerColor winner){
+        m_winner = winner;
+    }
+
     /**
      * Calls the PrePlay() function for whatever player is up next.
-     * @param move The Move that we will pass to the player's PrePlay() function.
-     * @return The Move object returned from the player's PrePlay() function.
+     * @param move The packed move that we will pass to the player's PrePlay() function.
+     * @return The packed move returned from the player's PrePlay() function.
      */
-    public Move PrePlay(Move move){
+    public int PrePlay(int move){
         // Call PrePlay() on whichever player is up next, and return the move.
-        return m_players[m_curPlayer].PrePlay(move, m_gameboard);
+        long start = Latency.Start();
+        int picked = m_players[m_curPlayer].PrePlay(move, m_gameboard, m_random);
+        Latency.Record(Latency.PRE_PLAY, m_gameboard.GetSize(), start);
+        return picked;
     }
 
     /**
      * Attempts to play a given Move object for the next player's turn.
-     * @param move The Move that we want to play for this player's turn.
+     * @param move The packed move that we want to play for this player's turn.
      * @return The MoveError describing the result of playing the move.
      */
-    public MoveError Play(Move move){
+    public MoveError Play(int move){
+        long start = Latency.Start();
         // Attempt to play the move for whichever player is up next.
-        MoveError result = m_players[m_curPlayer].Play(move, m_gameboard);
+        int points = m_players[m_curPlayer].m_points;
+        int undo = IsLegalPlay(move) ? m_gameboard.UndoToken(move) : 0;
+        m_lastResult = m_players[m_curPlayer].PlayResult(move, m_gameboard);
+        MoveError result = m_lastResult.GetError();
         if (result == null || result == MoveError.QUIT){
+            points = m_players[m_curPlayer].m_points - points;
+
             // If the move was successful, switch the turn to the next player.
             m_curPlayer = m_curPlayer == 0 ? 1 : 0;
 
@@ -120,10 +196,204 @@ public class Game implements Serializable {
             if (result == MoveError.QUIT){
                 m_winner = m_players[m_curPlayer].GetColor();
             }
+            AddToHistory(move, undo, points);
         }
+        Latency.Record(Latency.PLAY, m_gameboard.GetSize(), start);
         return result;
     }
 
+    /**
+     * Gets the result of the last move played with Play().
+     * @return The MoveResult of the last move, or null if no move has been played since this Game
+     *         was created or loaded.
+     */
+    public MoveResult GetLastResult(){
+        return m_lastResult;
+    }
+
+    /**
+     * Starts the history over from the current position, forgetting every move played so far.
+     */
+    public void ClearHistory(){
+        m_firstPlayer = m_curPlayer + 1;
+        m_moves = new int[64];
+        m_undoTokens = new int[64];
+        m_movePoints = new int[64];
+        m_moveCount = 0;
+        m_ply = 0;
+        m_checkpoints = new Board[4];
+        m_checkpointPoints = new int[8];
+        AddCheckpoint();
+    }
+
+    /**
+     * Gets the number of moves in the history, including any that have been stepped back over.
+     * @return An int holding the number of moves.
+     */
+    public int GetMoveCount(){
+        return m_moveCount;
+    }
+
+    /**
+     * Gets the number of moves in the history that have been played to reach the current position.
+     * @return An int from 0 to GetMoveCount().
+     */
+    public int GetPly(){
+        return m_ply;
+    }
+
+    /**
+     * Gets a move in the history.
+     * @param ply The number of moves played before it.
+     * @return The packed move.
+     */
+    public int GetMove(int ply){
+        if (ply < 0 || ply >= m_moveCount){
+            throw new IllegalArgumentException("No move " + ply + " in the history.");
+        }
+        return m_moves[ply];
+    }
+
+    /**
+     * Gets the player that made the first move in the history.
+     * @return The player number. 1 or 2.
+     */
+    public int GetFirstPlayer(){
+        return m_firstPlayer;
+    }
+
+    /**
+     * Gets the position the history starts from.
+     * @return A copy of the Board before the first move in the history.
+     */
+    Board GetHistoryStart(){
+        return new Board(m_checkpoints[0]);
+    }
+
+    /**
+     * Takes back the last move played.
+     * @return A boolean value. False if there was no move to take back.
+     */
+    public boolean Undo(){
+        if (m_ply == 0){
+            return false;
+        }
+        m_ply--;
+        m_curPlayer = m_curPlayer == 0 ? 1 : 0;
+        int move = m_moves[m_ply];
+        if (PackedMove.IsPlay(move)){
+            m_gameboard.Undo(m_undoTokens[m_ply]);
+        }
+        else {
+            m_winner = null;
+        }
+        m_players[m_curPlayer].m_points -= m_movePoints[m_ply];
+        m_lastResult = null;
+        return true;
+    }
+
+    /**
+     * Plays again the next move that was taken back with Undo().
+     * @return A boolean value. False if there was no move to play again.
+     */
+    public boolean Redo(){
+        if (m_ply == m_moveCount){
+            return false;
+        }
+        int move = m_moves[m_ply];
+        if (PackedMove.IsPlay(move)){
+            m_gameboard.Apply(move);
+        }
+        m_players[m_curPlayer].m_points += m_movePoints[m_ply];
+        m_curPlayer = m_curPlayer == 0 ? 1 : 0;
+        if (!PackedMove.IsPlay(move)){
+            m_winner = m_players[m_curPlayer].GetColor();
+        }
+        m_ply++;
+        m_lastResult = null;
+        return true;
+    }
+
+    /**
+     * Moves to the position after a given number of moves of the history, stepping from the current
+     * position or from the nearest earlier copy of the board, whichever is fewer moves away.
+     * @param ply The number of moves to have played. From 0 to GetMoveCount().
+     */
+    public void Seek(int ply){
+        if (ply < 0 || ply > m_moveCount){
+            throw new IllegalArgumentException("No position " + ply + " in the history.");
+        }
+        int checkpoint = ply / CHECKPOINT_INTERVAL;
+        if (Math.abs(ply - m_ply) > ply - checkpoint * CHECKPOINT_INTERVAL){
+            m_gameboard.CopyFrom(m_checkpoints[checkpoint]);
+            m_players[0].m_points = m_checkpointPoints[checkpoint * 2];
+            m_players[1].m_points = m_checkpointPoints[checkpoint * 2 + 1];
+            m_ply = checkpoint * CHECKPOINT_INTERVAL;
+            m_curPlayer = (m_firstPlayer - 1 + m_ply) % 2;
+        }
+        while (m_ply > ply){
+            Undo();
+        }
+        while (m_ply < ply){
+            Redo();
+        }
+        // A copy of the board can't show a quit, so work out the winner from the last move.
+        m_winner = m_ply > 0 && !PackedMove.IsPlay(m_moves[m_ply - 1]) ? m_players[m_curPlayer].GetColor() : null;
+        m_lastResult = null;
+    }
+
+    /**
+     * Adds a move that was just played to the history, dropping any moves that had been taken back.
+     * @param move The packed move.
+     * @param undo The Board.UndoToken() of the move, taken before it was played.
+     * @param points The points the move earned its player.
+     */
+    private void AddToHistory(int move, int undo, int points){
+        if (m_moves == null){
+            // A game saved before the history was kept starts its history after this move.
+            ClearHistory();
+            return;
+        }
+        if (m_ply == m_moves.length){
+            m_moves = Arrays.copyOf(m_moves, m_ply * 2);
+            m_undoTokens = Arrays.copyOf(m_undoTokens, m_ply * 2);
+            m_movePoints = Arrays.copyOf(m_movePoints, m_ply * 2);
+        }
+        m_moves[m_ply] = move;
+        m_undoTokens[m_ply] = undo;
+        m_movePoints[m_ply] = points;
+        m_ply++;
+        m_moveCount = m_ply;
+        if (m_ply % CHECKPOINT_INTERVAL == 0){
+            AddCheckpoint();
+        }
+    }
+
+    /**
+     * Copies the board and points at the current position, which must be a multiple of
+     * CHECKPOINT_INTERVAL moves into the history. Replaces any copy already there.
+     */
+    private void AddCheckpoint(){
+        int index = m_ply / CHECKPOINT_INTERVAL;
+        if (index == m_checkpoints.length){
+            m_checkpoints = Arrays.copyOf(m_checkpoints, index * 2);
+            m_checkpointPoints = Arrays.copyOf(m_checkpointPoints, index * 4);
+        }
+        m_checkpoints[index] = new Board(m_gameboard);
+        m_checkpointPoints[index * 2] = m_players[0].m_points;
+        m_checkpointPoints[index * 2 + 1] = m_players[1].m_points;
+    }
+
+    /**
+     * Checks if a packed move moves a piece onto a cell of the board, so that it has an undo token.
+     * @param move The packed move.
+     * @return A boolean value. True if the move is a play that stays on the board.
+     */
+    private boolean IsLegalPlay(int move){
+        return PackedMove.IsPlay(move) && PackedMove.GetFrom(move) < m_gameboard.GetSize() * m_gameboard.GetSize()
+                && PackedMove.GetDestination(move, m_gameboard.GetSize()) != -1;
+    }
+
     public static void main(String args[]){
     }
 }
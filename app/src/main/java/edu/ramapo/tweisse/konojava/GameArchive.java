@@ -0,0 +1,979 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Stores finished games in a directory, and answers questions about every position they reached,
+ * such as how often a position was won by white and what was played next, without reading the
+ * games back.
+ *
+ * Games are kept as packed move sequences in append-only segment files. Every position reached is
+ * added to an on-disk hash index, keyed by the position's Zobrist hash and the color to move, which
+ * holds how many games reached the position and how they ended. Every move played from a position
+ * has an entry of its own, keyed by the position and the move, so the moves played next are found
+ * by looking up each legal move rather than by scanning the games. Each position entry also heads a
+ * list of postings, naming the game and ply of every time the position was reached.
+ *
+ * Every file is memory-mapped, so a lookup costs a handful of page reads however large the archive
+ * is. Two different positions with the same 64 bit key are counted as one.
+ *
+ * A game is written to its segment before it is indexed, and the index records how far it has got,
+ * so games left unindexed by a crash are indexed again the next time the archive is opened. A crash
+ * part way through indexing a game can count some of that game's positions twice.
+ */
+public class GameArchive {
+
+    /** The default size of a segment file. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * The default number of bytes of the index files mapped at a time. The files are always a whole
+     * number of chunks, so this is also the least disk space each of them takes.
+     */
+    public static final int DEFAULT_CHUNK_LENGTH = 1 << 26;
+
+    /** The names of the index files. Segments are named with SEGMENT_PREFIX and their number. */
+    public static final String INDEX_FILE = "index.bin";
+    public static final String POSTINGS_FILE = "postings.bin";
+    public static final String SEGMENT_PREFIX = "games-";
+
+    /** The magic bytes starting each file. */
+    private static final int SEGMENT_MAGIC = 0x4B47414D;
+    private static final int INDEX_MAGIC = 0x4B494458;
+
+    /** The length of a segment's header, and of the fixed part of each game. */
+    private static final int SEGMENT_HEADER = 8;
+    private static final int GAME_HEADER = 8;
+
+    /** The bits of a game's flags byte. */
+    private static final int BLACK_FIRST = 1;
+    private static final int CUSTOM_START = 1 << 1;
+
+    /** The length of the index header, of a slot in the hash table, and of a posting. */
+    private static final int INDEX_HEADER = 64;
+    private static final int SLOT_LENGTH = 32;
+    private static final int POSTING_LENGTH = 16;
+
+    /** The offsets of each field in a slot. */
+    private static final int SLOT_GAMES = 8;
+    private static final int SLOT_WINS = 12;
+    private static final int SLOT_POSTINGS = 24;
+
+    /** The offsets of each field in the index header. */
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_USED = 16;
+    private static final int HEADER_POSTINGS = 24;
+    private static final int HEADER_SEGMENT = 32;
+    private static final int HEADER_OFFSET = 36;
+
+    /** The most slots in a new hash table. A power of two, made smaller if it doesn't fit in one chunk. */
+    private static final long INITIAL_CAPACITY = 1 << 16;
+
+    /** The fewest bytes in a chunk: the index header and two slots. */
+    private static final int MIN_CHUNK_LENGTH = 128;
+
+    /** The most postings the archive can hold, as each links to the next by a 32 bit number. */
+    private static final long MAX_POSTINGS = 0xFFFFFFFFL;
+
+    /** Mixed into the key of a position with black to move, and of each move from a position. */
+    private static final long BLACK_TO_MOVE = 0x9E3779B97F4A7C15L;
+    private static final long MOVE_KEY = 0xC2B2AE3D27D4EB4FL;
+
+    /** The winner codes stored with a game, in the order of the win counts in a slot. */
+    private static final int WHITE_WON = 0;
+    private static final int BLACK_WON = 1;
+    private static final int TIED = 2;
+    private static final int UNFINISHED = 3;
+
+    /**
+     * A file mapped into memory in chunks, so that it can be larger than one buffer can hold and
+     * grow without remapping what is already mapped.
+     */
+    private static class MappedFile {
+
+        /** The open file. */
+        private RandomAccessFile m_file;
+
+        /** The length of each chunk. */
+        private int m_chunkLength;
+
+        /** The mapped chunks, in order. */
+        private ArrayList<MappedByteBuffer> m_chunks = new ArrayList<>();
+
+        /**
+         * Opens and maps a file, creating it if it doesn't exist.
+         * @param file The File to map.
+         * @param length The length the file should be at least.
+         * @param chunkLength The length of each chunk. The file is always a whole number of chunks.
+         * @exception IOException If the file can't be opened or mapped.
+         */
+        MappedFile(File file, long length, int chunkLength) throws IOException {
+            m_file = new RandomAccessFile(file, "rw");
+            m_chunkLength = chunkLength;
+            Grow(Math.max(length, m_file.length()));
+        }
+
+        /**
+         * Makes the file at least a given length, mapping any new chunks.
+         * @param length The length needed, in bytes.
+         * @exception IOException If the file can't be extended or mapped.
+         */
+        void Grow(long length) throws IOException {
+            long chunks = (length + m_chunkLength - 1) / m_chunkLength;
+            if (chunks <= m_chunks.size()){
+                return;
+            }
+            if (m_file.length() < chunks * m_chunkLength){
+                m_file.setLength(chunks * m_chunkLength);
+            }
+            FileChannel channel = m_file.getChannel();
+            while (m_chunks.size() < chunks){
+                m_chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, (long)m_chunks.size() * m_chunkLength, m_chunkLength));
+            }
+        }
+
+        /**
+         * Reads a long.
+         * @param position The position of the long in the file.
+         * @return The long.
+         */
+        long GetLong(long position){
+            return m_chunks.get((int)(position / m_chunkLength)).getLong((int)(position % m_chunkLength));
+        }
+
+        /**
+         * Writes a long.
+         * @param position The position of the long in the file.
+         * @param value The long to write.
+         */
+        void PutLong(long position, long value){
+            m_chunks.get((int)(position / m_chunkLength)).putLong((int)(position % m_chunkLength), value);
+        }
+
+        /**
+         * Reads an int.
+         * @param position The position of the int in the file.
+         * @return The int.
+         */
+        int GetInt(long position){
+            return m_chunks.get((int)(position / m_chunkLength)).getInt((int)(position % m_chunkLength));
+        }
+
+        /**
+         * Writes an int.
+         * @param position The position of the int in the file.
+         * @param value The int to write.
+         */
+        void PutInt(long position, int value){
+            m_chunks.get((int)(position / m_chunkLength)).putInt((int)(position % m_chunkLength), value);
+        }
+
+        /**
+         * Forces everything written out to the storage device.
+         */
+        void Force(){
+            for (MappedByteBuffer chunk : m_chunks){
+                chunk.force();
+            }
+        }
+
+        /**
+         * Closes the file. The chunks stay mapped until they are garbage collected.
+         * @exception IOException If the file can't be closed.
+         */
+        void Close() throws IOException {
+            m_chunks.clear();
+            m_file.close();
+        }
+    }
+
+    /**
+     * A game read back from the archive.
+     */
+    public static class ArchivedGame {
+
+        /** The reference the game was stored under. */
+        private long m_ref;
+
+        /** The size of the board and its cells before the first move. */
+        private int m_size;
+        private byte m_start[];
+
+        /** The color that moved first. */
+        private PlayerColor m_firstColor;
+
+        /** The color that won, BOTH for a tie, or null if the game did not finish. */
+        private PlayerColor m_winner;
+
+        /** The packed moves, in the order they were played. */
+        private int m_moves[];
+
+        /**
+         * Gets the reference the game was stored under.
+         * @return The long returned by Add().
+         */
+        public long GetRef(){
+            return m_ref;
+        }
+
+        /**
+         * Gets the size of the board the game was played on.
+         * @return An int holding the size of an edge of the board.
+         */
+        public int GetSize(){
+            return m_size;
+        }
+
+        /**
+         * Gets the position the game started from.
+         * @return A new Board holding the position before the first move.
+         */
+        public Board GetStart(){
+            return m_start == null ? new Board(m_size) : new Board(m_size, m_start.clone());
+        }
+
+        /**
+         * Gets the color that moved first.
+         * @return The PlayerColor of the first move.
+         */
+        public PlayerColor GetFirstColor(){
+            return m_firstColor;
+        }
+
+        /**
+         * Gets the color that won.
+         * @return The PlayerColor of the winner, BOTH for a tie, or null if the game did not finish.
+         */
+        public PlayerColor GetWinner(){
+            return m_winner;
+        }
+
+        /**
+         * Gets the moves of the game.
+         * @return The packed moves, in the order they were played.
+         */
+        public int[] GetMoves(){
+            return m_moves;
+        }
+    }
+
+    /**
+     * What the archive knows about a position: how the games reaching it ended, and the same for
+     * each move played from it, most played first.
+     */
+    public static class PositionStats {
+
+        /** The counts for the position. */
+        private long m_games;
+        private long m_wins[] = new long[3];
+
+        /** The moves played from the position, and the counts for each. */
+        private int m_moves[];
+        private long m_moveGames[];
+        private long m_moveWins[][];
+        private int m_moveCount;
+
+        /**
+         * Gets the number of times the position was reached.
+         * @return A long holding the count. A position reached twice in one game counts twice.
+         */
+        public long GetGames(){
+            return m_games;
+        }
+
+        /**
+         * Gets the number of times the position was reached in a game a color went on to win.
+         * @param color The PlayerColor of the winner, or BOTH for ties.
+         * @return A long holding the count.
+         */
+        public long GetWins(PlayerColor color){
+            return m_wins[color.ordinal()];
+        }
+
+        /**
+         * Gets the number of different moves played from the position.
+         * @return An int holding the number of moves.
+         */
+        public int GetMoveCount(){
+            return m_moveCount;
+        }
+
+        /**
+         * Gets a move played from the position.
+         * @param i The index of the move. Moves are ordered from most to least played.
+         * @return The packed move. Only the cell and direction are set, or it is PackedMove.QUIT.
+         */
+        public int GetMove(int i){
+            return m_moves[i];
+        }
+
+        /**
+         * Gets the number of times a move was played from the position.
+         * @param i The index of the move.
+         * @return A long holding the count.
+         */
+        public long GetMoveGames(int i){
+            return m_moveGames[i];
+        }
+
+        /**
+         * Gets the number of times a move was played in a game a color went on to win.
+         * @param i The index of the move.
+         * @param color The PlayerColor of the winner, or BOTH for ties.
+         * @return A long holding the count.
+         */
+        public long GetMoveWins(int i, PlayerColor color){
+            return m_moveWins[i][color.ordinal()];
+        }
+    }
+
+    /** The directory holding the files. */
+    private File m_dir;
+
+    /** The size of each segment file. */
+    private int m_segmentSize;
+
+    /** The bytes of the index files mapped at a time. Slots and postings never cross a chunk. */
+    private int m_chunkLength;
+
+    /** The segments, in order. Only the last is appended to. */
+    private ArrayList<MappedFile> m_segments = new ArrayList<>();
+
+    /** A copy of the segments, replaced whenever one is added, so that games can be read without the lock. */
+    private volatile MappedFile m_readSegments[] = new MappedFile[0];
+
+    /** The offset the next game is written at in the last segment. */
+    private int m_end;
+
+    /** The hash table and the postings. */
+    private MappedFile m_index;
+    private MappedFile m_postings;
+
+    /** The number of slots in the hash table, and the number in use. */
+    private long m_capacity;
+    private long m_used;
+
+    /** The number of postings written. */
+    private long m_postingCount;
+
+    /** Holds the legal moves of a position being looked up, and a quit. */
+    private int m_moveBuffer[] = new int[4 * (PackedMove.MAX_CELL + 1) + 1];
+
+    /**
+     * Opens the archive in a directory, creating it if it is empty, and indexes any games that
+     * were written but not indexed.
+     * @param dir The directory to keep the files in. It must exist.
+     * @exception IOException If the files can't be opened, or aren't an archive.
+     */
+    public GameArchive(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the archive in a directory with a given segment size.
+     * @param dir The directory to keep the files in. It must exist.
+     * @param segmentSize The size of each segment file, in bytes. Limits the length of a game, and
+     *                    must be the same every time the archive is opened.
+     * @exception IOException If the files can't be opened, or aren't an archive.
+     */
+    public GameArchive(File dir, int segmentSize) throws IOException {
+        this(dir, segmentSize, DEFAULT_CHUNK_LENGTH);
+    }
+
+    /**
+     * Opens the archive in a directory with a given segment size and index chunk length. A small
+     * archive can use a small chunk, so that its index files start small.
+     * @param dir The directory to keep the files in. It must exist.
+     * @param segmentSize The size of each segment file, in bytes. Limits the length of a game, and
+     *                    must be the same every time the archive is opened.
+     * @param chunkLength The bytes of the index files mapped at a time. A power of two, at least 128.
+     *                    It can be changed between openings.
+     * @exception IOException If the files can't be opened, or aren't an archive.
+     */
+    public GameArchive(File dir, int segmentSize, int chunkLength) throws IOException {
+        if (chunkLength < MIN_CHUNK_LENGTH || Integer.bitCount(chunkLength) != 1){
+            throw new IllegalArgumentException("Chunk length " + chunkLength + " is not a power of two of at least "
+                    + MIN_CHUNK_LENGTH + ".");
+        }
+        m_dir = dir;
+        m_segmentSize = segmentSize;
+        m_chunkLength = chunkLength;
+
+        // Find the end of the games, which is the first zero length in the last segment.
+        while (SegmentFile(m_segments.size()).exists()){
+            m_segments.add(new MappedFile(SegmentFile(m_segments.size()), 0, m_segmentSize));
+        }
+        for (int i = 0; i < m_segments.size(); i++){
+            if (m_segments.get(i).GetInt(0) != SEGMENT_MAGIC){
+                throw new IOException(SegmentFile(i).getName() + " is not an archive segment.");
+            }
+        }
+        if (m_segments.isEmpty()){
+            AddSegment();
+        }
+        else {
+            MappedFile last = m_segments.get(m_segments.size() - 1);
+            m_end = SEGMENT_HEADER;
+            while (m_end + 4 <= last.m_file.length() && last.GetInt(m_end) != 0){
+                m_end += 4 + last.GetInt(m_end);
+            }
+            m_readSegments = m_segments.toArray(new MappedFile[m_segments.size()]);
+        }
+
+        long capacity = INITIAL_CAPACITY;
+        while (INDEX_HEADER + capacity * SLOT_LENGTH > chunkLength){
+            capacity /= 2;
+        }
+        m_index = new MappedFile(new File(dir, INDEX_FILE), INDEX_HEADER + capacity * SLOT_LENGTH, chunkLength);
+        m_postings = new MappedFile(new File(dir, POSTINGS_FILE), POSTING_LENGTH, chunkLength);
+        if (m_index.GetInt(0) != INDEX_MAGIC){
+            m_index.PutInt(0, INDEX_MAGIC);
+            m_index.PutLong(HEADER_CAPACITY, capacity);
+            m_index.PutInt(HEADER_SEGMENT, 0);
+            m_index.PutInt(HEADER_OFFSET, SEGMENT_HEADER);
+        }
+        m_capacity = m_index.GetLong(HEADER_CAPACITY);
+        m_used = m_index.GetLong(HEADER_USED);
+        m_postingCount = m_index.GetLong(HEADER_POSTINGS);
+
+        // Index what a crash left unindexed.
+        int segment = m_index.GetInt(HEADER_SEGMENT);
+        int offset = m_index.GetInt(HEADER_OFFSET);
+        while (segment < m_segments.size()){
+            int end = segment == m_segments.size() - 1 ? m_end : m_segmentSize;
+            MappedFile file = m_segments.get(segment);
+            while (offset + 4 <= end && file.GetInt(offset) != 0){
+                long ref = ((long)segment << 32) | offset;
+                offset += 4 + file.GetInt(offset);
+                Index(Read(ref), segment, offset);
+            }
+            if (segment == m_segments.size() - 1){
+                break;
+            }
+            segment++;
+            offset = SEGMENT_HEADER;
+        }
+    }
+
+    /**
+     * Adds a game played without a user interface.
+     * @param result The GameResult of the game, holding its moves.
+     * @return The reference the game is stored under.
+     * @exception IOException If the game can't be written.
+     */
+    public long Add(GameResult result) throws IOException {
+        PlayerColor p1Color = result.GetP1Color();
+        PlayerColor winner = null;
+        if (result.GetWinner() == 0){
+            winner = PlayerColor.BOTH;
+        }
+        else if (result.GetWinner() > 0){
+            winner = result.GetWinner() == 1 ? p1Color : PlayerColor.Opponent(p1Color);
+        }
+        PlayerColor first = result.GetFirstPlayer() == 1 ? p1Color : PlayerColor.Opponent(p1Color);
+        int moves[] = result.GetMoves();
+        return Add(result.GetStart(), first, moves, moves.length, winner);
+    }
+
+    /**
+     * Adds a game, and indexes every position it reached.
+     * @param start The Board before the first move. It is not changed.
+     * @param firstColor The PlayerColor that moved first.
+     * @param moves The packed moves played, in order. A quit may only be the last.
+     * @param count The number of moves.
+     * @param winner The PlayerColor that won, BOTH for a tie, or null if the game did not finish.
+     * @return The reference the game is stored under, to pass to Read().
+     * @exception IOException If the game can't be written, or the archive holds too many positions.
+     */
+    public synchronized long Add(Board start, PlayerColor firstColor, int moves[], int count, PlayerColor winner) throws IOException {
+        int size = start.GetSize();
+        boolean custom = !Arrays.equals(Cells(start), Cells(new Board(size)));
+        int length = GAME_HEADER + (custom ? size * size : 0) + count * 4;
+        if (SEGMENT_HEADER + 4 + length > m_segmentSize){
+            throw new IllegalArgumentException("Game of " + count + " moves is too long for a segment.");
+        }
+        if (m_postingCount + count + 1 > MAX_POSTINGS){
+            throw new IOException("The archive can't index any more positions.");
+        }
+        if (m_end + 4 + length > m_segmentSize){
+            AddSegment();
+        }
+
+        // The length goes in last, so a game cut short by a crash is never found.
+        int segment = m_segments.size() - 1;
+        MappedFile file = m_segments.get(segment);
+        long ref = ((long)segment << 32) | m_end;
+        long pos = m_end + 4;
+        file.PutInt(pos, (size << 24) | ((firstColor == PlayerColor.BLACK ? BLACK_FIRST : 0) << 16)
+                | ((custom ? CUSTOM_START : 0) << 16) | (WinnerCode(winner) << 8));
+        file.PutInt(pos + 4, count);
+        pos += GAME_HEADER;
+        if (custom){
+            for (int i = 0; i < size * size; i++){
+                PutByte(file, pos++, start.GetCell(i));
+            }
+        }
+        for (int i = 0; i < count; i++){
+            file.PutInt(pos, moves[i]);
+            pos += 4;
+        }
+        file.PutInt(m_end, length);
+        m_end += 4 + length;
+
+        Index(Read(ref), segment, m_end);
+        return ref;
+    }
+
+    /**
+     * Reads a game back. Games that have been added can be read from any thread at the same time,
+     * without waiting for games being added.
+     * @param ref The reference returned by Add() or GetGameRefs().
+     * @return The ArchivedGame.
+     */
+    public ArchivedGame Read(long ref){
+        MappedFile file = m_readSegments[(int)(ref >>> 32)];
+        long pos = (ref & 0xFFFFFFFFL) + 4;
+        int header = file.GetInt(pos);
+        int count = file.GetInt(pos + 4);
+        pos += GAME_HEADER;
+
+        ArchivedGame game = new ArchivedGame();
+        game.m_ref = ref;
+        game.m_size = header >>> 24;
+        int flags = (header >>> 16) & 0xFF;
+        game.m_firstColor = (flags & BLACK_FIRST) != 0 ? PlayerColor.BLACK : PlayerColor.WHITE;
+        int winner = (header >>> 8) & 0xFF;
+        game.m_winner = winner == UNFINISHED ? null : PlayerColor.values()[winner];
+        if ((flags & CUSTOM_START) != 0){
+            game.m_start = new byte[game.m_size * game.m_size];
+            for (int i = 0; i < game.m_start.length; i++){
+                game.m_start[i] = GetByte(file, pos++);
+            }
+        }
+        game.m_moves = new int[count];
+        for (int i = 0; i < count; i++){
+            game.m_moves[i] = file.GetInt(pos);
+            pos += 4;
+        }
+        return game;
+    }
+
+    /**
+     * Looks up a position, and every move played from it.
+     * @param board The Board holding the position.
+     * @param toMove The PlayerColor to move.
+     * @return The PositionStats of the position. Every count is zero if it was never reached.
+     */
+    public synchronized PositionStats Lookup(Board board, PlayerColor toMove){
+        PositionStats stats = new PositionStats();
+        long key = PositionKey(board.GetHash(), toMove);
+        long slot = Find(key);
+        if (slot == -1){
+            stats.m_moves = new int[0];
+            return stats;
+        }
+        stats.m_games = m_index.GetInt(slot + SLOT_GAMES) & 0xFFFFFFFFL;
+        for (int i = 0; i < 3; i++){
+            stats.m_wins[i] = m_index.GetInt(slot + SLOT_WINS + i * 4) & 0xFFFFFFFFL;
+        }
+
+        // Look up every legal move, and the quit.
+        int count = board.GenerateMoves(toMove, m_moveBuffer);
+        m_moveBuffer[count++] = PackedMove.QUIT;
+        stats.m_moves = new int[count];
+        stats.m_moveGames = new long[count];
+        stats.m_moveWins = new long[count][3];
+        for (int i = 0; i < count; i++){
+            int move = IndexedMove(m_moveBuffer[i]);
+            long moveSlot = Find(MoveKey(key, move));
+            if (moveSlot == -1){
+                continue;
+            }
+            // Insertion sort, most played first.
+            long games = m_index.GetInt(moveSlot + SLOT_GAMES) & 0xFFFFFFFFL;
+            int j = stats.m_moveCount++;
+            while (j > 0 && stats.m_moveGames[j - 1] < games){
+                stats.m_moves[j] = stats.m_moves[j - 1];
+                stats.m_moveGames[j] = stats.m_moveGames[j - 1];
+                stats.m_moveWins[j] = stats.m_moveWins[j - 1];
+                j--;
+            }
+            stats.m_moves[j] = move;
+            stats.m_moveGames[j] = games;
+            stats.m_moveWins[j] = new long[3];
+            for (int k = 0; k < 3; k++){
+                stats.m_moveWins[j][k] = m_index.GetInt(moveSlot + SLOT_WINS + k * 4) & 0xFFFFFFFFL;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Finds the games that reached a position, most recently added first.
+     * @param board The Board holding the position.
+     * @param toMove The PlayerColor to move.
+     * @param refs The array to fill with game references, for Read(). Its length limits the search.
+     * @param plies The array to fill with the number of moves played before the position was reached.
+     * @return The number of games written to the arrays.
+     */
+    public synchronized int FindGames(Board board, PlayerColor toMove, long refs[], int plies[]){
+        long slot = Find(PositionKey(board.GetHash(), toMove));
+        if (slot == -1){
+            return 0;
+        }
+        int count = 0;
+        long posting = m_index.GetLong(slot + SLOT_POSTINGS);
+        while (posting != 0 && count < refs.length){
+            long pos = (posting - 1) * POSTING_LENGTH;
+            refs[count] = m_postings.GetLong(pos);
+            plies[count] = m_postings.GetInt(pos + 8);
+            posting = m_postings.GetInt(pos + 12) & 0xFFFFFFFFL;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the reference of every game in the archive.
+     * @return An array holding the references, in the order the games were added.
+     */
+    public synchronized long[] GetGameRefs(){
+        long refs[] = new long[1024];
+        int count = 0;
+        for (int segment = 0; segment < m_segments.size(); segment++){
+            MappedFile file = m_segments.get(segment);
+            int end = segment == m_segments.size() - 1 ? m_end : m_segmentSize;
+            int offset = SEGMENT_HEADER;
+            while (offset + 4 <= end && file.GetInt(offset) != 0){
+                if (count == refs.length){
+                    refs = Arrays.copyOf(refs, count * 2);
+                }
+                refs[count++] = ((long)segment << 32) | offset;
+                offset += 4 + file.GetInt(offset);
+            }
+        }
+        return Arrays.copyOf(refs, count);
+    }
+
+    /**
+     * Gets the number of different positions and moves in the index.
+     * @return A long holding the number of slots in use.
+     */
+    public synchronized long GetIndexedKeys(){
+        return m_used;
+    }
+
+    /**
+     * Gets the number of positions reached by every game in the archive.
+     * @return A long holding the number of postings.
+     */
+    public synchronized long GetPositionCount(){
+        return m_postingCount;
+    }
+
+    /**
+     * Forces everything written out to the storage device.
+     */
+    public synchronized void Flush(){
+        for (MappedFile segment : m_segments){
+            segment.Force();
+        }
+        m_postings.Force();
+        m_index.Force();
+    }
+
+    /**
+     * Flushes and closes every file. The archive can't be used afterwards.
+     * @exception IOException If a file can't be closed.
+     */
+    public synchronized void Close() throws IOException {
+        Flush();
+        for (MappedFile segment : m_segments){
+            segment.Close();
+        }
+        m_segments.clear();
+        m_readSegments = new MappedFile[0];
+        m_postings.Close();
+        m_index.Close();
+    }
+
+    /**
+     * Indexes every position of a game, then records that the index has got past it.
+     * @param game The ArchivedGame to index.
+     * @param segment The segment the game is in.
+     * @param end The offset just past the game in its segment.
+     * @exception IllegalStateException If a move in the game can't be played.
+     */
+    private void Index(ArchivedGame game, int segment, int end){
+        Board board = game.GetStart();
+        PlayerColor toMove = game.m_firstColor;
+        int winner = WinnerCode(game.m_winner);
+        long hash = board.GetHash();
+        int moves[] = game.m_moves;
+        for (int ply = 0; ply <= moves.length; ply++){
+            long key = PositionKey(hash, toMove);
+            long slot = Count(key, winner);
+            AddPosting(slot, game.m_ref, ply);
+            if (ply == moves.length){
+                break;
+            }
+            int move = moves[ply];
+            Count(MoveKey(key, IndexedMove(move)), winner);
+            if (!PackedMove.IsPlay(move)){
+                break;
+            }
+            if (PackedMove.GetDestination(move, board.GetSize()) == -1){
+                throw new IllegalStateException("Move " + ply + " of game " + game.m_ref + " leaves the board.");
+            }
+            int undo = board.Apply(move);
+            hash ^= board.HashChange(undo);
+            toMove = PlayerColor.Opponent(toMove);
+        }
+        m_index.PutInt(HEADER_SEGMENT, segment);
+        m_index.PutInt(HEADER_OFFSET, end);
+    }
+
+    /**
+     * Adds one to the counts of a key, adding the key if it isn't in the index yet.
+     * @param key The key of a position or move.
+     * @param winner The winner code of the game.
+     * @return The position of the key's slot in the index file.
+     */
+    private long Count(long key, int winner){
+        long slot = FindOrAdd(key);
+        m_index.PutInt(slot + SLOT_GAMES, m_index.GetInt(slot + SLOT_GAMES) + 1);
+        if (winner != UNFINISHED){
+            long wins = slot + SLOT_WINS + winner * 4;
+            m_index.PutInt(wins, m_index.GetInt(wins) + 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a posting to the front of a position's list.
+     * @param slot The position of the position's slot in the index file.
+     * @param ref The reference of the game.
+     * @param ply The number of moves played before the position was reached.
+     */
+    private void AddPosting(long slot, long ref, int ply){
+        long pos = m_postingCount * POSTING_LENGTH;
+        try {
+            m_postings.Grow(pos + POSTING_LENGTH);
+        }
+        catch (IOException e){
+            throw new IllegalStateException("Couldn't grow the postings.", e);
+        }
+        m_postings.PutLong(pos, ref);
+        m_postings.PutInt(pos + 8, ply);
+        // Add() keeps the number of postings within 32 bits.
+        m_postings.PutInt(pos + 12, (int)m_index.GetLong(slot + SLOT_POSTINGS));
+        m_postingCount++;
+        m_index.PutLong(slot + SLOT_POSTINGS, m_postingCount);
+        m_index.PutLong(HEADER_POSTINGS, m_postingCount);
+    }
+
+    /**
+     * Finds the slot holding a key.
+     * @param key The key of a position or move.
+     * @return The position of the slot in the index file, or -1 if the key isn't in the index.
+     */
+    private long Find(long key){
+        long mask = m_capacity - 1;
+        for (long i = Mix(key) & mask; ; i = (i + 1) & mask){
+            long slot = INDEX_HEADER + i * SLOT_LENGTH;
+            long found = m_index.GetLong(slot);
+            if (found == key){
+                return slot;
+            }
+            if (found == 0){
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot holding a key, taking an empty slot for it if it isn't in the index. The hash
+     * table is doubled once it is half full.
+     * @param key The key of a position or move.
+     * @return The position of the slot in the index file.
+     */
+    private long FindOrAdd(long key){
+        if ((m_used + 1) * 2 > m_capacity){
+            Rehash(m_capacity * 2);
+        }
+        long mask = m_capacity - 1;
+        for (long i = Mix(key) & mask; ; i = (i + 1) & mask){
+            long slot = INDEX_HEADER + i * SLOT_LENGTH;
+            long found = m_index.GetLong(slot);
+            if (found == key){
+                return slot;
+            }
+            if (found == 0){
+                m_index.PutLong(slot, key);
+                m_used++;
+                m_index.PutLong(HEADER_USED, m_used);
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Moves every slot into a larger hash table. The new table is written to a new file that
+     * replaces the old one once it is complete, so a crash part way leaves the old table whole.
+     * @param capacity The number of slots in the new table. A power of two.
+     */
+    private void Rehash(long capacity){
+        File file = new File(m_dir, INDEX_FILE);
+        File temp = new File(m_dir, INDEX_FILE + SaveQueue.TEMP_SUFFIX);
+        try {
+            temp.delete();
+            MappedFile index = new MappedFile(temp, INDEX_HEADER + capacity * SLOT_LENGTH, m_chunkLength);
+            long mask = capacity - 1;
+            for (long i = 0; i < m_capacity; i++){
+                long slot = INDEX_HEADER + i * SLOT_LENGTH;
+                long key = m_index.GetLong(slot);
+                if (key == 0){
+                    continue;
+                }
+                long j = Mix(key) & mask;
+                while (index.GetLong(INDEX_HEADER + j * SLOT_LENGTH) != 0){
+                    j = (j + 1) & mask;
+                }
+                for (int k = 0; k < SLOT_LENGTH; k += 8){
+                    index.PutLong(INDEX_HEADER + j * SLOT_LENGTH + k, m_index.GetLong(slot + k));
+                }
+            }
+            for (int k = 0; k < INDEX_HEADER; k += 8){
+                index.PutLong(k, m_index.GetLong(k));
+            }
+            index.PutLong(HEADER_CAPACITY, capacity);
+            index.Force();
+            m_index.Close();
+            if (!temp.renameTo(file)){
+                throw new IOException("Couldn't replace " + file.getName());
+            }
+            m_index = index;
+            m_capacity = capacity;
+        }
+        catch (IOException e){
+            throw new IllegalStateException("Couldn't grow the index.", e);
+        }
+    }
+
+    /**
+     * Starts a new segment, which new games are written to.
+     * @exception IOException If the file can't be created.
+     */
+    private void AddSegment() throws IOException {
+        MappedFile segment = new MappedFile(SegmentFile(m_segments.size()), m_segmentSize, m_segmentSize);
+        segment.PutInt(0, SEGMENT_MAGIC);
+        m_segments.add(segment);
+        m_readSegments = m_segments.toArray(new MappedFile[m_segments.size()]);
+        m_end = SEGMENT_HEADER;
+    }
+
+    /**
+     * Gets the file holding a segment.
+     * @param number The number of the segment, starting at 0.
+     * @return The File.
+     */
+    private File SegmentFile(int number){
+        return new File(m_dir, String.format("%s%05d.seg", SEGMENT_PREFIX, number));
+    }
+
+    /**
+     * Gets the key of a position.
+     * @param hash The Zobrist hash of the board.
+     * @param toMove The PlayerColor to move.
+     * @return The key. Never zero, which marks an empty slot.
+     */
+    private static long PositionKey(long hash, PlayerColor toMove){
+        long key = toMove == PlayerColor.BLACK ? hash ^ BLACK_TO_MOVE : hash;
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Gets the key of a move played from a position.
+     * @param positionKey The key of the position.
+     * @param move The packed move, as returned by IndexedMove().
+     * @return The key. Never zero, which marks an empty slot.
+     */
+    private static long MoveKey(long positionKey, int move){
+        long key = Mix(positionKey ^ (MOVE_KEY * (move + 1)));
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Strips a move down to what is indexed: the cell and direction of a play, or the quit.
+     * @param move The packed move.
+     * @return The packed move as it is indexed.
+     */
+    private static int IndexedMove(int move){
+        if (!PackedMove.IsPlay(move)){
+            return PackedMove.QUIT;
+        }
+        return PackedMove.Play(PackedMove.GetFrom(move), PackedMove.GetDirectionIndex(move));
+    }
+
+    /**
+     * Scrambles the bits of a key, so that keys spread evenly over the hash table.
+     * @param key The key.
+     * @return The scrambled key.
+     */
+    private static long Mix(long key){
+        key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * Gets the code stored for the winner of a game.
+     * @param winner The PlayerColor that won, BOTH for a tie, or null if the game did not finish.
+     * @return One of the winner codes.
+     */
+    private static int WinnerCode(PlayerColor winner){
+        if (winner == null){
+            return UNFINISHED;
+        }
+        return winner == PlayerColor.WHITE ? WHITE_WON : winner == PlayerColor.BLACK ? BLACK_WON : TIED;
+    }
+
+    /**
+     * Copies the cells of a board.
+     * @param board The Board.
+     * @return A new array holding every cell.
+     */
+    private static byte[] Cells(Board board){
+        byte cells[] = new byte[board.GetSize() * board.GetSize()];
+        for (int i = 0; i < cells.length; i++){
+            cells[i] = board.GetCell(i);
+        }
+        return cells;
+    }
+
+    /**
+     * Writes a byte into a mapped file, leaving the bytes around it as they are.
+     * @param file The MappedFile.
+     * @param position The position of the byte.
+     * @param value The byte to write.
+     */
+    private static void PutByte(MappedFile file, long position, byte value){
+        file.m_chunks.get((int)(position / file.m_chunkLength)).put((int)(position % file.m_chunkLength), value);
+    }
+
+    /**
+     * Reads a byte from a mapped file.
+     * @param file The MappedFile.
+     * @param position The position of the byte.
+     * @return The byte.
+     */
+    private static byte GetByte(MappedFile file, long position){
+        return file.m_chunks.get((int)(position / file.m_chunkLength)).get((int)(position % file.m_chunkLength));
+    }
+}
@@ -0,0 +1,209 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * Records what happened during a game, as packed moves rather than text. Only the newest records
+ * are kept, in a ring buffer with a fixed capacity, so a long game can't use more and more memory.
+ * The text of a record is only built when it is first asked for, which on screen means when its
+ * row scrolls into view.
+ */
+public class GameLog {
+
+    /** The number of records kept if no capacity is given. */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    /** The kinds of record. */
+    private static final byte KIND_MOVE = 0;
+    private static final byte KIND_QUIT = 1;
+    private static final byte KIND_ERROR = 2;
+
+    /** Every MoveError, indexed by ordinal, so that reading a record doesn't allocate. */
+    private static final MoveError ERRORS[] = MoveError.values();
+
+    /** The records, in ring order. Each record is a kind, a player, a packed move or error ordinal, and a board size. */
+    private byte m_kinds[];
+    private byte m_players[];
+    private int m_values[];
+    private byte m_sizes[];
+
+    /** The text of each record, or null if it hasn't been built yet. */
+    private String m_text[];
+
+    /** The slot of the oldest record kept. */
+    private int m_start;
+
+    /** The number of records kept. */
+    private int m_count;
+
+    /** The number of records ever added, including those that have been dropped. */
+    private long m_total;
+
+    /**
+     * Creates a log with the default capacity.
+     */
+    public GameLog(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a log that keeps a given number of records.
+     * @param capacity The most records kept. Once full, each new record drops the oldest.
+     */
+    public GameLog(int capacity){
+        if (capacity <= 0){
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        m_kinds = new byte[capacity];
+        m_players = new byte[capacity];
+        m_values = new int[capacity];
+        m_sizes = new byte[capacity];
+        m_text = new String[capacity];
+    }
+
+    /**
+     * Records a move that was played.
+     * @param player The number of the player who played the move. 1 or 2.
+     * @param move The packed move that was played.
+     * @param boardSize The size of the board the move was played on.
+     */
+    public void AddMove(int player, int move, int boardSize){
+        Add(KIND_MOVE, player, move, boardSize);
+    }
+
+    /**
+     * Records a player quitting the game.
+     * @param player The number of the player who quit. 1 or 2.
+     */
+    public void AddQuit(int player){
+        Add(KIND_QUIT, player, 0, 0);
+    }
+
+    /**
+     * Records a move that couldn't be played.
+     * @param error The MoveError explaining why.
+     */
+    public void AddError(MoveError error){
+        Add(KIND_ERROR, 0, error.ordinal(), 0);
+    }
+
+    /**
+     * Gets the number of records kept.
+     * @return The number of records that can be read, at most the capacity.
+     */
+    public int GetCount(){
+        return m_count;
+    }
+
+    /**
+     * Gets the number of records ever added.
+     * @return The number of records added since the log was created or cleared, including dropped ones.
+     */
+    public long GetTotal(){
+        return m_total;
+    }
+
+    /**
+     * Gets the text of a record, building it the first time it is asked for.
+     * @param index The record to read. 0 is the oldest record kept.
+     * @return A String describing the record.
+     * @exception IndexOutOfBoundsException If there is no such record.
+     */
+    public String GetText(int index){
+        if (index < 0 || index >= m_count){
+            throw new IndexOutOfBoundsException("No record " + index + ".");
+        }
+        int slot = (m_start + index) % m_kinds.length;
+        if (m_text[slot] == null){
+            m_text[slot] = BuildText(slot);
+        }
+        return m_text[slot];
+    }
+
+    /**
+     * Removes every record.
+     */
+    public void Clear(){
+        for (int i = 0; i < m_text.length; i++){
+            m_text[i] = null;
+        }
+        m_start = 0;
+        m_count = 0;
+        m_total = 0;
+    }
+
+    /**
+     * Adds a record, dropping the oldest if the log is full.
+     * @param kind The kind of record.
+     * @param player The player the record is about, or 0 for none.
+     * @param value The packed move or MoveError ordinal.
+     * @param boardSize The size of the board a move was played on.
+     */
+    private void Add(byte kind, int player, int value, int boardSize){
+        int slot;
+        if (m_count < m_kinds.length){
+            slot = (m_start + m_count) % m_kinds.length;
+            m_count++;
+        }
+        else {
+            // Overwrite the oldest record.
+            slot = m_start;
+            m_start = (m_start + 1) % m_kinds.length;
+        }
+        m_kinds[slot] = kind;
+        m_players[slot] = (byte)player;
+        m_values[slot] = value;
+        m_sizes[slot] = (byte)boardSize;
+        m_text[slot] = null;
+        m_total++;
+    }
+
+    /**
+     * Builds the text of a record.
+     * @param slot The slot holding the record.
+     * @return A String describing the record.
+     */
+    private String BuildText(int slot){
+        switch (m_kinds[slot]){
+            case KIND_MOVE:
+                return "Player " + m_players[slot] + " executes " + DescribeMove(m_values[slot], m_sizes[slot]);
+            case KIND_QUIT:
+                return "Player " + m_players[slot] + " quits the game.";
+            default:
+                return ERRORS[m_values[slot]].toString();
+        }
+    }
+
+    /**
+     * Describes a packed move the same way as Move.toString(), without creating a Move.
+     * @param move The packed move.
+     * @param boardSize The size of the board the move was played on.
+     * @return A String describing the move.
+     */
+    static String DescribeMove(int move, int boardSize){
+        if (!PackedMove.IsPlay(move)){
+            return "quits the game.";
+        }
+        StringBuilder desc = new StringBuilder("a move ");
+        desc.append(PackedMove.GetDirection(move).toString()).append(" from ");
+        AppendPoint(desc, PackedMove.GetFrom(move), boardSize);
+        ActionReason reason = PackedMove.GetReason(move);
+        if (reason != null){
+            desc.append(' ').append(reason.GetReason());
+        }
+        int target = PackedMove.GetTarget(move);
+        if (target != -1){
+            desc.append(" at ");
+            AppendPoint(desc, target, boardSize);
+        }
+        return desc.append('.').toString();
+    }
+
+    /**
+     * Writes a cell the way a Point prints itself, with the same one indexed row and column.
+     * @param desc The StringBuilder to write to.
+     * @param cell The zero indexed cell.
+     * @param boardSize The size of the board.
+     */
+    private static void AppendPoint(StringBuilder desc, int cell, int boardSize){
+        desc.append("Point(").append(cell / boardSize + 1).append(", ").append(cell % boardSize + 1).append(')');
+    }
+}
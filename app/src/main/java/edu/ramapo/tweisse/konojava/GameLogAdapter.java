@@ -0,0 +1,87 @@
+package edu.ramapo.tweisse.konojava;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Shows a GameLog in a ListView. Only the rows on screen exist, and they are reused as the list
+ * scrolls, so the cost of showing the log doesn't grow with the number of records.
+ */
+public class GameLogAdapter extends BaseAdapter {
+
+    /** The log being shown. */
+    private GameLog m_log;
+
+    /** Creates the rows. */
+    private LayoutInflater m_inflater;
+
+    /**
+     * Creates an adapter for a log.
+     * @param context The Context the list is shown in.
+     * @param log The GameLog to show.
+     */
+    public GameLogAdapter(Context context, GameLog log){
+        m_inflater = LayoutInflater.from(context);
+        m_log = log;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return The number of records kept in the log.
+     */
+    @Override
+    public int getCount(){
+        return m_log.GetCount();
+    }
+
+    /**
+     * Gets the text of a row.
+     * @param position The row, 0 being the oldest record kept.
+     * @return A String describing the record.
+     */
+    @Override
+    public Object getItem(int position){
+        return m_log.GetText(position);
+    }
+
+    /**
+     * Gets the id of a row. Records never move once added, so the id counts from the first record
+     * ever added, including dropped ones.
+     * @param position The row.
+     * @return A long id that stays the same for a record while it is kept.
+     */
+    @Override
+    public long getItemId(int position){
+        return m_log.GetTotal() - m_log.GetCount() + position;
+    }
+
+    /**
+     * Row ids follow the records, even when old records are dropped.
+     * @return A boolean value. Always true.
+     */
+    @Override
+    public boolean hasStableIds(){
+        return true;
+    }
+
+    /**
+     * Gets the view for a row, reusing a row that scrolled off screen when there is one.
+     * @param position The row.
+     * @param convertView A row view that can be reused, or null.
+     * @param parent The ListView the row belongs to.
+     * @return The TextView showing the record.
+     */
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent){
+        TextView row = (TextView)convertView;
+        if (row == null){
+            row = (TextView)m_inflater.inflate(R.layout.game_log_row, parent, false);
+        }
+        row.setText(m_log.GetText(position));
+        return row;
+    }
+}
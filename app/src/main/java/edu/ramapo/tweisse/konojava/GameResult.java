@@ -0,0 +1,250 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * Holds the outcome of a single game played without a user interface.
+ */
+public class GameResult {
+
+    /** The column names written before results in CSV format. */
+    public static final String CSV_HEADER = "tournament,round,boardSize,p1Engine,p2Engine,p1Color,firstPlayer,winner,p1Points,p2Points,plies,quit,capped,micros";
+
+    /** The tournament and round this game was played in. */
+    private int m_tournament;
+    private int m_round;
+
+    /** The size of the board the game was played on. */
+    private int m_boardSize;
+
+    /** The names of the engines playing each side. */
+    private String m_p1Engine;
+    private String m_p2Engine;
+
+    /** The color player 1 played as. Player 2 had the other color. */
+    private PlayerColor m_p1Color;
+
+    /** The player that moved first. 1 or 2. */
+    private int m_firstPlayer;
+
+    /** The player that won. 1, 2, 0 for a tie, or -1 if the game was stopped before it ended. */
+    private int m_winner;
+
+    /** The points each player finished the game with. */
+    private int m_p1Points;
+    private int m_p2Points;
+
+    /** The number of moves played by both players, including a final quit. */
+    private int m_plies;
+
+    /** True if the game ended because a player quit. */
+    private boolean m_quit;
+
+    /** The time taken to play the game, in nanoseconds. */
+    private long m_nanos;
+
+    /** The board before the first move, and the packed moves played, or null if not recorded. */
+    private Board m_start;
+    private int m_moves[];
+
+    /** The statistics of every search each player made, or null for a player that doesn't search. */
+    private SearchStats m_p1Stats;
+    private SearchStats m_p2Stats;
+
+    /**
+     * Creates a result for a finished or stopped game.
+     * @param tournament The number of the tournament the game was played in.
+     * @param round The round of the tournament the game was played in.
+     * @param boardSize The size of the board the game was played on.
+     * @param p1Engine The name of player 1's engine.
+     * @param p2Engine The name of player 2's engine.
+     * @param p1Color The PlayerColor of player 1.
+     * @param firstPlayer The player that moved first. 1 or 2.
+     * @param winner The player that won. 1, 2, 0 for a tie, or -1 if the game did not finish.
+     * @param p1Points The points player 1 finished with.
+     * @param p2Points The points player 2 finished with.
+     * @param plies The number of moves played.
+     * @param quit True if the game ended because a player quit.
+     * @param nanos The time taken to play the game, in nanoseconds.
+     */
+    GameResult(int tournament, int round, int boardSize, String p1Engine, String p2Engine, PlayerColor p1Color,
+               int firstPlayer, int winner, int p1Points, int p2Points, int plies, boolean quit, long nanos){
+        m_tournament = tournament;
+        m_round = round;
+        m_boardSize = boardSize;
+        m_p1Engine = p1Engine;
+        m_p2Engine = p2Engine;
+        m_p1Color = p1Color;
+        m_firstPlayer = firstPlayer;
+        m_winner = winner;
+        m_p1Points = p1Points;
+        m_p2Points = p2Points;
+        m_plies = plies;
+        m_quit = quit;
+        m_nanos = nanos;
+    }
+
+    /**
+     * Gets the number of the tournament this game was played in.
+     * @return An integer holding the tournament number, starting at 1.
+     */
+    public int GetTournament(){
+        return m_tournament;
+    }
+
+    /**
+     * Gets the round of the tournament this game was played in.
+     * @return An integer holding the round number, starting at 1.
+     */
+    public int GetRound(){
+        return m_round;
+    }
+
+    /**
+     * Gets the size of the board this game was played on.
+     * @return An integer holding the board size.
+     */
+    public int GetBoardSize(){
+        return m_boardSize;
+    }
+
+    /**
+     * Gets the name of the engine playing one side.
+     * @param player The player number. 1 or 2.
+     * @return The name of the engine.
+     */
+    public String GetEngine(int player){
+        return player == 1 ? m_p1Engine : m_p2Engine;
+    }
+
+    /**
+     * Gets the color of player 1.
+     * @return The PlayerColor player 1 played as.
+     */
+    public PlayerColor GetP1Color(){
+        return m_p1Color;
+    }
+
+    /**
+     * Gets the player that moved first.
+     * @return 1 or 2.
+     */
+    public int GetFirstPlayer(){
+        return m_firstPlayer;
+    }
+
+    /**
+     * Gets the winner of the game.
+     * @return 1, 2, 0 for a tie, or -1 if the game was stopped before it ended.
+     */
+    public int GetWinner(){
+        return m_winner;
+    }
+
+    /**
+     * Gets the points a player finished the game with.
+     * @param player The player number. 1 or 2.
+     * @return An integer holding the player's points.
+     */
+    public int GetPoints(int player){
+        return player == 1 ? m_p1Points : m_p2Points;
+    }
+
+    /**
+     * Gets the number of moves played in the game.
+     * @return An integer holding the number of moves played by both players.
+     */
+    public int GetPlies(){
+        return m_plies;
+    }
+
+    /**
+     * Checks if the game ended because a player quit.
+     * @return A boolean value. True if a player quit.
+     */
+    public boolean IsQuit(){
+        return m_quit;
+    }
+
+    /**
+     * Checks if the game was stopped before it ended.
+     * @return A boolean value. True if the game hit the move limit.
+     */
+    public boolean IsCapped(){
+        return m_winner == -1;
+    }
+
+    /**
+     * Gets the time taken to play the game.
+     * @return A long holding the time in nanoseconds.
+     */
+    public long GetNanos(){
+        return m_nanos;
+    }
+
+    /**
+     * Records the moves of the game, so that it can be replayed or archived.
+     * @param start A copy of the Board before the first move.
+     * @param moves The packed moves played, in order, including a final quit.
+     */
+    void SetMoves(Board start, int moves[]){
+        m_start = start;
+        m_moves = moves;
+    }
+
+    /**
+     * Gets the board the game started from.
+     * @return The Board before the first move, or null if the moves weren't recorded.
+     */
+    public Board GetStart(){
+        return m_start;
+    }
+
+    /**
+     * Gets the moves of the game.
+     * @return The packed moves played, in order, or null if they weren't recorded.
+     */
+    public int[] GetMoves(){
+        return m_moves;
+    }
+
+    /**
+     * Records the statistics of every search each player made during the game.
+     * @param p1Stats The merged SearchStats of player 1, or null if the player doesn't search.
+     * @param p2Stats The merged SearchStats of player 2, or null if the player doesn't search.
+     */
+    void SetSearchStats(SearchStats p1Stats, SearchStats p2Stats){
+        m_p1Stats = p1Stats;
+        m_p2Stats = p2Stats;
+    }
+
+    /**
+     * Gets the statistics of every search a player made during the game.
+     * @param player The player. 1 or 2.
+     * @return The merged SearchStats, or null if the player doesn't search.
+     */
+    public SearchStats GetSearchStats(int player){
+        return player == 1 ? m_p1Stats : m_p2Stats;
+    }
+
+    /**
+     * Formats this result as a line of CSV, matching CSV_HEADER.
+     * @return A String holding the result, without a new line.
+     */
+    public String ToCsv(){
+        return m_tournament + "," + m_round + "," + m_boardSize + "," + m_p1Engine + "," + m_p2Engine + ","
+                + m_p1Color.toString() + "," + m_firstPlayer + "," + m_winner + "," + m_p1Points + ","
+                + m_p2Points + "," + m_plies + "," + m_quit + "," + IsCapped() + "," + m_nanos / 1000;
+    }
+
+    /**
+     * Formats this result as a JSON object.
+     * @return A String holding the result as a single line of JSON.
+     */
+    public String ToJson(){
+        return "{\"tournament\":" + m_tournament + ",\"round\":" + m_round + ",\"boardSize\":" + m_boardSize
+                + ",\"p1Engine\":\"" + m_p1Engine + "\",\"p2Engine\":\"" + m_p2Engine
+                + "\",\"p1Color\":\"" + m_p1Color.toString() + "\",\"firstPlayer\":" + m_firstPlayer
+                + ",\"winner\":" + m_winner + ",\"p1Points\":" + m_p1Points + ",\"p2Points\":" + m_p2Points
+                + ",\"plies\":" + m_plies + ",\"quit\":" + m_quit + ",\"capped\":" + IsCapped()
+                + ",\"micros\":" + m_nanos / 1000 + "}";
+    }
+}
@@ -0,0 +1,200 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts Kono games for remote clients over local TCP sockets. Every connection is a GameSession
+ * running on its own thread, speaking the line based protocol described in GameSession. Computer
+ * moves are worked out on a shared pool with one thread per core and a bounded queue, so a slow
+ * search only ever holds up the session that asked for it, and never another session's reads or
+ * writes. When the queue is full the session is told the server is busy rather than waiting.
+ *
+ * Run from the command line with:
+ *   --port N           The port to listen on. Defaults to 7777. 0 picks a free port.
+ *   --threads N        The number of compute threads. Defaults to the number of cores.
+ *   --queue N          The number of computer moves that can wait for a compute thread. Defaults to 4096.
+ */
+public class GameServer {
+
+    /** The default port the server listens on. */
+    public static final int DEFAULT_PORT = 7777;
+
+    /** The default number of computer moves that can wait for a compute thread. */
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+
+    /** The stack size of each session thread. Sessions don't recurse, so this keeps thousands of them cheap. */
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+    /** The number of connections the operating system will hold while we accept others. */
+    private static final int ACCEPT_BACKLOG = 16384;
+
+    /** The socket the server listens on. */
+    private ServerSocket m_serverSocket;
+
+    /** The pool that computer moves are worked out on. */
+    private ThreadPoolExecutor m_computePool;
+
+    /** The thread accepting new connections. */
+    private Thread m_acceptThread;
+
+    /** Set when the server is shutting down. */
+    private volatile boolean m_stopped;
+
+    /** The number of sessions currently connected, and the number ever connected. */
+    private AtomicInteger m_activeSessions = new AtomicInteger();
+    private AtomicLong m_totalSessions = new AtomicLong();
+
+    /** The number of requests turned away because the compute queue was full. */
+    private AtomicLong m_rejected = new AtomicLong();
+
+    /**
+     * Creates a server. Nothing happens until Start() is called.
+     * @param computeThreads The number of threads computer moves are worked out on.
+     * @param queueSize The number of computer moves that can wait for a compute thread.
+     */
+    GameServer(int computeThreads, int queueSize){
+        m_computePool = new ThreadPoolExecutor(computeThreads, computeThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize));
+    }
+
+    /**
+     * Starts listening for connections on the loopback interface.
+     * @param port The port to listen on, or 0 to pick a free port.
+     * @exception IOException If the port can't be opened.
+     */
+    public void Start(int port) throws IOException {
+        m_serverSocket = new ServerSocket(port, ACCEPT_BACKLOG, InetAddress.getLoopbackAddress());
+        m_acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run(){
+                AcceptLoop();
+            }
+        }, "GameServer-accept");
+        m_acceptThread.start();
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     * @return An integer holding the port.
+     */
+    public int GetPort(){
+        return m_serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and shuts down the compute pool. Sessions that are still connected
+     * end when their clients disconnect.
+     */
+    public void Stop(){
+        m_stopped = true;
+        try {
+            m_serverSocket.close();
+        }
+        catch (IOException e){
+            // We are shutting down anyway.
+        }
+        m_computePool.shutdown();
+    }
+
+    /**
+     * Accepts connections until the server is stopped, starting a session thread for each one.
+     */
+    private void AcceptLoop(){
+        while (!m_stopped){
+            final Socket socket;
+            try {
+                socket = m_serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            }
+            catch (IOException e){
+                // Closing the server socket ends the loop. Anything else only loses this connection.
+                continue;
+            }
+            long number = m_totalSessions.incrementAndGet();
+            m_activeSessions.incrementAndGet();
+            Thread session = new Thread(null, new Runnable() {
+                @Override
+                public void run(){
+                    try {
+                        new GameSession(socket, GameServer.this).Run();
+                    }
+                    finally {
+                        m_activeSessions.decrementAndGet();
+                    }
+                }
+            }, "GameSession-" + number, SESSION_STACK_SIZE);
+            session.setDaemon(true);
+            session.start();
+        }
+    }
+
+    /**
+     * Works out something on the compute pool, and waits for the answer. Only the calling session
+     * waits, everything else keeps running.
+     * @param task The Callable to run. It has the session's game to itself until it returns.
+     * @return The task's answer.
+     * @exception BusyException If the compute queue is full.
+     * @exception ExecutionException If the task threw an exception.
+     * @exception InterruptedException If interrupted while waiting.
+     */
+    <T> T Compute(Callable<T> task) throws BusyException, ExecutionException, InterruptedException {
+        Future<T> future;
+        try {
+            future = m_computePool.submit(task);
+        }
+        catch (RejectedExecutionException e){
+            m_rejected.incrementAndGet();
+            throw new BusyException();
+        }
+        return future.get();
+    }
+
+    /**
+     * Thrown when the compute queue is full.
+     */
+    static class BusyException extends Exception {
+    }
+
+    /**
+     * Gets the number of sessions currently connected.
+     * @return An integer holding the number of sessions.
+     */
+    public int GetActiveSessions(){
+        return m_activeSessions.get();
+    }
+
+    /**
+     * Gets the number of requests turned away because the compute queue was full.
+     * @return A long holding the number of requests.
+     */
+    public long GetRejected(){
+        return m_rejected.get();
+    }
+
+    /**
+     * Runs a server described by the arguments until the process is killed.
+     * @param args The command line arguments. See the class description.
+     * @exception IOException If the port can't be opened.
+     */
+    public static void main(String args[]) throws IOException {
+        CommandLine line = new CommandLine(args, "--port", "--threads", "--queue");
+        int port = line.GetInt("--port", DEFAULT_PORT);
+        int threads = line.GetInt("--threads", Runtime.getRuntime().availableProcessors());
+        int queueSize = line.GetInt("--queue", DEFAULT_QUEUE_SIZE);
+        GameServer server = new GameServer(threads, queueSize);
+        server.Start(port);
+        System.err.println("Listening on port " + server.GetPort() + " with " + threads + " compute threads.");
+    }
+}
@@ -0,0 +1,391 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A single client's connection to a GameServer. The client is always player 1, and requests are
+ * answered one line at a time, with the answer starting with OK or ERR. Rows and columns start at
+ * 1, and directions are NW, NE, SE or SW.
+ *
+ *   NEW size computer|human [first]   Starts a tournament against a computer or a second human.
+ *                                     The dice pick the first player if it is not given. The
+ *                                     first player plays white. Answers OK first.
+ *   MOVE row col dir                  Plays a move for the human that is up.
+ *                                     Answers OK p1Points p2Points next winner.
+ *   COMPUTER                          Plays a move for the computer that is up.
+ *                                     Answers OK row col dir p1Points p2Points next winner, or
+ *                                     OK QUIT p1Points p2Points next winner if it had no moves.
+ *   HINT                              Asks the computer for the best move for the player that is up.
+ *                                     Answers OK row col dir reason, or OK QUIT.
+ *   QUIT                              The player that is up quits. A computer with moves left refuses.
+ *                                     Answers OK p1Points p2Points next winner.
+ *   BOARD                             Answers OK size cells, with one digit per cell in row order.
+ *                                     0 is empty, 1 white, 2 white that can capture, 3 black, 4
+ *                                     black that can capture.
+ *   SAVE                              Answers OK, then the tournament in the same format as a saved
+ *                                     file, then a line holding a single dot.
+ *   LOAD                              Followed by a saved tournament and a line holding a single dot.
+ *                                     Answers OK next.
+ *   BYE                               Answers OK and closes the connection.
+ * The winner in an answer is 1, 2, 0 for a tie, or -1 if the game isn't over.
+ */
+public class GameSession {
+
+    /** The line that ends a saved tournament in SAVE and LOAD. */
+    private static final String END_OF_DATA = ".";
+
+    /** The connection to the client. */
+    private Socket m_socket;
+
+    /** The server running this session, for its compute pool. */
+    private GameServer m_server;
+
+    /** The tournament being played in this session. Null until NEW or LOAD. */
+    private Tournament m_tournament;
+
+    /** The random numbers for this session's tournaments and dice. */
+    private RandomSource m_random = new SplitRandom();
+
+    /** Reads requests from the client. */
+    private BufferedReader m_in;
+
+    /** Writes answers to the client. */
+    private Writer m_out;
+
+    /**
+     * Creates a session for a new connection.
+     * @param socket The connection to the client.
+     * @param server The GameServer running this session.
+     */
+    GameSession(Socket socket, GameServer server){
+        m_socket = socket;
+        m_server = server;
+    }
+
+    /**
+     * Answers requests until the client says BYE or disconnects.
+     */
+    public void Run(){
+        try {
+            m_in = new BufferedReader(new InputStreamReader(m_socket.getInputStream(), "UTF-8"));
+            m_out = new BufferedWriter(new OutputStreamWriter(m_socket.getOutputStream(), "UTF-8"));
+            String line;
+            while ((line = m_in.readLine()) != null){
+                String words[] = line.trim().split("\\s+");
+                if (words[0].equals("BYE")){
+                    Answer("OK");
+                    break;
+                }
+                Answer(Handle(words));
+            }
+        }
+        catch (IOException e){
+            // The client went away. There is nobody left to tell.
+        }
+        catch (InterruptedException e){
+            // The server is shutting down.
+        }
+        finally {
+            try {
+                m_socket.close();
+            }
+            catch (IOException e){
+                // Already closed.
+            }
+        }
+    }
+
+    /**
+     * Works out the answer to a single request.
+     * @param words The words of the request.
+     * @return The answer to send back to the client.
+     * @exception IOException If a LOAD could not be read, or a SAVE could not be written.
+     * @exception InterruptedException If interrupted while waiting for the compute pool.
+     */
+    private String Handle(String words[]) throws IOException, InterruptedException {
+        String command = words[0];
+        try {
+            if (command.equals("NEW")){
+                return New(words);
+            }
+            else if (command.equals("LOAD")){
+                return Load();
+            }
+            if (m_tournament == null){
+                return "ERR NO_GAME";
+            }
+            if (command.equals("MOVE")){
+                return HumanMove(words);
+            }
+            else if (command.equals("COMPUTER")){
+                return ComputerMove();
+            }
+            else if (command.equals("HINT")){
+                return Hint();
+            }
+            else if (command.equals("QUIT")){
+                return Quit();
+            }
+            else if (command.equals("BOARD")){
+                return Board();
+            }
+            else if (command.equals("SAVE")){
+                return Save();
+            }
+            return "ERR UNKNOWN_COMMAND";
+        }
+        catch (IllegalArgumentException e){
+            // Includes numbers and directions that could not be parsed.
+            return "ERR BAD_ARGUMENTS";
+        }
+        catch (ArrayIndexOutOfBoundsException e){
+            return "ERR BAD_ARGUMENTS";
+        }
+        catch (GameServer.BusyException e){
+            return "ERR BUSY";
+        }
+        catch (ExecutionException e){
+            return "ERR ENGINE";
+        }
+    }
+
+    /**
+     * Starts a new tournament with the client as player 1.
+     * @param words The words of the request: NEW size computer|human [first].
+     * @return The answer to send back to the client.
+     */
+    private String New(String words[]){
+        int size = Integer.parseInt(words[1]);
+        if (!Board.IsValidSize(size)){
+            return "ERR BAD_SIZE";
+        }
+        PlayerType p2Type;
+        if (words[2].equals("computer")){
+            p2Type = PlayerType.COMPUTER;
+        }
+        else if (words[2].equals("human")){
+            p2Type = PlayerType.HUMAN;
+        }
+        else {
+            return "ERR BAD_ARGUMENTS";
+        }
+        int first = words.length > 3 ? Integer.parseInt(words[3]) : HeadlessGame.RollForFirstPlayer(new DiceProvider(m_random.Split()));
+        if (first != 1 && first != 2){
+            return "ERR BAD_ARGUMENTS";
+        }
+
+        PlayerColor p1Color = first == 1 ? PlayerColor.WHITE : PlayerColor.BLACK;
+        PlayerColor p2Color = PlayerColor.Opponent(p1Color);
+        Player p1 = new Human(p1Color, 0);
+        Player p2 = p2Type == PlayerType.HUMAN ? new Human(p2Color, 0) : new Computer(p2Color, 0);
+        Game game = new Game(p1, p2, first, new Board(size));
+        m_tournament = new Tournament(PlayerType.HUMAN, 0, p2Type, 0, game, 1, first, m_random.Split());
+        return "OK " + first;
+    }
+
+    /**
+     * Plays a move for the human that is up.
+     * @param words The words of the request: MOVE row col dir.
+     * @return The answer to send back to the client.
+     */
+    private String HumanMove(String words[]){
+        Game game = m_tournament.GetGame();
+        if (m_tournament.GetGameWinner() != -1){
+            return "ERR GAME_OVER";
+        }
+        if (game.GetPlayer(game.GetNextPlayer()).GetType() != PlayerType.HUMAN){
+            return "ERR NOT_YOUR_TURN";
+        }
+        int size = game.GetBoard().GetSize();
+        int row = Integer.parseInt(words[1]);
+        int col = Integer.parseInt(words[2]);
+        if (row < 1 || row > size || col < 1 || col > size){
+            return "ERR BAD_MOVE";
+        }
+        MoveDirection dir = MoveDirection.valueOf(words[3]);
+        int move = PackedMove.Play((row - 1) * size + (col - 1), dir.ordinal());
+
+        MoveError err = game.Play(game.PrePlay(move));
+        if (err != null){
+            return "ERR " + err.name();
+        }
+        return "OK " + State();
+    }
+
+    /**
+     * Plays a move for the computer that is up, on the compute pool.
+     * @return The answer to send back to the client.
+     * @exception GameServer.BusyException If the compute queue is full.
+     * @exception ExecutionException If the computer failed to find a move.
+     * @exception InterruptedException If interrupted while waiting for the compute pool.
+     */
+    private String ComputerMove() throws GameServer.BusyException, ExecutionException, InterruptedException {
+        final Game game = m_tournament.GetGame();
+        if (m_tournament.GetGameWinner() != -1){
+            return "ERR GAME_OVER";
+        }
+        if (game.GetPlayer(game.GetNextPlayer()).GetType() != PlayerType.COMPUTER){
+            return "ERR NOT_COMPUTER_TURN";
+        }
+        int move = m_server.Compute(new Callable<Integer>() {
+            @Override
+            public Integer call(){
+                int chosen = game.PrePlay(PackedMove.NONE);
+                game.Play(chosen);
+                return chosen;
+            }
+        });
+        return "OK " + DescribeMove(move, game.GetBoard().GetSize()) + " " + State();
+    }
+
+    /**
+     * Asks the computer for the best move for the player that is up, on the compute pool.
+     * @return The answer to send back to the client.
+     * @exception GameServer.BusyException If the compute queue is full.
+     * @exception ExecutionException If the computer failed to find a move.
+     * @exception InterruptedException If interrupted while waiting for the compute pool.
+     */
+    private String Hint() throws GameServer.BusyException, ExecutionException, InterruptedException {
+        final Game game = m_tournament.GetGame();
+        if (m_tournament.GetGameWinner() != -1){
+            return "ERR GAME_OVER";
+        }
+        int move = m_server.Compute(new Callable<Integer>() {
+            @Override
+            public Integer call(){
+                return game.GetPlayer(game.GetNextPlayer()).FindBestMove(game.GetBoard(), game.GetRandom());
+            }
+        });
+        if (!PackedMove.IsPlay(move)){
+            return "OK QUIT";
+        }
+        return "OK " + DescribeMove(move, game.GetBoard().GetSize()) + " " + PackedMove.GetReason(move).name();
+    }
+
+    /**
+     * Quits the game for the player that is up. A computer player first looks for a move on the
+     * compute pool, and refuses to quit if it has one.
+     * @return The answer to send back to the client.
+     * @exception GameServer.BusyException If the compute queue is full.
+     * @exception ExecutionException If the computer failed to look for a move.
+     * @exception InterruptedException If interrupted while waiting for the compute pool.
+     */
+    private String Quit() throws GameServer.BusyException, ExecutionException, InterruptedException {
+        final Game game = m_tournament.GetGame();
+        if (m_tournament.GetGameWinner() != -1){
+            return "ERR GAME_OVER";
+        }
+        MoveError err;
+        if (game.GetPlayer(game.GetNextPlayer()).GetType() == PlayerType.COMPUTER){
+            err = m_server.Compute(new Callable<MoveError>() {
+                @Override
+                public MoveError call(){
+                    return game.Play(game.PrePlay(PackedMove.QUIT));
+                }
+            });
+        }
+        else {
+            err = game.Play(game.PrePlay(PackedMove.QUIT));
+        }
+        if (err != null && err != MoveError.QUIT){
+            return "ERR " + err.name();
+        }
+        return "OK " + State();
+    }
+
+    /**
+     * Describes the board of the current game.
+     * @return The answer to send back to the client.
+     */
+    private String Board(){
+        Board board = m_tournament.GetGame().GetBoard();
+        int size = board.GetSize();
+        StringBuilder answer = new StringBuilder("OK ");
+        answer.append(size).append(' ');
+        for (int cell = 0; cell < size * size; cell++){
+            answer.append((char)('0' + board.GetCell(cell)));
+        }
+        return answer.toString();
+    }
+
+    /**
+     * Sends the tournament to the client in the same format as a saved file.
+     * @return The end of the answer, sent after the tournament.
+     * @exception IOException If the tournament could not be written.
+     */
+    private String Save() throws IOException {
+        m_out.write("OK\n");
+        if (!Serializer.Write(m_tournament, m_out)){
+            throw new IOException("Could not write the tournament.");
+        }
+        m_out.write("\n");
+        return END_OF_DATA;
+    }
+
+    /**
+     * Reads a tournament sent by the client in the same format as a saved file.
+     * @return The answer to send back to the client.
+     * @exception IOException If the client disconnected part way through.
+     */
+    private String Load() throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = m_in.readLine()) != null && !line.equals(END_OF_DATA)){
+            data.append(line).append('\n');
+        }
+        if (line == null){
+            throw new IOException("Disconnected during LOAD.");
+        }
+        Tournament tournament = Serializer.Read(new BufferedReader(new StringReader(data.toString())));
+        if (tournament == null){
+            return "ERR BAD_SAVE";
+        }
+        tournament.GetGame().SetRandom(m_random.Split());
+        m_tournament = tournament;
+        return "OK " + tournament.GetGame().GetNextPlayer();
+    }
+
+    /**
+     * Describes the points, next player and winner of the current game.
+     * @return A String holding p1Points p2Points next winner.
+     */
+    private String State(){
+        Game game = m_tournament.GetGame();
+        return game.GetPlayer(1).GetPoints() + " " + game.GetPlayer(2).GetPoints() + " "
+                + game.GetNextPlayer() + " " + m_tournament.GetGameWinner();
+    }
+
+    /**
+     * Describes a packed move in the protocol's row col dir form.
+     * @param move The packed move.
+     * @param size The size of the board the move is played on.
+     * @return A String holding the move, or QUIT if it isn't a move on the board.
+     */
+    private static String DescribeMove(int move, int size){
+        if (!PackedMove.IsPlay(move)){
+            return "QUIT";
+        }
+        int from = PackedMove.GetFrom(move);
+        return (from / size + 1) + " " + (from % size + 1) + " " + PackedMove.GetDirection(move).name();
+    }
+
+    /**
+     * Sends an answer to the client.
+     * @param answer The answer, without a new line.
+     * @exception IOException If the client has gone away.
+     */
+    private void Answer(String answer) throws IOException {
+        m_out.write(answer);
+        m_out.write('\n');
+        m_out.flush();
+    }
+}
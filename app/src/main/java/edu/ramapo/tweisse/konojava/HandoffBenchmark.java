@@ -0,0 +1,114 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/**
+ * Compares passing a tournament between activities as a Serializable, as was done before, with
+ * TournamentHandoff, on the desktop. A Serializable extra is written into the Binder transaction
+ * with Java serialization, so its size and time are measured with an ObjectOutputStream.
+ *
+ *   HandoffBenchmark [--positions N] [--iterations N] [--seed N]
+ */
+public class HandoffBenchmark {
+
+    /** The board sizes benchmarked. */
+    private static final int SIZES[] = {5, 7, 9};
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private HandoffBenchmark(){
+    }
+
+    /**
+     * Writes a tournament with Java serialization.
+     * @param tourn The Tournament to write.
+     * @return The bytes written.
+     * @exception IOException If the tournament can't be serialized.
+     */
+    private static byte[] Serialize(Tournament tourn) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream(4096);
+        ObjectOutputStream out = new ObjectOutputStream(data);
+        out.writeObject(tourn);
+        out.close();
+        return data.toByteArray();
+    }
+
+    /**
+     * Reads a tournament written with Java serialization.
+     * @param data The bytes written by Serialize().
+     * @return The Tournament.
+     * @exception IOException If the data can't be read.
+     * @exception ClassNotFoundException If the data names a class that doesn't exist.
+     */
+    private static Tournament Deserialize(byte data[]) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+        return (Tournament)in.readObject();
+    }
+
+    /**
+     * Runs the benchmark and prints a table of results.
+     * @param args The options described above.
+     * @exception Exception If a tournament can't be serialized or read back.
+     */
+    public static void main(String args[]) throws Exception {
+        CommandLine line = new CommandLine(args, "--positions", "--iterations", "--seed");
+        int positions = line.GetInt("--positions", 300);
+        int iterations = line.GetInt("--iterations", 100);
+        long seed = line.GetLong("--seed", 1);
+
+        SplitRandom random = new SplitRandom(seed);
+        System.out.println("size  serializable bytes  handoff bytes  serializable us  handoff us");
+        long sink = 0;
+        for (int size : SIZES){
+            Tournament tourns[] = new Tournament[positions];
+            long serialBytes = 0;
+            long handoffBytes = 0;
+            for (int i = 0; i < positions; i++){
+                // The random players are swapped for the human and computer players the app uses.
+                byte save[] = BinarySerializer.Encode(SaveFormatBenchmark.RandomPosition(size, random));
+                tourns[i] = BinarySerializer.Decode(save, 0, save.length);
+                byte handoff[] = TournamentHandoff.Encode(tourns[i]);
+                serialBytes += Serialize(tourns[i]).length;
+                handoffBytes += handoff.length;
+
+                // The handoff has to bring back everything, down to the random number streams.
+                if (!Arrays.equals(TournamentHandoff.Encode(TournamentHandoff.Decode(handoff)), handoff)){
+                    throw new IllegalStateException("Handoff changed position " + i + " of size " + size + ".");
+                }
+            }
+
+            // Time a round trip, written by one activity and read by the next. The first pass is untimed.
+            long times[] = new long[2];
+            for (int pass = 0; pass < 2; pass++){
+                long start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += Deserialize(Serialize(tourns[i])).GetRoundNum();
+                    }
+                }
+                times[0] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += TournamentHandoff.Decode(TournamentHandoff.Encode(tourns[i])).GetRoundNum();
+                    }
+                }
+                times[1] = System.nanoTime() - start;
+            }
+
+            long ops = (long)iterations * positions;
+            System.out.println(String.format("%4d  %18.1f  %13.1f  %15.2f  %10.2f", size,
+                    (double)serialBytes / positions, (double)handoffBytes / positions,
+                    times[0] / 1000.0 / ops, times[1] / 1000.0 / ops));
+        }
+        // Printed so that the timed work can't be optimized away.
+        System.out.println("checksum " + sink);
+    }
+}
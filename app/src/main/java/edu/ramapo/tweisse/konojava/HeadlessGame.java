@@ -0,0 +1,197 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.Arrays;
+
+/**
+ * Plays tournaments between computer engines without a user interface. Drives Tournament,
+ * Game.PrePlay() and Game.Play() the same way PlayGameActivity does when the computer move button
+ * is pressed, and reports a GameResult for every game.
+ */
+public class HeadlessGame {
+
+    /** The default number of moves after which a game is stopped without a winner. */
+    public static final int DEFAULT_MAX_PLIES = 2000;
+
+    /** The engine names accepted by CreatePlayer(). */
+    public static final String ENGINE_HEURISTIC = "heuristic";
+    public static final String ENGINE_RANDOM = "random";
+    public static final String ENGINE_SEARCH = "search";
+
+    /**
+     * Receives the result of each game as soon as it is played.
+     */
+    public interface Listener {
+        /**
+         * Called after every game.
+         * @param result The GameResult of the game that was just played.
+         */
+        void OnResult(GameResult result);
+    }
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private HeadlessGame(){
+    }
+
+    /**
+     * Creates a computer player that uses the named engine. The search engine can be given a depth
+     * after a colon, like search:6.
+     * @param engine The name of the engine. One of the ENGINE constants.
+     * @param color The PlayerColor the player will play as.
+     * @return A new Player with no points.
+     */
+    public static Player CreatePlayer(String engine, PlayerColor color){
+        if (engine.equals(ENGINE_HEURISTIC)){
+            return new Computer(color, 0);
+        }
+        else if (engine.equals(ENGINE_RANDOM)){
+            return new RandomComputer(color, 0);
+        }
+        else if (engine.equals(ENGINE_SEARCH)){
+            return new SearchComputer(color, 0, SearchComputer.DEFAULT_DEPTH);
+        }
+        else if (engine.startsWith(ENGINE_SEARCH + ":")){
+            return new SearchComputer(color, 0, Integer.parseInt(engine.substring(ENGINE_SEARCH.length() + 1)));
+        }
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    /**
+     * Rolls two dice for each player until one has a higher total, like NewTournamentActivity does.
+     * @param dice The DiceProvider to roll with.
+     * @return The player with the higher roll. 1 or 2.
+     */
+    public static int RollForFirstPlayer(DiceProvider dice){
+        int p1Roll;
+        int p2Roll;
+        do {
+            p1Roll = dice.Roll() + dice.Roll();
+            p2Roll = dice.Roll() + dice.Roll();
+        }
+        while (p1Roll == p2Roll);
+        return p1Roll > p2Roll ? 1 : 2;
+    }
+
+    /**
+     * Plays a whole tournament between two engines. The dice decide who moves first in the first
+     * round, and after that the winner of the last game moves first. The first player always plays
+     * as white.
+     * @param number The number of this tournament, used to label its results.
+     * @param p1Engine The name of player 1's engine.
+     * @param p2Engine The name of player 2's engine.
+     * @param boardSize The size of the board every game is played on.
+     * @param rounds The number of games to play.
+     * @param dice The DiceProvider for this tournament. Should not be shared with another tournament.
+     * @param random The RandomSource for this tournament. Every game gets a stream split from it.
+     * @param maxPlies The number of moves after which a game is stopped without a winner.
+     * @param listener The Listener that receives the result of each game.
+     * @return The finished Tournament.
+     */
+    public static Tournament PlayTournament(int number, String p1Engine, String p2Engine, int boardSize, int rounds,
+                                            DiceProvider dice, RandomSource random, int maxPlies, Listener listener){
+        int firstPlayer = RollForFirstPlayer(dice);
+        Tournament tournament = new Tournament(PlayerType.COMPUTER, 0, PlayerType.COMPUTER, 0,
+                NewGame(p1Engine, p2Engine, firstPlayer, boardSize), 1, firstPlayer, random);
+
+        for (int round = 1; round <= rounds; round++){
+            if (round > 1){
+                // The winner of the last game moves first. On a tie, the first player of the tournament does.
+                int lastWinner = tournament.GetGameWinner();
+                firstPlayer = lastWinner > 0 ? lastWinner : tournament.GetNextPlayer();
+                tournament.SetNewGame(NewGame(p1Engine, p2Engine, firstPlayer, boardSize));
+            }
+            GameResult result = PlayGame(tournament, number, round, p1Engine, p2Engine, maxPlies);
+            listener.OnResult(result);
+        }
+        return tournament;
+    }
+
+    /**
+     * Plays a single game with a given first player, outside of a longer tournament.
+     * @param number The number of the game, used to label its result.
+     * @param p1Engine The name of player 1's engine.
+     * @param p2Engine The name of player 2's engine.
+     * @param boardSize The size of the board to play on.
+     * @param firstPlayer The player that moves first, and plays as white. 1 or 2.
+     * @param random The RandomSource for the game.
+     * @param maxPlies The number of moves after which the game is stopped without a winner.
+     * @return The GameResult of the game.
+     */
+    public static GameResult PlayGame(int number, String p1Engine, String p2Engine, int boardSize, int firstPlayer,
+                                      RandomSource random, int maxPlies){
+        Tournament tournament = new Tournament(PlayerType.COMPUTER, 0, PlayerType.COMPUTER, 0,
+                NewGame(p1Engine, p2Engine, firstPlayer, boardSize), 1, firstPlayer, random);
+        return PlayGame(tournament, number, 1, p1Engine, p2Engine, maxPlies);
+    }
+
+    /**
+     * Plays the current game of a tournament until someone wins or the move limit is reached.
+     * @param tournament The Tournament whose current game we are playing. Both players must be computers.
+     * @param number The number of the tournament, used to label the result.
+     * @param round The round being played, used to label the result.
+     * @param p1Engine The name of player 1's engine, used to label the result.
+     * @param p2Engine The name of player 2's engine, used to label the result.
+     * @param maxPlies The number of moves after which the game is stopped without a winner.
+     * @return The GameResult of the game.
+     */
+    public static GameResult PlayGame(Tournament tournament, int number, int round, String p1Engine, String p2Engine, int maxPlies){
+        Game game = tournament.GetGame();
+        int firstPlayer = game.GetNextPlayer();
+        Board startBoard = new Board(game.GetBoard());
+        int moves[] = new int[64];
+        SearchStats stats[] = new SearchStats[3];
+        long start = System.nanoTime();
+
+        int plies = 0;
+        boolean quit = false;
+        int winner = tournament.GetGameWinner();
+        while (winner == -1 && plies < maxPlies){
+            // Ask the player that is up for a move, and play it.
+            int move = game.PrePlay(PackedMove.NONE);
+            int mover = game.GetNextPlayer();
+            SearchStats moveStats = game.GetPlayer(mover).GetSearchStats();
+            if (moveStats != null){
+                if (stats[mover] == null){
+                    stats[mover] = new SearchStats();
+                }
+                stats[mover].Merge(moveStats);
+            }
+            MoveError err = game.Play(move);
+            if (err == MoveError.QUIT){
+                quit = true;
+            }
+            else if (err != null){
+                throw new IllegalStateException("Player " + game.GetNextPlayer() + " made an illegal move: " + err.toString());
+            }
+            if (plies == moves.length){
+                moves = Arrays.copyOf(moves, plies * 2);
+            }
+            moves[plies++] = move;
+            winner = tournament.GetGameWinner();
+        }
+
+        long nanos = System.nanoTime() - start;
+        GameResult result = new GameResult(number, round, game.GetBoard().GetSize(), p1Engine, p2Engine,
+                game.GetPlayer(1).GetColor(), firstPlayer, winner, game.GetPlayer(1).GetPoints(),
+                game.GetPlayer(2).GetPoints(), plies, quit, nanos);
+        result.SetMoves(startBoard, Arrays.copyOf(moves, plies));
+        result.SetSearchStats(stats[1], stats[2]);
+        return result;
+    }
+
+    /**
+     * Creates a new game between two engines. The first player plays as white.
+     * @param p1Engine The name of player 1's engine.
+     * @param p2Engine The name of player 2's engine.
+     * @param firstPlayer The player that moves first. 1 or 2.
+     * @param boardSize The size of the board to play on.
+     * @return The new Game.
+     */
+    private static Game NewGame(String p1Engine, String p2Engine, int firstPlayer, int boardSize){
+        PlayerColor p1Color = firstPlayer == 1 ? PlayerColor.WHITE : PlayerColor.BLACK;
+        Player p1 = CreatePlayer(p1Engine, p1Color);
+        Player p2 = CreatePlayer(p2Engine, PlayerColor.Opponent(p1Color));
+        return new Game(p1, p2, firstPlayer, new Board(boardSize));
+    }
+}
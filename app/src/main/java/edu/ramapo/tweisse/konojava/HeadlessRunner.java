@@ -0,0 +1,189 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Command line entry point for playing batches of computer-vs-computer tournaments on a desktop JVM.
+ * Nothing here touches the Android framework, so it can run on any machine with a JDK, for
+ * example with the app's runHeadless gradle task.
+ *
+ * Arguments, all optional:
+ *   --p1 ENGINE        Player 1's engine. heuristic, random, or search[:depth]. Defaults to heuristic.
+ *   --p2 ENGINE        Player 2's engine. Defaults to random.
+ *   --sizes 5,7,9      The board sizes to play on, any odd size from 5 to 25. Defaults to 5, 7 and 9.
+ *   --tournaments N    The number of tournaments to play on each board size. Defaults to 1.
+ *   --rounds N         The number of games in each tournament. Defaults to 1.
+ *   --seed N           Seeds all random numbers, making the whole batch repeatable.
+ *   --dice FILE        Takes dice rolls from a dice file instead of rolling randomly.
+ *   --max-plies N      Stops a game without a winner after this many moves.
+ *   --format csv|json  The format results are written in. Defaults to csv.
+ *   --out FILE         The file results are written to. Defaults to standard output.
+ *   --latency FILE     Dumps the latency histograms of the game calls to a file once the batch is done.
+ * A summary of the batch is written to standard error, followed by the search statistics of each
+ * player that searches.
+ */
+public class HeadlessRunner implements HeadlessGame.Listener {
+
+    /** Where results are written. */
+    private PrintWriter m_out;
+
+    /** True if results are written as JSON, false for CSV. */
+    private boolean m_json;
+
+    /** Totals for the summary. */
+    private int m_games;
+    private int m_wins[] = new int[3];
+    private int m_capped;
+    private long m_plies;
+
+    /** The statistics of every search each player made, indexed by player. Null until a player searches. */
+    private SearchStats m_searchStats[] = new SearchStats[3];
+
+    /**
+     * Creates a runner that writes results to a given writer.
+     * @param out The PrintWriter results are written to.
+     * @param json True to write results as JSON, false for CSV.
+     */
+    HeadlessRunner(PrintWriter out, boolean json){
+        m_out = out;
+        m_json = json;
+    }
+
+    /**
+     * Writes whatever comes before the first result.
+     */
+    public void Begin(){
+        m_out.println(m_json ? "[" : GameResult.CSV_HEADER);
+    }
+
+    /**
+     * Writes a result as soon as its game is played, and adds it to the summary.
+     * @param result The GameResult of the game that was just played.
+     */
+    @Override
+    public void OnResult(GameResult result){
+        if (m_json){
+            m_out.print(m_games == 0 ? "" : ",\n");
+            m_out.print(result.ToJson());
+        }
+        else {
+            m_out.println(result.ToCsv());
+        }
+        m_games++;
+        m_plies += result.GetPlies();
+        if (result.IsCapped()){
+            m_capped++;
+        }
+        else {
+            m_wins[result.GetWinner()]++;
+        }
+        for (int player = 1; player <= 2; player++){
+            SearchStats stats = result.GetSearchStats(player);
+            if (stats != null){
+                if (m_searchStats[player] == null){
+                    m_searchStats[player] = new SearchStats();
+                }
+                m_searchStats[player].Merge(stats);
+            }
+        }
+    }
+
+    /**
+     * Gets the statistics of every search a player made in the games seen so far.
+     * @param player The player. 1 or 2.
+     * @return The merged SearchStats, or null if the player doesn't search.
+     */
+    public SearchStats GetSearchStats(int player){
+        return m_searchStats[player];
+    }
+
+    /**
+     * Writes whatever comes after the last result and flushes the output.
+     */
+    public void End(){
+        if (m_json){
+            m_out.println(m_games == 0 ? "]" : "\n]");
+        }
+        m_out.flush();
+    }
+
+    /**
+     * Builds a one line summary of every result seen so far.
+     * @param nanos The time taken to play every game, in nanoseconds.
+     * @return A String holding the summary.
+     */
+    public String Summary(long nanos){
+        double seconds = nanos / 1e9;
+        return String.format("%d games in %.1fs (%.1f games/s, %.0f moves/s). P1 wins %d, P2 wins %d, ties %d, capped %d.",
+                m_games, seconds, m_games / seconds, m_plies / seconds, m_wins[1], m_wins[2], m_wins[0], m_capped);
+    }
+
+    /**
+     * Plays the batch of tournaments described by the arguments.
+     * @param args The command line arguments. See the class description.
+     * @exception IOException If a file can't be written.
+     */
+    public static void main(String args[]) throws IOException {
+        CommandLine line = new CommandLine(args, "--p1", "--p2", "--sizes", "--tournaments", "--rounds", "--seed",
+                "--dice", "--max-plies", "--format", "--out", "--latency");
+        String p1Engine = line.GetString("--p1", HeadlessGame.ENGINE_HEURISTIC);
+        String p2Engine = line.GetString("--p2", HeadlessGame.ENGINE_RANDOM);
+        int sizes[] = line.GetInts("--sizes", new int[]{5, 7, 9});
+        int tournaments = line.GetInt("--tournaments", 1);
+        int rounds = line.GetInt("--rounds", 1);
+        RandomSource random = line.GetRandom("--seed");
+        String diceFile = line.GetString("--dice", null);
+        int maxPlies = line.GetInt("--max-plies", HeadlessGame.DEFAULT_MAX_PLIES);
+        String format = line.GetString("--format", "csv");
+        boolean json = format.equals("json");
+        if (!json && !format.equals("csv")){
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        String outFile = line.GetString("--out", null);
+        String latencyFile = line.GetString("--latency", null);
+
+        // Make sure the engines exist before playing anything.
+        HeadlessGame.CreatePlayer(p1Engine, PlayerColor.WHITE);
+        HeadlessGame.CreatePlayer(p2Engine, PlayerColor.BLACK);
+
+        // Read the dice file once. Each tournament gets its own position in it.
+        DiceProvider dice = diceFile == null ? null : DiceProvider.FromFile(new File(diceFile), random.Split());
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(outFile == null
+                ? new OutputStreamWriter(System.out) : new FileWriter(outFile)));
+        HeadlessRunner runner = new HeadlessRunner(out, json);
+        runner.Begin();
+
+        long start = System.nanoTime();
+        int number = 1;
+        for (int size : sizes){
+            for (int i = 0; i < tournaments; i++){
+                RandomSource tournamentRandom = random.Split();
+                DiceProvider tournamentDice = dice == null
+                        ? new DiceProvider(tournamentRandom.Split()) : dice.Fork(tournamentRandom.Split());
+                HeadlessGame.PlayTournament(number++, p1Engine, p2Engine, size, rounds, tournamentDice,
+                        tournamentRandom, maxPlies, runner);
+            }
+        }
+        runner.End();
+        if (outFile != null){
+            out.close();
+        }
+        System.err.println(runner.Summary(System.nanoTime() - start));
+        for (int player = 1; player <= 2; player++){
+            SearchStats stats = runner.GetSearchStats(player);
+            if (stats != null){
+                System.err.println("P" + player + " search: " + stats.Summary());
+                System.err.println(stats.IterationSummary());
+            }
+        }
+        if (latencyFile != null && !Latency.Dump(new File(latencyFile))){
+            System.err.println("Could not write " + latencyFile);
+        }
+    }
+}
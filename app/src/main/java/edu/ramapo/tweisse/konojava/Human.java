@@ -32,12 +32,13 @@ public class Human extends Player {
 
     /**
      * Since the human player will not need to pick its own move, simply return what it was passed.
-     * @param move A Move object describing the move we may play.
+     * @param move The packed move we may play.
      * @param board A Board object holding the board we will use to pick a move.
+     * @param rand The RandomSource the AI would use. Not needed by a human.
      * @return The same move that was passed. The human does not need help from the AI system to get a move.
      */
     @Override
-    public Move PrePlay(Move move, Board board){
+    public int PrePlay(int move, Board board, RandomSource rand){
         return move;
     }
 }
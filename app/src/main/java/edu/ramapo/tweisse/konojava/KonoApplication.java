@@ -0,0 +1,45 @@
+package edu.ramapo.tweisse.konojava;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Holds what is shared by every activity for as long as the process lives.
+ */
+public class KonoApplication extends Application {
+
+    /**
+     * Writes every save, the automatic save and other file work, one at a time, for every activity.
+     * A single queue, so that two activities never write the same file at once. It is never shut
+     * down, as its thread lives as long as the process.
+     */
+    private SaveQueue m_saveQueue;
+
+    /**
+     * Creates the save queue, which hands its results to the main thread.
+     */
+    @Override
+    public void onCreate(){
+        super.onCreate();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        m_saveQueue = new SaveQueue(new Executor() {
+            @Override
+            public void execute(Runnable runnable){
+                handler.post(runnable);
+            }
+        });
+    }
+
+    /**
+     * Gets the save queue shared by every activity.
+     * @param activity Any activity of the application.
+     * @return The SaveQueue. Results of saves are handed to the main thread.
+     */
+    public static SaveQueue GetSaveQueue(Activity activity){
+        return ((KonoApplication)activity.getApplication()).m_saveQueue;
+    }
+}
@@ -0,0 +1,164 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Always-on timing of the calls whose speed players notice: finding and playing moves, checking
+ * for a winner, redrawing the board and saving or loading. Each call is timed with System.nanoTime()
+ * and counted in a LatencyHistogram for its operation and board size, so the slowest moves players
+ * actually wait for show up, not just averages.
+ *
+ * Each thread records into histograms of its own, so that the worker threads of SelfPlayFarm and
+ * MatchArena never fight over the same counters. The threads' histograms are merged whenever they
+ * are read.
+ *
+ * The app finds the computer's moves on the EngineWorker thread rather than in Game.PrePlay(), so
+ * those searches are timed separately, as ENGINE.
+ *
+ *   long start = Latency.Start();
+ *   ...
+ *   Latency.Record(Latency.PLAY, board.GetSize(), start);
+ */
+public class Latency {
+
+    /** The operations that are timed. */
+    public static final int PRE_PLAY = 0;
+    public static final int PLAY = 1;
+    public static final int GET_WINNER = 2;
+    public static final int UPDATE_BOARD = 3;
+    public static final int SAVE = 4;
+    public static final int LOAD = 5;
+    public static final int ENGINE = 6;
+
+    /** The name of each operation, indexed by operation. */
+    private static final String NAMES[] = {"Game.PrePlay", "Game.Play", "Board.GetWinner", "BoardView.UpdateBoard",
+            "Serializer save", "Serializer load", "EngineWorker move"};
+
+    /** The number of board sizes a histogram is kept for. Size 0 is used when the size isn't known. */
+    private static final int SIZES = Board.MAX_SIZE + 1;
+
+    /** The histograms of every thread that has recorded a time, so that they can be merged. Guarded by itself. */
+    private static final ArrayList<AtomicReferenceArray<LatencyHistogram>> STRIPES = new ArrayList<>();
+
+    /**
+     * The calling thread's histogram of each operation and board size, indexed by
+     * operation * SIZES + size. Each is made when first needed.
+     */
+    private static final ThreadLocal<AtomicReferenceArray<LatencyHistogram>> LOCAL = new ThreadLocal<AtomicReferenceArray<LatencyHistogram>>() {
+        @Override
+        protected AtomicReferenceArray<LatencyHistogram> initialValue(){
+            AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(NAMES.length * SIZES);
+            synchronized (STRIPES){
+                STRIPES.add(histograms);
+            }
+            return histograms;
+        }
+    };
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private Latency(){
+    }
+
+    /**
+     * Gets the time to pass to Record() once the timed call is done.
+     * @return A long holding System.nanoTime().
+     */
+    public static long Start(){
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts the time a call took. Safe to call from any thread.
+     * @param operation The operation that was timed. One of the operation constants.
+     * @param boardSize The size of the board it was done on, or 0 if not known.
+     * @param start The time returned by Start() before the call.
+     */
+    public static void Record(int operation, int boardSize, long start){
+        long nanos = System.nanoTime() - start;
+        if (boardSize < 0 || boardSize >= SIZES){
+            boardSize = 0;
+        }
+        int index = operation * SIZES + boardSize;
+        AtomicReferenceArray<LatencyHistogram> histograms = LOCAL.get();
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null){
+            // Only this thread adds to its own histograms, so nothing can have raced it here.
+            histogram = new LatencyHistogram();
+            histograms.set(index, histogram);
+        }
+        histogram.Record(nanos);
+    }
+
+    /**
+     * Gets the times recorded for an operation on a board size, by every thread.
+     * @param operation One of the operation constants.
+     * @param boardSize The size of the board, or 0 for calls where the size wasn't known.
+     * @return A new LatencyHistogram, merged from every thread's. It doesn't change afterwards.
+     */
+    public static LatencyHistogram GetHistogram(int operation, int boardSize){
+        int index = operation * SIZES + boardSize;
+        LatencyHistogram merged = new LatencyHistogram();
+        synchronized (STRIPES){
+            for (AtomicReferenceArray<LatencyHistogram> histograms : STRIPES){
+                LatencyHistogram histogram = histograms.get(index);
+                if (histogram != null){
+                    merged.Merge(histogram);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Forgets every time recorded so far, by every thread.
+     */
+    public static void Clear(){
+        synchronized (STRIPES){
+            for (AtomicReferenceArray<LatencyHistogram> histograms : STRIPES){
+                for (int i = 0; i < histograms.length(); i++){
+                    LatencyHistogram histogram = histograms.get(i);
+                    if (histogram != null){
+                        histogram.Clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a table of the times recorded, one line for each operation and board size that has any.
+     * @return A String holding the table, with times in microseconds.
+     */
+    public static String Report(){
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-22s %4s %10s %10s %10s %10s %10s %10s%n", "operation", "size", "count",
+                "mean us", "p50 us", "p90 us", "p99 us", "max us"));
+        for (int operation = 0; operation < NAMES.length; operation++){
+            for (int size = 0; size < SIZES; size++){
+                LatencyHistogram histogram = GetHistogram(operation, size);
+                if (histogram.GetCount() == 0){
+                    continue;
+                }
+                text.append(String.format("%-22s %4s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", NAMES[operation],
+                        size == 0 ? "?" : Integer.toString(size), histogram.GetCount(), histogram.GetMean() / 1000.0,
+                        histogram.GetPercentile(50) / 1000.0, histogram.GetPercentile(90) / 1000.0,
+                        histogram.GetPercentile(99) / 1000.0, histogram.GetMax() / 1000.0));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the table built by Report() to a file, replacing whatever was there.
+     * @param file The File to write.
+     * @return A boolean value. True if the file was written.
+     */
+    public static boolean Dump(File file){
+        return SaveQueue.WriteAtomically(file, Report().getBytes(Charset.forName("US-ASCII")), false);
+    }
+}
@@ -0,0 +1,166 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long something took, in nanoseconds, in buckets that grow with the value, the way an
+ * HDR histogram does. Every power of two is split into SUB_BUCKETS / 2 equal buckets, so any
+ * percentile is within about 6% of the real value, whatever its size, and the histogram never
+ * grows no matter how many values it holds.
+ *
+ * Recording is a few shifts and one atomic add, and can be done from any thread at the same time.
+ * Latency gives each thread histograms of its own, so those adds are never contended.
+ */
+public class LatencyHistogram {
+
+    /** The number of bits below the highest set bit of a value that pick its bucket. */
+    private static final int SUB_BITS = 4;
+
+    /** The values below this each get a bucket of their own. */
+    private static final int SUB_BUCKETS = 2 << SUB_BITS;
+
+    /** The number of buckets, enough for any positive long. */
+    private static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+    /** The number of values in each bucket. */
+    private AtomicLongArray m_counts = new AtomicLongArray(BUCKETS);
+
+    /** The number of values, their sum and the largest. */
+    private AtomicLong m_count = new AtomicLong();
+    private AtomicLong m_total = new AtomicLong();
+    private AtomicLong m_max = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram(){
+    }
+
+    /**
+     * Adds a value. Safe to call from any thread.
+     * @param nanos The time taken, in nanoseconds. Negative values count as 0.
+     */
+    public void Record(long nanos){
+        if (nanos < 0){
+            nanos = 0;
+        }
+        m_counts.incrementAndGet(BucketOf(nanos));
+        m_count.incrementAndGet();
+        m_total.addAndGet(nanos);
+        long max = m_max.get();
+        while (nanos > max && !m_max.compareAndSet(max, nanos)){
+            max = m_max.get();
+        }
+    }
+
+    /**
+     * Gets the number of values recorded.
+     * @return A long holding the count.
+     */
+    public long GetCount(){
+        return m_count.get();
+    }
+
+    /**
+     * Gets the largest value recorded.
+     * @return A long holding the time in nanoseconds. 0 if nothing has been recorded.
+     */
+    public long GetMax(){
+        return m_max.get();
+    }
+
+    /**
+     * Gets the average of the values recorded.
+     * @return A long holding the time in nanoseconds. 0 if nothing has been recorded.
+     */
+    public long GetMean(){
+        long count = m_count.get();
+        return count == 0 ? 0 : m_total.get() / count;
+    }
+
+    /**
+     * Gets the value that a given share of the values are at or below. Values recorded while this
+     * runs may or may not be counted.
+     * @param percentile The share of values, from 0 to 100.
+     * @return A long holding the time in nanoseconds, the top of the bucket the value falls in,
+     *         but never more than the largest value. 0 if nothing has been recorded.
+     */
+    public long GetPercentile(double percentile){
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            total += m_counts.get(bucket);
+        }
+        if (total == 0){
+            return 0;
+        }
+        long wanted = Math.max(1, (long)Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            seen += m_counts.get(bucket);
+            if (seen >= wanted){
+                return Math.min(HighestIn(bucket), m_max.get());
+            }
+        }
+        return m_max.get();
+    }
+
+    /**
+     * Adds every value of another histogram to this one.
+     * @param other The LatencyHistogram to add. Not changed.
+     */
+    public void Merge(LatencyHistogram other){
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            long count = other.m_counts.get(bucket);
+            if (count != 0){
+                m_counts.addAndGet(bucket, count);
+            }
+        }
+        m_count.addAndGet(other.m_count.get());
+        m_total.addAndGet(other.m_total.get());
+        long max = m_max.get();
+        while (other.m_max.get() > max && !m_max.compareAndSet(max, other.m_max.get())){
+            max = m_max.get();
+        }
+    }
+
+    /**
+     * Forgets every value. Values recorded while this runs may or may not be kept.
+     */
+    public void Clear(){
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            m_counts.set(bucket, 0);
+        }
+        m_count.set(0);
+        m_total.set(0);
+        m_max.set(0);
+    }
+
+    /**
+     * Finds the bucket a value is counted in.
+     * @param value The value, at least 0.
+     * @return An int holding the index of the bucket.
+     */
+    static int BucketOf(long value){
+        if (value < SUB_BUCKETS){
+            return (int)value;
+        }
+        // The highest bit picks the power of two, and the SUB_BITS below it the bucket within it.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift << SUB_BITS) + (int)(value >>> shift);
+    }
+
+    /**
+     * Finds the largest value counted in a bucket.
+     * @param bucket The index of the bucket.
+     * @return A long holding the largest value.
+     */
+    static long HighestIn(int bucket){
+        if (bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BITS) - 1;
+        long sub = bucket - (shift << SUB_BITS);
+        return ((sub + 1) << shift) - 1;
+    }
+}
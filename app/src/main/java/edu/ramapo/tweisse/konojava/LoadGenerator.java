@@ -0,0 +1,279 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how a GameServer holds up under many concurrent games. Every simulated client connects,
+ * starts a game against the computer, and waits until all the others have done the same. Then they
+ * all play at once: the client asks for a HINT and plays it as its MOVE, then asks for the
+ * COMPUTER move, until the game ends. The time taken by every request is recorded, and the
+ * latency percentiles of the whole run are printed at the end.
+ *
+ * Run from the command line with:
+ *   --port N           The port of a running server. If not given, a server is started in this process.
+ *   --sessions N       The number of concurrent games. Defaults to 10000.
+ *   --size N           The board size. Defaults to 5.
+ *   --max-plies N      Ends a game early after this many moves. Defaults to 400.
+ *   --threads N        The number of compute threads of the server started in this process.
+ */
+public class LoadGenerator {
+
+    /** The stack size of each client thread. */
+    private static final long CLIENT_STACK_SIZE = 256 * 1024;
+
+    /** The port of the server being measured. */
+    private int m_port;
+
+    /** The board size and move limit of every game. */
+    private int m_size;
+    private int m_maxPlies;
+
+    /** Holds every client until all of them have connected. */
+    private CountDownLatch m_connected;
+    private CountDownLatch m_start = new CountDownLatch(1);
+
+    /** Holds the main thread until every client has finished. */
+    private CountDownLatch m_finished;
+
+    /** The latencies recorded by each client, in nanoseconds. Each entry is only written by its own client. */
+    private long m_latencies[][];
+    private int m_numLatencies[];
+
+    /** Totals over every client. */
+    private AtomicLong m_moves = new AtomicLong();
+    private AtomicLong m_games = new AtomicLong();
+    private AtomicLong m_errors = new AtomicLong();
+
+    /**
+     * Plays a single game over its own connection.
+     */
+    private class Client implements Runnable {
+
+        /** This client's index into the latency arrays. */
+        private int m_id;
+
+        /** The connection to the server. */
+        private BufferedReader m_in;
+        private Writer m_out;
+
+        /**
+         * Creates a client.
+         * @param id The index of this client.
+         */
+        Client(int id){
+            m_id = id;
+            m_latencies[id] = new long[64];
+        }
+
+        /**
+         * Connects, waits for every other client, and plays a game.
+         */
+        @Override
+        public void run(){
+            Socket socket = null;
+            boolean counted = false;
+            try {
+                socket = new Socket(InetAddress.getLoopbackAddress(), m_port);
+                socket.setTcpNoDelay(true);
+                m_in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                m_out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+                String answer = Request("NEW " + m_size + " computer");
+                int next = Integer.parseInt(answer.substring(3));
+                m_connected.countDown();
+                counted = true;
+                m_start.await();
+
+                // Play the human side with the computer's hints until someone wins.
+                int plies = 0;
+                int winner = -1;
+                while (winner == -1 && plies < m_maxPlies){
+                    if (next == 1){
+                        String hint = Request("HINT");
+                        answer = hint.equals("OK QUIT") ? Request("QUIT") : Request("MOVE " + hint.substring(3, hint.lastIndexOf(' ')));
+                    }
+                    else {
+                        answer = Request("COMPUTER");
+                    }
+                    if (!answer.startsWith("OK")){
+                        m_errors.incrementAndGet();
+                        break;
+                    }
+                    String words[] = answer.split(" ");
+                    next = Integer.parseInt(words[words.length - 2]);
+                    winner = Integer.parseInt(words[words.length - 1]);
+                    plies++;
+                }
+                m_moves.addAndGet(plies);
+                m_games.incrementAndGet();
+                Request("BYE");
+            }
+            catch (IOException e){
+                m_errors.incrementAndGet();
+            }
+            catch (InterruptedException e){
+                m_errors.incrementAndGet();
+            }
+            finally {
+                if (!counted){
+                    m_connected.countDown();
+                }
+                if (socket != null){
+                    try {
+                        socket.close();
+                    }
+                    catch (IOException e){
+                        // Already closed.
+                    }
+                }
+                m_finished.countDown();
+            }
+        }
+
+        /**
+         * Sends a request and waits for the answer, recording how long it took.
+         * @param request The request, without a new line.
+         * @return The answer.
+         * @exception IOException If the connection failed.
+         */
+        private String Request(String request) throws IOException {
+            long start = System.nanoTime();
+            m_out.write(request);
+            m_out.write('\n');
+            m_out.flush();
+            String answer = m_in.readLine();
+            if (answer == null){
+                throw new IOException("Server closed the connection.");
+            }
+            Record(System.nanoTime() - start);
+            return answer;
+        }
+
+        /**
+         * Adds a latency to this client's record.
+         * @param nanos The latency in nanoseconds.
+         */
+        private void Record(long nanos){
+            long latencies[] = m_latencies[m_id];
+            if (m_numLatencies[m_id] == latencies.length){
+                m_latencies[m_id] = latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[m_numLatencies[m_id]++] = nanos;
+        }
+    }
+
+    /**
+     * Creates a load generator for a running server.
+     * @param port The port of the server.
+     * @param size The board size of every game.
+     * @param maxPlies The number of moves after which a game is ended early.
+     */
+    LoadGenerator(int port, int size, int maxPlies){
+        m_port = port;
+        m_size = size;
+        m_maxPlies = maxPlies;
+    }
+
+    /**
+     * Connects every client, plays all of their games at once, and waits for them to finish.
+     * @param sessions The number of concurrent games.
+     * @return The time taken to play the games once every client had connected, in nanoseconds.
+     * @exception InterruptedException If interrupted while waiting for the clients.
+     */
+    public long Run(int sessions) throws InterruptedException {
+        m_latencies = new long[sessions][];
+        m_numLatencies = new int[sessions];
+        m_connected = new CountDownLatch(sessions);
+        m_finished = new CountDownLatch(sessions);
+        for (int i = 0; i < sessions; i++){
+            Thread client = new Thread(null, new Client(i), "LoadClient-" + i, CLIENT_STACK_SIZE);
+            client.setDaemon(true);
+            client.start();
+        }
+        m_connected.await();
+        long start = System.nanoTime();
+        m_start.countDown();
+        m_finished.await();
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Builds a summary of the run, with latency percentiles over every request.
+     * @param sessions The number of concurrent games.
+     * @param nanos The time taken to play the games, in nanoseconds.
+     * @return A String holding the summary.
+     */
+    public String Summary(int sessions, long nanos){
+        int total = 0;
+        for (int count : m_numLatencies){
+            total += count;
+        }
+        long all[] = new long[total];
+        int pos = 0;
+        for (int i = 0; i < m_latencies.length; i++){
+            System.arraycopy(m_latencies[i], 0, all, pos, m_numLatencies[i]);
+            pos += m_numLatencies[i];
+        }
+        Arrays.sort(all);
+        int cores = Runtime.getRuntime().availableProcessors();
+        double seconds = nanos / 1e9;
+        return String.format("%d sessions on %d cores (%.0f per core), %d games, %d errors, %d moves in %.1fs (%.0f moves/s).%n"
+                        + "Request latency p50 %.2fms, p90 %.2fms, p99 %.2fms, max %.2fms over %d requests.%n",
+                sessions, cores, (double)sessions / cores, m_games.get(), m_errors.get(), m_moves.get(), seconds,
+                m_moves.get() / seconds, Percentile(all, 0.5) / 1e6, Percentile(all, 0.9) / 1e6,
+                Percentile(all, 0.99) / 1e6, (total == 0 ? 0 : all[total - 1]) / 1e6, total);
+    }
+
+    /**
+     * Finds a percentile of sorted values.
+     * @param sorted The values, sorted from smallest to largest.
+     * @param fraction The percentile as a fraction, between 0 and 1.
+     * @return A long holding the value at the percentile, or 0 if there are no values.
+     */
+    private static long Percentile(long sorted[], double fraction){
+        if (sorted.length == 0){
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int)(fraction * sorted.length))];
+    }
+
+    /**
+     * Runs a load test described by the arguments and prints a summary.
+     * @param args The command line arguments. See the class description.
+     * @exception IOException If the server in this process can't be started.
+     * @exception InterruptedException If interrupted while waiting for the clients.
+     */
+    public static void main(String args[]) throws IOException, InterruptedException {
+        CommandLine line = new CommandLine(args, "--port", "--sessions", "--size", "--max-plies", "--threads");
+        int port = line.GetInt("--port", -1);
+        int sessions = line.GetInt("--sessions", 10000);
+        int size = line.GetInt("--size", 5);
+        int maxPlies = line.GetInt("--max-plies", 400);
+        int threads = line.GetInt("--threads", Runtime.getRuntime().availableProcessors());
+
+        // Start a server in this process if we weren't given one.
+        GameServer server = null;
+        if (port == -1){
+            server = new GameServer(threads, Math.max(GameServer.DEFAULT_QUEUE_SIZE, sessions));
+            server.Start(0);
+            port = server.GetPort();
+        }
+
+        LoadGenerator generator = new LoadGenerator(port, size, maxPlies);
+        long nanos = generator.Run(sessions);
+        System.out.print(generator.Summary(sessions, nanos));
+        if (server != null){
+            System.out.println("Requests turned away as busy: " + server.GetRejected());
+            server.Stop();
+        }
+    }
+}
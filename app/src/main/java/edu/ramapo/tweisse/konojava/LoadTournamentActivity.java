@@ -10,6 +10,7 @@ import android.view.inputmethod.InputMethodManager;
 import android.widget.EditText;
 import android.widget.Toast;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * Allows the user to load and resume an existing serialized file from storage.
@@ -63,17 +64,24 @@ public class LoadTournamentActivity extends AppCompatActivity implements View.On
             File file = new File(sdcard, filename);
 
             if (file.exists()){
-                // Attempt to read the file.
-                Tournament tourn = Serializer.DeserializeFromFile(file, this);
-                if (tourn == null){
-                    // Tell the user that there was an error reading the file.
+                // Attempt to read the file, telling the user where it went wrong if it can't be read.
+                Serializer.VerifyStoragePermissions(this);
+                Tournament tourn = null;
+                try {
+                    tourn = Serializer.Load(file);
+                }
+                catch (IOException e){
                     Toast errDisplay = Toast.makeText(this, "Error loading from file.", Toast.LENGTH_SHORT);
                     errDisplay.show();
                 }
-                else {
+                catch (TournamentParser.ParseException e){
+                    Toast errDisplay = Toast.makeText(this, "Error loading from file. " + e.getMessage(), Toast.LENGTH_LONG);
+                    errDisplay.show();
+                }
+                if (tourn != null){
                     // Launch the tournament.
                     Intent intent = new Intent(this, PlayGameActivity.class);
-                    intent.putExtra("tournament", tourn);
+                    TournamentHandoff.Put(intent, tourn);
                     intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
                     startActivity(intent);
                     finish();
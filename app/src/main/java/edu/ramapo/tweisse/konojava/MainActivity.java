@@ -1,9 +1,14 @@
 package edu.ramapo.tweisse.konojava;
 
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Toast;
+
+import java.io.File;
 
 /**
  * The first activity to launch when the application is started. Allows the user to load an existing
@@ -12,12 +17,65 @@ import android.view.View;
 public class MainActivity extends AppCompatActivity {
 
     /**
-     * No activity specific setup here.
+     * Offers to resume a tournament that was being played when the application last stopped.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+
+        if (MoveJournal.Exists(getFilesDir())){
+            OfferRecovery();
+        }
+    }
+
+    /**
+     * Asks the user if they want to resume the automatically saved tournament, and resumes it if so.
+     */
+    private void OfferRecovery(){
+        AlertDialog.Builder alert = new AlertDialog.Builder(this);
+        alert.setCancelable(false);
+        alert.setTitle("Resume Tournament?");
+        alert.setMessage("A tournament was still being played when the application stopped. Would you like to resume it?");
+        alert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                Tournament tourn = MoveJournal.Recover(getFilesDir());
+                if (tourn == null){
+                    // Tell the user that the automatic save couldn't be read, and throw it away.
+                    Toast errDisplay = Toast.makeText(MainActivity.this, "Error loading the saved tournament.", Toast.LENGTH_SHORT);
+                    errDisplay.show();
+                    DeleteAutosave();
+                    return;
+                }
+                // Launch the tournament.
+                Intent intent = new Intent(MainActivity.this, PlayGameActivity.class);
+                TournamentHandoff.Put(intent, tourn);
+                intent.addFlags(intent.FLAG_ACTIVITY_NO_ANIMATION);
+                startActivity(intent);
+            }
+        });
+        alert.setNegativeButton(android.R.string.no, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                DeleteAutosave();
+            }
+        });
+        alert.setIcon(android.R.drawable.ic_dialog_alert);
+        alert.show();
+    }
+
+    /**
+     * Deletes the automatic save on the save queue, after any write to it still queued.
+     */
+    private void DeleteAutosave(){
+        final File dir = getFilesDir();
+        KonoApplication.GetSaveQueue(this).execute(new Runnable() {
+            @Override
+            public void run(){
+                MoveJournal.Delete(dir);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,359 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a match between two engines, A and B, until a sequential probability ratio test (SPRT)
+ * decides whether B is stronger than A by at least a given Elo margin. Games are played in pairs
+ * on the same random numbers, with A moving first in one and B moving first in the other. As in a
+ * tournament, whoever moves first plays white. The Elo estimate and log-likelihood ratio are updated
+ * as every result arrives, and the match stops as soon as the ratio crosses a bound.
+ *
+ * Run from the command line with:
+ *   --a ENGINE         The baseline engine. Defaults to heuristic.
+ *   --b ENGINE         The engine being tested. Defaults to random.
+ *   --sizes 5,7,9      The board sizes to play on, taken in turn for each pair of games.
+ *   --elo0 N           The Elo difference of the null hypothesis. Defaults to 0.
+ *   --elo1 N           The Elo difference of the alternative hypothesis. Defaults to 10.
+ *   --alpha N          The chance of accepting elo1 when elo0 is true. Defaults to 0.05.
+ *   --beta N           The chance of accepting elo0 when elo1 is true. Defaults to 0.05.
+ *   --max-games N      The most games to play before giving up. Defaults to 100000. As games are
+ *                      played in pairs, an odd number is rounded down.
+ *   --threads N        The number of worker threads. Defaults to the number of cores.
+ *   --seed N           Seeds all random numbers, making the match repeatable on a single thread.
+ *   --max-plies N      Stops a game without a winner after this many moves.
+ */
+public class MatchArena {
+
+    /** The possible outcomes of a match. */
+    public static final int UNDECIDED = 0;
+    public static final int ACCEPT_H0 = 1;
+    public static final int ACCEPT_H1 = 2;
+
+    /** The engines playing the match. A is always player 1 and B player 2. */
+    private String m_engineA;
+    private String m_engineB;
+
+    /** The board sizes to play on. */
+    private int m_sizes[];
+
+    /** The seed of each pair of games. */
+    private long m_pairSeeds[];
+
+    /** The number of moves after which a game is stopped without a winner. */
+    private int m_maxPlies;
+
+    /** The expected scores of B under each hypothesis, and the bounds of the log-likelihood ratio. */
+    private double m_score0;
+    private double m_score1;
+    private double m_lowerBound;
+    private double m_upperBound;
+
+    /** The index of the next game to hand to a worker. */
+    private AtomicInteger m_nextGame = new AtomicInteger();
+
+    /** Set once the match has been decided, so that workers stop taking new games. */
+    private volatile boolean m_stopped;
+
+    /** B's wins, draws and losses. Games stopped by the move limit count as draws. Guarded by this. */
+    private int m_wins;
+    private int m_draws;
+    private int m_losses;
+
+    /** The log-likelihood ratio after the last result. Guarded by this. */
+    private double m_llr;
+
+    /** The outcome of the match. Guarded by this. */
+    private int m_decision = UNDECIDED;
+
+    /** The time taken by the last call to Run(), in nanoseconds. */
+    private long m_elapsed;
+
+    /**
+     * Plays games until the match is decided or every game has been handed out.
+     */
+    private class Worker implements Runnable {
+
+        /**
+         * Plays games until the match is over.
+         */
+        @Override
+        public void run(){
+            int game;
+            while (!m_stopped && (game = m_nextGame.getAndIncrement()) < m_pairSeeds.length * 2){
+                // Both games of a pair share their random numbers, but swap who moves first.
+                int pair = game / 2;
+                int firstPlayer = game % 2 == 0 ? 1 : 2;
+                GameResult result = HeadlessGame.PlayGame(game + 1, m_engineA, m_engineB, m_sizes[pair % m_sizes.length],
+                        firstPlayer, new SplitRandom(m_pairSeeds[pair]), m_maxPlies);
+                Record(result.GetWinner());
+            }
+        }
+    }
+
+    /**
+     * Creates a match between two engines.
+     * @param engineA The name of the baseline engine.
+     * @param engineB The name of the engine being tested.
+     * @param sizes The board sizes to play on.
+     * @param elo0 The Elo difference of B over A under the null hypothesis.
+     * @param elo1 The Elo difference of B over A under the alternative hypothesis.
+     * @param alpha The chance of accepting the alternative hypothesis when the null hypothesis is true.
+     * @param beta The chance of accepting the null hypothesis when the alternative hypothesis is true.
+     * @param maxGames The most games to play before giving up. Rounded down to an even number, as
+     * games are played in pairs.
+     * @param random The RandomSource each pair's seed is drawn from.
+     * @param maxPlies The number of moves after which a game is stopped without a winner.
+     */
+    MatchArena(String engineA, String engineB, int sizes[], double elo0, double elo1, double alpha, double beta,
+               int maxGames, RandomSource random, int maxPlies){
+        // Make sure the engines exist before playing anything.
+        HeadlessGame.CreatePlayer(engineA, PlayerColor.WHITE);
+        HeadlessGame.CreatePlayer(engineB, PlayerColor.BLACK);
+        if (elo1 <= elo0){
+            throw new IllegalArgumentException("elo1 must be greater than elo0.");
+        }
+        if (maxGames < 2){
+            throw new IllegalArgumentException("At least one pair of games must be played.");
+        }
+
+        m_engineA = engineA;
+        m_engineB = engineB;
+        m_sizes = sizes;
+        m_maxPlies = maxPlies;
+        m_score0 = EloToScore(elo0);
+        m_score1 = EloToScore(elo1);
+        m_lowerBound = Math.log(beta / (1 - alpha));
+        m_upperBound = Math.log((1 - beta) / alpha);
+        m_pairSeeds = new long[maxGames / 2];
+        for (int i = 0; i < m_pairSeeds.length; i++){
+            m_pairSeeds[i] = random.NextLong();
+        }
+    }
+
+    /**
+     * Plays the match, and waits until it is decided or runs out of games.
+     * @param threads The number of worker threads to play on.
+     * @return The outcome of the match. ACCEPT_H0, ACCEPT_H1 or UNDECIDED.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     */
+    public int Run(int threads) throws InterruptedException {
+        long start = System.nanoTime();
+        Thread workers[] = new Thread[threads];
+        for (int i = 0; i < threads; i++){
+            workers[i] = new Thread(new Worker(), "MatchArena-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers){
+            worker.join();
+        }
+        m_elapsed = System.nanoTime() - start;
+        return GetDecision();
+    }
+
+    /**
+     * Adds the result of a game to the totals, and checks if the match has been decided. Results
+     * that arrive after the decision are ignored, so the totals are the ones the decision was made on.
+     * @param winner The winner of the game. 2 is a win for B, 1 a loss, anything else a draw.
+     */
+    private synchronized void Record(int winner){
+        if (m_decision != UNDECIDED){
+            return;
+        }
+        if (winner == 2){
+            m_wins++;
+        }
+        else if (winner == 1){
+            m_losses++;
+        }
+        else {
+            m_draws++;
+        }
+        m_llr = LogLikelihoodRatio(m_wins, m_draws, m_losses, m_score0, m_score1);
+        if (m_llr >= m_upperBound){
+            m_decision = ACCEPT_H1;
+        }
+        else if (m_llr <= m_lowerBound){
+            m_decision = ACCEPT_H0;
+        }
+        if (m_decision != UNDECIDED){
+            m_stopped = true;
+        }
+    }
+
+    /**
+     * Gets the outcome of the match.
+     * @return ACCEPT_H0, ACCEPT_H1 or UNDECIDED.
+     */
+    public synchronized int GetDecision(){
+        return m_decision;
+    }
+
+    /**
+     * Gets the log-likelihood ratio after the last result.
+     * @return A double holding the ratio.
+     */
+    public synchronized double GetLLR(){
+        return m_llr;
+    }
+
+    /**
+     * Gets the number of games whose results the match was decided on.
+     * @return An integer holding the number of games.
+     */
+    public synchronized int GetGames(){
+        return m_wins + m_draws + m_losses;
+    }
+
+    /**
+     * Estimates how much stronger B is than A.
+     * @return A double holding the Elo difference of B over A.
+     */
+    public synchronized double GetElo(){
+        return EloInterval(m_wins, m_draws, m_losses)[1];
+    }
+
+    /**
+     * Builds a summary of the match.
+     * @return A String holding the summary.
+     */
+    public synchronized String Summary(){
+        int games = m_wins + m_draws + m_losses;
+        double elo[] = EloInterval(m_wins, m_draws, m_losses);
+        String decision = m_decision == ACCEPT_H1 ? "H1 accepted, " + m_engineB + " is stronger"
+                : m_decision == ACCEPT_H0 ? "H0 accepted, " + m_engineB + " is not stronger" : "undecided";
+        return String.format("%s vs %s: %d games in %.1fs, B W/D/L %d/%d/%d.%n"
+                        + "Elo %+.1f (95%% %+.1f to %+.1f). LLR %.3f [%.3f, %.3f], %s.%n",
+                m_engineB, m_engineA, games, m_elapsed / 1e9, m_wins, m_draws, m_losses,
+                elo[1], elo[0], elo[2],
+                m_llr, m_lowerBound, m_upperBound, decision);
+    }
+
+    /**
+     * Keeps a score away from 0 and 1, so that it converts to a finite Elo difference.
+     * @param score The score to clamp.
+     * @return A double holding the clamped score.
+     */
+    private static double ClampScore(double score){
+        return Math.max(1e-6, Math.min(1 - 1e-6, score));
+    }
+
+    /**
+     * Converts an Elo difference to the expected score of the stronger player.
+     * @param elo The Elo difference.
+     * @return A double between 0 and 1 holding the expected score.
+     */
+    public static double EloToScore(double elo){
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Converts an average score to an Elo difference.
+     * @param score The average score, between 0 and 1.
+     * @return A double holding the Elo difference. Infinite for a score of 0 or 1.
+     */
+    public static double ScoreToElo(double score){
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Estimates the Elo difference shown by a set of game results, with its 95% confidence interval.
+     * As in LogLikelihoodRatio(), an outcome that hasn't been seen yet counts as half a game, so
+     * that all wins or all losses still give an interval of some width.
+     * @param wins The number of wins.
+     * @param draws The number of draws.
+     * @param losses The number of losses.
+     * @return An array of 3 doubles, holding the lower end of the interval, the estimate, and the
+     * upper end. All 0 if no games have been played.
+     */
+    public static double[] EloInterval(int wins, int draws, int losses){
+        double elo[] = new double[3];
+        if (wins + draws + losses == 0){
+            return elo;
+        }
+        double w = Smooth(wins);
+        double d = Smooth(draws);
+        double l = Smooth(losses);
+        double games = w + d + l;
+        double score = (w + d / 2) / games;
+        double margin = 1.96 * Math.sqrt(ScoreVariance(w, d, l) / games);
+        elo[0] = ScoreToElo(ClampScore(score - margin));
+        elo[1] = ScoreToElo(score);
+        elo[2] = ScoreToElo(ClampScore(score + margin));
+        return elo;
+    }
+
+    /**
+     * Approximates the log-likelihood ratio of the alternative hypothesis over the null hypothesis
+     * for a set of game results, treating the average score as normally distributed. An outcome
+     * that hasn't been seen yet counts as half a game, so that a one-sided start like all losses
+     * still has a variance and can end the match early.
+     * @param wins The number of wins.
+     * @param draws The number of draws.
+     * @param losses The number of losses.
+     * @param score0 The expected score under the null hypothesis.
+     * @param score1 The expected score under the alternative hypothesis.
+     * @return A double holding the log-likelihood ratio. 0 if no games have been played.
+     */
+    public static double LogLikelihoodRatio(int wins, int draws, int losses, double score0, double score1){
+        if (wins + draws + losses == 0){
+            return 0;
+        }
+        double w = Smooth(wins);
+        double d = Smooth(draws);
+        double l = Smooth(losses);
+        double games = w + d + l;
+        double score = (w + d / 2) / games;
+        double variance = ScoreVariance(w, d, l);
+        return games * (score1 - score0) * (2 * score - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * Counts an outcome that hasn't been seen yet as half a game.
+     * @param count The number of games with the outcome.
+     * @return A double holding the count, or 0.5 if it is 0.
+     */
+    private static double Smooth(int count){
+        return count == 0 ? 0.5 : count;
+    }
+
+    /**
+     * Finds the variance of the score of a single game.
+     * @param wins The number of wins.
+     * @param draws The number of draws.
+     * @param losses The number of losses.
+     * @return A double holding the variance.
+     */
+    private static double ScoreVariance(double wins, double draws, double losses){
+        double games = wins + draws + losses;
+        double w = wins / games;
+        double d = draws / games;
+        double score = w + d / 2;
+        return w + d / 4 - score * score;
+    }
+
+    /**
+     * Plays a match described by the arguments and prints a summary.
+     * @param args The command line arguments. See the class description.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     */
+    public static void main(String args[]) throws InterruptedException {
+        CommandLine line = new CommandLine(args, "--a", "--b", "--sizes", "--elo0", "--elo1", "--alpha", "--beta",
+                "--max-games", "--threads", "--seed", "--max-plies");
+        String engineA = line.GetString("--a", HeadlessGame.ENGINE_HEURISTIC);
+        String engineB = line.GetString("--b", HeadlessGame.ENGINE_RANDOM);
+        int sizes[] = line.GetInts("--sizes", new int[]{5, 7, 9});
+        double elo0 = line.GetDouble("--elo0", 0);
+        double elo1 = line.GetDouble("--elo1", 10);
+        double alpha = line.GetDouble("--alpha", 0.05);
+        double beta = line.GetDouble("--beta", 0.05);
+        int maxGames = line.GetInt("--max-games", 100000);
+        int threads = line.GetInt("--threads", Runtime.getRuntime().availableProcessors());
+        RandomSource random = line.GetRandom("--seed");
+        int maxPlies = line.GetInt("--max-plies", HeadlessGame.DEFAULT_MAX_PLIES);
+
+        MatchArena arena = new MatchArena(engineA, engineB, sizes, elo0, elo1, alpha, beta, maxGames, random, maxPlies);
+        arena.Run(threads);
+        System.out.print(arena.Summary());
+    }
+}
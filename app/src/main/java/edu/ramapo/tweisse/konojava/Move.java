@@ -60,6 +60,49 @@ public class Move {
         SetMove(loc, dir, action, reason, target);
     }
 
+    /**
+     * Creates a Move from a packed move. Only needed where a move is shown to the user.
+     * @param move The packed move, as described by PackedMove.
+     * @param boardSize The size of the board the move is played on.
+     * @return A Move object describing the packed move. Null for PackedMove.NONE.
+     */
+    static Move FromPacked(int move, int boardSize){
+        Action action = PackedMove.GetAction(move);
+        if (action == null){
+            return null;
+        }
+        if (action != Action.PLAY){
+            return new Move(action);
+        }
+        int target = PackedMove.GetTarget(move);
+        return new Move(Board.CellToPoint(PackedMove.GetFrom(move), boardSize), PackedMove.GetDirection(move),
+                action, PackedMove.GetReason(move), target == -1 ? null : Board.CellToPoint(target, boardSize));
+    }
+
+    /**
+     * Packs this move into an int for the engine.
+     * @param move The Move to pack. May be null.
+     * @param boardSize The size of the board the move is played on.
+     * @return The packed move, as described by PackedMove. PackedMove.NONE for a null move.
+     * @exception IllegalArgumentException If the move starts off of the board.
+     */
+    static int ToPacked(Move move, int boardSize){
+        if (move == null || move.m_action == null){
+            return PackedMove.NONE;
+        }
+        if (move.m_action != Action.PLAY){
+            return PackedMove.Of(move.m_action);
+        }
+        if (move.m_loc.x < 1 || move.m_loc.x > boardSize || move.m_loc.y < 1 || move.m_loc.y > boardSize){
+            throw new IllegalArgumentException("Bad Point.");
+        }
+        int target = -1;
+        if (move.m_target != null){
+            target = Board.PointToCell(move.m_target, boardSize);
+        }
+        return PackedMove.Play(Board.PointToCell(move.m_loc, boardSize), move.m_dir.ordinal(), false, move.m_reason, target);
+    }
+
     /**
      * Gets the location of this move.
      * @return The Point that this move originates at.
@@ -115,7 +158,7 @@ public class Move {
         if (m_action == Action.PLAY){
             desc = "a move " + m_dir.toString() + " from " + m_loc.toString();
             if (m_reason != null){
-                desc += (" to " + m_reason.GetReason());
+                desc += (" " + m_reason.GetReason());
             }
 
             if (m_target != null){
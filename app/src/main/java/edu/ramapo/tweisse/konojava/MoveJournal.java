@@ -0,0 +1,397 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps an automatic save of the tournament being played, so that a crash loses at most the last
+ * move. The save is made of two files in a given directory: a snapshot of the tournament in the
+ * binary format, and a journal of every move played since the snapshot was taken. Each move only
+ * appends one fixed size record to the journal, and a new snapshot is taken every so many moves so
+ * that the journal stays short.
+ *
+ * The journal starts with a header naming the snapshot it follows, by the snapshot's checksum. If
+ * the app dies after a new snapshot is written but before the journal is reset, the old journal no
+ * longer matches and is ignored, so no move is ever replayed twice. Each record carries its own
+ * checksum, and a record cut short by a crash ends the replay.
+ *
+ * The files are written through an Executor. The app passes its SaveQueue, so that nothing is
+ * written on the main thread; everything else writes straight away.
+ */
+public class MoveJournal {
+
+    /** When the journal is forced out to the storage device, rather than left to the system. */
+    public enum SyncPolicy {
+        /** After every move. Survives losing power, at the cost of a device flush per move. */
+        EVERY_MOVE,
+        /** Only when a snapshot is taken. Moves since then survive the app dying, but not the device. */
+        EVERY_SNAPSHOT,
+        /** Never. Only for testing. */
+        NEVER
+    }
+
+    /** The names of the snapshot and journal files. */
+    public static final String SNAPSHOT_FILE = "autosave" + BinarySerializer.EXTENSION;
+    public static final String JOURNAL_FILE = "autosave.journal";
+
+    /** The number of moves between snapshots if no interval is given. */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 32;
+
+    /** The magic bytes starting the journal. */
+    private static final byte MAGIC[] = {'K', 'J', 'N', 'L'};
+
+    /** The length of the header, and of each record. A record is a packed move and a checksum. */
+    private static final int RECORD_LENGTH = 8;
+
+    /** The directory holding the files. */
+    private File m_dir;
+
+    /** When the journal is forced out to the device. */
+    private SyncPolicy m_policy;
+
+    /** The number of moves between snapshots. */
+    private int m_snapshotInterval;
+
+    /** Does the file work, in the order it was asked for. */
+    private Executor m_io;
+
+    /** The open journal, or null if there is none. Only used on the Executor. */
+    private FileOutputStream m_out;
+
+    /** True once Start() has been called, until Close(). */
+    private boolean m_started;
+
+    /** The number of records in the journal. */
+    private int m_records;
+
+    /** Reused for every record's checksum. */
+    private CRC32 m_crc = new CRC32();
+
+    /**
+     * Creates a journal in a given directory that writes straight away, on the caller's thread.
+     * Nothing is written until Start() is called.
+     * @param dir The directory to keep the files in.
+     * @param policy The SyncPolicy deciding when the journal is forced out to the device.
+     * @param snapshotInterval The number of moves between snapshots.
+     */
+    public MoveJournal(File dir, SyncPolicy policy, int snapshotInterval){
+        this(dir, policy, snapshotInterval, new Executor() {
+            @Override
+            public void execute(Runnable runnable){
+                runnable.run();
+            }
+        });
+    }
+
+    /**
+     * Creates a journal in a given directory that writes through an Executor. Nothing is written
+     * until Start() is called.
+     * @param dir The directory to keep the files in.
+     * @param policy The SyncPolicy deciding when the journal is forced out to the device.
+     * @param snapshotInterval The number of moves between snapshots.
+     * @param io The Executor that writes the files. It must run tasks one at a time, in order.
+     */
+    public MoveJournal(File dir, SyncPolicy policy, int snapshotInterval, Executor io){
+        if (snapshotInterval <= 0){
+            throw new IllegalArgumentException("Snapshot interval must be positive.");
+        }
+        m_dir = dir;
+        m_policy = policy;
+        m_snapshotInterval = snapshotInterval;
+        m_io = io;
+    }
+
+    /**
+     * Starts saving a tournament, taking a snapshot of it as it is now.
+     * @param tourn The Tournament being played.
+     */
+    public void Start(Tournament tourn){
+        m_started = true;
+        Snapshot(tourn);
+    }
+
+    /**
+     * Records a move that the game accepted. Every so many moves, a snapshot is taken instead.
+     * @param move The packed move that was played. A quit is recorded like any other move.
+     * @param tourn The Tournament the move was played in, after the move.
+     * @return A boolean value. True if the move was recorded, false if the journal isn't started.
+     */
+    public boolean Append(int move, Tournament tourn){
+        if (!m_started){
+            return false;
+        }
+        // A snapshot can't hold who won by quitting, so a quit always goes in the journal.
+        if (m_records + 1 >= m_snapshotInterval && PackedMove.IsPlay(move)){
+            Snapshot(tourn);
+            return true;
+        }
+        final byte record[] = new byte[RECORD_LENGTH];
+        FillRecord(record, m_records, move, m_crc);
+        m_records++;
+        m_io.execute(new Runnable() {
+            @Override
+            public void run(){
+                WriteRecord(record);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Takes a snapshot of a tournament and starts a new, empty journal after it. The tournament is
+     * encoded straight away, so it can keep changing while the files are written.
+     * @param tourn The Tournament to save.
+     */
+    public void Snapshot(Tournament tourn){
+        final byte data[] = BinarySerializer.Encode(tourn);
+        m_records = 0;
+        m_io.execute(new Runnable() {
+            @Override
+            public void run(){
+                WriteSnapshot(data);
+            }
+        });
+    }
+
+    /**
+     * Gets the number of moves recorded since the last snapshot.
+     * @return The number of records in the journal.
+     */
+    public int GetRecordCount(){
+        return m_records;
+    }
+
+    /**
+     * Closes the journal once everything asked for has been written. The files are kept, so the
+     * tournament can still be recovered.
+     */
+    public void Close(){
+        m_started = false;
+        m_io.execute(new Runnable() {
+            @Override
+            public void run(){
+                CloseOutput();
+            }
+        });
+    }
+
+    /**
+     * Closes the journal and deletes the files once everything asked for has been written, for when
+     * the tournament is over or thrown away.
+     */
+    public void Discard(){
+        m_started = false;
+        final File dir = m_dir;
+        m_io.execute(new Runnable() {
+            @Override
+            public void run(){
+                CloseOutput();
+                Delete(dir);
+            }
+        });
+    }
+
+    /**
+     * Checks if a directory holds an automatic save.
+     * @param dir The directory to check.
+     * @return A boolean value. True if there is a snapshot to recover.
+     */
+    public static boolean Exists(File dir){
+        return new File(dir, SNAPSHOT_FILE).exists();
+    }
+
+    /**
+     * Deletes the automatic save in a directory, for when the tournament has ended or been saved.
+     * @param dir The directory holding the files.
+     */
+    public static void Delete(File dir){
+        new File(dir, JOURNAL_FILE).delete();
+        new File(dir, SNAPSHOT_FILE).delete();
+        new File(dir, SNAPSHOT_FILE + SaveQueue.TEMP_SUFFIX).delete();
+    }
+
+    /**
+     * Recovers the automatic save in a directory, by loading the snapshot and replaying the journal.
+     * @param dir The directory holding the files.
+     * @return The recovered Tournament, or null if there is no readable snapshot.
+     */
+    public static Tournament Recover(File dir){
+        byte data[] = ReadFile(new File(dir, SNAPSHOT_FILE));
+        if (data == null){
+            return null;
+        }
+        Tournament tourn = BinarySerializer.Decode(data, 0, data.length);
+        if (tourn == null){
+            return null;
+        }
+
+        // Only replay a journal written after this snapshot.
+        byte journal[] = ReadFile(new File(dir, JOURNAL_FILE));
+        if (journal == null || journal.length < RECORD_LENGTH){
+            return tourn;
+        }
+        for (int i = 0; i < RECORD_LENGTH; i++){
+            byte expected = i < MAGIC.length ? MAGIC[i] : data[data.length - RECORD_LENGTH + i];
+            if (journal[i] != expected){
+                return tourn;
+            }
+        }
+
+        // Replay every whole record, stopping at the first that is cut short or damaged.
+        byte record[] = new byte[RECORD_LENGTH];
+        CRC32 crc = new CRC32();
+        Game game = tourn.GetGame();
+        for (int i = 0; (i + 2) * RECORD_LENGTH <= journal.length; i++){
+            int offset = (i + 1) * RECORD_LENGTH;
+            int move = GetInt(journal, offset);
+            FillRecord(record, i, move, crc);
+            if (GetInt(record, 4) != GetInt(journal, offset + 4)){
+                break;
+            }
+            MoveError err = game.Play(move);
+            if (err != null && err != MoveError.QUIT){
+                break;
+            }
+        }
+        return tourn;
+    }
+
+    /**
+     * Writes a snapshot and starts a new journal after it. Run on the Executor.
+     * @param data The encoded snapshot.
+     */
+    private void WriteSnapshot(byte data[]){
+        CloseOutput();
+        if (!SaveQueue.WriteAtomically(new File(m_dir, SNAPSHOT_FILE), data, m_policy != SyncPolicy.NEVER)){
+            return;
+        }
+
+        // The header names the snapshot by the checksum at its end.
+        byte header[] = new byte[RECORD_LENGTH];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        System.arraycopy(data, data.length - 4, header, MAGIC.length, 4);
+        try {
+            m_out = new FileOutputStream(new File(m_dir, JOURNAL_FILE), false);
+            m_out.write(header);
+            if (m_policy != SyncPolicy.NEVER){
+                m_out.getFD().sync();
+            }
+        }
+        catch (IOException e){
+            CloseOutput();
+        }
+    }
+
+    /**
+     * Appends a record to the journal. Run on the Executor. If the journal couldn't be written, the
+     * records are dropped until the next snapshot.
+     * @param record The record to append.
+     */
+    private void WriteRecord(byte record[]){
+        if (m_out == null){
+            return;
+        }
+        try {
+            m_out.write(record);
+            if (m_policy == SyncPolicy.EVERY_MOVE){
+                m_out.getFD().sync();
+            }
+        }
+        catch (IOException e){
+            CloseOutput();
+        }
+    }
+
+    /**
+     * Closes the journal file, if it is open. Run on the Executor.
+     */
+    private void CloseOutput(){
+        if (m_out != null){
+            try {
+                m_out.close();
+            }
+            catch (IOException e){
+                // Everything written has already reached the system.
+            }
+            m_out = null;
+        }
+    }
+
+    /**
+     * Fills in a record for a move.
+     * @param record The array to fill.
+     * @param index The index of the record in the journal, so that a stale record can't pass as a new one.
+     * @param move The packed move.
+     * @param crc The CRC32 to compute the checksum with.
+     */
+    private static void FillRecord(byte record[], int index, int move, CRC32 crc){
+        PutInt(record, 0, index);
+        PutInt(record, 4, move);
+        crc.reset();
+        crc.update(record, 0, RECORD_LENGTH);
+        int check = (int)crc.getValue();
+        PutInt(record, 0, move);
+        PutInt(record, 4, check);
+    }
+
+    /**
+     * Reads a whole file.
+     * @param file The File to read.
+     * @return The bytes of the file, or null if it couldn't be read.
+     */
+    private static byte[] ReadFile(File file){
+        if (!file.exists()){
+            return null;
+        }
+        byte data[] = new byte[(int)file.length()];
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                int read = 0;
+                while (read < data.length){
+                    int count = in.read(data, read, data.length - read);
+                    if (count == -1){
+                        return null;
+                    }
+                    read += count;
+                }
+            }
+            finally {
+                in.close();
+            }
+        }
+        catch (IOException e){
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Writes a big endian int into an array.
+     * @param data The array.
+     * @param offset The index of the first byte to write.
+     * @param value The int to write.
+     */
+    private static void PutInt(byte data[], int offset, int value){
+        data[offset] = (byte)(value >>> 24);
+        data[offset + 1] = (byte)(value >>> 16);
+        data[offset + 2] = (byte)(value >>> 8);
+        data[offset + 3] = (byte)value;
+    }
+
+    /**
+     * Reads a big endian int from an array.
+     * @param data The array.
+     * @param offset The index of the first byte to read.
+     * @return The int.
+     */
+    private static int GetInt(byte data[], int offset){
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+}
@@ -7,6 +7,8 @@ public class MoveResult {
 
     private int m_points;       /** The number of points received by the player from this move. */
     private MoveError m_error;  /** The error that may have occurred during this move. */
+    private int m_fromCell;     /** The zero indexed cell the piece moved from, or -1 if nothing moved. */
+    private int m_toCell;       /** The zero indexed cell the piece moved to, or -1 if nothing moved. */
 
     /**
      * Default constructor. Constructs a MoveResult with no points and no error.
@@ -21,8 +23,21 @@ public class MoveResult {
      * @param error A MoveError enum holding the error that occurred trying to play the move.
      */
     MoveResult(int points, MoveError error){
+        this(points, error, -1, -1);
+    }
+
+    /**
+     * Builds a MoveResult object for a move that changed the board.
+     * @param points An int holding the number of points that the played should receive from the move.
+     * @param error A MoveError enum holding the error that occurred trying to play the move.
+     * @param fromCell The zero indexed cell the piece moved from, or -1 if nothing moved.
+     * @param toCell The zero indexed cell the piece moved to, or -1 if nothing moved.
+     */
+    MoveResult(int points, MoveError error, int fromCell, int toCell){
         m_points = points;
         m_error = error;
+        m_fromCell = fromCell;
+        m_toCell = toCell;
     }
 
     /**
@@ -41,6 +56,20 @@ public class MoveResult {
         return m_error;
     }
 
+    /**
+     * Gets the cells that the move changed, so that a display only has to redraw those.
+     * @param cells An array with room for at least two cells, filled with the changed cells.
+     * @return The number of cells written. 0 if the move didn't change the board.
+     */
+    int GetChangedCells(int cells[]){
+        if (m_fromCell == -1){
+            return 0;
+        }
+        cells[0] = m_fromCell;
+        cells[1] = m_toCell;
+        return 2;
+    }
+
     public static void main(String args[]){
 //        MoveResult testMoveResult;
 //        testMoveResult = new MoveResult();
@@ -3,17 +3,26 @@ package edu.ramapo.tweisse.konojava;
 import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Environment;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import java.io.File;
+
 /**
  * Allows the user to configure a brand new tournament.
  */
 public class NewTournamentActivity extends AppCompatActivity {
 
+    /** The random numbers for the tournament being set up, starting with the dice rolls. */
+    private RandomSource m_random = new SplitRandom();
+
+    /** The dice for the tournament being set up. Read from the dice file when they are first rolled. */
+    private DiceProvider m_dice;
+
     /**
      * Overrides the back button so that we can have no back animation.
      */
@@ -69,14 +78,43 @@ public class NewTournamentActivity extends AppCompatActivity {
     public void RollDice(View view) {
         // Disable the roll dice button so we cant press it again.
         view.setEnabled(false);
+        if (m_dice != null){
+            ShowRolls();
+            return;
+        }
 
+        // Read the dice file on the sd card, if there is one, off the main thread, then roll.
+        final File file = new File(Environment.getExternalStorageDirectory(), DiceProvider.DEFAULT_FILE);
+        final RandomSource diceRandom = m_random.Split();
+        KonoApplication.GetSaveQueue(this).execute(new Runnable() {
+            @Override
+            public void run(){
+                final DiceProvider dice = DiceProvider.FromFile(file, diceRandom);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run(){
+                        if (isFinishing()){
+                            return;
+                        }
+                        m_dice = dice;
+                        ShowRolls();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Rolls the dice until someone wins, and shows the rolls and the winner.
+     */
+    private void ShowRolls(){
         // Holds dice roll values for each player.
         int rolls[] = new int[4];
 
         // Loop until someone wins the dice roll.
         do {
             for (int i = 0; i < 4; i++){
-                rolls[i] = Tournament.ThrowDice();
+                rolls[i] = m_dice.Roll();
             }
         }
         while(rolls[0] + rolls[1] == rolls[2] + rolls[3]);
@@ -212,12 +250,12 @@ public class NewTournamentActivity extends AppCompatActivity {
         Game thisGame = new Game(player1, player2, firstPlayer, new Board(boardSize));
 
         // Create the tournament. The first player will always be a human.
-        Tournament thisTournament = new Tournament(PlayerType.HUMAN, 0, p2Type, 0, thisGame, 1, firstPlayer);
+        Tournament thisTournament = new Tournament(PlayerType.HUMAN, 0, p2Type, 0, thisGame, 1, firstPlayer, m_random);
 
         // Switch to the PlayGame activity, and pass the new tournament we just created.
         Intent intent = new Intent(this, PlayGameActivity.class);
         intent.addFlags(intent.FLAG_ACTIVITY_NO_ANIMATION);
-        intent.putExtra("tournament", thisTournament);
+        TournamentHandoff.Put(intent, thisTournament);
         intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         startActivity(intent);
         finish();
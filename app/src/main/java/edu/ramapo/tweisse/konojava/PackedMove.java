@@ -0,0 +1,221 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * Helpers for moves packed into a single int, so that the engine never has to allocate a Move.
+ * The bits of a packed move are laid out as follows:
+ *   0 - 9   The zero indexed cell the move starts from.
+ *   10 - 19 The cell the move is targeting, plus one. Zero if there is no target.
+ *   20 - 21 The MoveDirection ordinal.
+ *   22      Set if the move captures an opponent's piece.
+ *   23 - 25 The ActionReason ordinal, plus one. Zero if there is no reason.
+ *   26 - 28 The Action ordinal, plus one. Zero for no move at all.
+ */
+public final class PackedMove {
+
+    /** No move at all. The packed equivalent of a null Move. */
+    public static final int NONE = 0;
+
+    /** A move to quit the game. */
+    public static final int QUIT = Of(Action.QUIT);
+
+    /** A refusal to quit the game. */
+    public static final int NO_QUIT = Of(Action.NO_QUIT);
+
+    /** The largest cell index that can be packed into a move. */
+    public static final int MAX_CELL = 1022;
+
+    /** Bit positions and masks of each field. */
+    private static final int TARGET_SHIFT = 10;
+    private static final int DIR_SHIFT = 20;
+    private static final int CAPTURE_BIT = 1 << 22;
+    private static final int REASON_SHIFT = 23;
+    private static final int ACTION_SHIFT = 26;
+    private static final int CELL_MASK = 0x3FF;
+
+    /** Row and column offsets of each MoveDirection, indexed by ordinal. */
+    private static final int DIR_ROW[] = {-1, -1, 1, 1};
+    private static final int DIR_COL[] = {-1, 1, 1, -1};
+
+    /** Every enum value, indexed by ordinal, so that decoding doesn't allocate. */
+    private static final MoveDirection DIRECTIONS[] = MoveDirection.values();
+    private static final ActionReason REASONS[] = ActionReason.values();
+    private static final Action ACTIONS[] = Action.values();
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private PackedMove(){
+    }
+
+    /**
+     * Packs a move that only has an action, like quitting.
+     * @param action The Action of the move.
+     * @return The packed move.
+     */
+    public static int Of(Action action){
+        return (action.ordinal() + 1) << ACTION_SHIFT;
+    }
+
+    /**
+     * Packs a move of a piece on the board.
+     * @param from The zero indexed cell the piece is moving from.
+     * @param dir The MoveDirection ordinal of the move.
+     * @param capture True if the move captures an opponent's piece.
+     * @param reason The ActionReason for the move. May be null.
+     * @param target The cell the move is targeting, or -1 if there is no target.
+     * @return The packed move.
+     */
+    public static int Play(int from, int dir, boolean capture, ActionReason reason, int target){
+        int move = PlayMask(from, dir) | ((target + 1) << TARGET_SHIFT);
+        if (capture){
+            move |= CAPTURE_BIT;
+        }
+        if (reason != null){
+            move |= (reason.ordinal() + 1) << REASON_SHIFT;
+        }
+        return move;
+    }
+
+    /**
+     * Packs a move of a piece on the board with no reason or target.
+     * @param from The zero indexed cell the piece is moving from.
+     * @param dir The MoveDirection ordinal of the move.
+     * @return The packed move.
+     */
+    public static int Play(int from, int dir){
+        return PlayMask(from, dir);
+    }
+
+    /**
+     * Gets the action of a packed move.
+     * @param move The packed move.
+     * @return The Action of the move, or null for NONE.
+     */
+    public static Action GetAction(int move){
+        int action = (move >>> ACTION_SHIFT) & 0x7;
+        return action == 0 ? null : ACTIONS[action - 1];
+    }
+
+    /**
+     * Checks if a packed move is a move of a piece on the board.
+     * @param move The packed move.
+     * @return A boolean value. True if the move's action is PLAY.
+     */
+    public static boolean IsPlay(int move){
+        return ((move >>> ACTION_SHIFT) & 0x7) == Action.PLAY.ordinal() + 1;
+    }
+
+    /**
+     * Gets the cell a packed move starts from.
+     * @param move The packed move.
+     * @return The zero indexed cell the piece is moving from.
+     */
+    public static int GetFrom(int move){
+        return move & CELL_MASK;
+    }
+
+    /**
+     * Gets the cell a packed move is targeting.
+     * @param move The packed move.
+     * @return The zero indexed target cell, or -1 if the move has no target.
+     */
+    public static int GetTarget(int move){
+        return ((move >>> TARGET_SHIFT) & CELL_MASK) - 1;
+    }
+
+    /**
+     * Gets the direction ordinal of a packed move.
+     * @param move The packed move.
+     * @return The MoveDirection ordinal of the move.
+     */
+    public static int GetDirectionIndex(int move){
+        return (move >>> DIR_SHIFT) & 0x3;
+    }
+
+    /**
+     * Gets the direction of a packed move.
+     * @param move The packed move.
+     * @return The MoveDirection of the move.
+     */
+    public static MoveDirection GetDirection(int move){
+        return DIRECTIONS[GetDirectionIndex(move)];
+    }
+
+    /**
+     * Checks if a packed move captures an opponent's piece.
+     * @param move The packed move.
+     * @return A boolean value. True if the move captures.
+     */
+    public static boolean IsCapture(int move){
+        return (move & CAPTURE_BIT) != 0;
+    }
+
+    /**
+     * Gets the reason of a packed move.
+     * @param move The packed move.
+     * @return The ActionReason of the move, or null if it has none.
+     */
+    public static ActionReason GetReason(int move){
+        int reason = (move >>> REASON_SHIFT) & 0x7;
+        return reason == 0 ? null : REASONS[reason - 1];
+    }
+
+    /**
+     * Replaces the reason and target of a packed move, keeping everything else.
+     * @param move The packed move.
+     * @param reason The new ActionReason. May be null.
+     * @param target The new target cell, or -1 if there is no target.
+     * @return The updated packed move.
+     */
+    public static int WithReason(int move, ActionReason reason, int target){
+        return Play(GetFrom(move), GetDirectionIndex(move), IsCapture(move), reason, target);
+    }
+
+    /**
+     * Works out the cell a packed move lands on.
+     * @param move The packed move.
+     * @param boardSize The size of the board the move is played on.
+     * @return The zero indexed destination cell, or -1 if the move leaves the board.
+     */
+    public static int GetDestination(int move, int boardSize){
+        int from = GetFrom(move);
+        int dir = GetDirectionIndex(move);
+        int row = from / boardSize + DIR_ROW[dir];
+        int col = from % boardSize + DIR_COL[dir];
+        if (row < 0 || row >= boardSize || col < 0 || col >= boardSize){
+            return -1;
+        }
+        return row * boardSize + col;
+    }
+
+    /**
+     * Gets the row offset of a direction.
+     * @param dir The MoveDirection ordinal.
+     * @return -1 for a move up the board, 1 for a move down.
+     */
+    public static int RowOffset(int dir){
+        return DIR_ROW[dir];
+    }
+
+    /**
+     * Gets the column offset of a direction.
+     * @param dir The MoveDirection ordinal.
+     * @return -1 for a move left, 1 for a move right.
+     */
+    public static int ColOffset(int dir){
+        return DIR_COL[dir];
+    }
+
+    /**
+     * Packs the from cell, direction and PLAY action of a move.
+     * @param from The zero indexed cell the piece is moving from.
+     * @param dir The MoveDirection ordinal of the move.
+     * @return The packed move, without a reason, target or capture flag.
+     */
+    private static int PlayMask(int from, int dir){
+        if (from < 0 || from > MAX_CELL){
+            throw new IllegalArgumentException("Cell out of range.");
+        }
+        return from | (dir << DIR_SHIFT) | ((Action.PLAY.ordinal() + 1) << ACTION_SHIFT);
+    }
+}
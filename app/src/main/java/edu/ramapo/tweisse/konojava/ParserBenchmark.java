@@ -0,0 +1,106 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+/**
+ * Times TournamentParser on a corpus of saved tournaments, on the desktop. The corpus is built from
+ * positions part way through random games of every board size. It is parsed from memory, or, if a
+ * directory is given, written there as one file per save and parsed from the files.
+ *
+ *   ParserBenchmark [--files N] [--passes N] [--seed N] [--dir DIR]
+ */
+public class ParserBenchmark {
+
+    /** The board sizes in the corpus. */
+    private static final int SIZES[] = {5, 7, 9};
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private ParserBenchmark(){
+    }
+
+    /**
+     * Saves a tournament in the text format.
+     * @param tourn The Tournament to save.
+     * @return The saved text.
+     */
+    private static String SaveText(Tournament tourn){
+        StringWriter out = new StringWriter(512);
+        Serializer.Write(tourn, out);
+        return out.toString();
+    }
+
+    /**
+     * Builds the corpus, checks that every file reads back to the same tournament, and times
+     * parsing every file in turn.
+     * @param args The options described above.
+     * @exception IOException If the corpus couldn't be written to or read from the directory.
+     * @exception TournamentParser.ParseException If a file in the corpus couldn't be parsed.
+     */
+    public static void main(String args[]) throws IOException, TournamentParser.ParseException {
+        CommandLine line = new CommandLine(args, "--files", "--passes", "--seed", "--dir");
+        int files = line.GetInt("--files", 100000);
+        int passes = line.GetInt("--passes", 5);
+        long seed = line.GetLong("--seed", 1);
+        File dir = line.GetFile("--dir");
+
+        // Build the corpus, checking that every save reads back exactly.
+        SplitRandom random = new SplitRandom(seed);
+        TournamentParser parser = new TournamentParser();
+        byte corpus[][] = new byte[files][];
+        long totalBytes = 0;
+        for (int i = 0; i < files; i++){
+            String text = SaveText(SaveFormatBenchmark.RandomPosition(SIZES[i % SIZES.length], random));
+            corpus[i] = text.getBytes("US-ASCII");
+            totalBytes += corpus[i].length;
+            if (!SaveText(parser.Parse(corpus[i], 0, corpus[i].length)).equals(text)){
+                throw new IllegalStateException("File " + i + " did not read back the same.");
+            }
+        }
+        File paths[] = null;
+        if (dir != null){
+            paths = new File[files];
+            for (int i = 0; i < files; i++){
+                paths[i] = new File(dir, "save" + i + ".txt");
+                SaveQueue.WriteAtomically(paths[i], corpus[i], false);
+            }
+        }
+        System.out.println(String.format("%d files, %.1f bytes on average, read from %s", files,
+                (double)totalBytes / files, dir == null ? "memory" : dir.getPath()));
+
+        // The first pass is untimed, so the timed passes measure compiled code.
+        long sink = 0;
+        for (int pass = 0; pass <= passes; pass++){
+            long start = System.nanoTime();
+            for (int i = 0; i < files; i++){
+                Tournament tourn;
+                if (paths == null){
+                    tourn = parser.Parse(corpus[i], 0, corpus[i].length);
+                }
+                else {
+                    InputStream in = new BufferedInputStream(new FileInputStream(paths[i]));
+                    try {
+                        tourn = parser.Parse(in);
+                    }
+                    finally {
+                        in.close();
+                    }
+                }
+                sink += tourn.GetRoundNum();
+            }
+            long nanos = System.nanoTime() - start;
+            if (pass > 0){
+                System.out.println(String.format("pass %d: %.2fus per file, %.1f MB/s", pass, nanos / 1000.0 / files,
+                        totalBytes * 1000.0 / nanos));
+            }
+        }
+        // Printed so that the timed work can't be optimized away.
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,355 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Describes a partial pattern of pieces to look for in archived positions, such as "a white piece
+ * that can capture, next to two black pieces in black's home rows", and tests positions against it.
+ *
+ * A position is held as a set of bitmasks, one for each piece class below, with a bit for every
+ * cell. The pattern is compiled into a list of clauses, each a set of bits that must all be set in
+ * those masks, so that testing a clause is a loop of and-not operations over a few longs with no
+ * branches, which the JIT can turn into vector instructions. A pattern that is anchored on a piece
+ * gets one group of clauses per cell the anchor can stand on, and only the groups for cells the
+ * anchor's class actually occupies are tested.
+ *
+ * The neighbours of a cell are the cells diagonally next to it, the ones a piece could move to.
+ */
+public class PatternQuery {
+
+    /** The piece classes a cell can be required to hold. Each is also the index of its bitmask. */
+    public static final int EMPTY = 0;
+    public static final int WHITE = 1;
+    public static final int WHITE_CAPTURE = 2;
+    public static final int WHITE_PLAIN = 3;
+    public static final int BLACK = 4;
+    public static final int BLACK_CAPTURE = 5;
+    public static final int BLACK_PLAIN = 6;
+
+    /** The number of piece classes, and so of bitmasks in a position. */
+    static final int CLASSES = 7;
+
+    /** The regions of the board a pattern can be limited to. */
+    public static final int ANYWHERE = 0;
+    public static final int WHITE_HOME_ROWS = 1;
+    public static final int BLACK_HOME_ROWS = 2;
+
+    /** The piece classes that hold each cell value, as bits, indexed by cell value. */
+    private static final int CELL_CLASSES[] = {
+            1 << EMPTY,
+            (1 << WHITE) | (1 << WHITE_PLAIN),
+            (1 << WHITE) | (1 << WHITE_CAPTURE),
+            (1 << BLACK) | (1 << BLACK_PLAIN),
+            (1 << BLACK) | (1 << BLACK_CAPTURE)
+    };
+
+    /** The size of the board the pattern is for. */
+    private int m_size;
+
+    /** The number of longs in each bitmask. */
+    private int m_words;
+
+    /** The color that must be to move, or null for either. */
+    private PlayerColor m_toMove;
+
+    /** The bits every clause needs, one bitmask per piece class. */
+    private long m_fixed[];
+
+    /** The anchored part of the pattern, or a negative anchor class if there is none. */
+    private int m_anchorClass = -1;
+    private int m_anchorRegion;
+    private int m_neighbourClass;
+    private int m_neighbourCount;
+    private int m_neighbourRegion;
+
+    /** The piece counts the pattern needs. Each entry is a class, a region, a minimum and a maximum. */
+    private ArrayList<int[]> m_counts = new ArrayList<>();
+
+    /** The compiled clauses, each CLASSES bitmasks long, or null until Compile() is called. */
+    private long m_clauses[][];
+
+    /** The first clause of each anchor cell, with one more entry after the last cell. */
+    private int m_groupStart[];
+
+    /** The cells the anchor can stand on, as a bitmask. */
+    private long m_anchorCells[];
+
+    /** The bitmask of each region. */
+    private long m_regions[][];
+
+    /**
+     * Creates an empty pattern, which every position of the given size matches.
+     * @param size The size of the board the pattern is for.
+     */
+    public PatternQuery(int size){
+        m_size = size;
+        m_words = WordsFor(size);
+        m_fixed = new long[CLASSES * m_words];
+        m_regions = new long[3][m_words];
+        for (int cell = 0; cell < size * size; cell++){
+            int row = cell / size;
+            SetBit(m_regions[ANYWHERE], 0, cell);
+            if (row <= 1){
+                SetBit(m_regions[WHITE_HOME_ROWS], 0, cell);
+            }
+            else if (row >= size - 2){
+                SetBit(m_regions[BLACK_HOME_ROWS], 0, cell);
+            }
+        }
+    }
+
+    /**
+     * Limits the pattern to positions with a given color to move.
+     * @param toMove The PlayerColor that must be to move, or null for either.
+     */
+    public void SetToMove(PlayerColor toMove){
+        m_toMove = toMove;
+        m_clauses = null;
+    }
+
+    /**
+     * Requires a cell to hold a piece class.
+     * @param cell The zero indexed cell.
+     * @param pieceClass The piece class. One of the class constants.
+     */
+    public void RequireCell(int cell, int pieceClass){
+        if (cell < 0 || cell >= m_size * m_size){
+            throw new IllegalArgumentException("Cell " + cell + " is not on a board of size " + m_size + ".");
+        }
+        SetBit(m_fixed, pieceClass * m_words, cell);
+        m_clauses = null;
+    }
+
+    /**
+     * Requires a piece of one class, in a region, with at least a number of neighbours of another
+     * class, in another region. Only one of these can be given.
+     * @param anchorClass The piece class of the anchor.
+     * @param anchorRegion The region the anchor must be in. One of the region constants.
+     * @param neighbourClass The piece class of the neighbours.
+     * @param count The fewest neighbours needed, from 1 to 4.
+     * @param neighbourRegion The region the neighbours must be in.
+     */
+    public void RequireNeighbours(int anchorClass, int anchorRegion, int neighbourClass, int count, int neighbourRegion){
+        if (count < 1 || count > 4){
+            throw new IllegalArgumentException("A piece has between 1 and 4 neighbours.");
+        }
+        m_anchorClass = anchorClass;
+        m_anchorRegion = anchorRegion;
+        m_neighbourClass = neighbourClass;
+        m_neighbourCount = count;
+        m_neighbourRegion = neighbourRegion;
+        m_clauses = null;
+    }
+
+    /**
+     * Requires the number of pieces of a class in a region to be within a range.
+     * @param pieceClass The piece class to count.
+     * @param region The region to count in.
+     * @param min The fewest pieces allowed.
+     * @param max The most pieces allowed.
+     */
+    public void RequireCount(int pieceClass, int region, int min, int max){
+        m_counts.add(new int[] {pieceClass, region, min, max});
+    }
+
+    /**
+     * Gets the size of the board the pattern is for.
+     * @return An int holding the size of an edge of the board.
+     */
+    public int GetSize(){
+        return m_size;
+    }
+
+    /**
+     * Gets the number of clauses the pattern compiled to.
+     * @return An int holding the number of clauses.
+     */
+    public int GetClauseCount(){
+        Compile();
+        return m_clauses.length;
+    }
+
+    /**
+     * Compiles the pattern into clauses. Called before a pattern is shared between threads, after
+     * which it must not be changed.
+     */
+    void Compile(){
+        if (m_clauses != null){
+            return;
+        }
+        ArrayList<long[]> clauses = new ArrayList<>();
+        m_anchorCells = new long[m_words];
+        m_groupStart = new int[m_size * m_size + 1];
+        if (m_anchorClass < 0){
+            clauses.add(m_fixed.clone());
+        }
+        for (int cell = 0; cell < m_size * m_size && m_anchorClass >= 0; cell++){
+            m_groupStart[cell] = clauses.size();
+            if (!GetBit(m_regions[m_anchorRegion], 0, cell)){
+                continue;
+            }
+            // Find the neighbours in the region, and add a clause for each way of picking enough of them.
+            int neighbours[] = new int[4];
+            int found = 0;
+            for (int dir = 0; dir < 4; dir++){
+                int row = cell / m_size + PackedMove.RowOffset(dir);
+                int col = cell % m_size + PackedMove.ColOffset(dir);
+                if (row >= 0 && row < m_size && col >= 0 && col < m_size
+                        && GetBit(m_regions[m_neighbourRegion], 0, row * m_size + col)){
+                    neighbours[found++] = row * m_size + col;
+                }
+            }
+            for (int pick = 0; pick < 1 << found; pick++){
+                if (Integer.bitCount(pick) != m_neighbourCount){
+                    continue;
+                }
+                long clause[] = m_fixed.clone();
+                SetBit(clause, m_anchorClass * m_words, cell);
+                for (int i = 0; i < found; i++){
+                    if ((pick & (1 << i)) != 0){
+                        SetBit(clause, m_neighbourClass * m_words, neighbours[i]);
+                    }
+                }
+                clauses.add(clause);
+            }
+            if (clauses.size() > m_groupStart[cell]){
+                SetBit(m_anchorCells, 0, cell);
+            }
+        }
+        m_groupStart[m_size * m_size] = clauses.size();
+        m_clauses = clauses.toArray(new long[clauses.size()][]);
+    }
+
+    /**
+     * Tests a position against the pattern. Compile() must have been called.
+     * @param position The bitmasks of the position, as filled in by SetPosition().
+     * @param toMove The PlayerColor to move.
+     * @return A boolean value. True if the position matches.
+     */
+    boolean Matches(long position[], PlayerColor toMove){
+        if (m_toMove != null && toMove != m_toMove){
+            return false;
+        }
+        if (!MatchesClauses(position)){
+            return false;
+        }
+        for (int[] count : m_counts){
+            int pieces = 0;
+            long region[] = m_regions[count[1]];
+            for (int w = 0; w < m_words; w++){
+                pieces += Long.bitCount(position[count[0] * m_words + w] & region[w]);
+            }
+            if (pieces < count[2] || pieces > count[3]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tests a position against the clauses.
+     * @param position The bitmasks of the position.
+     * @return A boolean value. True if any clause matches.
+     */
+    private boolean MatchesClauses(long position[]){
+        if (m_anchorClass < 0){
+            return Covers(position, m_clauses[0]);
+        }
+        // Only try the anchor cells the anchor's class is on.
+        for (int w = 0; w < m_words; w++){
+            long anchors = position[m_anchorClass * m_words + w] & m_anchorCells[w];
+            while (anchors != 0){
+                int cell = w * 64 + Long.numberOfTrailingZeros(anchors);
+                anchors &= anchors - 1;
+                for (int i = m_groupStart[cell]; i < m_groupStart[cell + 1]; i++){
+                    if (Covers(position, m_clauses[i])){
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that every bit of a clause is set in a position. Kept free of branches so that it can
+     * be vectorized.
+     * @param position The bitmasks of the position.
+     * @param clause The bitmasks of the clause.
+     * @return A boolean value. True if the clause matches.
+     */
+    private static boolean Covers(long position[], long clause[]){
+        long missing = 0;
+        for (int i = 0; i < clause.length; i++){
+            missing |= clause[i] & ~position[i];
+        }
+        return missing == 0;
+    }
+
+    /**
+     * Gets the number of longs in each bitmask of a position.
+     * @param size The size of the board.
+     * @return An int holding the number of longs.
+     */
+    static int WordsFor(int size){
+        return (size * size + 63) / 64;
+    }
+
+    /**
+     * Fills in the bitmasks of a position from a board.
+     * @param board The Board.
+     * @param position The array to fill, CLASSES times WordsFor() long.
+     */
+    static void SetPosition(Board board, long position[]){
+        Arrays.fill(position, 0);
+        int words = WordsFor(board.GetSize());
+        for (int cell = 0; cell < board.GetSize() * board.GetSize(); cell++){
+            SetCell(position, words, cell, Board.EMPTY, board.GetCell(cell));
+        }
+    }
+
+    /**
+     * Updates the bitmasks of a position for a cell that changed.
+     * @param position The bitmasks of the position.
+     * @param words The number of longs in each bitmask.
+     * @param cell The zero indexed cell.
+     * @param before The cell value before the change.
+     * @param after The cell value after the change.
+     */
+    static void SetCell(long position[], int words, int cell, byte before, byte after){
+        long bit = 1L << (cell & 63);
+        int word = cell >>> 6;
+        int classes = CELL_CLASSES[before];
+        while (classes != 0){
+            position[Integer.numberOfTrailingZeros(classes) * words + word] &= ~bit;
+            classes &= classes - 1;
+        }
+        classes = CELL_CLASSES[after];
+        while (classes != 0){
+            position[Integer.numberOfTrailingZeros(classes) * words + word] |= bit;
+            classes &= classes - 1;
+        }
+    }
+
+    /**
+     * Sets a bit in an array of bitmasks.
+     * @param masks The array.
+     * @param offset The index of the first long of the bitmask.
+     * @param cell The bit to set.
+     */
+    private static void SetBit(long masks[], int offset, int cell){
+        masks[offset + (cell >>> 6)] |= 1L << (cell & 63);
+    }
+
+    /**
+     * Reads a bit from an array of bitmasks.
+     * @param masks The array.
+     * @param offset The index of the first long of the bitmask.
+     * @param cell The bit to read.
+     * @return A boolean value. True if the bit is set.
+     */
+    private static boolean GetBit(long masks[], int offset, int cell){
+        return (masks[offset + (cell >>> 6)] & (1L << (cell & 63))) != 0;
+    }
+}
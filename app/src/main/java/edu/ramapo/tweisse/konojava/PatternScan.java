@@ -0,0 +1,270 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans every position in a GameArchive for a PatternQuery, split across worker threads. Each
+ * worker takes blocks of games in turn, replays them, keeping the bitmasks of the position up to
+ * date as each move changes two cells, and tests every position against the pattern. The scan
+ * stops early once it has found as many matches as it was asked for, or when Stop() is called.
+ *
+ * Matches are kept in the order they were found, which depends on the workers, so only a scan on
+ * one thread always returns the same matches when it is limited.
+ *
+ * Run from the command line to count the positions where a white piece that can capture is next to
+ * two black pieces in black's home rows:
+ *   PatternScan --dir DIR [--size N] [--threads N] [--limit N]
+ */
+public class PatternScan {
+
+    /** The number of games a worker takes at a time. */
+    private static final int BLOCK_GAMES = 256;
+
+    /** The archive being scanned, and the games in it when the scan started. */
+    private GameArchive m_archive;
+    private long m_refs[];
+
+    /** The pattern being looked for. */
+    private PatternQuery m_query;
+
+    /** The most matches to find. */
+    private int m_limit;
+
+    /** The first game of the next block to hand to a worker. */
+    private AtomicInteger m_nextGame = new AtomicInteger();
+
+    /** Set to stop every worker. */
+    private AtomicBoolean m_stop = new AtomicBoolean();
+
+    /** The number of positions tested. */
+    private AtomicLong m_positions = new AtomicLong();
+
+    /** The games and plies of the matches found, and how many there are. Guarded by this. */
+    private long m_matchRefs[];
+    private int m_matchPlies[];
+    private int m_matches;
+
+    /** The time taken by the last call to Run(), in nanoseconds. */
+    private long m_elapsed;
+
+    /**
+     * Scans the games of a single worker, taking the next block until there are none left.
+     */
+    private class Worker implements Runnable {
+
+        /** The bitmasks of the position being tested. */
+        private long m_position[];
+
+        /**
+         * Creates a worker.
+         */
+        Worker(){
+            m_position = new long[PatternQuery.CLASSES * PatternQuery.WordsFor(m_query.GetSize())];
+        }
+
+        /**
+         * Scans blocks of games until they are all taken, or the scan is stopped.
+         */
+        @Override
+        public void run(){
+            int first;
+            while (!m_stop.get() && (first = m_nextGame.getAndAdd(BLOCK_GAMES)) < m_refs.length){
+                long positions = 0;
+                int last = Math.min(first + BLOCK_GAMES, m_refs.length);
+                for (int i = first; i < last && !m_stop.get(); i++){
+                    positions += Scan(m_archive.Read(m_refs[i]));
+                }
+                m_positions.addAndGet(positions);
+            }
+        }
+
+        /**
+         * Replays a game, testing every position it reaches.
+         * @param game The ArchivedGame to scan.
+         * @return The number of positions tested.
+         */
+        private int Scan(GameArchive.ArchivedGame game){
+            int size = game.GetSize();
+            if (size != m_query.GetSize()){
+                return 0;
+            }
+            int words = PatternQuery.WordsFor(size);
+            Board board = game.GetStart();
+            PatternQuery.SetPosition(board, m_position);
+            PlayerColor toMove = game.GetFirstColor();
+            int moves[] = game.GetMoves();
+            for (int ply = 0; ply <= moves.length; ply++){
+                if (m_query.Matches(m_position, toMove) && !AddMatch(game.GetRef(), ply)){
+                    return ply + 1;
+                }
+                if (ply == moves.length || !PackedMove.IsPlay(moves[ply])){
+                    return ply + 1;
+                }
+                int from = PackedMove.GetFrom(moves[ply]);
+                int target = PackedMove.GetDestination(moves[ply], size);
+                byte moved = board.GetCell(from);
+                byte captured = board.GetCell(target);
+                board.Apply(moves[ply]);
+                PatternQuery.SetCell(m_position, words, from, moved, Board.EMPTY);
+                PatternQuery.SetCell(m_position, words, target, captured, board.GetCell(target));
+                toMove = PlayerColor.Opponent(toMove);
+            }
+            return moves.length + 1;
+        }
+    }
+
+    /**
+     * Creates a scan of every game in an archive so far.
+     * @param archive The GameArchive to scan.
+     * @param query The PatternQuery to look for. It must not be changed while the scan runs.
+     * @param limit The most matches to find.
+     */
+    public PatternScan(GameArchive archive, PatternQuery query, int limit){
+        m_archive = archive;
+        m_refs = archive.GetGameRefs();
+        m_query = query;
+        m_limit = limit;
+        m_matchRefs = new long[Math.min(limit, 1024)];
+        m_matchPlies = new int[m_matchRefs.length];
+        query.Compile();
+    }
+
+    /**
+     * Scans the archive, and waits until the scan is done.
+     * @param threads The number of worker threads to scan on.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     */
+    public void Run(int threads) throws InterruptedException {
+        long start = System.nanoTime();
+        Thread workers[] = new Thread[threads];
+        for (int i = 0; i < threads; i++){
+            workers[i] = new Thread(new Worker(), "PatternScan-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers){
+            worker.join();
+        }
+        m_elapsed = System.nanoTime() - start;
+    }
+
+    /**
+     * Stops the scan as soon as each worker finishes the game it is on. Safe to call from any thread.
+     */
+    public void Stop(){
+        m_stop.set(true);
+    }
+
+    /**
+     * Gets the number of matches found.
+     * @return An int holding the number of matches, no more than the limit.
+     */
+    public synchronized int GetMatchCount(){
+        return m_matches;
+    }
+
+    /**
+     * Gets the game of a match.
+     * @param i The index of the match.
+     * @return The reference of the game, for GameArchive.Read().
+     */
+    public synchronized long GetMatchRef(int i){
+        return m_matchRefs[i];
+    }
+
+    /**
+     * Gets the ply of a match.
+     * @param i The index of the match.
+     * @return The number of moves played in the game before the matching position.
+     */
+    public synchronized int GetMatchPly(int i){
+        return m_matchPlies[i];
+    }
+
+    /**
+     * Checks if the scan ended before every game was scanned.
+     * @return A boolean value. True if the limit was reached or Stop() was called.
+     */
+    public boolean IsStopped(){
+        return m_stop.get();
+    }
+
+    /**
+     * Gets the number of positions tested.
+     * @return A long holding the number of positions.
+     */
+    public long GetPositions(){
+        return m_positions.get();
+    }
+
+    /**
+     * Gets the time taken by the last call to Run().
+     * @return A long holding the time in nanoseconds.
+     */
+    public long GetNanos(){
+        return m_elapsed;
+    }
+
+    /**
+     * Adds a match, stopping the scan once the limit is reached.
+     * @param ref The reference of the game.
+     * @param ply The number of moves played before the matching position.
+     * @return A boolean value. False if the limit has been reached and the scan is stopping.
+     */
+    private synchronized boolean AddMatch(long ref, int ply){
+        if (m_matches >= m_limit){
+            m_stop.set(true);
+            return false;
+        }
+        if (m_matches == m_matchRefs.length){
+            int length = (int)Math.min((long)m_limit, m_matches * 2L);
+            m_matchRefs = Arrays.copyOf(m_matchRefs, length);
+            m_matchPlies = Arrays.copyOf(m_matchPlies, length);
+        }
+        m_matchRefs[m_matches] = ref;
+        m_matchPlies[m_matches] = ply;
+        m_matches++;
+        if (m_matches == m_limit){
+            m_stop.set(true);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Scans an archive for the example pattern and prints what was found.
+     * @param args The command line arguments. See the class description.
+     * @exception IOException If the archive can't be opened.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     */
+    public static void main(String args[]) throws IOException, InterruptedException {
+        CommandLine line = new CommandLine(args, "--dir", "--size", "--threads", "--limit");
+        File dir = line.GetFile("--dir");
+        int size = line.GetInt("--size", 9);
+        int threads = line.GetInt("--threads", Runtime.getRuntime().availableProcessors());
+        int limit = line.GetInt("--limit", Integer.MAX_VALUE);
+        if (dir == null){
+            throw new IllegalArgumentException("An archive directory must be given with --dir.");
+        }
+
+        PatternQuery query = new PatternQuery(size);
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 2,
+                PatternQuery.BLACK_HOME_ROWS);
+        GameArchive archive = new GameArchive(dir);
+        PatternScan scan = new PatternScan(archive, query, limit);
+        scan.Run(threads);
+        System.out.println(String.format("%d clauses, %d positions in %.1fms on %d threads, %.1fM positions/s.",
+                query.GetClauseCount(), scan.GetPositions(), scan.GetNanos() / 1e6, threads,
+                scan.GetPositions() * 1e3 / scan.GetNanos()));
+        System.out.println(String.format("%d matches%s.", scan.GetMatchCount(), scan.IsStopped() ? ", stopped at the limit" : ""));
+        for (int i = 0; i < Math.min(scan.GetMatchCount(), 10); i++){
+            System.out.println(String.format("  game %d:%d, ply %d", scan.GetMatchRef(i) >>> 32,
+                    scan.GetMatchRef(i) & 0xFFFFFFFFL, scan.GetMatchPly(i)));
+        }
+        archive.Close();
+    }
+}
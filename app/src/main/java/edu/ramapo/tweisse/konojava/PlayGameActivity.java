@@ -7,19 +7,37 @@ import android.graphics.PorterDuff;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 import android.view.View;
 import android.view.Window;
 import android.widget.Button;
-import android.widget.ScrollView;
+import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.util.concurrent.Executor;
+
 /**
  * This activity handles playing a game from start to finish. It allows both players to make moves
  * one after the other until someone wins.
  */
 public class PlayGameActivity extends AppCompatActivity implements View.OnClickListener {
 
+    /** The tag used when logging board timings. */
+    private static final String TAG = "PlayGameActivity";
+
+    /** The most records kept in the on screen game log. Older records are dropped. */
+    private static final int LOG_CAPACITY = GameLog.DEFAULT_CAPACITY;
+
+    /** The file in the app's files directory that the latency histograms are dumped to. */
+    private static final String LATENCY_FILE = "latency.txt";
+
+    /** The number of moves between snapshots of the automatic save. */
+    private static final int AUTOSAVE_INTERVAL = MoveJournal.DEFAULT_SNAPSHOT_INTERVAL;
+
     /** The colors used for displaying the board. */
     private static final int BOARD_COLOR = 0xFFd8d8d8;
     private static final int SELECTED_COLOR = 0xFFc1ffc6;
@@ -45,6 +63,34 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
     /** Holds the direction of a possible human move. */
     private MoveDirection m_moveDirection;
 
+    /** The System.nanoTime() at which onCreate() started, until the board is first shown. */
+    private long m_createNanos;
+
+    /** The moves and errors shown in the on screen game log, and the adapter showing them. */
+    private GameLog m_log;
+    private GameLogAdapter m_logAdapter;
+
+    /** Filled with the cells each move changed, so that only those are redrawn. */
+    private int m_changedCells[] = new int[2];
+
+    /** Finds computer moves and hints off the main thread. The board is locked while it is busy. */
+    private EngineWorker m_engine;
+
+    /** Shows the statistics of the last search in debug builds. Hidden otherwise. */
+    private TextView m_statsOverlay;
+
+    /** Saves every move as it is played, so that the tournament can be recovered after a crash. */
+    private MoveJournal m_journal;
+
+    /**
+     * Breaks ties in hints. Kept apart from the game's RandomSource, so that asking for a hint
+     * doesn't change the moves a seeded game's computer plays.
+     */
+    private RandomSource m_hintRandom = new SplitRandom();
+
+    /** Writes the automatic save off the main thread. Shared by every activity. */
+    private SaveQueue m_saveQueue;
+
     /**
      * Prompt the user before going back. I.E. exiting the current tournament.
      */
@@ -58,7 +104,9 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         backAlert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                // Send the user back to the home page.
+                // Send the user back to the home page. The progress is thrown away, so is the automatic save.
+                m_engine.Cancel();
+                m_journal.Discard();
                 Intent intent = new Intent(getApplicationContext(), MainActivity.class);
                 intent.addFlags(intent.FLAG_ACTIVITY_NO_ANIMATION);
                 startActivity(intent);
@@ -79,6 +127,7 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        m_createNanos = System.nanoTime();
         super.onCreate(savedInstanceState);
 
         // Remove the title bar.
@@ -90,22 +139,108 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         computerMoveButton.getBackground().setColorFilter(SELECTED_COLOR, PorterDuff.Mode.MULTIPLY);
         computerMoveButton.setVisibility(View.INVISIBLE);
 
-        // Retrieve the serialized Tournament object passed in the intent.
-        Intent intent = getIntent();
-        m_tournament = (Tournament)intent.getSerializableExtra("tournament");
+        // Retrieve the tournament, as it was if the activity is being recreated, or as passed in the intent.
+        long decodeStart = System.nanoTime();
+        m_tournament = TournamentHandoff.Restore(savedInstanceState);
+        if (m_tournament == null){
+            m_tournament = TournamentHandoff.Get(getIntent());
+        }
+        Log.d(TAG, "Tournament decoded in " + (System.nanoTime() - decodeStart) / 1000 + "us");
         m_boardSize = m_tournament.GetGame().GetBoard().GetSize(); // Assign to m_boardSize for later.
-        m_boardView = new BoardView(this);
+        m_boardView = findViewById(R.id.boardGrid);
+        m_boardView.SetColors(BOARD_COLOR, SELECTED_COLOR, WHITE_COLOR, BLACK_COLOR, VALUE_COLOR);
+        m_boardView.SetOnCellClickListener(new BoardView.OnCellClickListener() {
+            @Override
+            public void OnCellClick(int cell){
+                BoardPress(cell);
+            }
+        });
+
+        // Engine results are posted back to the main thread, where the game may be changed.
+        final Handler handler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable runnable){
+                handler.post(runnable);
+            }
+        };
+        m_engine = new EngineWorker(mainThread);
+        m_saveQueue = KonoApplication.GetSaveQueue(this);
+        m_statsOverlay = findViewById(R.id.statsOverlay);
+        m_statsOverlay.setVisibility(BuildConfig.DEBUG ? View.VISIBLE : View.GONE);
+
+        // Show the game log through a list that only creates the rows on screen.
+        m_log = new GameLog(LOG_CAPACITY);
+        m_logAdapter = new GameLogAdapter(this, m_log);
+        ListView logView = findViewById(R.id.gameRecord);
+        logView.setAdapter(m_logAdapter);
 
         // Initialize values when this activity starts.
         m_fromPoint = null;
         m_toPoint = null;
         m_moveDirection = null;
 
-        // Create the necessary board UI elements.
-        m_boardView.CreateBoard(R.id.boardGrid, m_boardSize);
+        // Start saving every move, from a snapshot of the tournament as it is now.
+        m_journal = new MoveJournal(getFilesDir(), MoveJournal.SyncPolicy.EVERY_SNAPSHOT, AUTOSAVE_INTERVAL, m_saveQueue);
+        m_journal.Start(m_tournament);
 
         // Draw the board.
         UpdateView();
+
+        // A recovered game may already be over.
+        CheckForWinner();
+    }
+
+    /**
+     * Logs how long the screen took to show the board, the first time it gets focus.
+     * @param hasFocus True if the window now has focus.
+     */
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus){
+        super.onWindowFocusChanged(hasFocus);
+        if (hasFocus && m_createNanos != 0){
+            Log.d(TAG, "Board shown " + (System.nanoTime() - m_createNanos) / 1000000 + "ms after onCreate()");
+            m_createNanos = 0;
+        }
+    }
+
+    /**
+     * Keeps the tournament as it is now, so that it can be restored if the process is killed.
+     * @param outState The Bundle to keep it in.
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState){
+        super.onSaveInstanceState(outState);
+        TournamentHandoff.Save(outState, m_tournament);
+    }
+
+    /**
+     * Logs the board's drawing times whenever the screen is left, and dumps the latency histograms
+     * to a file on the writer thread.
+     */
+    @Override
+    public void onPause(){
+        super.onPause();
+        Log.d(TAG, "Board drawing: " + m_boardView.GetDrawStats());
+        Log.d(TAG, "Latency:\n" + Latency.Report());
+        final File latencyFile = new File(getFilesDir(), LATENCY_FILE);
+        m_saveQueue.execute(new Runnable() {
+            @Override
+            public void run(){
+                Latency.Dump(latencyFile);
+            }
+        });
+    }
+
+    /**
+     * Stops the engine when the activity goes away, so that it doesn't report to a dead screen.
+     */
+    @Override
+    protected void onDestroy(){
+        m_engine.Shutdown();
+        // Anything the journal still has queued is written before its file is closed.
+        m_journal.Close();
+        super.onDestroy();
     }
 
     /**
@@ -114,21 +249,15 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
      */
     public void onClick(View view) {
         int clickedId = view.getId();
-        // Test if the button that was clicked was on the board.
-        if (clickedId >= 0 && clickedId <= m_boardSize * m_boardSize) {
-            BoardPress(clickedId, view);
-        }
-
-        // Handle the help button being pressed.
-        else if (clickedId == R.id.helpBtn){
+        // Handle the help button being pressed. Presses on the board go to BoardPress().
+        if (clickedId == R.id.helpBtn){
             HelpPress();
         }
 
         // Execute the computer move.
         else if (clickedId == R.id.computerMoveBtn){
-            if (m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer()).getClass() == Computer.class){
-                PlayMove(null);
-                UpdateView();
+            if (IsComputerTurn() && !m_engine.IsBusy()){
+                ComputerMovePress();
             }
         }
 
@@ -144,15 +273,11 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
     }
 
     /**
-     * Writes a message to the on screen game log.
-     * @param text The String we want to print to the log.
+     * Shows the latest records of the game log. The list scrolls to the newest record if it was
+     * already showing the end of the log.
      */
-    private void WriteToLog(String text){
-        // Find the log TextView and append to its text.
-        TextView log = findViewById(R.id.gameRecord);
-        if (log != null){
-            log.append("\n" + text);
-        }
+    private void RefreshLog(){
+        m_logAdapter.notifyDataSetChanged();
     }
 
     /**
@@ -160,24 +285,38 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
      * @param move The Move object describing the move that we want to play.
      */
     private void PlayMove(Move move){
-        Move chosenMove = m_tournament.GetGame().PrePlay(move);
+        // The engine works with packed moves, only the log needs a Move object.
+        PlayChosenMove(m_tournament.GetGame().PrePlay(Move.ToPacked(move, m_boardSize)));
+    }
+
+    /**
+     * Executes a move that the next player has already settled on, skipping its PrePlay().
+     * @param chosenMove The packed move to play.
+     */
+    private void PlayChosenMove(int chosenMove){
         MoveError err = m_tournament.GetGame().Play(chosenMove);
 
         int lastPlayer = m_tournament.GetGame().GetNextPlayer() == 1 ? 2 : 1;
 
         if (err == null){
-            // Print the move to the console.
-            WriteToLog("Player " + lastPlayer + " executes " + chosenMove.toString() + "\n");
+            // Record the move in the log and the automatic save. Its text is only built if it is shown.
+            m_journal.Append(chosenMove, m_tournament);
+            m_log.AddMove(lastPlayer, chosenMove, m_boardSize);
+            RefreshLog();
         }
         else if (err == MoveError.QUIT){
-            WriteToLog("Player " + lastPlayer + " quits the game. \n");
+            m_journal.Append(chosenMove, m_tournament);
+            m_log.AddQuit(lastPlayer);
+            RefreshLog();
         }
         else {
             // Tell the user what went wrong with the move.
             DisplayError(err);
         }
-        // Update the view.
-        UpdateView();
+        // Redraw only the cells the move changed, then the rest of the screen.
+        int numChanged = m_tournament.GetGame().GetLastResult().GetChangedCells(m_changedCells);
+        m_boardView.UpdateCells(m_tournament.GetGame().GetBoard(), m_changedCells, numChanged);
+        UpdateStatus();
 
         // See if someone won this game.
         CheckForWinner();
@@ -185,39 +324,35 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
 
     /**
      * Handles a press on the board. IE the user wants to make a move.
-     * @param clickedId The ID of the button that was pressed.
-     * @param view The Button reference that was pressed.
+     * @param cell The zero indexed cell that was pressed.
      */
-    private void BoardPress(int clickedId, View view){
-        // If it is the computer's turn, the user shouldn't be able to click anything.
-        if (m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer()).getClass() == Computer.class){
+    private void BoardPress(int cell){
+        // If it is the computer's turn, or the engine is thinking, the user shouldn't be able to click anything.
+        if (IsComputerTurn() || m_engine.IsBusy()){
             return;
         }
 
-        // Otherwise, get the button that was clicked.
-        Button clickedButton = (Button)view;
-
         // If this is the first point the user is clicking, set it as the target location.
         if (m_fromPoint == null) {
             // See if the clicked cell has the correct color player in it for this turn.
-            Point clickPoint = BoardView.NumberToPoint(clickedId, m_boardSize);
+            Point clickPoint = BoardView.NumberToPoint(cell, m_boardSize);
             if(m_tournament.GetGame().GetBoard().GetOccupantColor(clickPoint) == m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer()).m_color){
                 m_fromPoint = clickPoint;
 
-                // Change button color to indicate it is selected.
-                clickedButton.getBackground().setColorFilter(SELECTED_COLOR, PorterDuff.Mode.MULTIPLY);
+                // Highlight the cell to indicate it is selected.
+                m_boardView.SetSelectedCell(cell);
             }
         }
         // If there is already a starting point, the user can either click another point, or the same.
         // If the user clicks the same point, reset it to null so it can be changed.
-        else if (m_fromPoint.equals(BoardView.NumberToPoint(clickedId, m_boardSize))) {
+        else if (m_fromPoint.equals(BoardView.NumberToPoint(cell, m_boardSize))) {
             m_fromPoint = null;
-            // Change the color back to white since we are un-selecting.
-            UpdateView();
+            // Remove the highlight since we are un-selecting.
+            m_boardView.SetSelectedCell(-1);
         }
-        // If the user clicks another button, set this as the target for the move.
+        // If the user clicks another cell, set this as the target for the move.
         else {
-            m_toPoint = BoardView.NumberToPoint(clickedId, m_boardSize);
+            m_toPoint = BoardView.NumberToPoint(cell, m_boardSize);
             // Verify that a valid target was clicked. If not, reset the target to null.
             m_moveDirection = GetMoveDirection(m_fromPoint, m_toPoint);
             if (m_moveDirection == null) {
@@ -225,11 +360,8 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
             }
             // If a valid target got clicked, execute the move and update the board.
             else {
-                // Reset color of the start location button.
-                Button startButton = findViewById(PointToNumber(m_fromPoint));
-                if (startButton != null) {
-                    startButton.getBackground().setColorFilter(BOARD_COLOR, PorterDuff.Mode.MULTIPLY);
-                }
+                // Remove the highlight from the start location.
+                m_boardView.SetSelectedCell(-1);
 
                 // Create a new move based on the board cells the user has entered.
                 Move thisMove = new Move(m_fromPoint, m_moveDirection, Action.PLAY, null);
@@ -257,8 +389,13 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         alert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                // Quit the game.
-                PlayMove(new Move(Action.QUIT));
+                // Quit the game once the engine has stopped using it.
+                m_engine.Cancel(new Runnable() {
+                    @Override
+                    public void run(){
+                        QuitGame();
+                    }
+                });
             }
         });
         alert.setNegativeButton(android.R.string.no, new DialogInterface.OnClickListener() {
@@ -271,6 +408,34 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         alert.show();
     }
 
+    /**
+     * Quits for the player up next. A human quits straight away. The computer only agrees to quit if
+     * it can't find a move, so its decision is made in the background like any other computer move.
+     */
+    private void QuitGame(){
+        Game game = m_tournament.GetGame();
+        final Player player = game.GetPlayer(game.GetNextPlayer());
+        if (player.GetType() == PlayerType.HUMAN){
+            PlayMove(new Move(Action.QUIT));
+            return;
+        }
+        final Button computerMoveButton = findViewById(R.id.computerMoveBtn);
+        m_engine.Request(player, game.GetBoard(), game.GetRandom().Split(), new EngineWorker.Callback() {
+            @Override
+            public void OnProgress(int depth, int score, int bestMove){
+                ShowProgress(computerMoveButton, depth, bestMove);
+            }
+
+            @Override
+            public void OnMoveFound(int move){
+                ShowSearchStats(player);
+                // The same answer Player.PrePlay() gives: refuse to quit if there is a move to play.
+                PlayChosenMove(move == PackedMove.QUIT ? PackedMove.QUIT : PackedMove.NO_QUIT);
+            }
+        });
+        UpdateStatus();
+    }
+
     /**
      *  Handles a save button press.
      */
@@ -283,7 +448,13 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         alert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                SaveGame();
+                // Save once the engine has stopped using the game.
+                m_engine.Cancel(new Runnable() {
+                    @Override
+                    public void run(){
+                        SaveGame();
+                    }
+                });
             }
         });
         alert.setNegativeButton(android.R.string.no, new DialogInterface.OnClickListener() {
@@ -297,44 +468,129 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
     }
 
     /**
-     * Handles a help button press. Displays a move suggestion to the user based on the computer AI.
+     * Handles a computer move button press. Finds the computer's move in the background, and plays
+     * it once it is found.
      */
-    private void HelpPress(){
-        // Verify that it is the human player's turn currently.
-        Player curPlayer = m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer());
-        if (curPlayer.getClass() == Human.class){
+    private void ComputerMovePress(){
+        final Button computerMoveButton = findViewById(R.id.computerMoveBtn);
+        Game game = m_tournament.GetGame();
+        final Player player = game.GetPlayer(game.GetNextPlayer());
+        // The engine draws from a source of its own, so the game's can be saved while it thinks.
+        m_engine.Request(player, game.GetBoard(), game.GetRandom().Split(), new EngineWorker.Callback() {
+            @Override
+            public void OnProgress(int depth, int score, int bestMove){
+                ShowProgress(computerMoveButton, depth, bestMove);
+            }
 
-            // Call the base class move finding function to get an AI move.
-            final Move suggestion = curPlayer.FindBestMove(m_tournament.GetGame().GetBoard());
+            @Override
+            public void OnMoveFound(int move){
+                ShowSearchStats(player);
+                PlayChosenMove(move);
+            }
+        });
+        UpdateStatus();
+    }
 
-            AlertDialog.Builder alert = new AlertDialog.Builder(this);
-            alert.setTitle("Help");
-            alert.setMessage("The computer suggests " + suggestion.toString() + " Would you like to play this move?");
-            alert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
+    /**
+     * Handles a help button press. Finds a move suggestion based on the computer AI in the
+     * background, and shows it to the user once it is found.
+     */
+    private void HelpPress(){
+        // Verify that it is the human player's turn currently, and that the engine isn't already busy.
+        final Player curPlayer = m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer());
+        if (curPlayer.GetType() == PlayerType.HUMAN && !m_engine.IsBusy()){
+            final Button helpButton = findViewById(R.id.helpBtn);
+            m_engine.Request(curPlayer, m_tournament.GetGame().GetBoard(), m_hintRandom, new EngineWorker.Callback() {
                 @Override
-                public void onClick(DialogInterface dialog, int which) {
-                    // Play the move that the computer suggested.
-                    PlayMove(suggestion);
+                public void OnProgress(int depth, int score, int bestMove){
+                    ShowProgress(helpButton, depth, bestMove);
                 }
-            });
-            alert.setNegativeButton(android.R.string.no, new DialogInterface.OnClickListener() {
+
                 @Override
-                public void onClick(DialogInterface dialog, int which) {
-                    // Do nothing.
+                public void OnMoveFound(int move){
+                    ShowSearchStats(curPlayer);
+                    UpdateStatus();
+                    ShowSuggestion(move);
                 }
             });
-            alert.setIcon(android.R.drawable.ic_dialog_alert);
-            alert.show();
+            UpdateStatus();
         }
     }
 
+    /**
+     * Shows a move suggestion, and plays it if the user wants to.
+     * @param bestMove The packed move the computer suggests.
+     */
+    private void ShowSuggestion(int bestMove){
+        final Move suggestion = Move.FromPacked(bestMove, m_boardSize);
+        AlertDialog.Builder alert = new AlertDialog.Builder(this);
+        alert.setTitle("Help");
+        alert.setMessage("The computer suggests " + suggestion.toString() + " Would you like to play this move?");
+        alert.setPositiveButton(android.R.string.yes, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                // Play the move that the computer suggested.
+                PlayMove(suggestion);
+            }
+        });
+        alert.setNegativeButton(android.R.string.no, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                // Do nothing.
+            }
+        });
+        alert.setIcon(android.R.drawable.ic_dialog_alert);
+        alert.show();
+    }
+
+    /**
+     * Shows how far the engine has got on the button that started it.
+     * @param button The Button that started the engine.
+     * @param depth The depth the engine has completed.
+     * @param bestMove The packed best move found so far.
+     */
+    private void ShowProgress(Button button, int depth, int bestMove){
+        if (button != null){
+            button.setText("Depth " + depth);
+        }
+        TextView nextUp = findViewById(R.id.nextUpValue);
+        if (nextUp != null && PackedMove.IsPlay(bestMove)){
+            nextUp.setText("Player " + m_tournament.GetGame().GetNextPlayer() + " considering " + Move.FromPacked(bestMove, m_boardSize).toString());
+        }
+    }
+
+    /**
+     * Shows the statistics of a player's last search on the debug overlay.
+     * @param player The Player that just found a move.
+     */
+    private void ShowSearchStats(Player player){
+        if (!BuildConfig.DEBUG){
+            return;
+        }
+        SearchStats stats = player.GetSearchStats();
+        if (stats == null){
+            m_statsOverlay.setText("No search for this player.");
+        }
+        else {
+            m_statsOverlay.setText(stats.Summary() + "\n" + stats.IterationSummary());
+        }
+    }
+
+    /**
+     * Checks if the player up next is a computer.
+     * @return A boolean value. True if the computer plays next.
+     */
+    private boolean IsComputerTurn(){
+        return m_tournament.GetGame().GetPlayer(m_tournament.GetGame().GetNextPlayer()).GetType() == PlayerType.COMPUTER;
+    }
+
     /**
      * Saves the game in a new activity.
      */
     private void SaveGame(){
         // Launch the save activity and pass the current tournament.
         Intent intent = new Intent(this, SaveTournamentActivity.class);
-        intent.putExtra("tournament", m_tournament);
+        TournamentHandoff.Put(intent, m_tournament);
         intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         startActivity(intent);
         finish();
@@ -353,6 +609,9 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
         String header = String.format("Player %d wins the tournament!", winner);
         String message = String.format("Player 1 scored %d overall. Player 2 scored %d. Thanks for playing!", p1Score, p2Score);
 
+        // The tournament is over, so there is nothing left to recover.
+        m_journal.Discard();
+
         // Show the user who won.
         AlertDialog.Builder alert = new AlertDialog.Builder(this);
         alert.setCancelable(false);
@@ -375,7 +634,7 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
     private void ContinueTournament(){
         // Launch the continue tournament activity and pass the current tournament.
         Intent intent = new Intent(this, ContinueTournamentActivity.class);
-        intent.putExtra("tournament", m_tournament);
+        TournamentHandoff.Put(intent, m_tournament);
         intent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         intent.setFlags(Intent.FLAG_ACTIVITY_NO_ANIMATION);
         startActivity(intent);
@@ -388,13 +647,19 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
     private void UpdateView(){
 
         // Update the board display.
-        m_boardView.UpdateBoard(m_tournament.GetGame().GetBoard(), BOARD_COLOR, WHITE_COLOR, BLACK_COLOR, VALUE_COLOR);
+        m_boardView.UpdateBoard(m_tournament.GetGame().GetBoard());
+        UpdateStatus();
+    }
+
+    /**
+     * Updates everything on the screen except the board, for changes that can't have moved a piece.
+     */
+    private void UpdateStatus(){
 
         // Update the points and players fields under the board.
         TextView p1Score = findViewById(R.id.p1ScoreValue);
         TextView p2Score = findViewById(R.id.p2ScoreValue);
         TextView nextUp = findViewById(R.id.nextUpValue);
-        ScrollView logScroller = findViewById(R.id.logScroller);
 
         if (p1Score != null){
             p1Score.setText(Integer.toString(m_tournament.GetGame().GetPlayer(1).GetPoints()));
@@ -411,7 +676,7 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
             Button computerMoveButton = findViewById(R.id.computerMoveBtn);
             Button helpButton = findViewById(R.id.helpBtn);
             if (computerMoveButton != null && helpButton != null){
-                if (m_tournament.GetGame().GetPlayer(nextPlayer).getClass() == Computer.class){
+                if (IsComputerTurn()){
 
                     computerMoveButton.setVisibility(View.VISIBLE);
                     helpButton.setEnabled(false);
@@ -420,6 +685,15 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
                     computerMoveButton.setVisibility(View.INVISIBLE);
                     helpButton.setEnabled(true);
                 }
+
+                // While the engine is thinking, its buttons show progress and can't be pressed again.
+                boolean busy = m_engine.IsBusy();
+                computerMoveButton.setEnabled(!busy);
+                helpButton.setEnabled(helpButton.isEnabled() && !busy);
+                if (!busy){
+                    computerMoveButton.setText("Move");
+                    helpButton.setText("Help");
+                }
             }
         }
     }
@@ -496,19 +770,11 @@ public class PlayGameActivity extends AppCompatActivity implements View.OnClickL
             errDisplay.show();
 
             // Also write the error to the log.
-            WriteToLog(err.toString() + "\n");
+            m_log.AddError(err);
+            RefreshLog();
         }
     }
 
-    /**
-     * Converts a Point to a 1-D zero indexed array.
-     * @param pt The Point holding a location on the current game's board.
-     * @return An int holding a zero indexed array position representing the point on the board.
-     */
-    private int PointToNumber(Point pt){
-        return ((pt.x - 1) * m_boardSize + pt.y - 1);
-    }
-
     /**
      * Finds the direction of the move given a current and target location, if the target is a neighbor.
      * @param start The starting Point.
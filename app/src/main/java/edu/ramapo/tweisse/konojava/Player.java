@@ -1,9 +1,6 @@
 package edu.ramapo.tweisse.konojava;
 
-import android.graphics.Point;
 import java.io.Serializable;
-import java.util.Random;
-import java.util.Vector;
 
 /**
  * Holds information about a player in a game, like color and number of points accumulated.
@@ -17,21 +14,46 @@ public class Player implements Serializable{
     /** This player's color. */
     protected PlayerColor m_color;
 
-    /**
-     * A structure to hold a point and the direction that resulted in that point.
-     */
-    private class SurroundingPoint{
-        Point m_endPoint;    /** The possible point to move to. */
-        MoveDirection m_dir; /** The direction that would result in a move to m_endPoint. */
-
-        /**
-         * Create a SurroundingPoint from an endpoint and move direction.
-         */
-        SurroundingPoint(Point pt, MoveDirection dir){
-            m_endPoint = pt;
-            m_dir = dir;
-        }
-    }
+    /** Cell contents used by the AI scan buffers. */
+    private static final byte SCAN_EMPTY = 0;
+    private static final byte SCAN_OWN = 1;
+    private static final byte SCAN_OPPONENT = 2;
+
+    /** Row and column offsets of the diagonal neighbors, in the order the AI considers them. */
+    private static final int NEIGHBOR_ROW[] = {-1, -1, 1, 1};
+    private static final int NEIGHBOR_COL[] = {-1, 1, -1, 1};
+    private static final MoveDirection NEIGHBOR_DIR[] = {MoveDirection.NW, MoveDirection.NE, MoveDirection.SW, MoveDirection.SE};
+
+    /** The color of the occupant of each cell relative to this player. Filled by ScanBoard(). */
+    private transient byte m_scanOccupant[];
+
+    /** The capture ability of the occupant of each cell. Filled by ScanBoard(). */
+    private transient boolean m_scanCapture[];
+
+    /** The owner of each cell relative to this player. Filled by ScanBoard(). */
+    private transient byte m_scanOwner[];
+
+    /** Whether an own piece at each cell could be captured by a neighbor. Filled by ScanBoard(). */
+    private transient boolean m_scanDanger[];
+
+    /** The four diagonal neighbors of each cell, -1 where a neighbor would be off the board. */
+    private transient int m_neighbors[];
+
+    /** The zero indexed row and column of each cell, so that searching never has to divide. */
+    private transient int m_cellRow[];
+    private transient int m_cellCol[];
+
+    /** The opponent home cells we don't occupy yet, in board order. Filled by ScanBoard(). */
+    private transient int m_homeTargets[];
+
+    /** The number of cells held in m_homeTargets. */
+    private transient int m_numHomeTargets;
+
+    /** The packed candidate moves found for each piece during a search. */
+    private transient int m_candidates[];
+
+    /** The size of the board the scan buffers were last filled from. */
+    private transient int m_scanSize;
 
     /**
      * Default constructor. Creates a player with no color and no points.
@@ -74,19 +96,49 @@ public class Player implements Serializable{
         return m_points;
     }
 
+    /**
+     * Sets the listener told about the progress of FindBestMove(). Players that find their move in
+     * a single step have no progress to report, and ignore this.
+     * @param listener The Search.Listener to report to, or null to stop reporting.
+     */
+    public void SetProgressListener(Search.Listener listener){
+    }
+
+    /**
+     * Asks a FindBestMove() running on another thread to finish as soon as possible with the best
+     * move it has so far. Players that find their move in a single step ignore this.
+     */
+    public void StopThinking(){
+    }
+
+    /**
+     * Forgets an earlier StopThinking(), so that the next FindBestMove() runs in full.
+     */
+    public void ClearStop(){
+    }
+
+    /**
+     * Gets the statistics of the search behind the last move found. Safe to call from any thread.
+     * @return Null for players that don't search. Overridden in child classes.
+     */
+    public SearchStats GetSearchStats(){
+        return null;
+    }
+
     /**
      * Called before the Play() function. Used by the computer AI to decide on a move.
-     * @param move A Move object describing the move we may play.
+     * @param move The packed move we may play. PackedMove.NONE if there is none.
      * @param board A Board object holding the board we will use to pick a move.
-     * @return A Move object holding the move that we have decided to play.
+     * @param rand The RandomSource used by the AI to pick between equally good moves.
+     * @return The packed move that we have decided to play.
      */
-    public Move PrePlay(Move move, Board board) {
+    public int PrePlay(int move, Board board, RandomSource rand) {
         // Find the best move to play on this board.
-        Move pickedMove = FindBestMove(board);
+        int pickedMove = FindBestMove(board, rand);
 
         // If the user wants to quit but the computer has found a good move, they will refuse to quit.
-        if (move != null && move.GetAction() == Action.QUIT && pickedMove.GetAction() != Action.QUIT){
-            return new Move(Action.NO_QUIT);
+        if (move == PackedMove.QUIT && pickedMove != PackedMove.QUIT){
+            return PackedMove.NO_QUIT;
         }
         else{
             return pickedMove;
@@ -95,130 +147,205 @@ public class Player implements Serializable{
 
     /**
      * Execute a move given the move and the Board on which to make the move.
-     * @param move The Move object we describing the move we want to make.
+     * @param move The packed move describing the move we want to make.
      * @param board The Board object holding the current board on which to make the move.
      * @return A MoveError enum describing the error that occurred while trying to make the move.
      */
-    public MoveError Play(Move move, Board board){
+    public MoveError Play(int move, Board board){
+        return PlayResult(move, board).GetError();
+    }
+
+    /**
+     * Execute a move given the move and the Board on which to make the move, keeping everything
+     * the board reported about it.
+     * @param move The packed move describing the move we want to make.
+     * @param board The Board object holding the current board on which to make the move.
+     * @return A MoveResult describing the points earned, the cells changed and any error.
+     */
+    public MoveResult PlayResult(int move, Board board){
         // The computer doesn't want to quit, tell the user to keep playing.
-        if (move != null && move.GetAction() == Action.NO_QUIT){
-            return MoveError.NO_QUIT;
+        if (move == PackedMove.NO_QUIT){
+            return new MoveResult(0, MoveError.NO_QUIT);
         }
 
         // Execute the move.
         MoveResult result = board.MakeMove(move, m_color);
         m_points += result.GetPoints();
-        return result.GetError();
+        return result;
     }
 
     /**
-     * Finds the best move available for this play based on the computer AI system.
+     * Finds the best move available for this player based on the computer AI system. The board is
+     * scanned once into this player's buffers, and nothing is allocated while choosing.
      * @param board The Board object holding the current board on which to find the best move.
-     * @return A Move object describing the best move the AI could find for the given board.
+     * @param rand The RandomSource used to break ties between equally good moves. The same
+     *             source state always leads to the same move.
+     * @return The packed move describing the best move the AI could find for the given board.
      */
-    public Move FindBestMove(Board board){
-        // A vector which will store the best move for each piece on the board.
-        Vector<Move> moves = new Vector<>();
-
-        // Loop through each board location.
-        for (int i = 1; i <= board.GetSize(); i++){
-            for (int j = 1; j <= board.GetSize(); j++){
-                Point curPt = new Point(i, j);
-                // If we have a piece at this location, find the best move it can make.
-                if (board.GetOccupant(curPt).GetColor() == m_color){
-                    // If the piece is going to be captured, avoid as the first priority.
-                    if (CanBeCaptured(board, curPt)){
-                        moves.add(EscapeCapture(board, curPt));
-                        continue;
-                    }
-                    // Try to block the opponent from reaching a home location. If this is possible,
-                    // a valid move will be returned. If not, blocking isn't an option for this move.
-                    Move tmp = BlockOpponent(board, curPt);
-                    if (tmp != null){
-                        moves.add(tmp);
-                        continue;
-                    }
-                    // Capture a neighboring opponent if possible.
-                    tmp = CaptureOpponent(board, curPt);
-                    if (tmp != null){
-                        moves.add(tmp);
-                        continue;
-                    }
-                    // If nothing above works, we will advance towards a home location, assuming we
-                    // can leave our home location without it being captured.
-                    if (!ShouldStayBlocking(board, curPt)){
-                        moves.add(MoveTowardsHomeLocation(board, curPt));
-                    }
-                }
+    public int FindBestMove(Board board, RandomSource rand){
+        ScanBoard(board);
+        int numCells = m_scanSize * m_scanSize;
+
+        // Find the best move for each of our pieces, keeping track of the most important reason.
+        int numMoves = 0;
+        int highestWeight = -1;
+        for (int cell = 0; cell < numCells; cell++){
+            if (m_scanOccupant[cell] != SCAN_OWN){
+                continue;
             }
-        }
-        // Remove any null moves from the list that may have ended up there.
-        for (int i = 0; i < moves.size(); i++){
-            if (moves.elementAt(i) == null){
-                moves.remove(i);
-                i -= 1;
+            int candidate;
+            // If the piece is going to be captured, avoid as the first priority.
+            if (CanBeCaptured(cell)){
+                candidate = EscapeCapture(cell);
             }
-        }
-        // We will rank the moves based on their importance.
-        int highestWeight = -1;
-        for (Move curMove : moves){
-            if (curMove.GetReason().GetWeight() > highestWeight){
-                highestWeight = curMove.GetReason().GetWeight();
+            else {
+                // Then try to block, then to capture, and finally to advance towards a home location
+                // as long as we can leave our current location without it being captured.
+                candidate = BlockOpponent(cell);
+                if (candidate == PackedMove.NONE){
+                    candidate = CaptureOpponent(cell);
+                }
+                if (candidate == PackedMove.NONE && !ShouldStayBlocking(cell)){
+                    candidate = MoveTowardsHomeLocation(cell);
+                }
+            }
+            if (candidate != PackedMove.NONE){
+                m_candidates[numMoves++] = candidate;
+                highestWeight = Math.max(highestWeight, PackedMove.GetReason(candidate).GetWeight());
             }
         }
-        // Remove all but the highest ranked moves.
-        for (int i = 0; i < moves.size(); i++) {
-            if (moves.elementAt(i).GetReason().GetWeight() < highestWeight) {
-                moves.remove(i);
-                i -= 1;
+
+        // Keep only the highest ranked moves, in the order they were found.
+        int numBest = 0;
+        for (int i = 0; i < numMoves; i++){
+            if (PackedMove.GetReason(m_candidates[i]).GetWeight() == highestWeight){
+                m_candidates[numBest++] = m_candidates[i];
             }
         }
-        // If there were no good moves left to play, return a random move.
-        if (moves.isEmpty()){
-            // Loop through each board location, and pick a random move for each.
-            for (int i = 1; i <= board.GetSize(); i++) {
-                for (int j = 1; j <= board.GetSize(); j++) {
-                    Point curPt = new Point(i, j);
-                    // If we have a piece at this location, find the best move it can make.
-                    if (board.GetOccupant(curPt).GetColor() == m_color) {
-                        moves.add(MoveToEmptySpace(board, curPt));
+
+        // If there were no good moves left to play, pick a random move for each piece.
+        if (numBest == 0){
+            for (int cell = 0; cell < numCells; cell++){
+                if (m_scanOccupant[cell] == SCAN_OWN){
+                    int candidate = MoveToEmptySpace(cell);
+                    if (candidate != PackedMove.NONE){
+                        m_candidates[numBest++] = candidate;
                     }
                 }
             }
-            // Remove any null moves from the list that may have ended up there.
-            for (int i = 0; i < moves.size(); i++){
-                if (moves.elementAt(i) == null){
-                    moves.remove(i);
-                    i -= 1;
+            // If there still isn't anything left to play, return a move to quit.
+            if (numBest == 0){
+                return PackedMove.QUIT;
+            }
+        }
+
+        // Return a random move from the remaining moves.
+        return m_candidates[rand.NextInt(numBest)];
+    }
+
+    /**
+     * Copies the board into this player's scan buffers, resizing them if the board size changed.
+     * @param board The Board object we are finding a move on.
+     */
+    private void ScanBoard(Board board){
+        int size = board.GetSize();
+        int numCells = size * size;
+        if (m_scanSize != size || m_scanOccupant == null){
+            m_scanOccupant = new byte[numCells];
+            m_scanCapture = new boolean[numCells];
+            m_scanOwner = new byte[numCells];
+            m_scanDanger = new boolean[numCells];
+            m_candidates = new int[numCells];
+            m_homeTargets = new int[numCells];
+            m_neighbors = new int[numCells * 4];
+            m_cellRow = new int[numCells];
+            m_cellCol = new int[numCells];
+            for (int cell = 0; cell < numCells; cell++){
+                m_cellRow[cell] = cell / size;
+                m_cellCol[cell] = cell % size;
+                for (int dir = 0; dir < 4; dir++){
+                    int row = cell / size + NEIGHBOR_ROW[dir];
+                    int col = cell % size + NEIGHBOR_COL[dir];
+                    boolean onBoard = row >= 0 && row < size && col >= 0 && col < size;
+                    m_neighbors[cell * 4 + dir] = onBoard ? row * size + col : -1;
                 }
             }
-            // If there still isn't anything left to play, return a move to quit.
-            if (moves.isEmpty()){
-                return new Move(Action.QUIT);
+            m_scanSize = size;
+        }
+
+        for (int cell = 0; cell < numCells; cell++){
+            m_scanOccupant[cell] = RelativeColor(board.GetOccupantColor(cell));
+            m_scanCapture[cell] = board.CanCapture(cell);
+            m_scanOwner[cell] = RelativeColor(board.GetOwner(cell));
+        }
+        // The board doesn't change while we search, so capture danger only needs to be found once per cell.
+        m_numHomeTargets = 0;
+        for (int cell = 0; cell < numCells; cell++){
+            m_scanDanger[cell] = FindCaptureDanger(cell);
+            if (m_scanOwner[cell] == SCAN_OPPONENT && m_scanOccupant[cell] != SCAN_OWN){
+                m_homeTargets[m_numHomeTargets++] = cell;
             }
         }
-        // Return a random move from the remaining moves list.
-        Random rand = new Random();
-        int num = rand.nextInt(moves.size());
-        return moves.elementAt(num);
     }
 
     /**
-     * Decides if the given point is in danger of being captured by an opponent.
-     * @param board The Board object holding the current board.
-     * @param start The Point in question on the board.
-     * @return A boolean value. True if the piece at the given point is in danger of being captured. False if not.
+     * Converts a color to its scan buffer representation relative to this player.
+     * @param color The PlayerColor to convert. May be null.
+     * @return SCAN_EMPTY for null, SCAN_OWN for this player's color, SCAN_OPPONENT otherwise.
      */
-    private boolean CanBeCaptured(Board board, Point start){
+    private byte RelativeColor(PlayerColor color){
+        if (color == null){
+            return SCAN_EMPTY;
+        }
+        return color == m_color ? SCAN_OWN : SCAN_OPPONENT;
+    }
+
+    /**
+     * Finds the neighbor of a cell in one of the four diagonal directions.
+     * @param cell The cell we are finding a neighbor for.
+     * @param dir The index of the direction in NEIGHBOR_ROW, NEIGHBOR_COL and NEIGHBOR_DIR.
+     * @return The neighboring cell, or -1 if it would be off the board.
+     */
+    private int Neighbor(int cell, int dir){
+        return m_neighbors[cell * 4 + dir];
+    }
+
+    /**
+     * Packs a candidate move found by the AI.
+     * @param dir The index of the move direction in NEIGHBOR_DIR.
+     * @param reason The ActionReason for the move.
+     * @param from The cell the move starts at.
+     * @param target The cell the move is targeting, or -1 if there is no target.
+     * @return The packed move, as described by PackedMove.
+     */
+    private int Candidate(int dir, ActionReason reason, int from, int target){
+        boolean capture = m_scanOccupant[m_neighbors[from * 4 + dir]] == SCAN_OPPONENT;
+        return PackedMove.Play(from, NEIGHBOR_DIR[dir].ordinal(), capture, reason, target);
+    }
+
+    /**
+     * Decides if the given cell is in danger of being captured by an opponent.
+     * @param cell The cell in question on the board.
+     * @return A boolean value. True if the piece at the given cell is in danger of being captured. False if not.
+     */
+    private boolean CanBeCaptured(int cell){
+        return m_scanDanger[cell];
+    }
+
+    /**
+     * Works out if the given cell is in danger of being captured by an opponent from the scan buffers.
+     * @param cell The cell in question on the board.
+     * @return A boolean value. True if the piece at the given cell is in danger of being captured. False if not.
+     */
+    private boolean FindCaptureDanger(int cell){
         // If we can capture ourselves, we don't need to worry about being captured.
-        if (board.GetOccupant(start).CanCapture()){
+        if (m_scanCapture[cell]){
             return false;
         }
-
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
-            // If any surrounding points can capture this piece, return true;
-            if (board.GetOccupant(point.m_endPoint).CanCapture() && board.GetOccupantColor(point.m_endPoint) != m_color){
+        for (int dir = 0; dir < 4; dir++){
+            // If any surrounding cells can capture this piece, return true.
+            int next = Neighbor(cell, dir);
+            if (next != -1 && m_scanCapture[next] && m_scanOccupant[next] != SCAN_OWN){
                 return true;
             }
         }
@@ -227,36 +354,34 @@ public class Player implements Serializable{
 
     /**
      * Finds a move to a location which is safe from capture, or a move to the nearest home location if this isn't possible.
-     * @param board The Board object we are moving on.
-     * @param start The Point we want to move on the board.
-     * @return A Move object describing a move to a safe location, or to the nearest home point if this isn't possible.
+     * @param start The cell we want to move on the board.
+     * @return A candidate move to a safe location, or to the nearest home point if this isn't possible. PackedMove.NONE if neither exists.
      */
-    private Move EscapeCapture(Board board, Point start){
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
+    private int EscapeCapture(int start){
+        for (int dir = 0; dir < 4; dir++){
             // If a neighboring cell is empty and out of capture risk, move there.
-            if (board.GetOccupantColor(point.m_endPoint) == null && !CanBeCaptured(board, point.m_endPoint)){
-                return new Move(start, point.m_dir, Action.PLAY, ActionReason.ESCAPE, point.m_endPoint);
+            int next = Neighbor(start, dir);
+            if (next != -1 && m_scanOccupant[next] == SCAN_EMPTY && !CanBeCaptured(next)){
+                return Candidate(dir, ActionReason.ESCAPE, start, next);
             }
         }
-        return MoveTowardsHomeLocation(board, start);
+        return MoveTowardsHomeLocation(start);
     }
 
     /**
      * Decides if the piece should stay put to continue blocking a home location.
-     * @param board The Board object we are moving on.
-     * @param start The Point in question on the board.
+     * @param start The cell in question on the board.
      * @return A boolean value. True if we should stay put. False if it is safe to move from our current location.
      */
-    private boolean ShouldStayBlocking(Board board, Point start){
+    private boolean ShouldStayBlocking(int start){
         // Make sure we are even in a home location.
-        if (board.GetOwner(start) != m_color){
+        if (m_scanOwner[start] != SCAN_OWN){
             return false;
         }
         // If there is an opponent neighboring us and we are in our home location, stay put.
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
-            if (board.GetOccupantColor(point.m_endPoint) != null && board.GetOccupantColor(point.m_endPoint) != m_color){
+        for (int dir = 0; dir < 4; dir++){
+            int next = Neighbor(start, dir);
+            if (next != -1 && m_scanOccupant[next] == SCAN_OPPONENT){
                 return true;
             }
         }
@@ -265,224 +390,145 @@ public class Player implements Serializable{
 
     /**
      * Finds a valid move to block an opponent if possible.
-     * @param board The Board object we are playing on.
-     * @param start The Point we want to move on the board.
-     * @return A valid Move object to block if possible. Null otherwise.
+     * @param start The cell we want to move on the board.
+     * @return A candidate move to block if possible. PackedMove.NONE otherwise.
      */
-    private Move BlockOpponent(Board board, Point start){
-        // Get a list of all surrounding points. If any are our home locations, and empty, check to see
-        // if there are any opponents around it that will try to capture.
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
-            Piece curOcc = board.GetOccupant(point.m_endPoint);
-            // If we have an empty home location around us, make sure nobody is going to try and capture it.
-            if (curOcc.GetColor() == null && board.GetOwner(point.m_endPoint) == m_color){
-                // Find any potential opponents around the empty home location.
-                Vector<SurroundingPoint> aroundHome = GetSurroundingPoints(board, point.m_endPoint);
-                for (SurroundingPoint possibleEnemy : aroundHome){
-                    // If there is an opponent that can be blocked, move to the home location.
-                    Piece enemy = board.GetOccupant(possibleEnemy.m_endPoint);
-                    if (enemy.GetColor() != null && enemy.GetColor() != m_color && !enemy.CanCapture()){
-                        return new Move(start, point.m_dir, Action.PLAY, ActionReason.BLOCK, possibleEnemy.m_endPoint);
-                    }
+    private int BlockOpponent(int start){
+        // If any surrounding cells are our home locations, and empty, check to see if there are
+        // any opponents around it that will try to capture.
+        for (int dir = 0; dir < 4; dir++){
+            int home = Neighbor(start, dir);
+            if (home == -1 || m_scanOccupant[home] != SCAN_EMPTY || m_scanOwner[home] != SCAN_OWN){
+                continue;
+            }
+            // If there is an opponent around the empty home location that can be blocked, move there.
+            for (int enemyDir = 0; enemyDir < 4; enemyDir++){
+                int enemy = Neighbor(home, enemyDir);
+                if (enemy != -1 && m_scanOccupant[enemy] == SCAN_OPPONENT && !m_scanCapture[enemy]){
+                    return Candidate(dir, ActionReason.BLOCK, start, enemy);
                 }
             }
         }
-        return null;
+        return PackedMove.NONE;
     }
 
     /**
      * Finds a valid move to capture an opponent if possible.
-     * @param board The Board object we are playing on.
-     * @param start The Point we want to move on the board.
-     * @return A valid Move to capture an opponent if possible. Null otherwise.
+     * @param start The cell we want to move on the board.
+     * @return A candidate move to capture an opponent if possible. PackedMove.NONE otherwise.
      */
-    private Move CaptureOpponent(Board board, Point start){
+    private int CaptureOpponent(int start){
         // Make sure we can even capture in the first place.
-        if (!board.GetOccupant(start).CanCapture()){
-            return null;
+        if (!m_scanCapture[start]){
+            return PackedMove.NONE;
         }
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
-            Piece curOcc = board.GetOccupant(point.m_endPoint);
-            // See if there are any opponent pieces around that we can capture.
-            if (curOcc.GetColor() != null && curOcc.GetColor() != m_color){
-                // Don't capture if we are going to be captured next move.
-                if (!CanBeCaptured(board, point.m_endPoint)){
-                    return new Move(start, point.m_dir, Action.PLAY, ActionReason.CAPTURE, point.m_endPoint);
-                }
+        for (int dir = 0; dir < 4; dir++){
+            // See if there are any opponent pieces around that we can capture, without being
+            // captured on the next move.
+            int next = Neighbor(start, dir);
+            if (next != -1 && m_scanOccupant[next] == SCAN_OPPONENT && !CanBeCaptured(next)){
+                return Candidate(dir, ActionReason.CAPTURE, start, next);
             }
         }
-        return null;
+        return PackedMove.NONE;
     }
 
     /**
      * Attempts to move the piece at the given start location towards an opponent's home location.
-     * @param board The Board object we are playing on.
-     * @param start The Point we want to move on the board.
-     * @return A valid Move towards an opponent's home location if possible. A move to an empty space if not.
+     * @param start The cell we want to move on the board.
+     * @return A candidate move towards an opponent's home location if possible, a move to an empty
+     * space if not. PackedMove.NONE if we are already at a home location or can't move at all.
      */
-    private Move MoveTowardsHomeLocation(Board board, Point start){
+    private int MoveTowardsHomeLocation(int start){
         // Make sure we aren't already at a home location.
-        PlayerColor startColor = board.GetOccupantColor(start);
-        PlayerColor ownerColor = board.GetOwner(start);
-        if (startColor != null && ownerColor != null && startColor != ownerColor){
-            return null;
+        if (m_scanOccupant[start] != SCAN_EMPTY && m_scanOwner[start] != SCAN_EMPTY && m_scanOwner[start] != m_scanOccupant[start]){
+            return PackedMove.NONE;
         }
-        // Loop through every cell on the board to find the home locations.
-        for (int i = 1; i <= board.GetSize(); i++){
-            for (int j = 1; j <= board.GetSize(); j++){
-                Point curPt = new Point(i, j);
-
-                // If this point is owned by the opponent, and we aren't already there, lets try to move to it.
-                if (board.GetOwner(curPt) == PlayerColor.Opponent(m_color) && board.GetOccupantColor(curPt) != m_color){
-                    // First, see if it is possible to reach the point.
-                    if (CanReach(start, curPt)){
-                        // If we can reach the point, return a move towards it.
-                        Move move = MoveTowardsPoint(board, start, curPt);
-                        if (move != null){
-                            return new Move(move.GetLocation(), move.GetDirection(), Action.PLAY, ActionReason.ADVANCE, curPt);
-                        }
-                    }
+        // Loop through the opponent's home locations to find one we can still reach.
+        for (int i = 0; i < m_numHomeTargets; i++){
+            int home = m_homeTargets[i];
+            if (CanReach(start, home)){
+                int move = MoveTowardsPoint(start, home);
+                if (move != PackedMove.NONE){
+                    return PackedMove.WithReason(move, ActionReason.ADVANCE, home);
                 }
             }
         }
         // If we can't get to a home location, return a move to a random board location.
-        return MoveToEmptySpace(board, start);
+        return MoveToEmptySpace(start);
     }
 
     /**
      * Moves the piece to any available free space. Used as a last resort.
-     * @param board The Board object we are playing on.
-     * @param start The Point we want to move on the board.
-     * @return A valid Move to an empty space around the given point. Null if this is not possible.
+     * @param start The cell we want to move on the board.
+     * @return A candidate move to an empty space around the given cell. PackedMove.NONE if this is not possible.
      */
-    private Move MoveToEmptySpace(Board board, Point start){
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
-            if (board.GetOccupant(point.m_endPoint).GetColor() == null){
-                return new Move(start, point.m_dir, Action.PLAY, ActionReason.RANDOM);
+    private int MoveToEmptySpace(int start){
+        for (int dir = 0; dir < 4; dir++){
+            int next = Neighbor(start, dir);
+            if (next != -1 && m_scanOccupant[next] == SCAN_EMPTY){
+                return Candidate(dir, ActionReason.RANDOM, start, -1);
             }
         }
-        return null;
+        return PackedMove.NONE;
     }
 
     /**
-     *  Finds a move advancing the start point towards the end point.
-     * @param board The Board object we are playing on.
-     * @param start The Point we want to move on the board.
-     * @param end The Point on the board that we want to reach.
-     * @return A valid Move towards the end point from the start point. Null if this is not possible.
+     * Finds a move advancing the start cell towards the end cell.
+     * @param start The cell we want to move on the board.
+     * @param end The cell on the board that we want to reach.
+     * @return A candidate move towards the end cell from the start cell. PackedMove.NONE if this is not possible.
      */
-    private Move MoveTowardsPoint(Board board, Point start, Point end){
-        int initHorDist = Math.abs(start.y - end.y);
-        int initVertDist = Math.abs(start.x - end.x);
+    private int MoveTowardsPoint(int start, int end){
+        int endRow = m_cellRow[end];
+        int endCol = m_cellCol[end];
+        int initHorDist = Math.abs(m_cellCol[start] - endCol);
+        int initVertDist = Math.abs(m_cellRow[start] - endRow);
 
-        Vector<SurroundingPoint> points = GetSurroundingPoints(board, start);
-        for (SurroundingPoint point : points){
+        for (int dir = 0; dir < 4; dir++){
             // Make sure we wont get captured by moving here.
-            if (CanBeCaptured(board, point.m_endPoint)){
+            int next = Neighbor(start, dir);
+            if (next == -1 || CanBeCaptured(next)){
                 continue;
             }
 
-            int curHorDist = Math.abs(point.m_endPoint.y - end.y);
-            int curVertDist = Math.abs(point.m_endPoint.x - end.x);
+            int curHorDist = Math.abs(m_cellCol[next] - endCol);
+            int curVertDist = Math.abs(m_cellRow[next] - endRow);
 
             // Figure out how to move towards the point we want to. This differs depending on if
             // we need to move horizontally or vertically.
-            Move curMove = null;
+            boolean closer;
             if (initHorDist <= initVertDist){
-                if (curVertDist < initVertDist && curHorDist <= curVertDist){
-                    curMove = new Move(start, point.m_dir, Action.PLAY, null);
-                }
+                closer = curVertDist < initVertDist && curHorDist <= curVertDist;
             }
             else {
-                if (curHorDist < initHorDist && curVertDist <= curHorDist){
-                    curMove = new Move(start, point.m_dir, Action.PLAY, null);
-                }
+                closer = curHorDist < initHorDist && curVertDist <= curHorDist;
             }
 
             // If nothing is in our way, return this move.
-            if (curMove != null){
-                Piece startOcc = board.GetOccupant(start);
-                Piece endOcc = board.GetOccupant(point.m_endPoint);
-
-                if (endOcc.GetColor() == null){
-                    return curMove;
+            if (closer){
+                if (m_scanOccupant[next] == SCAN_EMPTY){
+                    return Candidate(dir, ActionReason.RANDOM, start, -1);
                 }
-                else if (endOcc.GetColor() != startOcc.GetColor() && startOcc.CanCapture()){
-                    return curMove;
-                }
-                else {
-                    continue;
+                else if (m_scanOccupant[next] != m_scanOccupant[start] && m_scanCapture[start]){
+                    return Candidate(dir, ActionReason.RANDOM, start, -1);
                 }
             }
         }
-        return null;
-    }
-
-    /**
-     * Figures out if the start point can reach the end point, since players can only move diagonally.
-     * @param start The starting Point object in question.
-     * @param end The ending Point object in question.
-     * @return A boolean value. True if the start point can reach the end point. False if not.
-     */
-    private boolean CanReach(Point start, Point end){
-        int pt1 = start.x + start.y;
-        int pt2 = end.x + end.y;
-
-        // If the x and y sum of each point are both even or both odd, the end point can be reached
-        // moving diagonally.
-        if (pt1 % 2 == 0 && pt2 % 2 == 0){
-            return true;
-        }
-        else if (pt1 % 2 != 0 && pt2 % 2 != 0){
-            return true;
-        }
-        else {
-            return false;
-        }
+        return PackedMove.NONE;
     }
 
     /**
-     * Gets a vector of the surrounding Points to a given starting point, with their respective directions.
-     * @param board The Board object we are playing on.
-     * @param start The Point on the board that we are finding neighbors for.
-     * @return A Vector of SurroundingPoint objects describing the neighbors around the given point.
+     * Figures out if the start cell can reach the end cell, since players can only move diagonally.
+     * @param start The starting cell in question.
+     * @param end The ending cell in question.
+     * @return A boolean value. True if the start cell can reach the end cell. False if not.
      */
-    private Vector<SurroundingPoint> GetSurroundingPoints(Board board, Point start){
-        Vector<SurroundingPoint> points = new Vector<>();
-
-        // Loop through the points around the given point.
-        for (int i = -1; i <= 1; i++){
-            for (int j = -1; j <= 1; j++){
-                if (i == 0 || j == 0){
-                    // Skip non-diagonal moves.
-                    continue;
-                }
-                // Decide which direction each move is.
-                MoveDirection dir;
-                if (i == -1 && j == -1){
-                    dir = MoveDirection.NW;
-                }
-                else if (i == -1 && j == 1){
-                    dir = MoveDirection.NE;
-                }
-                else if (i == 1 && j == 1){
-                    dir = MoveDirection.SE;
-                }
-                else {
-                    dir = MoveDirection.SW;
-                }
-
-                int newRow = start.x + i;
-                int newCol = start.y + j;
-                Point mvPt = new Point(newRow, newCol);
-                if (board.IsValidLocation(mvPt)){
-                    points.add(new SurroundingPoint(mvPt, dir));
-                }
-            }
-        }
-        return points;
+    private boolean CanReach(int start, int end){
+        // If the row and column sum of each cell are both even or both odd, the end cell can be
+        // reached moving diagonally.
+        int pt1 = m_cellRow[start] + m_cellCol[start];
+        int pt2 = m_cellRow[end] + m_cellCol[end];
+        return (pt1 % 2) == (pt2 % 2);
     }
 }
@@ -0,0 +1,46 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * A computer player that plays a uniformly random legal move. Used as a baseline opponent when
+ * measuring the strength of the other engines.
+ */
+public class RandomComputer extends Computer {
+
+    /** Buffer the legal moves are generated into. Sized for the last board we played on. */
+    private transient int m_moves[];
+
+    /**
+     * Default constructor. Creates a RandomComputer object with no color or points.
+     */
+    RandomComputer(){
+        this(null, 0);
+    }
+
+    /**
+     * Initialize a player with a color and number of points.
+     * @param color The PlayerColor that this RandomComputer should be.
+     * @param points The number of points that this RandomComputer should start with.
+     */
+    RandomComputer(PlayerColor color, int points){
+        super(color, points);
+    }
+
+    /**
+     * Picks a random legal move, giving every move the same chance.
+     * @param board The Board object holding the current board on which to find a move.
+     * @param rand The RandomSource used to pick the move.
+     * @return The packed move to play, or PackedMove.QUIT if there are no legal moves.
+     */
+    @Override
+    public int FindBestMove(Board board, RandomSource rand){
+        int size = board.GetSize();
+        if (m_moves == null || m_moves.length < size * size * 4){
+            m_moves = new int[size * size * 4];
+        }
+        int numMoves = board.GenerateMoves(m_color, m_moves);
+        if (numMoves == 0){
+            return PackedMove.QUIT;
+        }
+        return PackedMove.WithReason(m_moves[rand.NextInt(numMoves)], ActionReason.RANDOM, -1);
+    }
+}
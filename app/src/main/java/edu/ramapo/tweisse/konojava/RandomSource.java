@@ -0,0 +1,32 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.Serializable;
+
+/**
+ * A source of random numbers for the game. Tournaments, games and the computer AI draw from one of
+ * these instead of creating their own java.util.Random, so that a seeded source makes a whole game
+ * reproducible.
+ */
+public interface RandomSource extends Serializable {
+
+    /**
+     * Gets a random int between 0 (inclusive) and the bound (exclusive).
+     * @param bound The upper bound. Must be positive.
+     * @return A random int in the range [0, bound).
+     */
+    int NextInt(int bound);
+
+    /**
+     * Gets a random long.
+     * @return A random long taken from the full range of values.
+     */
+    long NextLong();
+
+    /**
+     * Creates a new, independent source from this one. The new source shares nothing with this
+     * one, so it can be handed to another game or thread. Splitting the same seeded source the
+     * same number of times always produces the same new sources.
+     * @return A new RandomSource.
+     */
+    RandomSource Split();
+}
@@ -0,0 +1,76 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Converts saved tournaments between the text and binary formats on the desktop. The input may be
+ * in either format, and the output format is picked from the output file name: files ending with
+ * BinarySerializer.EXTENSION are written in binary, anything else as text.
+ *
+ *   SaveConverter IN OUT [IN OUT ...]
+ */
+public class SaveConverter {
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private SaveConverter(){
+    }
+
+    /**
+     * Converts a single save.
+     * @param in The File to read, in either format.
+     * @param out The File to write.
+     * @return A boolean value. True if the save was written.
+     * @exception IOException If a file can't be opened or written.
+     * @exception TournamentParser.ParseException If the input isn't a valid save.
+     */
+    public static boolean Convert(File in, File out) throws IOException, TournamentParser.ParseException {
+        Tournament tourn = Serializer.Load(in);
+
+        FileOutputStream output = new FileOutputStream(out);
+        try {
+            if (out.getName().endsWith(BinarySerializer.EXTENSION)){
+                return BinarySerializer.Write(tourn, output);
+            }
+            Writer writer = new OutputStreamWriter(output, "UTF-8");
+            return Serializer.Write(tourn, writer);
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Converts each pair of files given.
+     * @param args Pairs of input and output file names.
+     * @exception IOException If a file can't be opened or written.
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length == 0 || args.length % 2 != 0){
+            System.err.println("Usage: SaveConverter IN OUT [IN OUT ...]");
+            System.exit(2);
+        }
+        int failed = 0;
+        for (int i = 0; i < args.length; i += 2){
+            File in = new File(args[i]);
+            File out = new File(args[i + 1]);
+            try {
+                if (Convert(in, out)){
+                    System.out.println(in + " -> " + out + " (" + in.length() + " -> " + out.length() + " bytes)");
+                    continue;
+                }
+                System.err.println("Could not write " + out);
+            }
+            catch (TournamentParser.ParseException e){
+                System.err.println("Could not read " + in + ": " + e.getMessage());
+            }
+            failed++;
+        }
+        System.exit(failed == 0 ? 0 : 1);
+    }
+}
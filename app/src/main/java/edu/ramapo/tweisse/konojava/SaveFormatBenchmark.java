@@ -0,0 +1,139 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+/**
+ * Compares the text and binary save formats on size and speed, on the desktop. Builds tournaments
+ * part way through random games of every board size, then times saving and loading each of them
+ * many times in both formats.
+ *
+ *   SaveFormatBenchmark [--positions N] [--iterations N] [--seed N]
+ */
+public class SaveFormatBenchmark {
+
+    /** The board sizes benchmarked. */
+    private static final int SIZES[] = {5, 7, 9};
+
+    /** The most random moves played to reach each position. */
+    private static final int MAX_PLIES = 40;
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private SaveFormatBenchmark(){
+    }
+
+    /**
+     * Builds a tournament part way through a random game.
+     * @param boardSize The size of the board.
+     * @param random The RandomSource used to pick the moves and the number of moves.
+     * @return The Tournament.
+     */
+    static Tournament RandomPosition(int boardSize, RandomSource random){
+        Player p1 = new RandomComputer(PlayerColor.WHITE, 0);
+        Player p2 = new RandomComputer(PlayerColor.BLACK, 0);
+        Game game = new Game(p1, p2, 1, new Board(boardSize));
+        Tournament tourn = new Tournament(PlayerType.HUMAN, random.NextInt(100), PlayerType.COMPUTER, random.NextInt(100),
+                game, 1 + random.NextInt(20), 1, random.Split());
+        int plies = random.NextInt(MAX_PLIES);
+        for (int i = 0; i < plies && !game.IsWinner(); i++){
+            int move = game.PrePlay(PackedMove.NONE);
+            if (!PackedMove.IsPlay(move)){
+                break;
+            }
+            game.Play(move);
+        }
+        return tourn;
+    }
+
+    /**
+     * Saves a tournament in the text format.
+     * @param tourn The Tournament to save.
+     * @return The saved text.
+     */
+    private static String SaveText(Tournament tourn){
+        StringWriter out = new StringWriter(256);
+        Serializer.Write(tourn, out);
+        return out.toString();
+    }
+
+    /**
+     * Runs the benchmark and prints a table of results.
+     * @param args The options described above.
+     */
+    public static void main(String args[]){
+        CommandLine line = new CommandLine(args, "--positions", "--iterations", "--seed");
+        int positions = line.GetInt("--positions", 300);
+        int iterations = line.GetInt("--iterations", 200);
+        long seed = line.GetLong("--seed", 1);
+
+        SplitRandom random = new SplitRandom(seed);
+        System.out.println("size  text bytes  binary bytes  text save  text load  binary save  binary load");
+        long sink = 0;
+        for (int size : SIZES){
+            Tournament tourns[] = new Tournament[positions];
+            String texts[] = new String[positions];
+            byte binaries[][] = new byte[positions][];
+            long textBytes = 0;
+            long binaryBytes = 0;
+            for (int i = 0; i < positions; i++){
+                tourns[i] = RandomPosition(size, random);
+                texts[i] = SaveText(tourns[i]);
+                binaries[i] = BinarySerializer.Encode(tourns[i]);
+                textBytes += texts[i].length();
+                binaryBytes += binaries[i].length;
+
+                // A binary round trip has to keep everything the text format shows.
+                Tournament binary = BinarySerializer.Decode(binaries[i], 0, binaries[i].length);
+                if (binary == null || !SaveText(binary).equals(texts[i])){
+                    throw new IllegalStateException("Formats disagree on position " + i + " of size " + size + ".");
+                }
+            }
+
+            // Run everything once untimed, so the timed runs measure compiled code.
+            long times[] = new long[4];
+            for (int pass = 0; pass < 2; pass++){
+                long start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += SaveText(tourns[i]).length();
+                    }
+                }
+                times[0] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += Serializer.Read(new BufferedReader(new StringReader(texts[i]))).GetRoundNum();
+                    }
+                }
+                times[1] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += BinarySerializer.Encode(tourns[i]).length;
+                    }
+                }
+                times[2] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int it = 0; it < iterations; it++){
+                    for (int i = 0; i < positions; i++){
+                        sink += BinarySerializer.Decode(binaries[i], 0, binaries[i].length).GetRoundNum();
+                    }
+                }
+                times[3] = System.nanoTime() - start;
+            }
+
+            long ops = (long)iterations * positions;
+            System.out.println(String.format("%4d  %10.1f  %12.1f  %7.2fus  %7.2fus  %9.2fus  %9.2fus", size,
+                    (double)textBytes / positions, (double)binaryBytes / positions,
+                    times[0] / 1000.0 / ops, times[1] / 1000.0 / ops, times[2] / 1000.0 / ops, times[3] / 1000.0 / ops));
+        }
+        // Printed so that the timed work can't be optimized away.
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,192 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Writes saves on a single background thread, so that saving never holds up the screen. The save is
+ * encoded on the caller's thread, so the tournament can keep changing straight after, and written
+ * to a temporary file that is synced and renamed over the old file, so a file is never left half
+ * written. If a file is saved again before an earlier save of it has started, only the newest data
+ * is written and every caller is told the result.
+ *
+ * The queue is also an Executor, so that other file work, like the move journal, can run in order
+ * with the saves on the same thread.
+ */
+public class SaveQueue implements Executor {
+
+    /**
+     * Receives the result of a save. Called through the delivery Executor.
+     */
+    public interface Callback {
+        /**
+         * Called once the save has been written, or has failed.
+         * @param file The File that was saved.
+         * @param success True if the file was written and synced.
+         */
+        void OnSaved(File file, boolean success);
+    }
+
+    /** A save waiting to be written, with everyone waiting for it. */
+    private static class PendingSave {
+        /** The File to write. */
+        File m_file;
+
+        /** The newest data to write. */
+        byte m_data[];
+
+        /** The Callbacks to tell, in the order they asked. */
+        ArrayList<Callback> m_callbacks = new ArrayList<>();
+    }
+
+    /** The suffix of the temporary file a save is written to before it is renamed. */
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    /** Writes the files. A single thread, so that writes never overlap and happen in order. */
+    private ExecutorService m_executor;
+
+    /** Runs the callbacks, on the thread that owns the screen. */
+    private Executor m_delivery;
+
+    /** The saves that haven't started yet, by path. Guarded by itself. */
+    private final HashMap<String, PendingSave> m_pending = new HashMap<>();
+
+    /**
+     * Creates a queue with its own writer thread.
+     * @param delivery The Executor that results are handed to.
+     */
+    public SaveQueue(Executor delivery){
+        m_delivery = delivery;
+        m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable){
+                Thread thread = new Thread(runnable, "KonoSave");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues a tournament to be saved. The format is chosen by the file name, as in Serializer.
+     * @param tourn The Tournament to save. It is encoded before this returns.
+     * @param file The File to save to.
+     * @param callback The Callback told the result, or null if nobody needs to know.
+     */
+    public void Save(Tournament tourn, File file, Callback callback){
+        Save(Serializer.Encode(tourn, file), file, callback);
+    }
+
+    /**
+     * Queues data to be saved to a file, replacing any data still waiting to be written to it.
+     * @param data The bytes to write. Not copied, so they must not be changed afterwards.
+     * @param file The File to save to.
+     * @param callback The Callback told the result, or null if nobody needs to know.
+     */
+    public void Save(byte data[], File file, Callback callback){
+        final String path = file.getAbsolutePath();
+        synchronized (m_pending){
+            PendingSave pending = m_pending.get(path);
+            if (pending != null){
+                // The earlier save hasn't started, so it can just write this data instead.
+                pending.m_data = data;
+                if (callback != null){
+                    pending.m_callbacks.add(callback);
+                }
+                return;
+            }
+            pending = new PendingSave();
+            pending.m_file = file;
+            pending.m_data = data;
+            if (callback != null){
+                pending.m_callbacks.add(callback);
+            }
+            m_pending.put(path, pending);
+        }
+        m_executor.execute(new Runnable() {
+            @Override
+            public void run(){
+                Write(path);
+            }
+        });
+    }
+
+    /**
+     * Runs other file work on the writer thread, after everything queued before it.
+     * @param runnable The Runnable to run.
+     */
+    @Override
+    public void execute(Runnable runnable){
+        m_executor.execute(runnable);
+    }
+
+    /**
+     * Stops taking work. Everything already queued is still written.
+     */
+    public void Shutdown(){
+        m_executor.shutdown();
+    }
+
+    /**
+     * Writes a file so that it is never left half written: the data goes to a temporary file, which
+     * is synced and then renamed over the file.
+     * @param file The File to write.
+     * @param data The bytes to write.
+     * @param sync True to force the data out to the device before renaming.
+     * @return A boolean value. True if the file was written.
+     */
+    public static boolean WriteAtomically(File file, byte data[], boolean sync){
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(data);
+                if (sync){
+                    out.getFD().sync();
+                }
+            }
+            finally {
+                out.close();
+            }
+        }
+        catch (IOException e){
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(file)){
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the save waiting for a path, and tells everyone waiting for it. Run on the writer thread.
+     * @param path The absolute path of the file.
+     */
+    private void Write(String path){
+        final PendingSave pending;
+        synchronized (m_pending){
+            pending = m_pending.remove(path);
+        }
+        final boolean success = WriteAtomically(pending.m_file, pending.m_data, true);
+        if (pending.m_callbacks.isEmpty()){
+            return;
+        }
+        m_delivery.execute(new Runnable() {
+            @Override
+            public void run(){
+                for (Callback callback : pending.m_callbacks){
+                    callback.OnSaved(pending.m_file, success);
+                }
+            }
+        });
+    }
+}
@@ -18,13 +18,32 @@ import java.io.File;
  */
 public class SaveTournamentActivity extends AppCompatActivity {
 
+    /** Writes the file off the main thread. Shared by every activity. */
+    private SaveQueue m_saveQueue;
+
+    /** True while a save is being written, so that pressing save again does nothing. */
+    private boolean m_saving;
+
+    /** True once the activity is destroyed, after which a save's result is no longer shown. */
+    private boolean m_destroyed;
+
     /**
-     * No activity specific setup here.
+     * Gets the queue that saves are written through.
      */
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_save_tournament);
+        m_saveQueue = KonoApplication.GetSaveQueue(this);
+    }
+
+    /**
+     * Stops showing the result of a save still being written. The save itself still finishes.
+     */
+    @Override
+    protected void onDestroy(){
+        m_destroyed = true;
+        super.onDestroy();
     }
 
     /**
@@ -32,6 +51,9 @@ public class SaveTournamentActivity extends AppCompatActivity {
      * @param view The Button object reference for the save button.
      */
     public void SaveGame(View view){
+        if (m_saving){
+            return;
+        }
 
         // Hide the keyboard.
         View kb = this.getCurrentFocus();
@@ -41,7 +63,7 @@ public class SaveTournamentActivity extends AppCompatActivity {
         }
 
         // Retrieve the tournament that was passed to this activity.
-        Tournament tourn = (Tournament)getIntent().getSerializableExtra("tournament");
+        Tournament tourn = TournamentHandoff.Get(getIntent());
 
         // Get the sd card directory.
         File filepath = Environment.getExternalStorageDirectory();
@@ -52,11 +74,31 @@ public class SaveTournamentActivity extends AppCompatActivity {
             filepath = new File(filepath, outFileInput.getText().toString());
         }
 
-        // Save the data to the chosen path.
-        boolean saveResult = Serializer.SerializeToFile(tourn, filepath, this);
+        // Make sure we still have write permissions, then save the data to the chosen path in the background.
+        Serializer.VerifyStoragePermissions(this);
+        m_saving = true;
+        m_saveQueue.Save(tourn, filepath, new SaveQueue.Callback() {
+            @Override
+            public void OnSaved(File file, boolean success){
+                m_saving = false;
 
-        // Tell the user the result of the save and exit the application.
-        DisplaySaveResultMessage(saveResult, filepath.getAbsolutePath().toString());
+                // Once the tournament is safely saved, the automatic save isn't needed.
+                if (success){
+                    final File dir = getFilesDir();
+                    m_saveQueue.execute(new Runnable() {
+                        @Override
+                        public void run(){
+                            MoveJournal.Delete(dir);
+                        }
+                    });
+                }
+
+                // Tell the user the result of the save and exit the application, unless they already left.
+                if (!m_destroyed){
+                    DisplaySaveResultMessage(success, file.getAbsolutePath());
+                }
+            }
+        });
     }
 
     /**
@@ -0,0 +1,679 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * A game tree search for finding moves. Uses iterative deepening alpha-beta with a transposition
+ * table keyed by Zobrist hash, and a quiescence search over captures at the leaves. Scores are
+ * the difference between the two players' points, from the point of view of the player to move,
+ * with WIN_SCORE added for a finished game the player wins. A search can be limited by depth,
+ * nodes and time, and can be stopped from another thread.
+ */
+public class Search {
+
+    /** The score of a won game, before the point difference is added. */
+    public static final int WIN_SCORE = 100000;
+
+    /** The deepest a search can go, including quiescence. */
+    public static final int MAX_PLY = 128;
+
+    /** The number of bits of the hash used to index the default transposition table. */
+    public static final int DEFAULT_TABLE_BITS = 18;
+
+    /** A score outside of any real score. */
+    private static final int INFINITY = WIN_SCORE * 2;
+
+    /** The points a player loses for quitting, which is what a player with no moves does. */
+    private static final int QUIT_PENALTY = 5;
+
+    /** How much a point is worth compared to a piece advancing a row, while the game is not over. */
+    private static final int POINT_WEIGHT = 8;
+
+    /** How often the limits are checked, as a mask of the node count. */
+    private static final int CHECK_MASK = 1023;
+
+    /** The kinds of scores held in the transposition table. */
+    private static final byte BOUND_EXACT = 0;
+    private static final byte BOUND_LOWER = 1;
+    private static final byte BOUND_UPPER = 2;
+
+    /** Mixed into the hash when black is to move. */
+    private static final long BLACK_TO_MOVE = 0x6A09E667F3BCC909L;
+
+    /**
+     * Receives a report after every completed iteration of a search.
+     */
+    public interface Listener {
+        /**
+         * Called after every depth is searched.
+         * @param depth The depth that was just completed.
+         * @param score The score of the best move, from the point of view of the player to move.
+         * @param nodes The number of positions searched so far.
+         * @param nanos The time taken so far, in nanoseconds.
+         * @param pv The principal variation. Only the first pvLength moves are used.
+         * @param pvLength The number of moves in the principal variation.
+         */
+        void OnInfo(int depth, int score, long nodes, long nanos, int pv[], int pvLength);
+    }
+
+    /** The transposition table, one entry per index. */
+    private long m_tableKeys[];
+    private int m_tableMoves[];
+    private int m_tableScores[];
+    private byte m_tableDepths[];
+    private byte m_tableBounds[];
+    private int m_tableMask;
+
+    /** The board being searched. Moves are applied and undone on it as the search goes. */
+    private Board m_board;
+
+    /** The hash of m_board, including the player to move. */
+    private long m_hash;
+
+    /** The moves generated at each ply. */
+    private int m_moves[][];
+
+    /** The cells of one color's pieces, filled in by Evaluate(). */
+    private int m_pieces[];
+
+    /** The principal variation found at each ply, and its length. */
+    private int m_pv[][] = new int[MAX_PLY][MAX_PLY];
+    private int m_pvLength[] = new int[MAX_PLY];
+
+    /** The moves applied by TablePv(), as returned by Board.Apply(), and the hash change of each. */
+    private int m_tableUndos[] = new int[MAX_PLY];
+    private long m_tableChanges[] = new long[MAX_PLY];
+
+    /** Filled in by Evaluate(). True if the game is over in the evaluated position. */
+    private boolean m_terminal;
+
+    /** The limits of the current search. */
+    private long m_maxNodes;
+    private volatile long m_deadline;
+    private volatile boolean m_stopRequested;
+
+    /** Set once a limit is hit, so that every ply unwinds without using its score. */
+    private boolean m_aborted;
+
+    /** The results of the current search. */
+    private long m_nodes;
+    private int m_bestMove;
+    private int m_bestScore;
+    private int m_completedDepth;
+    private int m_bestPv[] = new int[MAX_PLY];
+    private int m_bestPvLength;
+
+    /** Counters for the statistics of the current search. Only touched by the searching thread. */
+    private long m_quiescenceNodes;
+    private long m_tableProbes;
+    private long m_tableHits;
+    private long m_cutoffs;
+    private long m_firstMoveCutoffs;
+    private int m_maxPly;
+
+    /** The statistics of the last finished search. Replaced, never changed, so any thread can read it. */
+    private volatile SearchStats m_stats = new SearchStats();
+
+    /**
+     * Creates a search with the default transposition table size.
+     */
+    public Search(){
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Creates a search with a given transposition table size.
+     * @param tableBits The table holds 2 to the power of tableBits entries.
+     */
+    public Search(int tableBits){
+        int size = 1 << tableBits;
+        m_tableKeys = new long[size];
+        m_tableMoves = new int[size];
+        m_tableScores = new int[size];
+        m_tableDepths = new byte[size];
+        m_tableBounds = new byte[size];
+        m_tableMask = size - 1;
+    }
+
+    /**
+     * Forgets everything learned by earlier searches. Used when starting a new game.
+     */
+    public void Clear(){
+        for (int i = 0; i < m_tableKeys.length; i++){
+            m_tableKeys[i] = 0;
+            m_tableMoves[i] = PackedMove.NONE;
+            m_tableDepths[i] = 0;
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from any thread.
+     */
+    public void Stop(){
+        m_stopRequested = true;
+    }
+
+    /**
+     * Forgets an earlier Stop(), so that the next search runs. Go() doesn't do this itself, so that
+     * a Stop() sent just before a search starts is never lost.
+     */
+    public void ClearStop(){
+        m_stopRequested = false;
+    }
+
+    /**
+     * Sets when the next search started by GoUntilDeadline() has to stop, or changes when a running
+     * search has to stop. Safe to call from any thread.
+     * @param deadline The System.nanoTime() at which to stop, or Long.MAX_VALUE for no time limit.
+     */
+    public void SetDeadline(long deadline){
+        m_deadline = deadline;
+    }
+
+    /**
+     * Searches for the best move. The board is changed during the search, but is back to how it
+     * was when this returns.
+     * @param board The Board to search.
+     * @param color The PlayerColor of the player to move.
+     * @param maxDepth The deepest iteration to search, not counting quiescence.
+     * @param maxNodes The most positions to search, or 0 for no limit.
+     * @param maxMillis The most time to take in milliseconds, or 0 for no limit.
+     * @param listener The Listener told about every completed iteration. May be null.
+     * @return The packed best move, or PackedMove.QUIT if the player has no moves.
+     */
+    public int Go(Board board, PlayerColor color, int maxDepth, long maxNodes, long maxMillis, Listener listener){
+        SetDeadline(maxMillis > 0 ? System.nanoTime() + maxMillis * 1000000L : Long.MAX_VALUE);
+        return GoUntilDeadline(board, color, maxDepth, maxNodes, listener);
+    }
+
+    /**
+     * Searches for the best move until the deadline last given to SetDeadline(). The search never
+     * sets the deadline itself, so another thread can set it before the search starts and change it
+     * while it runs without either change being lost.
+     * @param board The Board to search.
+     * @param color The PlayerColor of the player to move.
+     * @param maxDepth The deepest iteration to search, not counting quiescence.
+     * @param maxNodes The most positions to search, or 0 for no limit.
+     * @param listener The Listener told about every completed iteration. May be null.
+     * @return The packed best move, or PackedMove.QUIT if the player has no moves.
+     */
+    public int GoUntilDeadline(Board board, PlayerColor color, int maxDepth, long maxNodes, Listener listener){
+        long start = System.nanoTime();
+        m_board = board;
+        m_hash = board.GetHash() ^ (color == PlayerColor.BLACK ? BLACK_TO_MOVE : 0);
+        m_maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        m_aborted = false;
+        m_nodes = 0;
+        m_quiescenceNodes = 0;
+        m_tableProbes = 0;
+        m_tableHits = 0;
+        m_cutoffs = 0;
+        m_firstMoveCutoffs = 0;
+        m_maxPly = 0;
+        m_completedDepth = 0;
+        m_bestScore = 0;
+        m_bestPvLength = 0;
+        int maxMoves = 4 * (board.GetSize() + 2);
+        if (m_moves == null || m_moves[0].length < maxMoves){
+            m_moves = new int[MAX_PLY][maxMoves];
+        }
+        if (m_pieces == null || m_pieces.length < board.GetSize() * board.GetSize()){
+            m_pieces = new int[board.GetSize() * board.GetSize()];
+        }
+
+        // With no moves the player can only quit.
+        int numMoves = board.GenerateMoves(color, m_moves[0]);
+        SearchStats stats = new SearchStats();
+        if (numMoves == 0){
+            m_bestMove = PackedMove.QUIT;
+            FinishStats(stats, start);
+            return m_bestMove;
+        }
+        m_bestMove = m_moves[0][0];
+
+        maxDepth = Math.min(maxDepth, MAX_PLY / 2);
+        for (int depth = 1; depth <= maxDepth; depth++){
+            long iterationStart = System.nanoTime();
+            long iterationNodes = m_nodes;
+            int score = Negamax(depth, -INFINITY, INFINITY, 0, color);
+            if (m_aborted){
+                // The last iteration searched the previous best move first, so any move it settled on
+                // before stopping is at least as good.
+                if (m_pvLength[0] > 0){
+                    m_bestMove = m_pv[0][0];
+                }
+                break;
+            }
+            stats.AddIteration(depth, m_nodes - iterationNodes, System.nanoTime() - iterationStart);
+            m_completedDepth = depth;
+            m_bestScore = score;
+            m_bestMove = m_pv[0][0];
+            m_bestPvLength = m_pvLength[0];
+            System.arraycopy(m_pv[0], 0, m_bestPv, 0, m_bestPvLength);
+            if (listener != null){
+                listener.OnInfo(depth, score, m_nodes, System.nanoTime() - start, m_bestPv, m_bestPvLength);
+            }
+            // Nothing deeper can change a game that is already decided.
+            if (Math.abs(score) > WIN_SCORE / 2){
+                break;
+            }
+        }
+        FinishStats(stats, start);
+        return m_bestMove;
+    }
+
+    /**
+     * Copies the counters of the search that just ended into its statistics, and makes them the
+     * statistics returned by GetStats().
+     * @param stats The SearchStats holding the iterations of the search.
+     * @param start The System.nanoTime() at which the search started.
+     */
+    private void FinishStats(SearchStats stats, long start){
+        stats.SetTotals(m_nodes, m_quiescenceNodes, System.nanoTime() - start, m_tableProbes, m_tableHits,
+                m_cutoffs, m_firstMoveCutoffs, m_maxPly);
+        m_stats = stats;
+    }
+
+    /**
+     * Gets the statistics of the last finished search. Safe to call from any thread.
+     * @return The SearchStats of the last search. Empty if nothing has been searched yet.
+     */
+    public SearchStats GetStats(){
+        return m_stats;
+    }
+
+    /**
+     * Gets the score of the best move found by the last search.
+     * @return An integer holding the score, from the point of view of the player to move.
+     */
+    public int GetScore(){
+        return m_bestScore;
+    }
+
+    /**
+     * Gets the number of positions searched by the last search.
+     * @return A long holding the number of nodes.
+     */
+    public long GetNodes(){
+        return m_nodes;
+    }
+
+    /**
+     * Gets the deepest iteration the last search completed.
+     * @return An integer holding the depth.
+     */
+    public int GetDepth(){
+        return m_completedDepth;
+    }
+
+    /**
+     * Gets the move the last search expects the opponent to reply with.
+     * @return The packed move, or PackedMove.NONE if there is none.
+     */
+    public int GetPonderMove(){
+        return m_bestPvLength > 1 ? m_bestPv[1] : PackedMove.NONE;
+    }
+
+    /**
+     * Searches a position to a given depth.
+     * @param depth The number of plies left to search before quiescence.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of.
+     * @param ply The number of moves played since the root.
+     * @param color The PlayerColor of the player to move.
+     * @return The score of the position, from the point of view of the player to move.
+     */
+    private int Negamax(int depth, int alpha, int beta, int ply, PlayerColor color){
+        m_pvLength[ply] = 0;
+        if (ply > m_maxPly){
+            m_maxPly = ply;
+        }
+        if ((++m_nodes & CHECK_MASK) == 0){
+            CheckLimits();
+        }
+        if (m_aborted){
+            return 0;
+        }
+
+        int eval = Evaluate(color, ply, 0);
+        if (m_terminal){
+            return eval;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1){
+            return Quiesce(alpha, beta, ply, color);
+        }
+
+        // Use what an earlier search learned about this position.
+        int index = (int)m_hash & m_tableMask;
+        int tableMove = PackedMove.NONE;
+        m_tableProbes++;
+        if (m_tableKeys[index] == m_hash){
+            m_tableHits++;
+            tableMove = m_tableMoves[index];
+            if (ply > 0 && m_tableDepths[index] >= depth){
+                int score = FromTable(m_tableScores[index], ply);
+                byte bound = m_tableBounds[index];
+                if (bound == BOUND_EXACT && score > alpha && score < beta){
+                    // The score can end up in the principal variation, so it is only used if the
+                    // table still holds a line as long as the search below would have found.
+                    if (TablePv(ply, color, m_tableDepths[index]) >= depth){
+                        return score;
+                    }
+                    m_pvLength[ply] = 0;
+                }
+                else if (bound == BOUND_EXACT || (bound == BOUND_LOWER && score >= beta) || (bound == BOUND_UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+
+        int moves[] = m_moves[ply];
+        int numMoves = m_board.GenerateMoves(color, moves);
+        if (numMoves == 0){
+            // A player with no moves has to quit.
+            return QuitScore(color, ply);
+        }
+        OrderMoves(moves, numMoves, tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        PlayerColor opponent = PlayerColor.Opponent(color);
+        for (int i = 0; i < numMoves; i++){
+            int undo = m_board.Apply(moves[i]);
+            long change = m_board.HashChange(undo) ^ BLACK_TO_MOVE;
+            m_hash ^= change;
+            int score = -Negamax(depth - 1, -beta, -alpha, ply + 1, opponent);
+            m_hash ^= change;
+            m_board.Undo(undo);
+            if (m_aborted){
+                return 0;
+            }
+            if (score > bestScore){
+                bestScore = score;
+                bestMove = moves[i];
+                if (score > alpha){
+                    alpha = score;
+                    UpdatePv(ply, bestMove);
+                }
+            }
+            if (alpha >= beta){
+                m_cutoffs++;
+                if (i == 0){
+                    m_firstMoveCutoffs++;
+                }
+                break;
+            }
+        }
+
+        // Remember what we found for later searches.
+        byte bound = bestScore <= originalAlpha ? BOUND_UPPER : bestScore >= beta ? BOUND_LOWER : BOUND_EXACT;
+        m_tableKeys[index] = m_hash;
+        m_tableMoves[index] = bestMove;
+        m_tableScores[index] = ToTable(bestScore, ply);
+        m_tableDepths[index] = (byte)depth;
+        m_tableBounds[index] = bound;
+        return bestScore;
+    }
+
+    /**
+     * Searches only captures until the position is quiet, so that a search never stops in the
+     * middle of an exchange of pieces.
+     * @param alpha The score the player to move is already sure of.
+     * @param beta The score the opponent is already sure of.
+     * @param ply The number of moves played since the root.
+     * @param color The PlayerColor of the player to move.
+     * @return The score of the position, from the point of view of the player to move.
+     */
+    private int Quiesce(int alpha, int beta, int ply, PlayerColor color){
+        m_pvLength[ply] = 0;
+        m_quiescenceNodes++;
+        if (ply > m_maxPly){
+            m_maxPly = ply;
+        }
+        if ((++m_nodes & CHECK_MASK) == 0){
+            CheckLimits();
+        }
+        if (m_aborted){
+            return 0;
+        }
+
+        // The player can always choose not to capture.
+        int standPat = Evaluate(color, ply, 0);
+        if (m_terminal || ply >= MAX_PLY - 1){
+            return standPat;
+        }
+        if (standPat >= beta){
+            return standPat;
+        }
+        if (standPat > alpha){
+            alpha = standPat;
+        }
+
+        int moves[] = m_moves[ply];
+        int numMoves = m_board.GenerateMoves(color, moves);
+        PlayerColor opponent = PlayerColor.Opponent(color);
+        for (int i = 0; i < numMoves; i++){
+            if (!PackedMove.IsCapture(moves[i])){
+                continue;
+            }
+            int undo = m_board.Apply(moves[i]);
+            long change = m_board.HashChange(undo) ^ BLACK_TO_MOVE;
+            m_hash ^= change;
+            int score = -Quiesce(-beta, -alpha, ply + 1, opponent);
+            m_hash ^= change;
+            m_board.Undo(undo);
+            if (m_aborted){
+                return 0;
+            }
+            if (score > alpha){
+                alpha = score;
+                UpdatePv(ply, moves[i]);
+                if (alpha >= beta){
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Scores the current position in a single pass over the pieces, and sets m_terminal if the game
+     * is over. A finished game is scored the way a tournament scores it, on the points of each player.
+     * Until then, points are weighted by POINT_WEIGHT and each row a piece has advanced towards the
+     * opponent's home is worth one more, so that pieces keep heading for home.
+     * @param color The PlayerColor of the player to move.
+     * @param ply The number of moves played since the root. Quicker wins score higher.
+     * @param penalty Points taken off the player to move, for quitting.
+     * @return The score, from the point of view of the player to move.
+     */
+    private int Evaluate(PlayerColor color, int ply, int penalty){
+        int whitePoints = 0;
+        int blackPoints = 0;
+        int whitePieces = 0;
+        int blackPieces = 0;
+        boolean whiteHome = true;
+        boolean blackHome = true;
+        int advance = 0;
+        int size = m_board.GetSize();
+        whitePieces = m_board.GetPieces(PlayerColor.WHITE, m_pieces);
+        for (int i = 0; i < whitePieces; i++){
+            int cell = m_pieces[i];
+            if (m_board.GetOwner(cell) == PlayerColor.BLACK){
+                whitePoints += m_board.GetValue(cell);
+            }
+            else {
+                whiteHome = false;
+            }
+            // White starts at the top and heads down.
+            advance += cell / size;
+        }
+        blackPieces = m_board.GetPieces(PlayerColor.BLACK, m_pieces);
+        for (int i = 0; i < blackPieces; i++){
+            int cell = m_pieces[i];
+            if (m_board.GetOwner(cell) == PlayerColor.WHITE){
+                blackPoints += m_board.GetValue(cell);
+            }
+            else {
+                blackHome = false;
+            }
+            advance -= size - 1 - cell / size;
+        }
+        // Add the points for capturing opponents.
+        int numPieces = m_board.GetStartingPieces();
+        whitePoints += 5 * (numPieces - blackPieces);
+        blackPoints += 5 * (numPieces - whitePieces);
+
+        int diff = color == PlayerColor.WHITE ? whitePoints - blackPoints : blackPoints - whitePoints;
+        diff -= penalty;
+        m_terminal = penalty > 0 || whitePieces == 0 || blackPieces == 0 || whiteHome || blackHome;
+        if (!m_terminal){
+            return diff * POINT_WEIGHT + (color == PlayerColor.WHITE ? advance : -advance);
+        }
+        if (diff == 0){
+            return 0;
+        }
+        return diff > 0 ? WIN_SCORE - ply + diff : -WIN_SCORE + ply + diff;
+    }
+
+    /**
+     * Scores the position of a player with no moves, who has to quit the game.
+     * @param color The PlayerColor of the player to move.
+     * @param ply The number of moves played since the root.
+     * @return The score, from the point of view of the player to move.
+     */
+    private int QuitScore(PlayerColor color, int ply){
+        return Evaluate(color, ply, QUIT_PENALTY);
+    }
+
+    /**
+     * Moves the table move to the front, followed by the captures, keeping the rest in board order.
+     * @param moves The moves to order.
+     * @param numMoves The number of moves in the array.
+     * @param tableMove The best move found by an earlier search, or PackedMove.NONE.
+     */
+    private static void OrderMoves(int moves[], int numMoves, int tableMove){
+        int front = 0;
+        if (tableMove != PackedMove.NONE){
+            for (int i = 0; i < numMoves; i++){
+                if (moves[i] == tableMove){
+                    moves[i] = moves[0];
+                    moves[0] = tableMove;
+                    front = 1;
+                    break;
+                }
+            }
+        }
+        for (int i = front; i < numMoves; i++){
+            if (PackedMove.IsCapture(moves[i])){
+                int capture = moves[i];
+                System.arraycopy(moves, front, moves, front + 1, i - front);
+                moves[front++] = capture;
+            }
+        }
+    }
+
+    /**
+     * Makes a move followed by the principal variation of the next ply the principal variation of this ply.
+     * @param ply The ply the move was found at.
+     * @param move The packed best move at this ply.
+     */
+    private void UpdatePv(int ply, int move){
+        m_pv[ply][0] = move;
+        int childLength = ply + 1 < MAX_PLY ? m_pvLength[ply + 1] : 0;
+        if (childLength > 0){
+            System.arraycopy(m_pv[ply + 1], 0, m_pv[ply], 1, Math.min(childLength, MAX_PLY - 1));
+        }
+        m_pvLength[ply] = Math.min(childLength + 1, MAX_PLY);
+    }
+
+    /**
+     * Fills in the principal variation of a position whose score was taken from the table, by
+     * following the best move the table holds for each position along it. The line ends at the
+     * first position the table doesn't hold, or whose move isn't legal there.
+     * @param ply The ply of the position.
+     * @param color The PlayerColor of the player to move.
+     * @param maxLength The most moves to follow. The depth the position was searched to.
+     * @return An integer holding the number of moves in the principal variation.
+     */
+    private int TablePv(int ply, PlayerColor color, int maxLength){
+        int length = 0;
+        int index = (int)m_hash & m_tableMask;
+        while (length < maxLength && ply + length < MAX_PLY - 1 && m_tableKeys[index] == m_hash){
+            int move = m_tableMoves[index];
+            if (!IsLegal(move, color, m_moves[ply + length])){
+                break;
+            }
+            m_tableUndos[length] = m_board.Apply(move);
+            m_tableChanges[length] = m_board.HashChange(m_tableUndos[length]) ^ BLACK_TO_MOVE;
+            m_hash ^= m_tableChanges[length];
+            m_pv[ply][length++] = move;
+            color = PlayerColor.Opponent(color);
+            index = (int)m_hash & m_tableMask;
+        }
+        m_pvLength[ply] = length;
+
+        // Put the board back the way it was.
+        for (int i = length - 1; i >= 0; i--){
+            m_hash ^= m_tableChanges[i];
+            m_board.Undo(m_tableUndos[i]);
+        }
+        return length;
+    }
+
+    /**
+     * Finds if a move can be played in the current position.
+     * @param move The packed move.
+     * @param color The PlayerColor of the player to move.
+     * @param moves An array to generate the moves into. Its contents are lost.
+     * @return A boolean value. True if the move is legal.
+     */
+    private boolean IsLegal(int move, PlayerColor color, int moves[]){
+        int numMoves = m_board.GenerateMoves(color, moves);
+        for (int i = 0; i < numMoves; i++){
+            if (moves[i] == move){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the search if a node, time or stop limit has been reached.
+     */
+    private void CheckLimits(){
+        if (m_stopRequested || m_nodes >= m_maxNodes || System.nanoTime() >= m_deadline){
+            m_aborted = true;
+        }
+    }
+
+    /**
+     * Converts a score for storing in the transposition table, so that it doesn't depend on the ply.
+     * @param score The score at the given ply.
+     * @param ply The ply the score was found at.
+     * @return The score to store.
+     */
+    private static int ToTable(int score, int ply){
+        if (score > WIN_SCORE / 2){
+            return score + ply;
+        }
+        if (score < -WIN_SCORE / 2){
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a score read from the transposition table back to a score at the given ply.
+     * @param score The stored score.
+     * @param ply The ply the score is used at.
+     * @return The score at the given ply.
+     */
+    private static int FromTable(int score, int ply){
+        if (score > WIN_SCORE / 2){
+            return score - ply;
+        }
+        if (score < -WIN_SCORE / 2){
+            return score + ply;
+        }
+        return score;
+    }
+}
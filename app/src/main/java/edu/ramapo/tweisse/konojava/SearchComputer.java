@@ -0,0 +1,113 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * A computer player that picks its moves with a game tree Search instead of the heuristics in
+ * Player. Searches to a fixed depth, so that its moves don't depend on how fast the machine is.
+ */
+public class SearchComputer extends Computer {
+
+    /** The default depth searched for each move. */
+    public static final int DEFAULT_DEPTH = 4;
+
+    /** The number of bits of the transposition table. Smaller than an engine's, since there is one per player. */
+    private static final int TABLE_BITS = 16;
+
+    /** The depth searched for each move. */
+    private int m_depth;
+
+    /** The search used to find moves. Created the first time it is needed. */
+    private transient Search m_search;
+
+    /** A copy of the board that the search plays moves on. */
+    private transient Board m_searchBoard;
+
+    /** Told about every completed depth. May be null. */
+    private transient Search.Listener m_listener;
+
+    /**
+     * Default constructor. Creates a SearchComputer object with no color or points.
+     */
+    SearchComputer(){
+        this(null, 0, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Initialize a player with a color, number of points and search depth.
+     * @param color The PlayerColor that this SearchComputer should be.
+     * @param points The number of points that this SearchComputer should start with.
+     * @param depth The depth to search for each move.
+     */
+    SearchComputer(PlayerColor color, int points, int depth){
+        super(color, points);
+        m_depth = depth;
+    }
+
+    /**
+     * Sets the listener told about every depth the search completes.
+     * @param listener The Search.Listener to report to, or null to stop reporting.
+     */
+    @Override
+    public void SetProgressListener(Search.Listener listener){
+        m_listener = listener;
+    }
+
+    /**
+     * Stops a running search. FindBestMove() then returns the best move of the deepest search
+     * completed so far.
+     */
+    @Override
+    public void StopThinking(){
+        GetSearch().Stop();
+    }
+
+    /**
+     * Lets the next search run after StopThinking().
+     */
+    @Override
+    public void ClearStop(){
+        GetSearch().ClearStop();
+    }
+
+    /**
+     * Gets the statistics of the search behind the last move found.
+     * @return The SearchStats of the last search. Empty if nothing has been searched yet.
+     */
+    @Override
+    public SearchStats GetSearchStats(){
+        return GetSearch().GetStats();
+    }
+
+    /**
+     * Finds the best move with a game tree search.
+     * @param board The Board object holding the current board on which to find the best move.
+     * @param rand Not used. The search always picks the same move for the same board.
+     * @return The packed best move, or PackedMove.QUIT if there are no legal moves.
+     */
+    @Override
+    public int FindBestMove(Board board, RandomSource rand){
+        Search search = GetSearch();
+        if (m_searchBoard == null || m_searchBoard.GetSize() != board.GetSize()){
+            m_searchBoard = new Board(board);
+        }
+        else {
+            m_searchBoard.CopyFrom(board);
+        }
+        int move = search.Go(m_searchBoard, m_color, m_depth, 0, 0, m_listener);
+        if (!PackedMove.IsPlay(move)){
+            return move;
+        }
+        ActionReason reason = PackedMove.IsCapture(move) ? ActionReason.CAPTURE : ActionReason.ADVANCE;
+        return PackedMove.WithReason(move, reason, -1);
+    }
+
+    /**
+     * Gets the search, creating it the first time it is needed.
+     * @return The Search used to find moves.
+     */
+    private synchronized Search GetSearch(){
+        if (m_search == null){
+            m_search = new Search(TABLE_BITS);
+        }
+        return m_search;
+    }
+}
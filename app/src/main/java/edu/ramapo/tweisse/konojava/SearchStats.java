@@ -0,0 +1,253 @@
+package edu.ramapo.tweisse.konojava;
+
+/**
+ * Statistics about what a Search did: how many positions it visited, how well the transposition
+ * table and move ordering worked, how deep it went and how long each iteration took. A Search
+ * counts in plain fields of its own, which only its searching thread touches, and copies them into
+ * a new SearchStats once the search ends, so reading the statistics never slows the search down.
+ *
+ * Statistics of several searches, such as every move of a game, can be added together with Merge().
+ */
+public class SearchStats {
+
+    /** The deepest iteration counted. Searches never go deeper than half of Search.MAX_PLY. */
+    private static final int MAX_DEPTH = Search.MAX_PLY / 2;
+
+    /** The number of searches added together. */
+    private int m_searches;
+
+    /** The positions searched, and how many of them were in the quiescence search. */
+    private long m_nodes;
+    private long m_quiescenceNodes;
+
+    /** The time taken, in nanoseconds. */
+    private long m_nanos;
+
+    /** The transposition table lookups, and how many of them found the position. */
+    private long m_tableProbes;
+    private long m_tableHits;
+
+    /** The beta cutoffs, and how many of them came from the first move tried. */
+    private long m_cutoffs;
+    private long m_firstMoveCutoffs;
+
+    /** The deepest iteration completed, and the deepest ply reached including quiescence. */
+    private int m_depth;
+    private int m_maxPly;
+
+    /** The positions and time of each completed iteration, and how many searches completed it. Indexed by depth. */
+    private long m_iterationNodes[] = new long[MAX_DEPTH + 1];
+    private long m_iterationNanos[] = new long[MAX_DEPTH + 1];
+    private int m_iterationCounts[] = new int[MAX_DEPTH + 1];
+
+    /** The sum of the logs of the growth from one iteration to the next, and how many were summed. */
+    private double m_branchLogs;
+    private int m_branchSteps;
+
+    /**
+     * Creates empty statistics, for searches to be merged into.
+     */
+    public SearchStats(){
+    }
+
+    /**
+     * Records the totals of a finished search. Called once, by the Search itself.
+     * @param nodes The positions searched.
+     * @param quiescenceNodes The positions searched by the quiescence search.
+     * @param nanos The time taken, in nanoseconds.
+     * @param tableProbes The transposition table lookups.
+     * @param tableHits The lookups that found the position.
+     * @param cutoffs The beta cutoffs.
+     * @param firstMoveCutoffs The beta cutoffs caused by the first move tried.
+     * @param maxPly The deepest ply reached, including quiescence.
+     */
+    void SetTotals(long nodes, long quiescenceNodes, long nanos, long tableProbes, long tableHits, long cutoffs,
+                   long firstMoveCutoffs, int maxPly){
+        m_searches = 1;
+        m_nodes = nodes;
+        m_quiescenceNodes = quiescenceNodes;
+        m_nanos = nanos;
+        m_tableProbes = tableProbes;
+        m_tableHits = tableHits;
+        m_cutoffs = cutoffs;
+        m_firstMoveCutoffs = firstMoveCutoffs;
+        m_maxPly = maxPly;
+    }
+
+    /**
+     * Records an iteration that completed. Called by the Search in order of depth.
+     * @param depth The depth of the iteration.
+     * @param nodes The positions searched by the iteration alone.
+     * @param nanos The time the iteration took alone, in nanoseconds.
+     */
+    void AddIteration(int depth, long nodes, long nanos){
+        if (depth > 1 && m_iterationCounts[depth - 1] > 0 && m_iterationNodes[depth - 1] > 0 && nodes > 0){
+            m_branchLogs += Math.log((double)nodes / m_iterationNodes[depth - 1]);
+            m_branchSteps++;
+        }
+        m_iterationNodes[depth] = nodes;
+        m_iterationNanos[depth] = nanos;
+        m_iterationCounts[depth] = 1;
+        m_depth = depth;
+    }
+
+    /**
+     * Adds the statistics of other searches to these.
+     * @param other The SearchStats to add. Not changed.
+     */
+    public void Merge(SearchStats other){
+        m_searches += other.m_searches;
+        m_nodes += other.m_nodes;
+        m_quiescenceNodes += other.m_quiescenceNodes;
+        m_nanos += other.m_nanos;
+        m_tableProbes += other.m_tableProbes;
+        m_tableHits += other.m_tableHits;
+        m_cutoffs += other.m_cutoffs;
+        m_firstMoveCutoffs += other.m_firstMoveCutoffs;
+        m_depth = Math.max(m_depth, other.m_depth);
+        m_maxPly = Math.max(m_maxPly, other.m_maxPly);
+        for (int depth = 1; depth <= MAX_DEPTH; depth++){
+            m_iterationNodes[depth] += other.m_iterationNodes[depth];
+            m_iterationNanos[depth] += other.m_iterationNanos[depth];
+            m_iterationCounts[depth] += other.m_iterationCounts[depth];
+        }
+        m_branchLogs += other.m_branchLogs;
+        m_branchSteps += other.m_branchSteps;
+    }
+
+    /**
+     * Gets the number of searches these statistics cover.
+     * @return An int holding the number of searches.
+     */
+    public int GetSearches(){
+        return m_searches;
+    }
+
+    /**
+     * Gets the number of positions searched, including the quiescence search.
+     * @return A long holding the number of nodes.
+     */
+    public long GetNodes(){
+        return m_nodes;
+    }
+
+    /**
+     * Gets the number of positions searched by the quiescence search.
+     * @return A long holding the number of quiescence nodes.
+     */
+    public long GetQuiescenceNodes(){
+        return m_quiescenceNodes;
+    }
+
+    /**
+     * Gets the time taken.
+     * @return A long holding the time in nanoseconds.
+     */
+    public long GetNanos(){
+        return m_nanos;
+    }
+
+    /**
+     * Gets the number of positions searched each second.
+     * @return A long holding the nodes per second. 0 if no time was taken.
+     */
+    public long GetNodesPerSecond(){
+        return m_nanos == 0 ? 0 : (long)(m_nodes * 1e9 / m_nanos);
+    }
+
+    /**
+     * Gets the effective branching factor, how many times more positions each iteration searched
+     * than the one before, on average.
+     * @return A double holding the branching factor. 0 if fewer than two iterations completed.
+     */
+    public double GetBranchingFactor(){
+        return m_branchSteps == 0 ? 0 : Math.exp(m_branchLogs / m_branchSteps);
+    }
+
+    /**
+     * Gets the share of transposition table lookups that found the position.
+     * @return A double from 0 to 1. 0 if the table was never used.
+     */
+    public double GetTableHitRate(){
+        return m_tableProbes == 0 ? 0 : (double)m_tableHits / m_tableProbes;
+    }
+
+    /**
+     * Gets the share of beta cutoffs caused by the first move tried, a measure of move ordering.
+     * @return A double from 0 to 1. 0 if there were no cutoffs.
+     */
+    public double GetFirstMoveCutoffRate(){
+        return m_cutoffs == 0 ? 0 : (double)m_firstMoveCutoffs / m_cutoffs;
+    }
+
+    /**
+     * Gets the deepest iteration completed.
+     * @return An int holding the depth.
+     */
+    public int GetDepth(){
+        return m_depth;
+    }
+
+    /**
+     * Gets the deepest ply reached, including the quiescence search.
+     * @return An int holding the number of plies from the root.
+     */
+    public int GetMaxPly(){
+        return m_maxPly;
+    }
+
+    /**
+     * Gets the average time taken by an iteration.
+     * @param depth The depth of the iteration.
+     * @return A long holding the time in nanoseconds. 0 if no search completed the depth.
+     */
+    public long GetIterationNanos(int depth){
+        if (depth < 1 || depth > MAX_DEPTH || m_iterationCounts[depth] == 0){
+            return 0;
+        }
+        return m_iterationNanos[depth] / m_iterationCounts[depth];
+    }
+
+    /**
+     * Gets the average number of positions searched by an iteration.
+     * @param depth The depth of the iteration.
+     * @return A long holding the number of nodes. 0 if no search completed the depth.
+     */
+    public long GetIterationNodes(int depth){
+        if (depth < 1 || depth > MAX_DEPTH || m_iterationCounts[depth] == 0){
+            return 0;
+        }
+        return m_iterationNodes[depth] / m_iterationCounts[depth];
+    }
+
+    /**
+     * Builds a one line description of the statistics.
+     * @return A String holding the summary.
+     */
+    public String Summary(){
+        return String.format("%d searches, %d nodes (%.0f%% quiescence), %d nps, depth %d, max ply %d, "
+                        + "branching %.2f, table hits %.1f%%, first move cutoffs %.1f%%, %.1fms",
+                m_searches, m_nodes, m_nodes == 0 ? 0.0 : m_quiescenceNodes * 100.0 / m_nodes, GetNodesPerSecond(),
+                m_depth, m_maxPly, GetBranchingFactor(), GetTableHitRate() * 100, GetFirstMoveCutoffRate() * 100,
+                m_nanos / 1e6);
+    }
+
+    /**
+     * Builds a description of the average time and positions of each iteration.
+     * @return A String holding one depth per line, without a final new line.
+     */
+    public String IterationSummary(){
+        StringBuilder text = new StringBuilder();
+        for (int depth = 1; depth <= m_depth; depth++){
+            if (m_iterationCounts[depth] == 0){
+                continue;
+            }
+            if (text.length() > 0){
+                text.append('\n');
+            }
+            text.append(String.format("depth %d: %d nodes, %.2fms", depth, GetIterationNodes(depth),
+                    GetIterationNanos(depth) / 1e6));
+        }
+        return text.toString();
+    }
+}
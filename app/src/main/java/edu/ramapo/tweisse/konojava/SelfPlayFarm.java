@@ -0,0 +1,267 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many independent games between two engines in parallel, one worker thread per core. Each
+ * game gets its own tournament, board, players and seeded random numbers, so the only thing the
+ * workers share is the totals the results are added to.
+ *
+ * Run from the command line with the same engine, size and seed arguments as HeadlessRunner, plus:
+ *   --games N      The number of games to play on each board size. Defaults to 1000.
+ *   --threads N    The number of worker threads. Defaults to the number of cores.
+ *   --archive DIR  Adds every game to the GameArchive in a directory.
+ */
+public class SelfPlayFarm {
+
+    /** The engines playing each side. */
+    private String m_p1Engine;
+    private String m_p2Engine;
+
+    /** The board size of every game, in the order they are handed out. */
+    private int m_gameSizes[];
+
+    /** The seed of every game's random numbers, so results don't depend on which worker plays a game. */
+    private long m_gameSeeds[];
+
+    /** The number of moves after which a game is stopped without a winner. */
+    private int m_maxPlies;
+
+    /** The scripted dice rolls, or null to roll randomly. Shared read-only by every game. */
+    private DiceProvider m_dice;
+
+    /** The archive every game is added to, or null to keep none. */
+    private GameArchive m_archive;
+
+    /** The index of the next game to hand to a worker. */
+    private AtomicInteger m_nextGame = new AtomicInteger();
+
+    /** Totals over every game played, from player 1's point of view. */
+    private AtomicLong m_games = new AtomicLong();
+    private AtomicLong m_p1Wins = new AtomicLong();
+    private AtomicLong m_p2Wins = new AtomicLong();
+    private AtomicLong m_ties = new AtomicLong();
+    private AtomicLong m_capped = new AtomicLong();
+    private AtomicLong m_plies = new AtomicLong();
+    private AtomicLong m_margin = new AtomicLong();
+
+    /** Per worker totals. Each entry is only written by its own worker, and read once they are done. */
+    private long m_workerGames[];
+    private long m_workerPlies[];
+    private long m_workerNanos[];
+
+    /** The time taken by the last call to Run(), in nanoseconds. */
+    private long m_elapsed;
+
+    /**
+     * Plays the games of a single worker, taking the next game until there are none left.
+     */
+    private class Worker implements Runnable, HeadlessGame.Listener {
+
+        /** This worker's index into the per worker totals. */
+        private int m_id;
+
+        /**
+         * Creates a worker.
+         * @param id The index of this worker.
+         */
+        Worker(int id){
+            m_id = id;
+        }
+
+        /**
+         * Plays games until every game has been handed out.
+         */
+        @Override
+        public void run(){
+            long start = System.nanoTime();
+            int game;
+            while ((game = m_nextGame.getAndIncrement()) < m_gameSizes.length){
+                RandomSource random = new SplitRandom(m_gameSeeds[game]);
+                DiceProvider dice = m_dice == null ? new DiceProvider(random.Split()) : m_dice.Fork(random.Split());
+                HeadlessGame.PlayTournament(game + 1, m_p1Engine, m_p2Engine, m_gameSizes[game], 1, dice, random,
+                        m_maxPlies, this);
+            }
+            m_workerNanos[m_id] = System.nanoTime() - start;
+        }
+
+        /**
+         * Adds a result to this worker's totals and the shared totals.
+         * @param result The GameResult of the game that was just played.
+         */
+        @Override
+        public void OnResult(GameResult result){
+            m_workerGames[m_id]++;
+            m_workerPlies[m_id] += result.GetPlies();
+            Record(result);
+            if (m_archive != null){
+                try {
+                    m_archive.Add(result);
+                }
+                catch (IOException e){
+                    throw new IllegalStateException("Couldn't archive game " + result.GetTournament() + ".", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a farm that plays a number of games on each of the given board sizes.
+     * @param p1Engine The name of player 1's engine.
+     * @param p2Engine The name of player 2's engine.
+     * @param sizes The board sizes to play on.
+     * @param gamesPerSize The number of games to play on each board size.
+     * @param random The RandomSource each game's seed is drawn from.
+     * @param dice The DiceProvider every game's dice are forked from, or null to roll randomly.
+     * @param maxPlies The number of moves after which a game is stopped without a winner.
+     */
+    SelfPlayFarm(String p1Engine, String p2Engine, int sizes[], int gamesPerSize, RandomSource random,
+                 DiceProvider dice, int maxPlies){
+        // Make sure the engines exist before playing anything.
+        HeadlessGame.CreatePlayer(p1Engine, PlayerColor.WHITE);
+        HeadlessGame.CreatePlayer(p2Engine, PlayerColor.BLACK);
+
+        m_p1Engine = p1Engine;
+        m_p2Engine = p2Engine;
+        m_maxPlies = maxPlies;
+        m_dice = dice;
+        m_gameSizes = new int[sizes.length * gamesPerSize];
+        m_gameSeeds = new long[m_gameSizes.length];
+        for (int i = 0; i < m_gameSizes.length; i++){
+            m_gameSizes[i] = sizes[i / gamesPerSize];
+            m_gameSeeds[i] = random.NextLong();
+        }
+    }
+
+    /**
+     * Adds every game played from now on to an archive.
+     * @param archive The GameArchive to add games to, or null to keep none.
+     */
+    public void SetArchive(GameArchive archive){
+        m_archive = archive;
+    }
+
+    /**
+     * Plays every game, and waits until they are all done.
+     * @param threads The number of worker threads to play on.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     */
+    public void Run(int threads) throws InterruptedException {
+        m_workerGames = new long[threads];
+        m_workerPlies = new long[threads];
+        m_workerNanos = new long[threads];
+
+        long start = System.nanoTime();
+        Thread workers[] = new Thread[threads];
+        for (int i = 0; i < threads; i++){
+            workers[i] = new Thread(new Worker(i), "SelfPlayFarm-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers){
+            worker.join();
+        }
+        m_elapsed = System.nanoTime() - start;
+    }
+
+    /**
+     * Adds a single result to the shared totals. Safe to call from any thread.
+     * @param result The GameResult to add.
+     */
+    private void Record(GameResult result){
+        m_games.incrementAndGet();
+        m_plies.addAndGet(result.GetPlies());
+        m_margin.addAndGet(Math.abs(result.GetPoints(1) - result.GetPoints(2)));
+        switch (result.GetWinner()){
+            case 1:
+                m_p1Wins.incrementAndGet();
+                break;
+            case 2:
+                m_p2Wins.incrementAndGet();
+                break;
+            case 0:
+                m_ties.incrementAndGet();
+                break;
+            default:
+                m_capped.incrementAndGet();
+                break;
+        }
+    }
+
+    /**
+     * Builds a summary of the totals and the throughput of each worker.
+     * @return A String holding the summary, one line for the totals and one per worker.
+     */
+    public String Summary(){
+        long games = m_games.get();
+        double seconds = m_elapsed / 1e9;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%s vs %s: %d games in %.2fs, %.1f games/s, %.0f moves/s.%n",
+                m_p1Engine, m_p2Engine, games, seconds, games / seconds, m_plies.get() / seconds));
+        summary.append(String.format("P1 W/D/L %d/%d/%d, capped %d. Average margin %.2f points, average length %.1f moves.%n",
+                m_p1Wins.get(), m_ties.get(), m_p2Wins.get(), m_capped.get(),
+                games == 0 ? 0.0 : (double)m_margin.get() / games, games == 0 ? 0.0 : (double)m_plies.get() / games));
+        for (int i = 0; i < m_workerGames.length; i++){
+            double workerSeconds = m_workerNanos[i] / 1e9;
+            summary.append(String.format("  Worker %d: %d games, %.1f games/s, %.0f moves/s.%n",
+                    i, m_workerGames[i], m_workerGames[i] / workerSeconds, m_workerPlies[i] / workerSeconds));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Gets the number of games won by a player.
+     * @param player The player number. 1 or 2, or 0 for ties.
+     * @return A long holding the number of games.
+     */
+    public long GetWins(int player){
+        return player == 1 ? m_p1Wins.get() : player == 2 ? m_p2Wins.get() : m_ties.get();
+    }
+
+    /**
+     * Gets the number of games stopped by the move limit.
+     * @return A long holding the number of games.
+     */
+    public long GetCapped(){
+        return m_capped.get();
+    }
+
+    /**
+     * Plays a batch of games described by the arguments and prints a summary.
+     * @param args The command line arguments. See the class description.
+     * @exception InterruptedException If interrupted while waiting for the workers.
+     * @exception IOException If the archive can't be opened or closed.
+     */
+    public static void main(String args[]) throws InterruptedException, IOException {
+        CommandLine line = new CommandLine(args, "--p1", "--p2", "--sizes", "--games", "--threads", "--seed",
+                "--dice", "--max-plies", "--archive");
+        String p1Engine = line.GetString("--p1", HeadlessGame.ENGINE_HEURISTIC);
+        String p2Engine = line.GetString("--p2", HeadlessGame.ENGINE_RANDOM);
+        int sizes[] = line.GetInts("--sizes", new int[]{5, 7, 9});
+        int games = line.GetInt("--games", 1000);
+        int threads = line.GetInt("--threads", Runtime.getRuntime().availableProcessors());
+        RandomSource random = line.GetRandom("--seed");
+        String diceFile = line.GetString("--dice", null);
+        int maxPlies = line.GetInt("--max-plies", HeadlessGame.DEFAULT_MAX_PLIES);
+        String archiveDir = line.GetString("--archive", null);
+
+        DiceProvider dice = diceFile == null ? null : DiceProvider.FromFile(new File(diceFile), random.Split());
+        SelfPlayFarm farm = new SelfPlayFarm(p1Engine, p2Engine, sizes, games, random, dice, maxPlies);
+        GameArchive archive = null;
+        if (archiveDir != null){
+            File dir = new File(archiveDir);
+            dir.mkdirs();
+            archive = new GameArchive(dir);
+            farm.SetArchive(archive);
+        }
+        farm.Run(threads);
+        System.out.print(farm.Summary());
+        if (archive != null){
+            System.out.println(String.format("Archive holds %d positions under %d keys.",
+                    archive.GetPositionCount(), archive.GetIndexedKeys()));
+            archive.Close();
+        }
+    }
+}
@@ -2,19 +2,21 @@ package edu.ramapo.tweisse.konojava;
 
 import android.app.Activity;
 import android.content.pm.PackageManager;
-import android.graphics.Point;
 import android.support.v4.app.ActivityCompat;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.Vector;
+import java.io.Writer;
 
 /**
  * Holds functions used to serialize a tournament to a text file, as well as read a previously serialized
- * file back into a Tournament object.
+ * file back into a Tournament object. Files named with BinarySerializer.EXTENSION are written in the
+ * binary format instead, and binary files are recognized when reading whatever their name.
  */
 public class Serializer {
 
@@ -25,6 +27,9 @@ public class Serializer {
             android.Manifest.permission.WRITE_EXTERNAL_STORAGE
     };
 
+    /** The text written for each cell of the board, indexed by the cell codes used by Board. */
+    private static final String CELL_TEXT[] = {"O  ", "W  ", "WW ", "B  ", "BB "};
+
     /**
      * Obtains the necessary permissions to read and write files.
      * From https://stackoverflow.com/questions/34040355/how-to-check-the-multiple-permission-at-single-request-in-android-m/48456135#48456135
@@ -45,7 +50,8 @@ public class Serializer {
     }
 
     /**
-     * Serializes a Tournament object to a given File.
+     * Serializes a Tournament object to a given File, in the binary format if the file name ends
+     * with BinarySerializer.EXTENSION, and in the text format otherwise.
      * @param tourn The Tournament object we want to serialize.
      * @param file The File we want to write the tournament data to.
      * @param act The Activity which is serializing the file. Needed for permission requests.
@@ -55,107 +61,108 @@ public class Serializer {
         // Make sure we still have read permissions.
         VerifyStoragePermissions(act);
 
-        try {
-            file.createNewFile();
+        // Write the whole file at once, so that a failed save never leaves it half written.
+        return SaveQueue.WriteAtomically(file, Encode(tourn, file), true);
+    }
+
+    /**
+     * Encodes a Tournament object the way it would be saved to a given File, in the binary format if
+     * the file name ends with BinarySerializer.EXTENSION, and in the text format otherwise.
+     * @param tourn The Tournament object we want to encode.
+     * @param file The File the data is meant for. Only its name is used.
+     * @return A byte array holding the saved file.
+     */
+    public static byte[] Encode(Tournament tourn, File file){
+        long start = Latency.Start();
+        byte encoded[];
+        if (file.getName().endsWith(BinarySerializer.EXTENSION)){
+            encoded = BinarySerializer.Encode(tourn);
         }
-        catch(IOException e){
-            return false;
+        else {
+            // Use the default charset, as a PrintWriter opened on the file would.
+            ByteArrayOutputStream data = new ByteArrayOutputStream(512);
+            Write(tourn, new OutputStreamWriter(data));
+            encoded = data.toByteArray();
         }
+        Latency.Record(Latency.SAVE, tourn.GetGame().GetBoard().GetSize(), start);
+        return encoded;
+    }
 
-        try {
-            PrintWriter stream = new PrintWriter(file);
-            stream.println(String.format("Round: %d", tourn.GetRoundNum()));
-            stream.println();
-
-            // Check the type of player 2.
-            String player2String;
-            if (tourn.GetPlayerType(2) == PlayerType.HUMAN){
-                player2String = "Human 2";
-            }
-            else {
-                player2String = "Computer";
-            }
-            stream.println(String.format("%s:", player2String));
+    /**
+     * Serializes a Tournament object to a Writer, in the same format as a saved file. Does not need
+     * an Activity, so it can be used anywhere.
+     * @param tourn The Tournament object we want to serialize.
+     * @param out The Writer we want to write the tournament data to. It is flushed, but not closed.
+     * @return A boolean value. True if the data was written, false if the Writer reported an error.
+     */
+    public static boolean Write(Tournament tourn, Writer out){
+        PrintWriter stream = out instanceof PrintWriter ? (PrintWriter)out : new PrintWriter(out);
+        stream.println(String.format("Round: %d", tourn.GetRoundNum()));
+        stream.println();
 
-            // Print player 2's score so far in this tournament.
-            stream.println(String.format("   Score: %d", tourn.GetPlayerScore(2)));
+        // Check the type of player 2.
+        String player2String;
+        if (tourn.GetPlayerType(2) == PlayerType.HUMAN){
+            player2String = "Human 2";
+        }
+        else {
+            player2String = "Computer";
+        }
+        stream.println(String.format("%s:", player2String));
 
-            // Print player 2's color for the current game.
-            String curColor;
-            if (tourn.GetGame().GetPlayer(2).GetColor() == PlayerColor.WHITE){
-                curColor = "White";
-            }
-            else {
-                curColor = "Black";
-            }
-            stream.println(String.format("   Color: %s", curColor));
-            stream.println();
+        // Print player 2's score so far in this tournament.
+        stream.println(String.format("   Score: %d", tourn.GetPlayerScore(2)));
 
-            // Print player 1's score and color.
-            stream.println("Human:");
-            stream.println(String.format("   Score: %d", tourn.GetPlayerScore(1)));
-            if (curColor.equals("White")){
-                curColor = "Black";
-            }
-            else {
-                curColor = "White";
-            }
-            stream.println(String.format("   Color: %s", curColor));
-            stream.println();
+        // Print player 2's color for the current game.
+        String curColor;
+        if (tourn.GetGame().GetPlayer(2).GetColor() == PlayerColor.WHITE){
+            curColor = "White";
+        }
+        else {
+            curColor = "Black";
+        }
+        stream.println(String.format("   Color: %s", curColor));
+        stream.println();
 
-            // Loop through each cell to print board data.
-            stream.print("Board:");
-            for (int r = 0; r < tourn.GetGame().GetBoard().GetSize(); r++){
-                // New line before each row.
-                stream.print("\n   ");
-                for (int c = 0; c < tourn.GetGame().GetBoard().GetSize(); c++){
-                    // Get occupant information for the current cell.
-                    Piece occupant = tourn.GetGame().GetBoard().GetOccupant(new Point(r + 1, c + 1));
-                    boolean canCapture = occupant.CanCapture();
-                    PlayerColor color = occupant.GetColor();
+        // Print player 1's score and color.
+        stream.println("Human:");
+        stream.println(String.format("   Score: %d", tourn.GetPlayerScore(1)));
+        if (curColor.equals("White")){
+            curColor = "Black";
+        }
+        else {
+            curColor = "White";
+        }
+        stream.println(String.format("   Color: %s", curColor));
+        stream.println();
 
-                    // Determine what to print for each cell depending upon the occupant.
-                    String thisCell;
-                    if (color == PlayerColor.WHITE && !canCapture){
-                        thisCell = "W  ";
-                    }
-                    else if (color == PlayerColor.WHITE && canCapture){
-                        thisCell = "WW ";
-                    }
-                    else if (color == PlayerColor.BLACK && !canCapture){
-                        thisCell = "B  ";
-                    }
-                    else if (color == PlayerColor.BLACK && canCapture) {
-                        thisCell = "BB ";
-                    }
-                    else {
-                        thisCell = "O  ";
-                    }
-                    stream.print(thisCell);
-                }
-            }
-            stream.println("\n");
-            // Print the next player to move.
-            stream.print("Next Player: ");
-            if (tourn.GetGame().GetNextPlayer() == 1){
-                stream.print("Human");
-            }
-            else {
-                stream.print(player2String);
+        // Loop through each cell to print board data.
+        Board board = tourn.GetGame().GetBoard();
+        int size = board.GetSize();
+        stream.print("Board:");
+        for (int r = 0; r < size; r++){
+            // New line before each row.
+            stream.print("\n   ");
+            for (int c = 0; c < size; c++){
+                // Print each cell depending upon the occupant.
+                stream.print(CELL_TEXT[board.GetCell(r * size + c)]);
             }
-            // Flush buffer to file and close file.
-            stream.close();
         }
-        catch (FileNotFoundException e){
-            // If the file could not be created, return failure.
-            return false;
+        stream.println("\n");
+        // Print the next player to move.
+        stream.print("Next Player: ");
+        if (tourn.GetGame().GetNextPlayer() == 1){
+            stream.print("Human");
         }
-        // Return success if no exception occurred.
-        return true;
+        else {
+            stream.print(player2String);
+        }
+        stream.flush();
+        return !stream.checkError();
     }
 
     /**
-     * Creates a Tournament object from serialized data contained in a File.
+     * Creates a Tournament object from serialized data contained in a File. Reads either format.
      * @param file The File we want to read the tournament data from.
      * @param act The Activity which is de-serializing the file. Needed for permission requests.
      * @return A Tournament object if the file was successfully de-serialized. Null if not.
@@ -164,157 +171,91 @@ public class Serializer {
         // Make sure we still have read permissions.
         VerifyStoragePermissions(act);
 
-        // The variables that we will need to extract from the serialized file.
-        // Initializing them to invalid values will allow us to check for errors with the read.
-        Player p1 = null;
-        Player p2 = null;
-
-        Board board = null;
-        Game game = null;
-
-        int round = -1;
-        int nextPlayer = -1;
-
-        // Try to open our input file.
         try {
-            FileReader stream = new FileReader(file);
-            BufferedReader buff = new BufferedReader(stream);
-
-            // Read every line from the file.
-            String line;
-            while ((line = buff.readLine()) != null){
-                // Split our line into an array of individual words.
-                String words[] = line.trim().split("\\s+");
-
-                // Parse the round number.
-                if (words[0].equals("Round:")){
-                    round = Integer.parseInt(words[1]);
-                }
-                // The human will always be player 1.
-                else if (words[0].equals("Human:") ){
-                    p1 = ReadPlayerData(buff, PlayerType.HUMAN);
-                }
-                // Human 2 or the computer will always be player 2.
-                else if (words[0].equals("Computer:")){
-                    p2 = ReadPlayerData(buff, PlayerType.COMPUTER);
-                }
-                else if (words.length > 1 && words[0].equals("Human") && words[1].equals("2:")){
-                    p2 = ReadPlayerData(buff, PlayerType.HUMAN);
-                }
-                // Read in the board data.
-                else if (words[0].equals("Board:")){
-                    board = new Board(ReadBoardData(buff));
-                }
-                // Read which player is up next.
-                else if (words.length > 1 && words[0].equals("Next") && words[1].equals("Player:")){
-                    if (words[2].equals("Human") && words.length == 3){
-                        nextPlayer = 1;
-                    }
-                    else {
-                        nextPlayer = 2;
-                    }
-                }
-            }
-        }
-        // If there was an error reading the file, return a null Tournament.
-        catch(FileNotFoundException e){
-            return null;
+            return Load(file);
         }
         catch(IOException e){
             return null;
         }
-        // Catch any other exception.
-        catch(Exception e){
+        catch(TournamentParser.ParseException e){
             return null;
         }
+    }
 
-        // Create a game.
-        game = new Game(p1, p2, nextPlayer, board);
-
-        // Make sure that all pieces of the file were read correctly, and create a tournament.
-        if (p1 == null || p2 == null || board == null || game == null || round == -1 || nextPlayer == -1){
-            return null;
+    /**
+     * Creates a Tournament object from a saved file in either format, explaining what was wrong if
+     * it can't be read. Does not need an Activity, so it can be used anywhere.
+     * @param file The File we want to read the tournament data from.
+     * @return The Tournament object read from the file.
+     * @exception IOException If the file couldn't be opened or read.
+     * @exception TournamentParser.ParseException If the file isn't a valid saved tournament.
+     */
+    public static Tournament Load(File file) throws IOException, TournamentParser.ParseException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            return ReadAny(in);
         }
-        else {
-            return new Tournament(p1.GetType(), p1.GetPoints(), p2.GetType(), p2.GetPoints(), game, round, nextPlayer);
+        finally {
+            in.close();
         }
     }
 
     /**
-     * Reads player data from a file. Assumes that the type of player has already been read.
-     * @param buff The BufferedReader object reading the current file.
-     * @param type The PlayerType of the player we want to read data for.
-     * @return A Player object as a container for the data read from the file.
+     * Creates a Tournament object from a saved file in either format, telling them apart by the
+     * first bytes. Does not need an Activity, so it can be used anywhere.
+     * @param in The BufferedInputStream holding the tournament data. Read to the end, but not closed.
+     * @return The Tournament object read from the stream.
+     * @exception IOException If the stream couldn't be read.
+     * @exception TournamentParser.ParseException If the data isn't a valid saved tournament.
      */
-    private static Player ReadPlayerData(BufferedReader buff, PlayerType type){
-
-        // To hold the data that we will read from the file.
-        int score = -1;
-        PlayerColor color = null;
-
-        // Attempt to read a single player's data from the reader.
-        try{
-            String[] words = buff.readLine().trim().split("\\s+");
-            score = Integer.parseInt(words[1]);
-            words = buff.readLine().trim().split("\\s+");
-            if (words[1].equals("White")){
-                color = PlayerColor.WHITE;
-            }
-            else {
-                color = PlayerColor.BLACK;
-            }
-
-            // If all data was read successfully, return the player.
-            if (score > -1 && color != null){
-                if (type == PlayerType.HUMAN){
-                    return new Human(color, score);
-                }
-                else {
-                    return new Computer(color, score);
-                }
+    public static Tournament ReadAny(BufferedInputStream in) throws IOException, TournamentParser.ParseException {
+        long start = Latency.Start();
+        byte head[] = new byte[BinarySerializer.MAGIC_LENGTH];
+        in.mark(head.length);
+        int numRead = in.read(head);
+        in.reset();
+        Tournament tourn;
+        if (numRead > 0 && BinarySerializer.IsBinary(head, 0, numRead)){
+            tourn = BinarySerializer.Read(in);
+            if (tourn == null){
+                throw new TournamentParser.ParseException("The binary save is damaged or from a newer version.", 1, 1);
             }
-            else {
-                return null;
-            }
-        }
-        catch(IOException e){
-            return null;
         }
-        catch(Exception e){
-            return null;
+        else {
+            tourn = new TournamentParser().Parse(in);
         }
+        Latency.Record(Latency.LOAD, tourn.GetGame().GetBoard().GetSize(), start);
+        return tourn;
     }
 
     /**
-     * Reads the board data from a file and loads it into a vector of strings.
-     * @param buff The BufferedReader object which is reading the file.
-     * @return A Vector of Strings containing the data from the file describing a Board object.
+     * Creates a Tournament object from serialized data, in the same format as a saved file. Reads
+     * until the end of the reader. Does not need an Activity, so it can be used anywhere.
+     * @param buff The BufferedReader holding the tournament data.
+     * @return A Tournament object if the data was successfully de-serialized. Null if not.
      */
-    private static Vector<String> ReadBoardData(BufferedReader buff){
-        Vector<String> boardData = new Vector<>();
-        // Read until we hit a blank link. This means that we are at the end of the board.
+    public static Tournament Read(BufferedReader buff){
+        long start = Latency.Start();
+        // The format is plain ASCII, so anything else can't be part of a valid file.
+        ByteArrayOutputStream data = new ByteArrayOutputStream(512);
+        char chars[] = new char[512];
         try {
-            String line;
-            while ((line = buff.readLine()) != null){
-                String words[] = line.trim().split("\\s+");
-
-                // Break out if we have reached the end of the board.
-                if (words[0].equals("")){
-                    break;
-                }
-                else {
-                    for (String word : words){
-                        boardData.add(word);
-                    }
+            int numRead;
+            while ((numRead = buff.read(chars)) != -1){
+                for (int i = 0; i < numRead; i++){
+                    data.write(chars[i] < 128 ? chars[i] : '?');
                 }
             }
+            byte bytes[] = data.toByteArray();
+            Tournament tourn = new TournamentParser().Parse(bytes, 0, bytes.length);
+            Latency.Record(Latency.LOAD, tourn.GetGame().GetBoard().GetSize(), start);
+            return tourn;
         }
         catch(IOException e){
             return null;
         }
-        catch(Exception e){
+        catch(TournamentParser.ParseException e){
             return null;
         }
-        return boardData;
     }
 }
@@ -0,0 +1,172 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A seedable, splittable RandomSource based on the SplitMix64 generator used by
+ * java.util.SplittableRandom, which isn't available on older Android versions. An instance is not
+ * thread safe; use Split() to give each thread or game its own stream instead of sharing one.
+ */
+public class SplitRandom implements RandomSource {
+
+    /** The default gamma. An odd number close to 2^64 divided by the golden ratio. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Seeds sources created without a seed. Only touched when a new unseeded source is created. */
+    private static final AtomicLong SEEDER = new AtomicLong(Mix64(System.currentTimeMillis()) ^ Mix64(System.nanoTime()));
+
+    /** The seed this source was created with. */
+    private final long m_initialSeed;
+
+    /** The current state, advanced by m_gamma for each value. */
+    private long m_seed;
+
+    /** The step added to the state for each value. Always odd. */
+    private final long m_gamma;
+
+    /**
+     * Creates a source with an unpredictable seed. The seed can be read back with GetSeed() to
+     * replay the same values later.
+     */
+    public SplitRandom(){
+        this(Mix64(SEEDER.getAndAdd(GOLDEN_GAMMA)));
+    }
+
+    /**
+     * Creates a source from a seed. Sources created with the same seed produce the same values.
+     * @param seed The seed to start from.
+     */
+    public SplitRandom(long seed){
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates a source with a given state and gamma. Used by Split().
+     * @param seed The starting state.
+     * @param gamma The step between states. Must be odd.
+     */
+    private SplitRandom(long seed, long gamma){
+        m_initialSeed = seed;
+        m_seed = seed;
+        m_gamma = gamma;
+    }
+
+    /**
+     * Recreates a source exactly as it was, from what GetSeed(), GetState() and GetGamma() returned.
+     * @param initialSeed The seed the source was created with.
+     * @param seed The current state.
+     * @param gamma The step between states. Must be odd.
+     */
+    SplitRandom(long initialSeed, long seed, long gamma){
+        m_initialSeed = initialSeed;
+        m_seed = seed;
+        m_gamma = gamma;
+    }
+
+    /**
+     * Gets the current state, for recreating this source later.
+     * @return The state the next value is made from.
+     */
+    long GetState(){
+        return m_seed;
+    }
+
+    /**
+     * Gets the step between states, for recreating this source later.
+     * @return The gamma.
+     */
+    long GetGamma(){
+        return m_gamma;
+    }
+
+    /**
+     * Gets the seed this source was created with.
+     * @return The seed. A source created from it with SplitRandom(long) repeats this source's values.
+     */
+    public long GetSeed(){
+        return m_initialSeed;
+    }
+
+    /**
+     * Gets a random int between 0 (inclusive) and the bound (exclusive).
+     * @param bound The upper bound. Must be positive.
+     * @return A random int in the range [0, bound).
+     */
+    @Override
+    public int NextInt(int bound){
+        if (bound <= 0){
+            throw new IllegalArgumentException("Bound must be positive.");
+        }
+        int r = Mix32(NextSeed());
+        int m = bound - 1;
+        if ((bound & m) == 0){
+            // The bound is a power of two, so masking is unbiased.
+            return r & m;
+        }
+        // Reject values from the incomplete range at the top so that every result is equally likely.
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = Mix32(NextSeed()) >>> 1){
+        }
+        return r;
+    }
+
+    /**
+     * Gets a random long.
+     * @return A random long taken from the full range of values.
+     */
+    @Override
+    public long NextLong(){
+        return Mix64(NextSeed());
+    }
+
+    /**
+     * Creates a new, independent source from this one.
+     * @return A new SplitRandom with its own state and gamma.
+     */
+    @Override
+    public RandomSource Split(){
+        return new SplitRandom(NextLong(), MixGamma(NextSeed()));
+    }
+
+    /**
+     * Advances the state.
+     * @return The new state.
+     */
+    private long NextSeed(){
+        return m_seed += m_gamma;
+    }
+
+    /**
+     * Scrambles a state into a 64 bit value.
+     * @param z The state to scramble.
+     * @return The scrambled value.
+     */
+    private static long Mix64(long z){
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Scrambles a state into a 32 bit value.
+     * @param z The state to scramble.
+     * @return The scrambled value.
+     */
+    private static int Mix32(long z){
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    /**
+     * Turns a state into a gamma for a split source. Gammas must be odd, and gammas with too few
+     * bit transitions produce poor values, so those are fixed up.
+     * @param z The state to turn into a gamma.
+     * @return An odd gamma.
+     */
+    private static long MixGamma(long z){
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
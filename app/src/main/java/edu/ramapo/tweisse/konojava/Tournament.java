@@ -1,12 +1,6 @@
 package edu.ramapo.tweisse.konojava;
 
-import android.os.Environment;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.io.Serializable;
-import java.util.Random;
 
 /**
  * Holds all necessary data and functions to play a tournament consisting of one or more games.
@@ -54,15 +48,8 @@ public class Tournament implements Serializable {
     /** Has the current game ended yet? */
     private boolean m_gameOver;
 
-    /** If this string is null, random numbers will be generated for dice rolls. If it is not, dice
-     * rolls will be taken from the file contained in the string if it exists. */
-    private static String m_diceFile = "diceRolls.txt";
-
-    /** An array holding the dice rolls that were read from the m_diceFile file. */
-    private static int m_diceFileRolls[] = new int[]{};
-
-    /** Used by the dice rolling function to keep track of where in the dice rolls array we are. */
-    private static int m_rollPos = 0;
+    /** The random numbers for this tournament. Each game is given its own stream split from this one. */
+    private RandomSource m_random;
 
     /**
      * Default constructor. Creates a tournament with null players playing a null game.
@@ -82,6 +69,21 @@ public class Tournament implements Serializable {
      * @param nextPlayer The first player to play the current game. 1 or 2.
      */
     Tournament(PlayerType p1Type, int p1Score, PlayerType p2Type, int p2Score, Game game, int round, int nextPlayer){
+        this(p1Type, p1Score, p2Type, p2Score, game, round, nextPlayer, new SplitRandom());
+    }
+
+    /**
+     * Constructs a custom Tournament object that draws its random numbers from a given source.
+     * @param p1Type The PlayerType for player 1.
+     * @param p1Score The score player 1 should start with.
+     * @param p2Type The PlayerType for Player 2.
+     * @param p2Score The score player 2 should start with.
+     * @param game The Game object that this tournament will start playing first.
+     * @param round The round number this tournament should start on.
+     * @param nextPlayer The first player to play the current game. 1 or 2.
+     * @param random The RandomSource for this tournament. A seeded source makes every game repeatable.
+     */
+    Tournament(PlayerType p1Type, int p1Score, PlayerType p2Type, int p2Score, Game game, int round, int nextPlayer, RandomSource random){
 
         // Assign players.
         m_players = new TournamentPlayer[2];
@@ -89,11 +91,10 @@ public class Tournament implements Serializable {
         m_players[1] = new TournamentPlayer(p2Type, p2Score);
 
         // Assign game data.
-        m_currentGame = game;
+        m_random = random;
         m_roundNum = round;
         m_nextPlayer = nextPlayer;
-
-        m_gameOver = false;
+        SetNewGame(game);
     }
 
     /**
@@ -199,84 +200,45 @@ public class Tournament implements Serializable {
         return m_nextPlayer;
     }
 
+    /**
+     * Gets the random numbers used by this tournament.
+     * @return The RandomSource for this tournament.
+     */
+    public RandomSource GetRandom(){
+        return m_random;
+    }
+
     /**
      * Updates the game for when a new round starts.
      * @param game The new Game object we would like to start playing in this tournament.
      */
     public void SetNewGame(Game game){
         m_currentGame = game;
+        // Give the game its own random numbers, so games never share a stream.
+        if (game != null){
+            game.SetRandom(m_random.Split());
+        }
         // Reset the game over indicator.
         m_gameOver = false;
     }
 
     /**
-     * Provides a single dice roll value, either randomly generated or from the provided file.
-     * @return An integer holding a single random dice roll value.
+     * Checks if the current game's result has already been added to the scores.
+     * @return A boolean value. True if GetGameWinner() has already scored the current game.
      */
-    public static int ThrowDice(){
-        // If there is no file provided, roll the dice randomly.
-        if (m_diceFile == null){
-            // Generate a dice roll between 1 and 6.
-            Random rand = new Random();
-            int roll = rand.nextInt(6) + 1;
-            return roll;
-        }
-        else{
-            if (m_diceFileRolls.length == 0){
-                try{
-                    // Get the sd card directory.
-                    File sdcard = Environment.getExternalStorageDirectory();
-                    File file = new File(sdcard, m_diceFile);
-
-                    if (file.exists()){
-                        // Open the file up.
-                        FileReader stream = new FileReader(file);
-                        BufferedReader buff = new BufferedReader(stream);
-
-                        // Read every line from the file.
-                        String line;
-                        while ((line = buff.readLine()) != null) {
-                            // Split our line into an array of individual words.
-                            String words[] = line.trim().split("\\s+");
-
-                            // Skip blank lines, add lines with rolls in them to the array.
-                            if (words.length == 0){
-                                continue;
-                            }
-                            if (words.length == 2){
-                                int tmpArray[] = new int[m_diceFileRolls.length + 2];
-                                // Expand the array.
-                                for (int i = 0; i < m_diceFileRolls.length; i++){
-                                    tmpArray[i] = m_diceFileRolls[i];
-                                }
-                                tmpArray[tmpArray.length - 2] = Integer.parseInt(words[0]);
-                                tmpArray[tmpArray.length - 1] = Integer.parseInt(words[1]);
+    boolean IsGameOver(){
+        return m_gameOver;
+    }
 
-                                m_diceFileRolls = tmpArray;
-                            }
-                        }
-                    }
-                }
-                catch (IOException e){
-                    m_diceFile = null;
-                }
-                catch (Exception e){
-                    m_diceFile = null;
-                }
-            }
-            else {
-                // Get the next roll and update which roll we are on.
-                int thisRoll = m_diceFileRolls[m_rollPos];
-                if (m_rollPos < m_diceFileRolls.length - 1){
-                    m_rollPos += 1;
-                }
-                else {
-                    m_rollPos = 0;
-                }
-                return thisRoll;
-            }
-        }
-        // We either loaded data or there was an error. Either way, call recursively to get a result.
-        return ThrowDice();
+    /**
+     * Puts back the state that the constructor can't be given, when restoring a tournament.
+     * @param nextPlayer The first player to play the current game. 1 or 2.
+     * @param random The RandomSource for this tournament, as it was.
+     * @param gameOver True if the current game's result has already been added to the scores.
+     */
+    void Restore(int nextPlayer, RandomSource random, boolean gameOver){
+        m_nextPlayer = nextPlayer;
+        m_random = random;
+        m_gameOver = gameOver;
     }
 }
@@ -0,0 +1,217 @@
+package edu.ramapo.tweisse.konojava;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Passes a tournament between activities, and keeps it over the process being killed, as a small
+ * byte array instead of a Serializable object graph. The tournament is written as a binary save,
+ * which carries the game's move history, followed by the state a save leaves out: the first player
+ * of the game, whether the game has been scored, the players' points, a quit, and the exact state
+ * of both random number streams.
+ *
+ * Tournaments with players or random sources this encoding doesn't know fall back to Java
+ * serialization inside the byte array, so anything can still be passed.
+ */
+public class TournamentHandoff {
+
+    /** The name of the Intent extra and Bundle entry holding the tournament. */
+    public static final String EXTRA = "tournament";
+
+    /** The first byte of the data, saying how the rest is encoded. */
+    private static final byte COMPACT = 1;
+    private static final byte SERIALIZED = 2;
+
+    /** The bits of the flags byte. */
+    private static final int GAME_OVER = 1;
+    private static final int WHITE_WON_BY_QUIT = 1 << 1;
+    private static final int BLACK_WON_BY_QUIT = 1 << 2;
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private TournamentHandoff(){
+    }
+
+    /**
+     * Puts a tournament in an Intent for the next activity.
+     * @param intent The Intent starting the next activity.
+     * @param tourn The Tournament to pass.
+     */
+    public static void Put(Intent intent, Tournament tourn){
+        intent.putExtra(EXTRA, Encode(tourn));
+    }
+
+    /**
+     * Gets the tournament passed to an activity.
+     * @param intent The Intent that started the activity.
+     * @return The Tournament, or null if none was passed.
+     */
+    public static Tournament Get(Intent intent){
+        return Decode(intent.getByteArrayExtra(EXTRA));
+    }
+
+    /**
+     * Keeps a tournament in an activity's saved state.
+     * @param state The Bundle given to onSaveInstanceState().
+     * @param tourn The Tournament to keep.
+     */
+    public static void Save(Bundle state, Tournament tourn){
+        state.putByteArray(EXTRA, Encode(tourn));
+    }
+
+    /**
+     * Gets the tournament kept in an activity's saved state.
+     * @param state The Bundle given to onCreate(), or null if there is none.
+     * @return The Tournament, or null if none was kept.
+     */
+    public static Tournament Restore(Bundle state){
+        return state == null ? null : Decode(state.getByteArray(EXTRA));
+    }
+
+    /**
+     * Encodes a tournament.
+     * @param tourn The Tournament to encode.
+     * @return A byte array holding everything needed to recreate the tournament.
+     */
+    public static byte[] Encode(Tournament tourn){
+        ByteArrayOutputStream data = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(data);
+        try {
+            if (!IsCompact(tourn)){
+                out.writeByte(SERIALIZED);
+                ObjectOutputStream objects = new ObjectOutputStream(out);
+                objects.writeObject(tourn);
+                objects.close();
+                return data.toByteArray();
+            }
+
+            Game game = tourn.GetGame();
+            byte save[] = BinarySerializer.Encode(tourn);
+            out.writeByte(COMPACT);
+            out.writeInt(save.length);
+            out.write(save);
+            out.writeByte(tourn.GetNextPlayer());
+            int flags = tourn.IsGameOver() ? GAME_OVER : 0;
+            if (game.GetQuitWinner() == PlayerColor.WHITE){
+                flags |= WHITE_WON_BY_QUIT;
+            }
+            else if (game.GetQuitWinner() == PlayerColor.BLACK){
+                flags |= BLACK_WON_BY_QUIT;
+            }
+            out.writeByte(flags);
+            out.writeInt(game.GetPlayer(1).GetPoints());
+            out.writeInt(game.GetPlayer(2).GetPoints());
+            WriteRandom(out, (SplitRandom)tourn.GetRandom());
+            WriteRandom(out, (SplitRandom)game.GetRandom());
+            out.close();
+        }
+        catch (IOException e){
+            // Writing to memory can't fail.
+            throw new IllegalStateException(e);
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * Decodes a tournament.
+     * @param data The bytes returned by Encode(), or null.
+     * @return The Tournament, or null if the data is null or can't be read.
+     */
+    public static Tournament Decode(byte data[]){
+        if (data == null || data.length == 0){
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            if (in.readByte() == SERIALIZED){
+                ObjectInputStream objects = new ObjectInputStream(in);
+                return (Tournament)objects.readObject();
+            }
+
+            int saveLength = in.readInt();
+            if (saveLength < 0 || saveLength > data.length - 5){
+                return null;
+            }
+            Tournament tourn = BinarySerializer.Decode(data, 5, saveLength);
+            if (tourn == null){
+                return null;
+            }
+            in.skipBytes(saveLength);
+            int nextPlayer = in.readByte();
+            int flags = in.readByte();
+            Game game = tourn.GetGame();
+            game.GetPlayer(1).m_points = in.readInt();
+            game.GetPlayer(2).m_points = in.readInt();
+            if ((flags & WHITE_WON_BY_QUIT) != 0){
+                game.SetQuitWinner(PlayerColor.WHITE);
+            }
+            else if ((flags & BLACK_WON_BY_QUIT) != 0){
+                game.SetQuitWinner(PlayerColor.BLACK);
+            }
+            tourn.Restore(nextPlayer, ReadRandom(in), (flags & GAME_OVER) != 0);
+            game.SetRandom(ReadRandom(in));
+            return tourn;
+        }
+        catch (IOException e){
+            return null;
+        }
+        catch (ClassNotFoundException e){
+            return null;
+        }
+    }
+
+    /**
+     * Checks if a tournament can be written in the compact encoding.
+     * @param tourn The Tournament to check.
+     * @return A boolean value. True if it only holds the players and random sources a save knows.
+     */
+    private static boolean IsCompact(Tournament tourn){
+        Game game = tourn.GetGame();
+        return game != null && IsSavedPlayer(game.GetPlayer(1)) && IsSavedPlayer(game.GetPlayer(2))
+                && tourn.GetRandom() != null && tourn.GetRandom().getClass() == SplitRandom.class
+                && game.GetRandom() != null && game.GetRandom().getClass() == SplitRandom.class;
+    }
+
+    /**
+     * Checks if a player can be recreated from a save.
+     * @param player The Player to check.
+     * @return A boolean value. True for a plain Human or Computer.
+     */
+    private static boolean IsSavedPlayer(Player player){
+        return player.getClass() == Human.class || player.getClass() == Computer.class;
+    }
+
+    /**
+     * Writes the exact state of a random number stream.
+     * @param out The DataOutputStream to write to.
+     * @param random The SplitRandom to write.
+     * @exception IOException If the stream can't be written.
+     */
+    private static void WriteRandom(DataOutputStream out, SplitRandom random) throws IOException {
+        out.writeLong(random.GetSeed());
+        out.writeLong(random.GetState());
+        out.writeLong(random.GetGamma());
+    }
+
+    /**
+     * Reads a random number stream written by WriteRandom().
+     * @param in The DataInputStream to read from.
+     * @return The SplitRandom, in the same state it was written in.
+     * @exception IOException If the stream ends early.
+     */
+    private static SplitRandom ReadRandom(DataInputStream in) throws IOException {
+        long initialSeed = in.readLong();
+        long seed = in.readLong();
+        long gamma = in.readLong();
+        return new SplitRandom(initialSeed, seed, gamma);
+    }
+}
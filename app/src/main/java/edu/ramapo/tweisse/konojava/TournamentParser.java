@@ -0,0 +1,420 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads tournaments saved in the text format written by Serializer. The file is read into a byte
+ * buffer and tokenized in place in a single pass: words are compared and numbers are read straight
+ * from the bytes, and the board's cells are decoded as they are found, so no String is created for
+ * any of them. A file that can't be read is reported with the line and column where reading failed.
+ *
+ * A parser keeps its buffers between calls, so reading many files with one parser allocates little
+ * more than the tournaments themselves. A parser must only be used by one thread at a time.
+ */
+public class TournamentParser {
+
+    /**
+     * Thrown when a file isn't a valid tournament.
+     */
+    public static class ParseException extends Exception {
+        /** The line and column where reading failed, both starting at 1. */
+        private int m_line;
+        private int m_column;
+
+        /**
+         * Creates an exception for a position in a file.
+         * @param message What was wrong.
+         * @param line The line where reading failed.
+         * @param column The column where reading failed.
+         */
+        ParseException(String message, int line, int column){
+            super("Line " + line + ", column " + column + ": " + message);
+            m_line = line;
+            m_column = column;
+        }
+
+        /**
+         * Gets the line where reading failed.
+         * @return The line number, starting at 1.
+         */
+        public int GetLine(){
+            return m_line;
+        }
+
+        /**
+         * Gets the column where reading failed.
+         * @return The column number, starting at 1.
+         */
+        public int GetColumn(){
+            return m_column;
+        }
+    }
+
+    /** The largest file read. Text saves are far smaller, so anything bigger isn't one. */
+    public static final int MAX_LENGTH = 1 << 20;
+
+    /** The words the parser looks for. */
+    private static final byte ROUND[] = Ascii("Round:");
+    private static final byte HUMAN[] = Ascii("Human:");
+    private static final byte TWO[] = Ascii("2:");
+    private static final byte COMPUTER[] = Ascii("Computer:");
+    private static final byte BOARD[] = Ascii("Board:");
+    private static final byte NEXT[] = Ascii("Next");
+    private static final byte PLAYER[] = Ascii("Player:");
+    private static final byte HUMAN_NAME[] = Ascii("Human");
+    private static final byte WHITE[] = Ascii("White");
+
+    /** The file being read, and the index after its last byte. */
+    private byte m_data[] = new byte[1024];
+    private int m_end;
+
+    /** The position being read, the current line, and where that line starts and ends. */
+    private int m_pos;
+    private int m_line;
+    private int m_lineStart;
+    private int m_lineEnd;
+
+    /** The last token read. */
+    private int m_tokenStart;
+    private int m_tokenEnd;
+
+    /** The board cells read so far. Grown as needed and kept for the next file. */
+    private byte m_cells[] = new byte[81];
+
+    /**
+     * Reads a tournament from a stream, until the end of the stream.
+     * @param in The InputStream holding the file. Not closed.
+     * @return The Tournament read.
+     * @exception IOException If the stream couldn't be read.
+     * @exception ParseException If the data isn't a valid tournament.
+     */
+    public Tournament Parse(InputStream in) throws IOException, ParseException {
+        int length = 0;
+        int read;
+        while ((read = in.read(m_data, length, m_data.length - length)) != -1){
+            length += read;
+            if (length == m_data.length){
+                if (length >= MAX_LENGTH){
+                    throw new ParseException("The file is too large to be a saved tournament.", 1, 1);
+                }
+                byte bigger[] = new byte[m_data.length * 2];
+                System.arraycopy(m_data, 0, bigger, 0, length);
+                m_data = bigger;
+            }
+        }
+        return ParseBuffer(length);
+    }
+
+    /**
+     * Reads a tournament from part of an array.
+     * @param data The bytes holding the file. Copied, so they can be reused.
+     * @param offset The index of the first byte.
+     * @param length The number of bytes.
+     * @return The Tournament read.
+     * @exception ParseException If the data isn't a valid tournament.
+     */
+    public Tournament Parse(byte data[], int offset, int length) throws ParseException {
+        if (length > MAX_LENGTH){
+            throw new ParseException("The file is too large to be a saved tournament.", 1, 1);
+        }
+        if (m_data.length < length){
+            m_data = new byte[length];
+        }
+        System.arraycopy(data, offset, m_data, 0, length);
+        return ParseBuffer(length);
+    }
+
+    /**
+     * Reads a tournament from the start of the buffer. The sections may come in any order, and
+     * lines that aren't part of any section are skipped, as they always have been.
+     * @param length The number of bytes in the buffer.
+     * @return The Tournament read.
+     * @exception ParseException If the data isn't a valid tournament.
+     */
+    private Tournament ParseBuffer(int length) throws ParseException {
+        m_end = length;
+        m_pos = 0;
+        m_line = 0;
+        m_lineEnd = -1;
+
+        int round = -1;
+        int nextPlayer = -1;
+        Player p1 = null;
+        Player p2 = null;
+        int p1Score = 0;
+        int p2Score = 0;
+        Board board = null;
+
+        while (NextLine()){
+            if (!NextToken()){
+                continue;
+            }
+            if (TokenIs(ROUND)){
+                Expect("a round number");
+                round = TokenInt();
+            }
+            // The human will always be player 1.
+            else if (TokenIs(HUMAN)){
+                p1Score = ReadScore();
+                p1 = ReadPlayer(PlayerType.HUMAN, p1Score);
+            }
+            // Human 2 or the computer will always be player 2.
+            else if (TokenIs(COMPUTER)){
+                p2Score = ReadScore();
+                p2 = ReadPlayer(PlayerType.COMPUTER, p2Score);
+            }
+            else if (TokenIs(HUMAN_NAME) && NextToken() && TokenIs(TWO)){
+                p2Score = ReadScore();
+                p2 = ReadPlayer(PlayerType.HUMAN, p2Score);
+            }
+            else if (TokenIs(BOARD)){
+                board = ReadBoard();
+            }
+            else if (TokenIs(NEXT) && NextToken() && TokenIs(PLAYER)){
+                Expect("the next player");
+                // Only the human is written as a single word.
+                nextPlayer = TokenIs(HUMAN_NAME) && !NextToken() ? 1 : 2;
+            }
+        }
+
+        // Make sure that every section was read.
+        int line = m_line + 1;
+        if (round == -1){
+            throw new ParseException("The round number is missing.", line, 1);
+        }
+        if (p1 == null){
+            throw new ParseException("The human player is missing.", line, 1);
+        }
+        if (p2 == null){
+            throw new ParseException("The second player is missing.", line, 1);
+        }
+        if (board == null){
+            throw new ParseException("The board is missing.", line, 1);
+        }
+        if (nextPlayer == -1){
+            throw new ParseException("The next player is missing.", line, 1);
+        }
+        Game game = new Game(p1, p2, nextPlayer, board);
+        return new Tournament(p1.GetType(), p1Score, p2.GetType(), p2Score, game, round, nextPlayer);
+    }
+
+    /**
+     * Reads the score line of a player.
+     * @return The score.
+     * @exception ParseException If the line is missing or holds no score.
+     */
+    private int ReadScore() throws ParseException {
+        ExpectLine("a score");
+        Expect("a score");
+        Expect("a score");
+        return TokenInt();
+    }
+
+    /**
+     * Reads the color line of a player, and creates the player.
+     * @param type The PlayerType of the player.
+     * @param score The player's score.
+     * @return The Player.
+     * @exception ParseException If the line is missing or holds no color.
+     */
+    private Player ReadPlayer(PlayerType type, int score) throws ParseException {
+        ExpectLine("a color");
+        Expect("a color");
+        Expect("a color");
+        PlayerColor color = TokenIs(WHITE) ? PlayerColor.WHITE : PlayerColor.BLACK;
+        if (type == PlayerType.HUMAN){
+            return new Human(color, score);
+        }
+        return new Computer(color, score);
+    }
+
+    /**
+     * Reads the board, up to the first blank line or the end of the file.
+     * @return The Board.
+     * @exception ParseException If a cell isn't valid, or there are the wrong number of cells.
+     */
+    private Board ReadBoard() throws ParseException {
+        int numCells = 0;
+        int boardLine = m_line;
+        while (NextLine()){
+            if (!NextToken()){
+                break;
+            }
+            do {
+                byte cell;
+                switch (m_data[m_tokenStart]){
+                    case 'O':
+                        cell = Board.EMPTY;
+                        break;
+                    case 'W':
+                        cell = Board.WHITE;
+                        break;
+                    case 'B':
+                        cell = Board.BLACK;
+                        break;
+                    default:
+                        throw Error("A cell must be O, W or B.");
+                }
+                // A doubled letter is a piece that can capture.
+                switch (m_tokenEnd - m_tokenStart){
+                    case 1:
+                        break;
+                    case 2:
+                        if (cell != Board.EMPTY){
+                            cell += 1;
+                        }
+                        break;
+                    default:
+                        throw Error("A cell is at most 2 letters.");
+                }
+                if (numCells == m_cells.length){
+                    byte bigger[] = new byte[m_cells.length * 2];
+                    System.arraycopy(m_cells, 0, bigger, 0, numCells);
+                    m_cells = bigger;
+                }
+                m_cells[numCells++] = cell;
+            } while (NextToken());
+        }
+
+        int size = (int)Math.sqrt(numCells);
+        byte cells[] = new byte[numCells];
+        System.arraycopy(m_cells, 0, cells, 0, numCells);
+        try {
+            if (size * size != numCells){
+                throw new IllegalArgumentException("The board isn't square.");
+            }
+            return new Board(size, cells);
+        }
+        catch (IllegalArgumentException e){
+            throw new ParseException("The board has " + numCells + " cells, which isn't a valid board.", boardLine, 1);
+        }
+    }
+
+    /**
+     * Moves to the next line.
+     * @return A boolean value. False if there are no more lines.
+     */
+    private boolean NextLine(){
+        m_pos = m_lineEnd + 1;
+        if (m_pos >= m_end){
+            return false;
+        }
+        m_line++;
+        m_lineStart = m_pos;
+        m_lineEnd = m_pos;
+        while (m_lineEnd < m_end && m_data[m_lineEnd] != '\n'){
+            m_lineEnd++;
+        }
+        return true;
+    }
+
+    /**
+     * Moves to the next line, which must exist.
+     * @param what What the line should hold, for the error message.
+     * @exception ParseException If there are no more lines.
+     */
+    private void ExpectLine(String what) throws ParseException {
+        if (!NextLine()){
+            throw new ParseException("Expected " + what + " but the file ended.", m_line + 1, 1);
+        }
+    }
+
+    /**
+     * Reads the next token on the current line.
+     * @return A boolean value. False if there are no more tokens on the line.
+     */
+    private boolean NextToken(){
+        while (m_pos < m_lineEnd && IsSpace(m_data[m_pos])){
+            m_pos++;
+        }
+        if (m_pos >= m_lineEnd){
+            return false;
+        }
+        m_tokenStart = m_pos;
+        while (m_pos < m_lineEnd && !IsSpace(m_data[m_pos])){
+            m_pos++;
+        }
+        m_tokenEnd = m_pos;
+        return true;
+    }
+
+    /**
+     * Reads the next token on the current line, which must exist.
+     * @param what What the token should be, for the error message.
+     * @exception ParseException If there are no more tokens on the line.
+     */
+    private void Expect(String what) throws ParseException {
+        if (!NextToken()){
+            throw new ParseException("Expected " + what + ".", m_line, m_pos - m_lineStart + 1);
+        }
+    }
+
+    /**
+     * Checks if the last token is a given word.
+     * @param word The ASCII bytes of the word.
+     * @return A boolean value. True if the token matches.
+     */
+    private boolean TokenIs(byte word[]){
+        if (m_tokenEnd - m_tokenStart != word.length){
+            return false;
+        }
+        for (int i = 0; i < word.length; i++){
+            if (m_data[m_tokenStart + i] != word[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the last token as a number.
+     * @return The number.
+     * @exception ParseException If the token isn't a number that fits in an int.
+     */
+    private int TokenInt() throws ParseException {
+        long value = 0;
+        for (int i = m_tokenStart; i < m_tokenEnd; i++){
+            int digit = m_data[i] - '0';
+            if (digit < 0 || digit > 9){
+                throw Error("Expected a number.");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE){
+                throw Error("The number is too large.");
+            }
+        }
+        return (int)value;
+    }
+
+    /**
+     * Creates an exception for the last token.
+     * @param message What was wrong.
+     * @return The ParseException, for the caller to throw.
+     */
+    private ParseException Error(String message){
+        return new ParseException(message, m_line, m_tokenStart - m_lineStart + 1);
+    }
+
+    /**
+     * Checks if a byte separates tokens.
+     * @param b The byte.
+     * @return A boolean value. True for spaces, tabs and carriage returns.
+     */
+    private static boolean IsSpace(byte b){
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /**
+     * Gets the bytes of an ASCII word.
+     * @param word The word.
+     * @return The bytes.
+     */
+    private static byte[] Ascii(String word){
+        byte bytes[] = new byte[word.length()];
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = (byte)word.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,123 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that binary saves load back to the same tournament and move history, and that damaged
+ * saves are refused.
+ */
+public class BinarySerializerTest {
+
+    /**
+     * Creates a tournament part way through a random game.
+     * @param size The size of the board.
+     * @param plies The most moves to play.
+     * @param seed The seed of the random moves.
+     * @return The Tournament.
+     */
+    private static Tournament Played(int size, int plies, long seed){
+        Game game = TestFixtures.NewGame(size, 1, seed);
+        Tournament tourn = TestFixtures.NewTournament(game, PlayerType.COMPUTER, 12, 34, 3, seed);
+        TestFixtures.PlayRandom(game, plies);
+        return tourn;
+    }
+
+    @Test
+    public void version1_roundTrips() throws Exception {
+        for (int size = 5; size <= 9; size += 2){
+            Tournament tourn = Played(size, 10, size);
+            tourn.GetGame().ClearHistory();
+            byte data[] = BinarySerializer.Encode(tourn);
+            assertEquals(1, data[BinarySerializer.MAGIC_LENGTH]);
+            assertEquals(BinarySerializer.EncodedLength(size), data.length);
+
+            Tournament loaded = BinarySerializer.Read(new ByteArrayInputStream(data));
+            assertNotNull(loaded);
+            assertEquals(TestFixtures.Text(tourn), TestFixtures.Text(loaded));
+            assertEquals(12, loaded.GetPlayerScore(1));
+            assertEquals(34, loaded.GetPlayerScore(2));
+            assertEquals(0, loaded.GetGame().GetMoveCount());
+            assertArrayEquals(data, BinarySerializer.Encode(loaded));
+        }
+    }
+
+    @Test
+    public void version2_roundTripsHistory() throws Exception {
+        for (int size = 5; size <= 9; size += 2){
+            Tournament tourn = Played(size, 30, size);
+            Game game = tourn.GetGame();
+            int moves = game.GetMoveCount();
+            assertTrue(moves > 0);
+            // Step back, so the moves after the saved position have to be kept too.
+            game.Seek(moves / 2);
+
+            byte data[] = BinarySerializer.Encode(tourn);
+            assertEquals(BinarySerializer.VERSION, data[BinarySerializer.MAGIC_LENGTH]);
+            assertEquals(BinarySerializer.EncodedLength(size, moves), data.length);
+
+            Tournament loaded = BinarySerializer.Read(new ByteArrayInputStream(data));
+            assertNotNull(loaded);
+            assertEquals(TestFixtures.Text(tourn), TestFixtures.Text(loaded));
+            Game loadedGame = loaded.GetGame();
+            assertEquals(moves, loadedGame.GetMoveCount());
+            assertEquals(moves / 2, loadedGame.GetPly());
+            // Only the cell and direction of a move are saved, not the AI's reason for it.
+            for (int i = 0; i < moves; i++){
+                assertEquals(PackedMove.GetFrom(game.GetMove(i)), PackedMove.GetFrom(loadedGame.GetMove(i)));
+                assertEquals(PackedMove.GetDirectionIndex(game.GetMove(i)),
+                        PackedMove.GetDirectionIndex(loadedGame.GetMove(i)));
+            }
+            assertArrayEquals(data, BinarySerializer.Encode(loaded));
+        }
+    }
+
+    @Test
+    public void decode_atOffset() throws Exception {
+        byte data[] = BinarySerializer.Encode(Played(7, 20, 1));
+        byte padded[] = new byte[data.length + 8];
+        System.arraycopy(data, 0, padded, 5, data.length);
+        Tournament loaded = BinarySerializer.Decode(padded, 5, data.length);
+        assertNotNull(loaded);
+        assertArrayEquals(data, BinarySerializer.Encode(loaded));
+    }
+
+    @Test
+    public void decode_rejectsBadChecksum() throws Exception {
+        byte data[] = BinarySerializer.Encode(Played(7, 20, 2));
+        for (int i = BinarySerializer.MAGIC_LENGTH + 1; i < data.length; i++){
+            data[i] ^= 0x10;
+            assertNull("Byte " + i, BinarySerializer.Decode(data, 0, data.length));
+            data[i] ^= 0x10;
+        }
+        assertNotNull(BinarySerializer.Decode(data, 0, data.length));
+    }
+
+    @Test
+    public void decode_rejectsTruncated() throws Exception {
+        Tournament tourn = Played(5, 20, 3);
+        byte version2[] = BinarySerializer.Encode(tourn);
+        tourn.GetGame().ClearHistory();
+        byte version1[] = BinarySerializer.Encode(tourn);
+        for (int length = 0; length < version1.length; length++){
+            assertNull(BinarySerializer.Decode(version1, 0, length));
+        }
+        for (int length = 0; length < version2.length; length++){
+            assertNull(BinarySerializer.Decode(version2, 0, length));
+            assertNull(BinarySerializer.Read(new ByteArrayInputStream(version2, 0, length)));
+        }
+    }
+
+    @Test
+    public void isBinary_tellsTextApart() throws Exception {
+        Tournament tourn = Played(5, 4, 4);
+        byte data[] = BinarySerializer.Encode(tourn);
+        assertTrue(BinarySerializer.IsBinary(data, 0, data.length));
+        byte text[] = TestFixtures.Text(tourn).getBytes("US-ASCII");
+        assertFalse(BinarySerializer.IsBinary(text, 0, text.length));
+        assertFalse(BinarySerializer.IsBinary(data, 0, BinarySerializer.MAGIC_LENGTH - 1));
+    }
+}
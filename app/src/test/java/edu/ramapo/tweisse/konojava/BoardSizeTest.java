@@ -0,0 +1,209 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks every board size against a plain scan of the cells, the way Board worked out its moves,
+ * points and winner before it kept its pieces in bitsets.
+ */
+public class BoardSizeTest {
+
+    /**
+     * Lists the moves of a player by checking every cell and direction.
+     * @param board The Board.
+     * @param color The PlayerColor of the player to move.
+     * @param moves The array to fill with packed moves, in the order Board.GenerateMoves() uses.
+     * @return The number of moves.
+     */
+    private static int ScanMoves(Board board, PlayerColor color, int moves[]){
+        int size = board.GetSize();
+        int count = 0;
+        for (int cell = 0; cell < size * size; cell++){
+            if (board.GetOccupantColor(cell) != color){
+                continue;
+            }
+            for (int dir = 0; dir < 4; dir++){
+                int row = cell / size + PackedMove.RowOffset(dir);
+                int col = cell % size + PackedMove.ColOffset(dir);
+                if (row < 0 || row >= size || col < 0 || col >= size){
+                    continue;
+                }
+                PlayerColor target = board.GetOccupantColor(row * size + col);
+                if (target == null){
+                    moves[count++] = PackedMove.Play(cell, dir);
+                }
+                else if (target != color && board.CanCapture(cell)){
+                    moves[count++] = PackedMove.Play(cell, dir, true, null, -1);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds up a player's points by checking every cell.
+     * @param board The Board.
+     * @param color The PlayerColor of the player.
+     * @return The points.
+     */
+    private static int ScanPoints(Board board, PlayerColor color){
+        PlayerColor opponent = PlayerColor.Opponent(color);
+        int size = board.GetSize();
+        int points = 0;
+        int opponents = 0;
+        for (int cell = 0; cell < size * size; cell++){
+            PlayerColor occupant = board.GetOccupantColor(cell);
+            if (occupant == color && board.GetOwner(cell) == opponent){
+                points += board.GetValue(cell);
+            }
+            else if (occupant == opponent){
+                opponents++;
+            }
+        }
+        return points + 5 * (size + 2 - opponents);
+    }
+
+    /**
+     * Works out the winner by checking every cell.
+     * @param board The Board.
+     * @return The winning PlayerColor, PlayerColor.BOTH for a tie, or null if nobody has won.
+     */
+    private static PlayerColor ScanWinner(Board board){
+        int size = board.GetSize();
+        int white = 0;
+        int black = 0;
+        boolean whiteHome = true;
+        boolean blackHome = true;
+        for (int cell = 0; cell < size * size; cell++){
+            PlayerColor occupant = board.GetOccupantColor(cell);
+            if (occupant == PlayerColor.WHITE){
+                white++;
+                whiteHome &= board.GetOwner(cell) == PlayerColor.BLACK;
+            }
+            else if (occupant == PlayerColor.BLACK){
+                black++;
+                blackHome &= board.GetOwner(cell) == PlayerColor.WHITE;
+            }
+        }
+        if (white == 0){
+            return PlayerColor.BLACK;
+        }
+        if (black == 0){
+            return PlayerColor.WHITE;
+        }
+        if (!whiteHome && !blackHome){
+            return null;
+        }
+        int whitePoints = ScanPoints(board, PlayerColor.WHITE);
+        int blackPoints = ScanPoints(board, PlayerColor.BLACK);
+        if (whitePoints == blackPoints){
+            return PlayerColor.BOTH;
+        }
+        return whitePoints > blackPoints ? PlayerColor.WHITE : PlayerColor.BLACK;
+    }
+
+    /**
+     * Checks a board's moves, points and winner against the scans.
+     * @param board The Board to check.
+     * @param what A description of the board, for failures.
+     */
+    private static void AssertMatchesScan(Board board, String what){
+        int size = board.GetSize();
+        int expected[] = new int[size * size * 4];
+        int actual[] = new int[size * size * 4];
+        PlayerColor colors[] = {PlayerColor.WHITE, PlayerColor.BLACK};
+        for (PlayerColor color : colors){
+            int count = ScanMoves(board, color, expected);
+            assertEquals(what, count, board.GenerateMoves(color, actual));
+            for (int i = 0; i < count; i++){
+                assertEquals(what, expected[i], actual[i]);
+            }
+            assertEquals(what, ScanPoints(board, color), board.GetPoints(color));
+        }
+        assertEquals(what, ScanWinner(board), board.GetWinner());
+    }
+
+    @Test
+    public void newBoard_everySize() throws Exception {
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size += 2){
+            assertTrue(Board.IsValidSize(size));
+            Board board = new Board(size);
+            assertEquals(size, board.GetSize());
+            int white = 0;
+            int black = 0;
+            for (int cell = 0; cell < size * size; cell++){
+                if (board.GetOccupantColor(cell) == PlayerColor.WHITE){
+                    white++;
+                }
+                else if (board.GetOccupantColor(cell) == PlayerColor.BLACK){
+                    black++;
+                }
+            }
+            assertEquals(size + 2, white);
+            assertEquals(size + 2, black);
+            AssertMatchesScan(board, "New board of size " + size);
+        }
+    }
+
+    @Test
+    public void invalidSizes_areRefused() throws Exception {
+        int sizes[] = {-1, 0, 3, 4, 6, 24, 26, 27};
+        for (int size : sizes){
+            assertFalse(Board.IsValidSize(size));
+            try {
+                new Board(size);
+                fail("Board of size " + size);
+            }
+            catch (IllegalArgumentException e){
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void playedGames_matchScan() throws Exception {
+        SplitRandom random = new SplitRandom(48);
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size += 2){
+            int moves[] = new int[size * size * 4];
+            for (int game = 0; game < 4; game++){
+                Board board = new Board(size);
+                PlayerColor color = PlayerColor.WHITE;
+                for (int ply = 0; ply < 300 && board.GetWinner() == null; ply++){
+                    AssertMatchesScan(board, "Size " + size + ", game " + game + ", ply " + ply);
+                    int count = board.GenerateMoves(color, moves);
+                    if (count == 0){
+                        break;
+                    }
+                    board.MakeMove(moves[random.NextInt(count)], color);
+                    color = PlayerColor.Opponent(color);
+                }
+                AssertMatchesScan(board, "Size " + size + ", game " + game + ", end");
+            }
+        }
+    }
+
+    @Test
+    public void randomBoards_matchScan() throws Exception {
+        SplitRandom random = new SplitRandom(25);
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size += 2){
+            Board layout = new Board(size);
+            for (int i = 0; i < 60; i++){
+                // Every third board keeps each side's pieces in the other's home, so that someone wins.
+                boolean home = i % 3 == 0;
+                byte cells[] = new byte[size * size];
+                for (int cell = 0; cell < cells.length; cell++){
+                    byte value = (byte)random.NextInt(Board.BLACK_CAPTURE + 1);
+                    PlayerColor occupant = Board.ColorOf(value);
+                    if (random.NextInt(3) != 0 || (home && occupant != null
+                            && layout.GetOwner(cell) != PlayerColor.Opponent(occupant))){
+                        value = Board.EMPTY;
+                    }
+                    cells[cell] = value;
+                }
+                AssertMatchesScan(new Board(size, cells), "Size " + size + ", board " + i);
+            }
+        }
+    }
+}
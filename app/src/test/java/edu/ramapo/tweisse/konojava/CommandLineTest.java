@@ -0,0 +1,48 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that flags are read with their values, that missing flags fall back, and that bad
+ * arguments are reported.
+ */
+public class CommandLineTest {
+
+    @Test
+    public void get_readsValues(){
+        CommandLine line = new CommandLine(new String[]{ "--threads", "4", "--sizes", "5, 9", "--elo1", "2.5",
+                "--dir", "games", "--seed", "12" }, "--threads", "--sizes", "--elo1", "--dir", "--seed", "--out");
+        assertEquals(4, line.GetInt("--threads", 1));
+        assertArrayEquals(new int[]{5, 9}, line.GetInts("--sizes", null));
+        assertEquals(2.5, line.GetDouble("--elo1", 0), 0);
+        assertEquals("games", line.GetFile("--dir").getPath());
+        assertEquals(12, line.GetLong("--seed", 0));
+        assertEquals(new SplitRandom(12).NextLong(), line.GetRandom("--seed").NextLong());
+
+        assertFalse(line.Has("--out"));
+        assertTrue(line.Has("--dir"));
+        assertEquals("x", line.GetString("--out", "x"));
+        assertNull(line.GetFile("--out"));
+    }
+
+    @Test
+    public void badArguments_throw(){
+        String bad[][] = { {"--thread", "4"}, {"--threads"}, {"4"} };
+        for (String args[] : bad){
+            try {
+                new CommandLine(args, "--threads");
+                fail();
+            }
+            catch (IllegalArgumentException e){
+                // Expected.
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the streaming dice file parser gives the same rolls as the line by line parser that
+ * Tournament used before it, on the same files.
+ */
+public class DiceProviderTest {
+
+    /** Dice files in the layouts players have written them. */
+    private static final String FIXTURES[] = {
+            "1 2\n3 4\n5 6\n",
+            "1 2\n3 4\n5 6",
+            "6 6\r\n1 1\r\n",
+            "\n\n3 5\n\n\n2 4\n\n",
+            "   4\t2   \n\t1 6\n",
+            "# Rolls for the first round\n4 5\n# then the second\n2 3\n",
+            "// player one, then two\n6 1\n3 3 3\n7\n2 2",
+            "+3 -1\n0 12\n",
+            "1 2\n2147483647 -2147483648",
+            // Anything that isn't a number on a line with two values means the file can't be used.
+            "1 2\nthree 4\n",
+            "1 2\n# two words\n",
+            "1 2\n3 99999999999\n",
+            "1 2\n- 4\n",
+            // Files without any rolls.
+            "",
+            "\n\n\n",
+            "# nothing here\n5\n1 2 3\n"};
+
+    /**
+     * Reads a dice file the way Tournament.ThrowDice() used to, one String per line and per value.
+     * @param text The dice file.
+     * @return The rolls, or null if the file made the dice roll randomly.
+     */
+    private static int[] OldRolls(String text) throws IOException {
+        ArrayList<Integer> rolls = new ArrayList<>();
+        BufferedReader buff = new BufferedReader(new StringReader(text));
+        String line;
+        while ((line = buff.readLine()) != null){
+            String words[] = line.trim().split("\\s+");
+            if (words.length == 2){
+                try {
+                    rolls.add(Integer.parseInt(words[0]));
+                    rolls.add(Integer.parseInt(words[1]));
+                }
+                catch (NumberFormatException e){
+                    return null;
+                }
+            }
+        }
+        if (rolls.isEmpty()){
+            return null;
+        }
+        int result[] = new int[rolls.size()];
+        for (int i = 0; i < result.length; i++){
+            result[i] = rolls.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a dice file through the streaming parser.
+     * @param text The dice file.
+     * @param chunk The most bytes the stream hands over at a time, to test values split between reads.
+     * @return The DiceProvider.
+     */
+    private static DiceProvider NewRolls(String text, final int chunk) throws IOException {
+        InputStream stream = new ByteArrayInputStream(text.getBytes("US-ASCII")) {
+            @Override
+            public synchronized int read(byte buffer[], int offset, int length){
+                return super.read(buffer, offset, Math.min(length, chunk));
+            }
+        };
+        return DiceProvider.FromStream(stream, new SplitRandom(1));
+    }
+
+    /**
+     * Checks that a provider gives the expected rolls, twice over to check that they start over.
+     * @param what A description of the provider, for failures.
+     * @param expected The rolls, or null if the provider should roll randomly.
+     * @param dice The DiceProvider to check.
+     */
+    private static void AssertRolls(String what, int expected[], DiceProvider dice){
+        if (expected == null){
+            assertFalse(what, dice.IsScripted());
+            for (int i = 0; i < 100; i++){
+                int roll = dice.Roll();
+                assertTrue(what, roll >= 1 && roll <= 6);
+            }
+            return;
+        }
+        assertTrue(what, dice.IsScripted());
+        for (int i = 0; i < expected.length * 2; i++){
+            assertEquals(what + ", roll " + i, expected[i % expected.length], dice.Roll());
+        }
+    }
+
+    @Test
+    public void fixtures_matchOldParser() throws Exception {
+        int chunks[] = {Integer.MAX_VALUE, 1, 3};
+        for (String fixture : FIXTURES){
+            int expected[] = OldRolls(fixture);
+            for (int chunk : chunks){
+                AssertRolls("\"" + fixture + "\" read " + chunk + " bytes at a time", expected, NewRolls(fixture, chunk));
+            }
+        }
+    }
+
+    @Test
+    public void largeFile_growsBuffers() throws Exception {
+        // Far more rolls than the first roll array holds, over more than one read buffer.
+        SplitRandom random = new SplitRandom(30);
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 20000; line++){
+            if (line % 97 == 0){
+                text.append("# section ").append(line).append('\n');
+            }
+            if (line % 89 == 0){
+                text.append('\n');
+            }
+            text.append(1 + random.NextInt(6)).append(' ').append(1 + random.NextInt(6)).append('\n');
+        }
+        int expected[] = OldRolls(text.toString());
+        assertEquals(40000, expected.length);
+        AssertRolls("Large file", expected, NewRolls(text.toString(), Integer.MAX_VALUE));
+        AssertRolls("Large file in small reads", expected, NewRolls(text.toString(), 1000));
+    }
+
+    @Test
+    public void fork_startsOverWithSharedRolls() throws Exception {
+        DiceProvider dice = NewRolls("1 2\n3 4\n5 6\n", Integer.MAX_VALUE);
+        assertEquals(1, dice.Roll());
+        assertEquals(2, dice.Roll());
+
+        // A fork starts from the first roll and keeps its own position.
+        DiceProvider fork = dice.Fork(new SplitRandom(2));
+        assertTrue(fork.IsScripted());
+        assertEquals(1, fork.Roll());
+        assertEquals(3, dice.Roll());
+        assertEquals(2, fork.Roll());
+        assertEquals(4, dice.Roll());
+        AssertRolls("Fork of a fork", new int[]{1, 2, 3, 4, 5, 6}, fork.Fork(new SplitRandom(3)));
+
+        // A fork of a random provider rolls randomly from its own source.
+        DiceProvider random = NewRolls("", Integer.MAX_VALUE).Fork(new SplitRandom(4));
+        DiceProvider same = new DiceProvider(new SplitRandom(4));
+        assertFalse(random.IsScripted());
+        for (int i = 0; i < 50; i++){
+            assertEquals(same.Roll(), random.Roll());
+        }
+    }
+
+    @Test
+    public void fromFile_missingFileRollsRandomly() throws Exception {
+        File missing = new File(System.getProperty("java.io.tmpdir"), "missing-" + System.nanoTime() + ".txt");
+        AssertRolls("Missing file", null, DiceProvider.FromFile(missing, new SplitRandom(5)));
+    }
+}
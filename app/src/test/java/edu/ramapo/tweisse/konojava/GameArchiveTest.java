@@ -0,0 +1,337 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that games read back as they were added, that the index counts what the games reached,
+ * that an archive reopened after a crash indexes what the crash left behind, and that an index
+ * spread over many chunks reads the same as one in a single chunk.
+ */
+public class GameArchiveTest {
+    /** Small enough that the games of a test spread over several segments. */
+    private static final int SEGMENT_SIZE = 4096;
+
+    private File m_dir;
+    private File m_otherDir;
+
+    @Before
+    public void setUp() throws IOException {
+        m_dir = TestFixtures.NewTempDir("archive");
+        m_otherDir = TestFixtures.NewTempDir("archive");
+    }
+
+    @After
+    public void tearDown(){
+        TestFixtures.DeleteDir(m_dir);
+        TestFixtures.DeleteDir(m_otherDir);
+    }
+
+    @Test
+    public void add_readsBack() throws IOException {
+        GameArchive archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        List<GameResult> games = Play(30, 1);
+        long refs[] = new long[games.size()];
+        for (int i = 0; i < refs.length; i++){
+            refs[i] = archive.Add(games.get(i));
+        }
+        for (int i = 0; i < refs.length; i++){
+            GameArchive.ArchivedGame back = archive.Read(refs[i]);
+            assertEquals(refs[i], back.GetRef());
+            assertArrayEquals(games.get(i).GetMoves(), back.GetMoves());
+            assertEquals(games.get(i).GetStart().GetHash(), back.GetStart().GetHash());
+        }
+        assertTrue(refs[refs.length - 1] >>> 32 > 0);
+
+        // A game from a custom start keeps its board, first mover and winner.
+        Board start = new Board(5);
+        int moves[] = new int[4 * (PackedMove.MAX_CELL + 1)];
+        start.GenerateMoves(PlayerColor.WHITE, moves);
+        start.Apply(moves[0]);
+        long ref = archive.Add(start, PlayerColor.BLACK, new int[]{ PackedMove.QUIT }, 1, PlayerColor.WHITE);
+        GameArchive.ArchivedGame custom = archive.Read(ref);
+        assertEquals(start.GetHash(), custom.GetStart().GetHash());
+        assertEquals(PlayerColor.BLACK, custom.GetFirstColor());
+        assertEquals(PlayerColor.WHITE, custom.GetWinner());
+        assertArrayEquals(new int[]{ PackedMove.QUIT }, custom.GetMoves());
+        archive.Close();
+    }
+
+    @Test
+    public void lookup_countsGames() throws IOException {
+        GameArchive archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        List<GameResult> games = Play(40, 2);
+        int starts = 0;
+        int whiteWins = 0;
+        long refs[] = new long[games.size()];
+        for (int i = 0; i < refs.length; i++){
+            GameResult game = games.get(i);
+            refs[i] = archive.Add(game);
+            if (game.GetBoardSize() == 7 && FirstColor(game) == PlayerColor.WHITE){
+                starts++;
+                if (WinnerColor(game) == PlayerColor.WHITE){
+                    whiteWins++;
+                }
+            }
+        }
+
+        GameArchive.PositionStats stats = archive.Lookup(new Board(7), PlayerColor.WHITE);
+        assertEquals(starts, stats.GetGames());
+        assertEquals(whiteWins, stats.GetWins(PlayerColor.WHITE));
+        long next = 0;
+        for (int i = 0; i < stats.GetMoveCount(); i++){
+            next += stats.GetMoveGames(i);
+        }
+        assertEquals(starts, next);
+
+        // The last position of each game lists the game at its final ply.
+        long found[] = new long[games.size()];
+        int plies[] = new int[games.size()];
+        for (int i = 0; i < refs.length; i++){
+            GameArchive.ArchivedGame game = archive.Read(refs[i]);
+            Board board = game.GetStart();
+            PlayerColor toMove = game.GetFirstColor();
+            int moves[] = game.GetMoves();
+            int ply = 0;
+            while (ply < moves.length && PackedMove.IsPlay(moves[ply])){
+                board.Apply(moves[ply++]);
+                toMove = PlayerColor.Opponent(toMove);
+            }
+            int count = archive.FindGames(board, toMove, found, plies);
+            boolean listed = false;
+            for (int j = 0; j < count; j++){
+                listed |= found[j] == refs[i] && plies[j] == ply;
+            }
+            assertTrue(listed);
+        }
+        archive.Close();
+    }
+
+    @Test
+    public void reopen_keepsIndex() throws IOException {
+        GameArchive archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        List<GameResult> games = Play(20, 3);
+        for (GameResult game : games){
+            archive.Add(game);
+        }
+        long keys = archive.GetIndexedKeys();
+        long positions = archive.GetPositionCount();
+        archive.Close();
+
+        archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        assertEquals(keys, archive.GetIndexedKeys());
+        assertEquals(positions, archive.GetPositionCount());
+        long ref = archive.Add(games.get(0));
+        assertArrayEquals(games.get(0).GetMoves(), archive.Read(ref).GetMoves());
+        archive.Close();
+    }
+
+    @Test
+    public void reopen_indexesGamesAfterCrash() throws IOException {
+        // The same games go into both archives, but only the first half is indexed in one of them,
+        // as if it crashed after writing the rest. The last game's length never made it to disk.
+        List<GameResult> games = Play(40, 4);
+        GameArchive expected = new GameArchive(m_otherDir, SEGMENT_SIZE);
+        GameArchive crashed = new GameArchive(m_dir, SEGMENT_SIZE);
+        long last = 0;
+        for (int i = 0; i < games.size(); i++){
+            last = expected.Add(games.get(i));
+            if (i < games.size() / 2){
+                crashed.Add(games.get(i));
+            }
+        }
+        crashed.Close();
+        expected.Close();
+        for (File file : m_otherDir.listFiles()){
+            if (file.getName().startsWith(GameArchive.SEGMENT_PREFIX)){
+                TestFixtures.WriteFile(new File(m_dir, file.getName()), TestFixtures.ReadFile(file));
+            }
+        }
+        RandomAccessFile segment = new RandomAccessFile(
+                new File(m_dir, String.format("%s%05d.seg", GameArchive.SEGMENT_PREFIX, last >>> 32)), "rw");
+        segment.seek(last & 0xFFFFFFFFL);
+        segment.writeInt(0);
+        segment.close();
+
+        // The reference archive without the last game.
+        TestFixtures.DeleteDir(m_otherDir);
+        m_otherDir = TestFixtures.NewTempDir("archive");
+        expected = new GameArchive(m_otherDir, SEGMENT_SIZE);
+        for (int i = 0; i < games.size() - 1; i++){
+            expected.Add(games.get(i));
+        }
+
+        crashed = new GameArchive(m_dir, SEGMENT_SIZE);
+        AssertSameIndex(expected, crashed, games);
+        assertEquals(last, crashed.Add(games.get(games.size() - 1)));
+        crashed.Close();
+        expected.Close();
+    }
+
+    @Test
+    public void reopen_rebuildsMissingIndex() throws IOException {
+        GameArchive archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        List<GameResult> games = Play(20, 5);
+        for (GameResult game : games){
+            archive.Add(game);
+        }
+        archive.Close();
+        GameArchive expected = new GameArchive(m_otherDir, SEGMENT_SIZE);
+        for (GameResult game : games){
+            expected.Add(game);
+        }
+
+        assertTrue(new File(m_dir, GameArchive.INDEX_FILE).delete());
+        assertTrue(new File(m_dir, GameArchive.POSTINGS_FILE).delete());
+        archive = new GameArchive(m_dir, SEGMENT_SIZE);
+        AssertSameIndex(expected, archive, games);
+        archive.Close();
+        expected.Close();
+    }
+
+    @Test
+    public void add_growsTable() throws IOException {
+        // Enough keys to double the table at least once.
+        GameArchive archive = new GameArchive(m_dir, 1 << 20);
+        List<GameResult> games = new ArrayList<GameResult>();
+        SplitRandom random = new SplitRandom(6);
+        while (archive.GetIndexedKeys() < 40000){
+            GameResult game = HeadlessGame.PlayGame(games.size(), "random", "random", 9, 1 + random.NextInt(2),
+                    new SplitRandom(random.NextLong()), 200);
+            games.add(game);
+            archive.Add(game);
+        }
+        GameArchive expected = new GameArchive(m_otherDir, 1 << 20);
+        for (GameResult game : games){
+            expected.Add(game);
+        }
+        archive.Close();
+        archive = new GameArchive(m_dir, 1 << 20);
+        AssertSameIndex(expected, archive, games);
+        archive.Close();
+        expected.Close();
+    }
+
+    @Test
+    public void smallChunks_growAcrossChunks() throws IOException {
+        // A new archive's index files are a single chunk.
+        GameArchive archive = new GameArchive(m_dir, 1 << 20, 4096);
+        assertEquals(4096, new File(m_dir, GameArchive.INDEX_FILE).length());
+        assertEquals(4096, new File(m_dir, GameArchive.POSTINGS_FILE).length());
+
+        // The table starts at 64 slots, the most that fit in the chunk with the header, so every
+        // doubling after the first spreads it over more chunks.
+        List<GameResult> games = Play(60, 7);
+        GameArchive expected = new GameArchive(m_otherDir, 1 << 20);
+        for (GameResult game : games){
+            archive.Add(game);
+            expected.Add(game);
+        }
+        assertTrue(new File(m_dir, GameArchive.INDEX_FILE).length() > 16 * 4096);
+        assertTrue(new File(m_dir, GameArchive.POSTINGS_FILE).length() > 16 * 4096);
+        AssertSameIndex(expected, archive, games);
+
+        // The chunk length can change between openings.
+        archive.Close();
+        archive = new GameArchive(m_dir, 1 << 20, 1 << 16);
+        AssertSameIndex(expected, archive, games);
+        archive.Close();
+        expected.Close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunkLength_mustBePowerOfTwo() throws IOException {
+        new GameArchive(m_dir, 1 << 20, 3000);
+    }
+
+    /**
+     * Plays games between a random and a heuristic player on every board size.
+     * @param count The number of games.
+     * @param seed The seed of the games.
+     * @return The GameResults, each holding its moves.
+     */
+    private static List<GameResult> Play(int count, long seed){
+        SplitRandom random = new SplitRandom(seed);
+        List<GameResult> games = new ArrayList<GameResult>();
+        for (int i = 0; i < count; i++){
+            games.add(HeadlessGame.PlayGame(i, "random", "heuristic", 5 + 2 * (i % 3), 1 + random.NextInt(2),
+                    new SplitRandom(random.NextLong()), 200));
+        }
+        return games;
+    }
+
+    /**
+     * Checks that two archives give the same counts for every position the games reached.
+     * @param expected The archive to compare against.
+     * @param actual The archive being checked.
+     * @param games The games added to both.
+     */
+    private static void AssertSameIndex(GameArchive expected, GameArchive actual, List<GameResult> games){
+        assertEquals(expected.GetIndexedKeys(), actual.GetIndexedKeys());
+        assertEquals(expected.GetPositionCount(), actual.GetPositionCount());
+        for (GameResult game : games){
+            Board board = new Board(game.GetStart());
+            PlayerColor toMove = FirstColor(game);
+            int moves[] = game.GetMoves();
+            for (int ply = 0; ; ply++){
+                GameArchive.PositionStats want = expected.Lookup(board, toMove);
+                GameArchive.PositionStats got = actual.Lookup(board, toMove);
+                assertEquals(want.GetGames(), got.GetGames());
+                assertEquals(want.GetWins(PlayerColor.WHITE), got.GetWins(PlayerColor.WHITE));
+                assertEquals(want.GetWins(PlayerColor.BLACK), got.GetWins(PlayerColor.BLACK));
+                assertEquals(want.GetMoveCount(), got.GetMoveCount());
+                for (int i = 0; i < want.GetMoveCount(); i++){
+                    assertEquals(want.GetMove(i), got.GetMove(i));
+                    assertEquals(want.GetMoveGames(i), got.GetMoveGames(i));
+                }
+                int length = (int)want.GetGames() + 1;
+                long wantRefs[] = new long[length];
+                long gotRefs[] = new long[length];
+                int wantPlies[] = new int[length];
+                int gotPlies[] = new int[length];
+                assertEquals(expected.FindGames(board, toMove, wantRefs, wantPlies),
+                        actual.FindGames(board, toMove, gotRefs, gotPlies));
+                assertArrayEquals(wantRefs, gotRefs);
+                assertArrayEquals(wantPlies, gotPlies);
+                if (ply == moves.length || !PackedMove.IsPlay(moves[ply])){
+                    break;
+                }
+                board.Apply(moves[ply]);
+                toMove = PlayerColor.Opponent(toMove);
+            }
+        }
+    }
+
+    /**
+     * @param game A GameResult.
+     * @return The PlayerColor that moved first.
+     */
+    private static PlayerColor FirstColor(GameResult game){
+        return game.GetFirstPlayer() == 1 ? game.GetP1Color() : PlayerColor.Opponent(game.GetP1Color());
+    }
+
+    /**
+     * @param game A GameResult.
+     * @return The PlayerColor that won, BOTH for a tie, or null if the game did not finish.
+     */
+    private static PlayerColor WinnerColor(GameResult game){
+        if (game.GetWinner() < 0){
+            return null;
+        }
+        if (game.GetWinner() == 0){
+            return PlayerColor.BOTH;
+        }
+        return game.GetWinner() == 1 ? game.GetP1Color() : PlayerColor.Opponent(game.GetP1Color());
+    }
+}
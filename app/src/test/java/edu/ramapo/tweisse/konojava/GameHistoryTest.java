@@ -0,0 +1,143 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that stepping through a game's history with Undo(), Redo() and Seek() gets back exactly the
+ * positions that were played, on both sides of the copies of the board kept every
+ * Game.CHECKPOINT_INTERVAL moves.
+ */
+public class GameHistoryTest {
+
+    /** The number of moves played, enough to pass two copies of the board. */
+    private static final int MOVES = Game.CHECKPOINT_INTERVAL * 2 + 5;
+
+    /** The game being stepped through. */
+    private Game m_game;
+
+    /** The position after each number of moves played. */
+    private ArrayList<String> m_states = new ArrayList<>();
+
+    /**
+     * Describes everything about the current position that the history has to restore.
+     * @param game The Game.
+     * @return A String holding the cells, both players' points and the player to move.
+     */
+    private static String State(Game game){
+        Board board = game.GetBoard();
+        StringBuilder state = new StringBuilder();
+        for (int cell = 0; cell < board.GetSize() * board.GetSize(); cell++){
+            state.append(board.GetCell(cell));
+        }
+        state.append(' ').append(game.GetPlayer(1).GetPoints());
+        state.append(' ').append(game.GetPlayer(2).GetPoints());
+        state.append(' ').append(game.GetNextPlayer());
+        state.append(' ').append(game.GetBoard().GetHash());
+        return state.toString();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        m_game = TestFixtures.NewGame(9, 2, 11);
+        m_states.add(State(m_game));
+        for (int i = 0; i < MOVES; i++){
+            int move = m_game.PrePlay(PackedMove.NONE);
+            assertTrue("The game ended after " + i + " moves.", PackedMove.IsPlay(move));
+            assertNull(m_game.Play(move));
+            m_states.add(State(m_game));
+        }
+        assertEquals(MOVES, m_game.GetMoveCount());
+        assertEquals(MOVES, m_game.GetPly());
+        assertEquals(2, m_game.GetFirstPlayer());
+    }
+
+    @Test
+    public void undoRedo_restorePositions() throws Exception {
+        for (int ply = MOVES - 1; ply >= 0; ply--){
+            assertTrue(m_game.Undo());
+            assertEquals(ply, m_game.GetPly());
+            assertEquals("Ply " + ply, m_states.get(ply), State(m_game));
+        }
+        assertFalse(m_game.Undo());
+        for (int ply = 1; ply <= MOVES; ply++){
+            assertTrue(m_game.Redo());
+            assertEquals("Ply " + ply, m_states.get(ply), State(m_game));
+        }
+        assertFalse(m_game.Redo());
+        assertEquals(MOVES, m_game.GetMoveCount());
+    }
+
+    @Test
+    public void seek_acrossCheckpoints() throws Exception {
+        int interval = Game.CHECKPOINT_INTERVAL;
+        int targets[] = {interval - 1, interval, interval + 1, 0, interval * 2 + 1, interval * 2 - 1, 1, MOVES,
+                interval, interval * 2, 3, MOVES - 1, interval + 1, interval - 1};
+        for (int target : targets){
+            m_game.Seek(target);
+            assertEquals(target, m_game.GetPly());
+            assertEquals("Ply " + target, m_states.get(target), State(m_game));
+            assertEquals(MOVES, m_game.GetMoveCount());
+        }
+        // Every position, stepping with Undo() and Redo() around each one.
+        for (int target = 0; target <= MOVES; target++){
+            m_game.Seek(target);
+            assertEquals("Ply " + target, m_states.get(target), State(m_game));
+            if (m_game.Undo()){
+                assertEquals(m_states.get(target - 1), State(m_game));
+                m_game.Redo();
+            }
+            if (m_game.Redo()){
+                assertEquals(m_states.get(target + 1), State(m_game));
+                m_game.Undo();
+            }
+            assertEquals(m_states.get(target), State(m_game));
+        }
+    }
+
+    @Test
+    public void play_dropsMovesTakenBack() throws Exception {
+        int ply = Game.CHECKPOINT_INTERVAL + 2;
+        m_game.Seek(ply);
+        int move = m_game.PrePlay(PackedMove.NONE);
+        assertNull(m_game.Play(move));
+        assertEquals(ply + 1, m_game.GetMoveCount());
+        assertFalse(m_game.Redo());
+
+        // The new branch steps back across the checkpoint the same as the old one did.
+        String after = State(m_game);
+        m_game.Seek(Game.CHECKPOINT_INTERVAL - 1);
+        assertEquals(m_states.get(Game.CHECKPOINT_INTERVAL - 1), State(m_game));
+        m_game.Seek(ply + 1);
+        assertEquals(after, State(m_game));
+    }
+
+    @Test
+    public void quit_isUndone() throws Exception {
+        m_game.Seek(Game.CHECKPOINT_INTERVAL);
+        assertFalse(m_game.IsWinner());
+        assertEquals(MoveError.QUIT, m_game.Play(PackedMove.QUIT));
+        assertTrue(m_game.IsWinner());
+        assertEquals(Game.CHECKPOINT_INTERVAL + 1, m_game.GetMoveCount());
+
+        assertTrue(m_game.Undo());
+        assertFalse(m_game.IsWinner());
+        assertEquals(m_states.get(Game.CHECKPOINT_INTERVAL), State(m_game));
+        assertTrue(m_game.Redo());
+        assertTrue(m_game.IsWinner());
+
+        m_game.Seek(0);
+        assertFalse(m_game.IsWinner());
+        m_game.Seek(Game.CHECKPOINT_INTERVAL + 1);
+        assertTrue(m_game.IsWinner());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void seek_pastEndFails() throws Exception {
+        m_game.Seek(MOVES + 1);
+    }
+}
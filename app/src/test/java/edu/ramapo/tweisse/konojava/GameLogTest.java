@@ -0,0 +1,103 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the game log keeps the newest records in order once its ring buffer wraps around.
+ */
+public class GameLogTest {
+
+    /**
+     * Gets the text a move record should have.
+     * @param player The player who moved.
+     * @param cell The zero indexed cell the move started from, on a 5 by 5 board.
+     * @param dir The MoveDirection ordinal.
+     * @return The expected String.
+     */
+    private static String MoveText(int player, int cell, int dir){
+        return "Player " + player + " executes a move " + MoveDirection.values()[dir] + " from Point("
+                + (cell / 5 + 1) + ", " + (cell % 5 + 1) + ").";
+    }
+
+    @Test
+    public void getText_oldestFirst() throws Exception {
+        GameLog log = new GameLog(8);
+        assertEquals(0, log.GetCount());
+        for (int i = 0; i < 5; i++){
+            log.AddMove(1 + i % 2, PackedMove.Play(i, i % 4), 5);
+        }
+        assertEquals(5, log.GetCount());
+        assertEquals(5, log.GetTotal());
+        for (int i = 0; i < 5; i++){
+            assertEquals(MoveText(1 + i % 2, i, i % 4), log.GetText(i));
+        }
+    }
+
+    @Test
+    public void wrapAround_dropsOldest() throws Exception {
+        GameLog log = new GameLog(4);
+        for (int i = 0; i < 11; i++){
+            log.AddMove(1, PackedMove.Play(i, 0), 5);
+            // Read the newest record straight away, so stale cached text would show after wrapping.
+            assertEquals(MoveText(1, i, 0), log.GetText(log.GetCount() - 1));
+        }
+        assertEquals(4, log.GetCount());
+        assertEquals(11, log.GetTotal());
+        for (int i = 0; i < 4; i++){
+            assertEquals("Record " + i, MoveText(1, 7 + i, 0), log.GetText(i));
+        }
+
+        // Records of every kind take their turn in the ring.
+        log.AddQuit(2);
+        log.AddError(MoveError.NO_QUIT);
+        assertEquals(MoveText(1, 9, 0), log.GetText(0));
+        assertEquals(MoveText(1, 10, 0), log.GetText(1));
+        assertEquals("Player 2 quits the game.", log.GetText(2));
+        assertEquals(MoveError.NO_QUIT.toString(), log.GetText(3));
+    }
+
+    @Test
+    public void getText_outOfRange() throws Exception {
+        GameLog log = new GameLog(3);
+        log.AddQuit(1);
+        int indices[] = {-1, 1, 3};
+        for (int index : indices){
+            try {
+                log.GetText(index);
+                fail("Record " + index);
+            }
+            catch (IndexOutOfBoundsException e){
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void clear_startsOver() throws Exception {
+        GameLog log = new GameLog(3);
+        for (int i = 0; i < 5; i++){
+            log.AddMove(2, PackedMove.Play(i, 1), 5);
+        }
+        log.Clear();
+        assertEquals(0, log.GetCount());
+        assertEquals(0, log.GetTotal());
+        log.AddMove(1, PackedMove.Play(24, 0), 5);
+        assertEquals(1, log.GetCount());
+        assertEquals(MoveText(1, 24, 0), log.GetText(0));
+    }
+
+    @Test
+    public void describeMove_withReasonAndTarget() throws Exception {
+        int move = PackedMove.Play(6, 2, true, ActionReason.values()[0], 12);
+        assertEquals("a move SE from Point(2, 2) " + ActionReason.values()[0].GetReason() + " at Point(3, 3).",
+                GameLog.DescribeMove(move, 5));
+        assertEquals("quits the game.", GameLog.DescribeMove(PackedMove.QUIT, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity_mustBePositive() throws Exception {
+        new GameLog(0);
+    }
+}
@@ -0,0 +1,112 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bucket bounds of LatencyHistogram, and the percentiles it gives for known values.
+ */
+public class LatencyHistogramTest {
+
+    /** The index of the last bucket, the one holding Long.MAX_VALUE. */
+    private static final int LAST_BUCKET = LatencyHistogram.BucketOf(Long.MAX_VALUE);
+
+    @Test
+    public void buckets_smallValuesAreExact() throws Exception {
+        for (int value = 0; value < 32; value++){
+            assertEquals(value, LatencyHistogram.BucketOf(value));
+            assertEquals(value, LatencyHistogram.HighestIn(value));
+        }
+        assertEquals(32, LatencyHistogram.BucketOf(32));
+        assertEquals(32, LatencyHistogram.BucketOf(33));
+        assertEquals(33, LatencyHistogram.HighestIn(32));
+    }
+
+    @Test
+    public void buckets_touchWithoutGaps() throws Exception {
+        assertEquals(959, LAST_BUCKET);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.HighestIn(LAST_BUCKET));
+        for (int bucket = 0; bucket < LAST_BUCKET; bucket++){
+            long highest = LatencyHistogram.HighestIn(bucket);
+            assertEquals("Bucket " + bucket, bucket, LatencyHistogram.BucketOf(highest));
+            assertEquals("Bucket " + bucket, bucket + 1, LatencyHistogram.BucketOf(highest + 1));
+            assertTrue(LatencyHistogram.HighestIn(bucket + 1) > highest);
+        }
+    }
+
+    @Test
+    public void buckets_areNarrow() throws Exception {
+        // A bucket is never wider than a sixteenth of the values in it.
+        for (int bucket = 32; bucket <= LAST_BUCKET; bucket++){
+            long lowest = LatencyHistogram.HighestIn(bucket - 1) + 1;
+            long width = LatencyHistogram.HighestIn(bucket) - lowest + 1;
+            assertTrue("Bucket " + bucket, width <= lowest / 16 + 1);
+        }
+    }
+
+    @Test
+    public void percentile_ofSmallValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.GetPercentile(50));
+        for (int value = 1; value <= 30; value++){
+            histogram.Record(value);
+        }
+        assertEquals(30, histogram.GetCount());
+        assertEquals(30, histogram.GetMax());
+        assertEquals(15, histogram.GetMean());
+        assertEquals(1, histogram.GetPercentile(0));
+        assertEquals(15, histogram.GetPercentile(50));
+        assertEquals(27, histogram.GetPercentile(90));
+        assertEquals(30, histogram.GetPercentile(100));
+    }
+
+    @Test
+    public void percentile_ofLargeValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++){
+            histogram.Record(i * 1000L);
+        }
+        double percentiles[] = {1, 50, 90, 99, 99.9};
+        for (double percentile : percentiles){
+            // The value at or below which the percentile lies, and the top of its bucket at most 1/16 above.
+            long exact = (long)Math.ceil(percentile * 10) * 1000L;
+            long reported = histogram.GetPercentile(percentile);
+            assertTrue(percentile + ": " + reported, reported >= exact);
+            assertTrue(percentile + ": " + reported, reported <= exact + exact / 16);
+        }
+        // The top bucket is capped at the largest value recorded.
+        assertEquals(1000000, histogram.GetPercentile(100));
+        assertEquals(500500, histogram.GetMean());
+    }
+
+    @Test
+    public void record_clampsNegative() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.Record(-5);
+        assertEquals(1, histogram.GetCount());
+        assertEquals(0, histogram.GetMax());
+        assertEquals(0, histogram.GetPercentile(100));
+    }
+
+    @Test
+    public void mergeAndClear() throws Exception {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int value = 1; value <= 10; value++){
+            first.Record(value);
+            second.Record(value + 10);
+        }
+        first.Merge(second);
+        assertEquals(20, first.GetCount());
+        assertEquals(20, first.GetMax());
+        assertEquals(10, first.GetPercentile(50));
+        assertEquals(10, second.GetCount());
+
+        first.Clear();
+        assertEquals(0, first.GetCount());
+        assertEquals(0, first.GetMax());
+        assertEquals(0, first.GetMean());
+        assertEquals(0, first.GetPercentile(99));
+    }
+}
@@ -0,0 +1,54 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that times recorded on separate threads are merged when they are read.
+ */
+public class LatencyTest {
+    private static final int THREADS = 4;
+    private static final int RECORDS = 10000;
+
+    @Before
+    public void setUp(){
+        Latency.Clear();
+    }
+
+    @Test
+    public void record_mergesThreads() throws Exception {
+        Thread threads[] = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run(){
+                    for (int j = 0; j < RECORDS; j++){
+                        Latency.Record(Latency.PLAY, 7, Latency.Start());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads){
+            thread.join();
+        }
+        Latency.Record(Latency.PLAY, 7, Latency.Start());
+
+        assertEquals(THREADS * RECORDS + 1, Latency.GetHistogram(Latency.PLAY, 7).GetCount());
+        assertEquals(0, Latency.GetHistogram(Latency.PLAY, 9).GetCount());
+        assertTrue(Latency.Report().contains("Game.Play"));
+
+        Latency.Clear();
+        assertEquals(0, Latency.GetHistogram(Latency.PLAY, 7).GetCount());
+    }
+
+    @Test
+    public void record_badSizeCountsAsUnknown(){
+        Latency.Record(Latency.SAVE, -1, Latency.Start());
+        Latency.Record(Latency.SAVE, Board.MAX_SIZE + 1, Latency.Start());
+        assertEquals(2, Latency.GetHistogram(Latency.SAVE, 0).GetCount());
+    }
+}
@@ -0,0 +1,49 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the Elo interval of one-sided results, and that a match plays whole pairs of games.
+ */
+public class MatchArenaTest {
+
+    @Test
+    public void eloInterval_hasWidthWhenOneSided(){
+        double wins[] = MatchArena.EloInterval(20, 0, 0);
+        assertTrue(wins[1] > 0);
+        assertTrue(wins[0] < wins[1] && wins[1] < wins[2]);
+        assertFalse(Double.isInfinite(wins[1]));
+
+        // All losses mirror all wins.
+        double losses[] = MatchArena.EloInterval(0, 0, 20);
+        assertEquals(-wins[1], losses[1], 1e-9);
+        assertTrue(losses[0] < losses[1] && losses[1] < losses[2]);
+
+        double even[] = MatchArena.EloInterval(10, 5, 10);
+        assertEquals(0, even[1], 1e-9);
+        assertEquals(-even[0], even[2], 1e-9);
+
+        double none[] = MatchArena.EloInterval(0, 0, 0);
+        assertEquals(0, none[0], 0);
+        assertEquals(0, none[2], 0);
+    }
+
+    @Test
+    public void run_roundsOddGamesDown() throws InterruptedException {
+        // Bounds so wide the match can't be decided in a few games.
+        MatchArena arena = new MatchArena(HeadlessGame.ENGINE_RANDOM, HeadlessGame.ENGINE_RANDOM, new int[]{5},
+                0, 10, 1e-12, 1e-12, 5, new SplitRandom(33), HeadlessGame.DEFAULT_MAX_PLIES);
+        assertEquals(MatchArena.UNDECIDED, arena.Run(2));
+        assertEquals(4, arena.GetGames());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_needsAPair(){
+        new MatchArena(HeadlessGame.ENGINE_RANDOM, HeadlessGame.ENGINE_RANDOM, new int[]{5},
+                0, 10, 0.05, 0.05, 1, new SplitRandom(33), HeadlessGame.DEFAULT_MAX_PLIES);
+    }
+}
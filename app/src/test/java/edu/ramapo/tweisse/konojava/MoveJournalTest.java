@@ -0,0 +1,197 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that an automatic save recovers every move recorded, and nothing more.
+ */
+public class MoveJournalTest {
+
+    /** The length of the journal header, and of each record. */
+    private static final int RECORD_LENGTH = 8;
+
+    /** The directory holding the automatic save. */
+    private File m_dir;
+
+    @Before
+    public void setUp() throws Exception {
+        m_dir = TestFixtures.NewTempDir("journal");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TestFixtures.DeleteDir(m_dir);
+    }
+
+    /**
+     * Creates a tournament at the start of a random game.
+     * @param seed The seed of the random moves.
+     * @return The new Tournament.
+     */
+    private static Tournament NewTournament(long seed){
+        return TestFixtures.NewTournament(TestFixtures.NewGame(7, 1, seed), PlayerType.COMPUTER, 0, 0, 1, seed);
+    }
+
+    /**
+     * Plays the next player's move and records it.
+     * @param tourn The Tournament to play in.
+     * @param journal The MoveJournal to record the move in.
+     * @return A boolean value. True if a move was played, false if the game is over.
+     */
+    private static boolean PlayNext(Tournament tourn, MoveJournal journal){
+        int move = TestFixtures.PlayNext(tourn.GetGame());
+        if (move == PackedMove.NONE){
+            return false;
+        }
+        journal.Append(move, tourn);
+        return true;
+    }
+
+    /**
+     * Recovers the automatic save, as text.
+     * @return The text of the recovered Tournament.
+     */
+    private String Recovered(){
+        Tournament tourn = MoveJournal.Recover(m_dir);
+        assertNotNull(tourn);
+        return TestFixtures.Text(tourn);
+    }
+
+    @Test
+    public void recover_replaysJournalOverSnapshot() throws Exception {
+        Tournament tourn = NewTournament(1);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 1000);
+        journal.Start(tourn);
+        assertTrue(MoveJournal.Exists(m_dir));
+        assertEquals(TestFixtures.Text(tourn), Recovered());
+
+        for (int i = 0; i < 20 && PlayNext(tourn, journal); i++){
+            assertEquals(i + 1, journal.GetRecordCount());
+            assertEquals(TestFixtures.Text(tourn), Recovered());
+        }
+        journal.Close();
+        assertEquals(TestFixtures.Text(tourn), Recovered());
+    }
+
+    @Test
+    public void recover_acrossSnapshots() throws Exception {
+        Tournament tourn = NewTournament(2);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 4);
+        journal.Start(tourn);
+        for (int i = 0; i < 30 && PlayNext(tourn, journal); i++){
+            assertTrue(journal.GetRecordCount() < 4);
+            assertEquals(TestFixtures.Text(tourn), Recovered());
+        }
+        journal.Close();
+    }
+
+    @Test
+    public void recover_ignoresTornFinalRecord() throws Exception {
+        Tournament tourn = NewTournament(3);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 1000);
+        journal.Start(tourn);
+        String before = null;
+        for (int i = 0; i < 10; i++){
+            before = TestFixtures.Text(tourn);
+            assertTrue(PlayNext(tourn, journal));
+        }
+        journal.Close();
+
+        // Cut the last record short, as a crash in the middle of writing it would.
+        File file = new File(m_dir, MoveJournal.JOURNAL_FILE);
+        byte data[] = TestFixtures.ReadFile(file);
+        TestFixtures.WriteFile(file, Arrays.copyOf(data, data.length - 3));
+        assertEquals(before, Recovered());
+    }
+
+    @Test
+    public void recover_stopsAtDamagedRecord() throws Exception {
+        Tournament tourn = NewTournament(4);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 1000);
+        journal.Start(tourn);
+        String afterTwo = null;
+        for (int i = 0; i < 5; i++){
+            assertTrue(PlayNext(tourn, journal));
+            if (i == 1){
+                afterTwo = TestFixtures.Text(tourn);
+            }
+        }
+        journal.Close();
+
+        // Damage the checksum of the third record. It and everything after it are dropped.
+        File file = new File(m_dir, MoveJournal.JOURNAL_FILE);
+        byte data[] = TestFixtures.ReadFile(file);
+        data[RECORD_LENGTH * 4 - 1] ^= 1;
+        TestFixtures.WriteFile(file, data);
+        assertEquals(afterTwo, Recovered());
+    }
+
+    @Test
+    public void recover_ignoresStaleJournal() throws Exception {
+        Tournament tourn = NewTournament(5);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 1000);
+        journal.Start(tourn);
+        for (int i = 0; i < 5; i++){
+            assertTrue(PlayNext(tourn, journal));
+        }
+        byte stale[] = TestFixtures.ReadFile(new File(m_dir, MoveJournal.JOURNAL_FILE));
+        journal.Snapshot(tourn);
+        journal.Close();
+
+        // A journal left over from before the snapshot must not be replayed over it.
+        TestFixtures.WriteFile(new File(m_dir, MoveJournal.JOURNAL_FILE), stale);
+        assertEquals(TestFixtures.Text(tourn), Recovered());
+    }
+
+    @Test
+    public void recover_afterQueuedWrites() throws Exception {
+        Tournament tourn = NewTournament(7);
+        SaveQueue queue = new SaveQueue(new Executor() {
+            @Override
+            public void execute(Runnable runnable){
+                runnable.run();
+            }
+        });
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 6, queue);
+        journal.Start(tourn);
+        for (int i = 0; i < 15; i++){
+            assertTrue(PlayNext(tourn, journal));
+        }
+        journal.Close();
+
+        // Wait for the writer thread to finish everything queued before reading the files.
+        final CountDownLatch done = new CountDownLatch(1);
+        queue.execute(new Runnable() {
+            @Override
+            public void run(){
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        queue.Shutdown();
+        assertEquals(TestFixtures.Text(tourn), Recovered());
+    }
+
+    @Test
+    public void discard_deletesFiles() throws Exception {
+        Tournament tourn = NewTournament(6);
+        MoveJournal journal = new MoveJournal(m_dir, MoveJournal.SyncPolicy.NEVER, 1000);
+        assertFalse(journal.Append(PackedMove.QUIT, tourn));
+        journal.Start(tourn);
+        PlayNext(tourn, journal);
+        journal.Discard();
+        assertFalse(MoveJournal.Exists(m_dir));
+        assertNull(MoveJournal.Recover(m_dir));
+        assertFalse(journal.Append(PackedMove.QUIT, tourn));
+    }
+}
@@ -0,0 +1,232 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks compiled patterns against hand-built boards, and against a plain cell by cell test of
+ * the positions of random games.
+ */
+public class PatternQueryTest {
+
+    @Test
+    public void setPosition_fillsEveryClass(){
+        Board board = Build(9, new int[][]{ {0, 0, Board.WHITE}, {80, 80, Board.BLACK_CAPTURE}, {63, 65, Board.WHITE_CAPTURE} });
+        long position[] = new long[PatternQuery.CLASSES * PatternQuery.WordsFor(9)];
+        PatternQuery.SetPosition(board, position);
+        for (int cell = 0; cell < 81; cell++){
+            for (int pieceClass = 0; pieceClass < PatternQuery.CLASSES; pieceClass++){
+                boolean set = (position[pieceClass * 2 + cell / 64] & (1L << (cell % 64))) != 0;
+                assertEquals(Holds(board.GetCell(cell), pieceClass), set);
+            }
+        }
+    }
+
+    @Test
+    public void requireCell_matchesOnlyThatCell(){
+        PatternQuery query = new PatternQuery(9);
+        query.RequireCell(70, PatternQuery.WHITE);
+        query.RequireCell(3, PatternQuery.EMPTY);
+        assertEquals(1, query.GetClauseCount());
+        assertTrue(Matches(query, Build(9, new int[][]{ {70, 70, Board.WHITE_CAPTURE} }), PlayerColor.WHITE));
+        assertFalse(Matches(query, Build(9, new int[][]{ {70, 70, Board.WHITE_CAPTURE}, {3, 3, Board.BLACK} }),
+                PlayerColor.WHITE));
+        assertFalse(Matches(query, Build(9, new int[][]{ {69, 69, Board.WHITE} }), PlayerColor.WHITE));
+
+        query.SetToMove(PlayerColor.BLACK);
+        assertFalse(Matches(query, Build(9, new int[][]{ {70, 70, Board.WHITE} }), PlayerColor.WHITE));
+        assertTrue(Matches(query, Build(9, new int[][]{ {70, 70, Board.WHITE} }), PlayerColor.BLACK));
+    }
+
+    @Test
+    public void requireNeighbours_expandsClauses(){
+        // Every cell of rows 2 to 4 of a 5x5 board has one or two diagonal neighbours in rows 3 and 4.
+        // One clause per pair of them, so 3 for each of the three rows.
+        PatternQuery query = new PatternQuery(5);
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 2,
+                PatternQuery.BLACK_HOME_ROWS);
+        assertEquals(9, query.GetClauseCount());
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 1,
+                PatternQuery.BLACK_HOME_ROWS);
+        assertEquals(24, query.GetClauseCount());
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.WHITE_HOME_ROWS, PatternQuery.BLACK, 2,
+                PatternQuery.BLACK_HOME_ROWS);
+        assertEquals(0, query.GetClauseCount());
+    }
+
+    @Test
+    public void requireNeighbours_needsNeighboursInRegion(){
+        PatternQuery query = new PatternQuery(5);
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 2,
+                PatternQuery.BLACK_HOME_ROWS);
+
+        // A capturing white piece at row 3, column 1, with black on both cells below it.
+        assertTrue(Matches(query, Build(5, new int[][]{ {16, 16, Board.WHITE_CAPTURE}, {20, 20, Board.BLACK},
+                {22, 22, Board.BLACK_CAPTURE} }), PlayerColor.WHITE));
+        // One of the two is above it, outside black's home rows.
+        assertFalse(Matches(query, Build(5, new int[][]{ {16, 16, Board.WHITE_CAPTURE}, {20, 20, Board.BLACK},
+                {10, 10, Board.BLACK} }), PlayerColor.WHITE));
+        // The anchor can't capture.
+        assertFalse(Matches(query, Build(5, new int[][]{ {16, 16, Board.WHITE}, {20, 20, Board.BLACK},
+                {22, 22, Board.BLACK} }), PlayerColor.WHITE));
+        // The black pieces neighbour different anchors.
+        assertFalse(Matches(query, Build(5, new int[][]{ {16, 16, Board.WHITE_CAPTURE}, {18, 18, Board.WHITE_CAPTURE},
+                {20, 20, Board.BLACK}, {24, 24, Board.BLACK} }), PlayerColor.WHITE));
+    }
+
+    @Test
+    public void requireCount_countsInRegion(){
+        // Black starts with a full home row and its two end cells, all in its home rows.
+        PatternQuery query = new PatternQuery(7);
+        query.RequireCount(PatternQuery.BLACK, PatternQuery.BLACK_HOME_ROWS, 9, 9);
+        query.RequireCount(PatternQuery.BLACK, PatternQuery.WHITE_HOME_ROWS, 0, 0);
+        assertTrue(Matches(query, new Board(7), PlayerColor.WHITE));
+        query.RequireCount(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, 1, 4);
+        assertFalse(Matches(query, new Board(7), PlayerColor.WHITE));
+    }
+
+    @Test
+    public void matches_agreesWithCellByCell(){
+        for (int size = 5; size <= 9; size += 2){
+            PatternQuery queries[] = {
+                    Neighbours(size, PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 2,
+                            PatternQuery.BLACK_HOME_ROWS),
+                    Neighbours(size, PatternQuery.BLACK, PatternQuery.WHITE_HOME_ROWS, PatternQuery.EMPTY, 1,
+                            PatternQuery.ANYWHERE),
+                    Neighbours(size, PatternQuery.WHITE_PLAIN, PatternQuery.ANYWHERE, PatternQuery.BLACK_PLAIN, 3,
+                            PatternQuery.ANYWHERE)
+            };
+            int anchors[][] = {
+                    {PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 2, PatternQuery.BLACK_HOME_ROWS},
+                    {PatternQuery.BLACK, PatternQuery.WHITE_HOME_ROWS, PatternQuery.EMPTY, 1, PatternQuery.ANYWHERE},
+                    {PatternQuery.WHITE_PLAIN, PatternQuery.ANYWHERE, PatternQuery.BLACK_PLAIN, 3, PatternQuery.ANYWHERE}
+            };
+            int matched[] = new int[queries.length];
+            for (long seed = 0; seed < 20; seed++){
+                Game game = TestFixtures.NewGame(size, 1, seed);
+                do {
+                    for (int i = 0; i < queries.length; i++){
+                        boolean expected = HasNeighbours(game.GetBoard(), anchors[i]);
+                        assertEquals(expected, Matches(queries[i], game.GetBoard(), PlayerColor.WHITE));
+                        matched[i] += expected ? 1 : 0;
+                    }
+                } while (TestFixtures.PlayNext(game) != PackedMove.NONE);
+            }
+            // Every pattern matched somewhere, so the comparison tested both answers.
+            for (int count : matched){
+                assertTrue(count > 0);
+            }
+        }
+    }
+
+    /**
+     * Creates a board with every cell empty except the ones given.
+     * @param size The size of the board.
+     * @param pieces Each piece as its first cell, last cell and cell value.
+     * @return The new Board.
+     */
+    private static Board Build(int size, int pieces[][]){
+        byte cells[] = new byte[size * size];
+        for (int[] piece : pieces){
+            for (int cell = piece[0]; cell <= piece[1]; cell++){
+                cells[cell] = (byte)piece[2];
+            }
+        }
+        return new Board(size, cells);
+    }
+
+    /**
+     * Compiles a pattern and tests a board against it.
+     * @param query The PatternQuery.
+     * @param board The Board.
+     * @param toMove The PlayerColor to move.
+     * @return A boolean value. True if the board matches.
+     */
+    private static boolean Matches(PatternQuery query, Board board, PlayerColor toMove){
+        long position[] = new long[PatternQuery.CLASSES * PatternQuery.WordsFor(board.GetSize())];
+        PatternQuery.SetPosition(board, position);
+        query.Compile();
+        return query.Matches(position, toMove);
+    }
+
+    /**
+     * Creates a pattern of a piece with neighbours.
+     * @return The new PatternQuery. See PatternQuery.RequireNeighbours() for the rest.
+     */
+    private static PatternQuery Neighbours(int size, int anchorClass, int anchorRegion, int neighbourClass,
+                                           int count, int neighbourRegion){
+        PatternQuery query = new PatternQuery(size);
+        query.RequireNeighbours(anchorClass, anchorRegion, neighbourClass, count, neighbourRegion);
+        return query;
+    }
+
+    /**
+     * Tests a board for a piece with neighbours by looking at every cell.
+     * @param board The Board.
+     * @param anchor The anchor class and region, the neighbour class, the fewest neighbours and their region.
+     * @return A boolean value. True if some piece has the neighbours.
+     */
+    private static boolean HasNeighbours(Board board, int anchor[]){
+        int size = board.GetSize();
+        for (int cell = 0; cell < size * size; cell++){
+            if (!Holds(board.GetCell(cell), anchor[0]) || !InRegion(size, cell, anchor[1])){
+                continue;
+            }
+            int found = 0;
+            for (int dRow = -1; dRow <= 1; dRow += 2){
+                for (int dCol = -1; dCol <= 1; dCol += 2){
+                    int row = cell / size + dRow;
+                    int col = cell % size + dCol;
+                    if (row >= 0 && row < size && col >= 0 && col < size
+                            && Holds(board.GetCell(row * size + col), anchor[2])
+                            && InRegion(size, row * size + col, anchor[4])){
+                        found++;
+                    }
+                }
+            }
+            if (found >= anchor[3]){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param cell A cell value.
+     * @param pieceClass A PatternQuery piece class.
+     * @return A boolean value. True if the cell holds the class.
+     */
+    private static boolean Holds(byte cell, int pieceClass){
+        switch (pieceClass){
+            case PatternQuery.EMPTY:
+                return cell == Board.EMPTY;
+            case PatternQuery.WHITE:
+                return cell == Board.WHITE || cell == Board.WHITE_CAPTURE;
+            case PatternQuery.WHITE_CAPTURE:
+                return cell == Board.WHITE_CAPTURE;
+            case PatternQuery.WHITE_PLAIN:
+                return cell == Board.WHITE;
+            case PatternQuery.BLACK:
+                return cell == Board.BLACK || cell == Board.BLACK_CAPTURE;
+            case PatternQuery.BLACK_CAPTURE:
+                return cell == Board.BLACK_CAPTURE;
+            default:
+                return cell == Board.BLACK;
+        }
+    }
+
+    /**
+     * @param size The size of the board.
+     * @param cell A cell.
+     * @param region A PatternQuery region.
+     * @return A boolean value. True if the cell is in the region.
+     */
+    private static boolean InRegion(int size, int cell, int region){
+        int row = cell / size;
+        return region == PatternQuery.ANYWHERE || (region == PatternQuery.WHITE_HOME_ROWS && row <= 1)
+                || (region == PatternQuery.BLACK_HOME_ROWS && row >= size - 2);
+    }
+}
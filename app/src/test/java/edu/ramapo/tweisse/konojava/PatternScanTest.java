@@ -0,0 +1,165 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a scan finds the same positions as testing each position from scratch, on one thread
+ * and on several, and that the limit and Stop() end it early.
+ */
+public class PatternScanTest {
+    private static final int SIZE = 7;
+
+    private File m_dir;
+    private GameArchive m_archive;
+
+    @Before
+    public void setUp() throws IOException {
+        m_dir = TestFixtures.NewTempDir("scan");
+        m_archive = new GameArchive(m_dir, 1 << 20);
+        SplitRandom random = new SplitRandom(21);
+        for (int i = 0; i < 600; i++){
+            // A few games of another size, which the scan skips.
+            int size = i % 10 == 0 ? 5 : SIZE;
+            m_archive.Add(HeadlessGame.PlayGame(i, "random", "heuristic", size, 1 + random.NextInt(2),
+                    new SplitRandom(random.NextLong()), 200));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        m_archive.Close();
+        TestFixtures.DeleteDir(m_dir);
+    }
+
+    @Test
+    public void scan_agreesWithFreshPositions() throws InterruptedException {
+        for (PatternQuery query : Queries()){
+            List<String> expected = Replay(query);
+            assertFalse(expected.isEmpty());
+
+            PatternScan scan = new PatternScan(m_archive, query, Integer.MAX_VALUE);
+            scan.Run(1);
+            assertEquals(expected, Matches(scan));
+            assertFalse(scan.IsStopped());
+
+            scan = new PatternScan(m_archive, query, Integer.MAX_VALUE);
+            scan.Run(4);
+            List<String> found = Matches(scan);
+            Collections.sort(found);
+            Collections.sort(expected);
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    public void scan_stopsAtLimit() throws InterruptedException {
+        PatternQuery query = new PatternQuery(SIZE);
+        query.RequireCount(PatternQuery.WHITE, PatternQuery.ANYWHERE, 1, SIZE * SIZE);
+        PatternScan all = new PatternScan(m_archive, query, Integer.MAX_VALUE);
+        all.Run(1);
+
+        PatternScan scan = new PatternScan(m_archive, query, 5);
+        scan.Run(1);
+        assertEquals(5, scan.GetMatchCount());
+        assertTrue(scan.IsStopped());
+        assertTrue(scan.GetPositions() < all.GetPositions());
+        assertEquals(Matches(all).subList(0, 5), Matches(scan));
+
+        scan = new PatternScan(m_archive, query, 5);
+        scan.Run(4);
+        assertEquals(5, scan.GetMatchCount());
+        assertTrue(scan.IsStopped());
+    }
+
+    @Test
+    public void stop_endsScan() throws InterruptedException {
+        PatternQuery query = new PatternQuery(SIZE);
+        PatternScan scan = new PatternScan(m_archive, query, Integer.MAX_VALUE);
+        scan.Stop();
+        scan.Run(2);
+        assertTrue(scan.IsStopped());
+        assertEquals(0, scan.GetPositions());
+        assertEquals(0, scan.GetMatchCount());
+    }
+
+    /**
+     * @return Patterns that between them look at every piece class.
+     */
+    private static List<PatternQuery> Queries(){
+        List<PatternQuery> queries = new ArrayList<PatternQuery>();
+        PatternQuery query = new PatternQuery(SIZE);
+        query.RequireNeighbours(PatternQuery.WHITE_CAPTURE, PatternQuery.ANYWHERE, PatternQuery.BLACK, 1,
+                PatternQuery.BLACK_HOME_ROWS);
+        queries.add(query);
+        query = new PatternQuery(SIZE);
+        query.RequireNeighbours(PatternQuery.BLACK_PLAIN, PatternQuery.ANYWHERE, PatternQuery.WHITE_PLAIN, 2,
+                PatternQuery.ANYWHERE);
+        query.SetToMove(PlayerColor.BLACK);
+        queries.add(query);
+        query = new PatternQuery(SIZE);
+        query.RequireCount(PatternQuery.EMPTY, PatternQuery.WHITE_HOME_ROWS, 5, 8);
+        query.RequireCount(PatternQuery.BLACK_CAPTURE, PatternQuery.ANYWHERE, 1, 2);
+        queries.add(query);
+        query = new PatternQuery(SIZE);
+        query.RequireCell(SIZE * SIZE / 2, PatternQuery.WHITE);
+        query.RequireCount(PatternQuery.BLACK, PatternQuery.ANYWHERE, 6, 7);
+        queries.add(query);
+        return queries;
+    }
+
+    /**
+     * Finds the matches of a pattern by setting up the bitmasks from scratch at every ply.
+     * @param query The PatternQuery.
+     * @return Each match as its game and ply, in the order of the games.
+     */
+    private List<String> Replay(PatternQuery query){
+        query.Compile();
+        List<String> matches = new ArrayList<String>();
+        long position[] = new long[PatternQuery.CLASSES * PatternQuery.WordsFor(SIZE)];
+        for (long ref : m_archive.GetGameRefs()){
+            GameArchive.ArchivedGame game = m_archive.Read(ref);
+            if (game.GetSize() != SIZE){
+                continue;
+            }
+            Board board = game.GetStart();
+            PlayerColor toMove = game.GetFirstColor();
+            int moves[] = game.GetMoves();
+            for (int ply = 0; ; ply++){
+                PatternQuery.SetPosition(board, position);
+                if (query.Matches(position, toMove)){
+                    matches.add(ref + ":" + ply);
+                }
+                if (ply == moves.length || !PackedMove.IsPlay(moves[ply])){
+                    break;
+                }
+                board.Apply(moves[ply]);
+                toMove = PlayerColor.Opponent(toMove);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @param scan A PatternScan that has run.
+     * @return Each match as its game and ply, in the order found.
+     */
+    private static List<String> Matches(PatternScan scan){
+        List<String> matches = new ArrayList<String>();
+        for (int i = 0; i < scan.GetMatchCount(); i++){
+            matches.add(scan.GetMatchRef(i) + ":" + scan.GetMatchPly(i));
+        }
+        return matches;
+    }
+}
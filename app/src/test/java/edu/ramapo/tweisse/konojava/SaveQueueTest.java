@@ -0,0 +1,144 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that saves replace files whole, and that saves of a file waiting to be written are merged.
+ */
+public class SaveQueueTest {
+
+    /** The directory the files are written to. */
+    private File m_dir;
+
+    /** The queue being tested. */
+    private SaveQueue m_queue;
+
+    /** The number of times results were handed over. */
+    private AtomicInteger m_deliveries = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        m_dir = TestFixtures.NewTempDir("saves");
+        m_queue = new SaveQueue(new Executor() {
+            @Override
+            public void execute(Runnable runnable){
+                m_deliveries.incrementAndGet();
+                runnable.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_queue.Shutdown();
+        TestFixtures.DeleteDir(m_dir);
+    }
+
+    /**
+     * Creates a callback that records the results it is told and counts down a latch.
+     * @param results The list to add each result to.
+     * @param done The CountDownLatch to count down.
+     * @return The new Callback.
+     */
+    private static SaveQueue.Callback Recorder(final ArrayList<Boolean> results, final CountDownLatch done){
+        return new SaveQueue.Callback() {
+            @Override
+            public void OnSaved(File file, boolean success){
+                synchronized (results){
+                    results.add(success);
+                }
+                done.countDown();
+            }
+        };
+    }
+
+    @Test
+    public void writeAtomically_replacesFile() throws Exception {
+        File file = new File(m_dir, "save.kono");
+        assertTrue(SaveQueue.WriteAtomically(file, new byte[]{1, 2, 3, 4}, false));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, TestFixtures.ReadFile(file));
+        assertTrue(SaveQueue.WriteAtomically(file, new byte[]{5, 6}, true));
+        assertArrayEquals(new byte[]{5, 6}, TestFixtures.ReadFile(file));
+        assertFalse(new File(file.getPath() + SaveQueue.TEMP_SUFFIX).exists());
+    }
+
+    @Test
+    public void writeAtomically_failureKeepsNothing() throws Exception {
+        File file = new File(new File(m_dir, "missing"), "save.kono");
+        assertFalse(SaveQueue.WriteAtomically(file, new byte[]{1}, false));
+        assertFalse(file.exists());
+        assertFalse(new File(file.getPath() + SaveQueue.TEMP_SUFFIX).exists());
+    }
+
+    @Test
+    public void save_writesInBackground() throws Exception {
+        File file = new File(m_dir, "save.kono");
+        ArrayList<Boolean> results = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        m_queue.Save(new byte[]{9, 8, 7}, file, Recorder(results, done));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, results.size());
+        assertTrue(results.get(0));
+        assertArrayEquals(new byte[]{9, 8, 7}, TestFixtures.ReadFile(file));
+    }
+
+    @Test
+    public void save_coalescesWaitingSaves() throws Exception {
+        File file = new File(m_dir, "save.kono");
+        File other = new File(m_dir, "other.kono");
+
+        // Hold up the writer thread, so every save below is still waiting when the next is queued.
+        final CountDownLatch release = new CountDownLatch(1);
+        m_queue.execute(new Runnable() {
+            @Override
+            public void run(){
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        ArrayList<Boolean> results = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(4);
+        m_queue.Save(new byte[]{1}, file, Recorder(results, done));
+        m_queue.Save(new byte[]{2}, file, Recorder(results, done));
+        m_queue.Save(new byte[]{3}, other, Recorder(results, done));
+        m_queue.Save(new byte[]{4}, file, null);
+        m_queue.Save(new byte[]{5}, file, Recorder(results, done));
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(4, results.size());
+        for (Boolean result : results){
+            assertTrue(result);
+        }
+        // Only the newest data is written, and everyone waiting for the file is told at once.
+        assertArrayEquals(new byte[]{5}, TestFixtures.ReadFile(file));
+        assertArrayEquals(new byte[]{3}, TestFixtures.ReadFile(other));
+        assertEquals(2, m_deliveries.get());
+    }
+
+    @Test
+    public void save_failureIsReported() throws Exception {
+        File file = new File(new File(m_dir, "missing"), "save.kono");
+        ArrayList<Boolean> results = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        m_queue.Save(new byte[]{1}, file, Recorder(results, done));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse(results.get(0));
+    }
+}
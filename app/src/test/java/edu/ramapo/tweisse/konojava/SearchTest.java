@@ -0,0 +1,69 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the principal variation reported by a search is a legal line at least as long as the
+ * search was deep, even where scores were taken from the transposition table.
+ */
+public class SearchTest {
+    private static final int DEPTH = 6;
+
+    @Test
+    public void go_reportsFullPv(){
+        final Search search = new Search();
+        for (int size = 5; size <= 7; size += 2){
+            SplitRandom random = new SplitRandom(size);
+            for (int game = 0; game < 10; game++){
+                Board board = new Board(size);
+                PlayerColor color = PlayerColor.WHITE;
+                int moves[] = new int[4 * (size + 2)];
+                for (int ply = 0; ply < 40 && board.GetWinner() == null; ply++){
+                    final Board root = new Board(board);
+                    final PlayerColor toMove = color;
+                    search.Go(board, color, DEPTH, 0, 0, new Search.Listener() {
+                        @Override
+                        public void OnInfo(int depth, int score, long nodes, long nanos, int pv[], int pvLength){
+                            CheckPv(new Board(root), toMove, depth, pv, pvLength);
+                        }
+                    });
+
+                    int numMoves = board.GenerateMoves(color, moves);
+                    if (numMoves == 0){
+                        break;
+                    }
+                    board.Apply(moves[random.NextInt(numMoves)]);
+                    color = PlayerColor.Opponent(color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays out a principal variation, checking that every move is legal and that it only ends
+     * before the depth searched if the game does.
+     * @param board A copy of the position searched.
+     * @param color The PlayerColor to move.
+     * @param depth The depth searched.
+     * @param pv The principal variation.
+     * @param pvLength The number of moves in it.
+     */
+    private static void CheckPv(Board board, PlayerColor color, int depth, int pv[], int pvLength){
+        int moves[] = new int[4 * (board.GetSize() + 2)];
+        for (int i = 0; i < pvLength; i++){
+            int numMoves = board.GenerateMoves(color, moves);
+            boolean legal = false;
+            for (int j = 0; j < numMoves; j++){
+                legal |= moves[j] == pv[i];
+            }
+            assertTrue(legal);
+            board.Apply(pv[i]);
+            color = PlayerColor.Opponent(color);
+        }
+        if (pvLength < depth){
+            assertTrue(board.GetWinner() != null || board.GenerateMoves(color, moves) == 0);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package edu.ramapo.tweisse.konojava;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Games, tournaments and files shared by the unit tests. Every game is played by two RandomComputer
+ * players drawing from a seeded RandomSource, so the same seed always plays the same moves.
+ */
+final class TestFixtures {
+
+    /**
+     * No instances. Everything here is static.
+     */
+    private TestFixtures(){
+    }
+
+    /**
+     * Creates a game between two random players, at the starting position.
+     * @param size The size of the board.
+     * @param firstPlayer The player to move first. 1 or 2.
+     * @param seed The seed of the random moves.
+     * @return The new Game. Player 1 is white.
+     */
+    static Game NewGame(int size, int firstPlayer, long seed){
+        Game game = new Game(new RandomComputer(PlayerColor.WHITE, 0), new RandomComputer(PlayerColor.BLACK, 0),
+                firstPlayer, new Board(size));
+        game.SetRandom(new SplitRandom(seed));
+        return game;
+    }
+
+    /**
+     * Creates a tournament around a game, with a human as player 1.
+     * @param game The Game being played.
+     * @param p2Type The PlayerType of player 2.
+     * @param p1Score Player 1's tournament score.
+     * @param p2Score Player 2's tournament score.
+     * @param round The round number.
+     * @param seed The seed of the tournament's RandomSource.
+     * @return The new Tournament.
+     */
+    static Tournament NewTournament(Game game, PlayerType p2Type, int p1Score, int p2Score, int round, long seed){
+        return new Tournament(PlayerType.HUMAN, p1Score, p2Type, p2Score, game, round, game.GetNextPlayer(),
+                new SplitRandom(seed));
+    }
+
+    /**
+     * Plays the next player's move, as chosen by its PrePlay().
+     * @param game The Game to play in.
+     * @return The packed move played, or PackedMove.NONE if the game is over or there was no move.
+     */
+    static int PlayNext(Game game){
+        if (game.IsWinner()){
+            return PackedMove.NONE;
+        }
+        int move = game.PrePlay(PackedMove.NONE);
+        if (!PackedMove.IsPlay(move) || game.Play(move) != null){
+            return PackedMove.NONE;
+        }
+        return move;
+    }
+
+    /**
+     * Plays random moves until the game ends or enough have been played.
+     * @param game The Game to play in.
+     * @param plies The most moves to play.
+     * @return The number of moves played.
+     */
+    static int PlayRandom(Game game, int plies){
+        int played = 0;
+        while (played < plies && PlayNext(game) != PackedMove.NONE){
+            played++;
+        }
+        return played;
+    }
+
+    /**
+     * Saves a tournament in the text format, which shows everything a save has to keep.
+     * @param tourn The Tournament to save.
+     * @return The saved text.
+     */
+    static String Text(Tournament tourn){
+        StringWriter out = new StringWriter();
+        Serializer.Write(tourn, out);
+        return out.toString();
+    }
+
+    /**
+     * Creates an empty directory for a test to write files in.
+     * @param prefix The start of the directory's name.
+     * @return The new directory.
+     * @exception IOException If the directory couldn't be created.
+     */
+    static File NewTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdir()){
+            throw new IOException("Couldn't create " + dir + ".");
+        }
+        return dir;
+    }
+
+    /**
+     * Deletes a directory made by NewTempDir() and every file in it.
+     * @param dir The directory.
+     */
+    static void DeleteDir(File dir){
+        File files[] = dir.listFiles();
+        if (files != null){
+            for (File file : files){
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * Reads a whole file.
+     * @param file The File to read.
+     * @return The bytes of the file.
+     * @exception IOException If the file couldn't be read.
+     */
+    static byte[] ReadFile(File file) throws IOException {
+        byte data[] = new byte[(int)file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < data.length){
+                int count = in.read(data, read, data.length - read);
+                if (count == -1){
+                    throw new IOException(file + " ended early.");
+                }
+                read += count;
+            }
+        }
+        finally {
+            in.close();
+        }
+        return data;
+    }
+
+    /**
+     * Replaces the contents of a file.
+     * @param file The File to write.
+     * @param data The bytes to write.
+     * @exception IOException If the file couldn't be written.
+     */
+    static void WriteFile(File file, byte data[]) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package edu.ramapo.tweisse.konojava;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that text saves are read back exactly as Serializer wrote them, and that bad files are
+ * reported at the right line and column.
+ */
+public class TournamentParserTest {
+
+    /** A valid save, one line per element, written exactly as Serializer writes it. */
+    private static final String LINES[] = {
+            "Round: 3",
+            "",
+            "Computer:",
+            "   Score: 4",
+            "   Color: Black",
+            "",
+            "Human:",
+            "   Score: 2",
+            "   Color: White",
+            "",
+            "Board:",
+            "   W  W  W  W  W  ",
+            "   W  O  O  O  W  ",
+            "   O  O  O  O  O  ",
+            "   B  O  O  O  B  ",
+            "   B  B  B  B  B  ",
+            "",
+            "Next Player: Human"};
+
+    /**
+     * Joins the lines of a save.
+     * @param lines The lines.
+     * @param newLine The text ending each line but the last.
+     * @return The save.
+     */
+    private static String Join(String lines[], String newLine){
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines.length; i++){
+            if (i > 0){
+                text.append(newLine);
+            }
+            text.append(lines[i]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Gets the valid save with one line replaced.
+     * @param line The line to replace, starting at 1.
+     * @param text The text of the new line.
+     * @return The save.
+     */
+    private static String WithLine(int line, String text){
+        String lines[] = LINES.clone();
+        lines[line - 1] = text;
+        return Join(lines, "\n");
+    }
+
+    /**
+     * Parses a save that must be refused, and checks where the parser says it failed.
+     * @param text The save.
+     * @param line The line the error should be reported at.
+     * @param column The column the error should be reported at.
+     */
+    private static void AssertFails(String text, int line, int column){
+        byte data[] = text.getBytes();
+        try {
+            new TournamentParser().Parse(data, 0, data.length);
+            fail("Parsed: " + text);
+        }
+        catch (TournamentParser.ParseException e){
+            assertEquals(e.getMessage(), line, e.GetLine());
+            assertEquals(e.getMessage(), column, e.GetColumn());
+        }
+    }
+
+    @Test
+    public void parse_validSave() throws Exception {
+        byte data[] = Join(LINES, "\n").getBytes();
+        Tournament tourn = new TournamentParser().Parse(data, 0, data.length);
+        assertEquals(3, tourn.GetRoundNum());
+        assertEquals(2, tourn.GetPlayerScore(1));
+        assertEquals(4, tourn.GetPlayerScore(2));
+        assertEquals(PlayerType.HUMAN, tourn.GetPlayerType(1));
+        assertEquals(PlayerType.COMPUTER, tourn.GetPlayerType(2));
+        assertEquals(PlayerColor.WHITE, tourn.GetGame().GetPlayer(1).GetColor());
+        assertEquals(1, tourn.GetGame().GetNextPlayer());
+        assertEquals(5, tourn.GetGame().GetBoard().GetSize());
+        assertEquals(Join(LINES, "\n"), TestFixtures.Text(tourn));
+    }
+
+    @Test
+    public void parse_windowsLineEnds() throws Exception {
+        byte data[] = Join(LINES, "\r\n").getBytes();
+        Tournament tourn = new TournamentParser().Parse(new ByteArrayInputStream(data));
+        assertEquals(Join(LINES, "\n"), TestFixtures.Text(tourn));
+    }
+
+    @Test
+    public void parse_reportsWhereItFailed() throws Exception {
+        AssertFails(WithLine(1, "Round: x3"), 1, 8);
+        AssertFails(WithLine(8, "   Score:"), 8, 10);
+        AssertFails(WithLine(13, "   W  O  Q  O  W"), 13, 10);
+        AssertFails(WithLine(13, "   WWW  O  O  O  W"), 13, 4);
+        AssertFails(WithLine(1, "Round: 99999999999"), 1, 8);
+        // A missing row leaves a board that isn't square, reported at its header.
+        AssertFails(WithLine(15, ""), 11, 1);
+        // Missing sections are reported after the last line.
+        AssertFails(WithLine(18, ""), 18, 1);
+        AssertFails(WithLine(1, ""), 19, 1);
+        // A file cut short in the middle of a section.
+        AssertFails("Round: 3\n\nComputer:", 4, 1);
+    }
+
+    @Test
+    public void parse_agreesWithSerializer() throws Exception {
+        TournamentParser parser = new TournamentParser();
+        SplitRandom random = new SplitRandom(7);
+        for (int size = Board.MAX_SIZE; size >= Board.MIN_SIZE; size -= 2){
+            for (int i = 0; i < 5; i++){
+                Game game = TestFixtures.NewGame(size, 1 + random.NextInt(2), random.NextLong());
+                PlayerType p2Type = random.NextInt(2) == 0 ? PlayerType.HUMAN : PlayerType.COMPUTER;
+                Tournament tourn = TestFixtures.NewTournament(game, p2Type, random.NextInt(100), random.NextInt(100),
+                        1 + random.NextInt(20), random.NextLong());
+                TestFixtures.PlayRandom(game, random.NextInt(40));
+
+                // The same parser is reused, so buffers left from a bigger board must not leak into this one.
+                String text = TestFixtures.Text(tourn);
+                byte data[] = text.getBytes();
+                Tournament parsed = parser.Parse(data, 0, data.length);
+                assertEquals(text, TestFixtures.Text(parsed));
+                assertEquals(p2Type, parsed.GetPlayerType(2));
+            }
+        }
+    }
+}